@@ -0,0 +1,462 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A concurrent map from primitive longs to objects.
+ * <p>
+ * Keys and values are kept in plain arrays using open addressing with linear probing, split into
+ * sections each one guarded by its own lock. Compared to a {@code ConcurrentHashMap<Long, V>} there
+ * is no boxed key and no entry node per mapping, which matters for maps holding millions of entries
+ * such as the journal's live records.
+ * <p>
+ * Null values are not supported.
+ */
+public class ConcurrentLongHashMap<V>
+{
+   private static final int DEFAULT_EXPECTED_ITEMS = 256;
+
+   private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+   private static final float MAP_FILL_FACTOR = 0.66f;
+
+   public interface EntryVisitor<V>
+   {
+      void visit(long key, V value);
+   }
+
+   private final Section<V>[] sections;
+
+   public ConcurrentLongHashMap()
+   {
+      this(DEFAULT_EXPECTED_ITEMS, DEFAULT_CONCURRENCY_LEVEL);
+   }
+
+   public ConcurrentLongHashMap(final int expectedItems)
+   {
+      this(expectedItems, DEFAULT_CONCURRENCY_LEVEL);
+   }
+
+   @SuppressWarnings("unchecked")
+   public ConcurrentLongHashMap(final int expectedItems, final int concurrencyLevel)
+   {
+      if (expectedItems <= 0 || concurrencyLevel <= 0)
+      {
+         throw new IllegalArgumentException("expectedItems=" + expectedItems + ", concurrencyLevel=" + concurrencyLevel);
+      }
+
+      int numSections = powerOfTwo(concurrencyLevel);
+
+      int perSection = Math.max(1, expectedItems / numSections);
+
+      sections = new Section[numSections];
+
+      for (int i = 0; i < numSections; i++)
+      {
+         sections[i] = new Section<V>(perSection);
+      }
+   }
+
+   public int size()
+   {
+      int size = 0;
+
+      for (Section<V> section : sections)
+      {
+         size += section.size();
+      }
+
+      return size;
+   }
+
+   public boolean isEmpty()
+   {
+      for (Section<V> section : sections)
+      {
+         if (section.size() != 0)
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   public V get(final long key)
+   {
+      long h = hash(key);
+      return sectionFor(h).get(key, (int) h);
+   }
+
+   public boolean containsKey(final long key)
+   {
+      return get(key) != null;
+   }
+
+   /**
+    * @return the previous value for the key, or null if there was none
+    */
+   public V put(final long key, final V value)
+   {
+      checkNotNull(value);
+      long h = hash(key);
+      return sectionFor(h).put(key, value, (int) h, false);
+   }
+
+   /**
+    * @return the current value for the key if there was one, in which case the map is not changed
+    */
+   public V putIfAbsent(final long key, final V value)
+   {
+      checkNotNull(value);
+      long h = hash(key);
+      return sectionFor(h).put(key, value, (int) h, true);
+   }
+
+   public V remove(final long key)
+   {
+      long h = hash(key);
+      return sectionFor(h).remove(key, (int) h);
+   }
+
+   public void clear()
+   {
+      for (Section<V> section : sections)
+      {
+         section.clear();
+      }
+   }
+
+   /**
+    * Visits every mapping, one section at a time. The section being visited is locked while the visitor is called,
+    * so the visitor must not modify this map.
+    */
+   public void forEach(final EntryVisitor<V> visitor)
+   {
+      for (Section<V> section : sections)
+      {
+         section.forEach(visitor);
+      }
+   }
+
+   /**
+    * @return a snapshot of the keys, weakly consistent when the map is being updated concurrently
+    */
+   public long[] keys()
+   {
+      KeyCollector<V> collector = new KeyCollector<V>(size());
+
+      forEach(collector);
+
+      return collector.toArray();
+   }
+
+   /**
+    * @return a snapshot of the values, weakly consistent when the map is being updated concurrently
+    */
+   public List<V> values()
+   {
+      final List<V> values = new ArrayList<V>(size());
+
+      forEach(new EntryVisitor<V>()
+      {
+         public void visit(final long key, final V value)
+         {
+            values.add(value);
+         }
+      });
+
+      return values;
+   }
+
+   private Section<V> sectionFor(final long hash)
+   {
+      // the low bits pick the bucket inside the section, the high bits pick the section
+      return sections[(int) (hash >>> 32) & (sections.length - 1)];
+   }
+
+   private static void checkNotNull(final Object value)
+   {
+      if (value == null)
+      {
+         throw new NullPointerException("null values are not supported");
+      }
+   }
+
+   static long hash(final long key)
+   {
+      // MurmurHash3 64 bits finalizer, ids are often sequential and need to be spread
+      long h = key;
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return h;
+   }
+
+   static int powerOfTwo(final int value)
+   {
+      return 1 << (32 - Integer.numberOfLeadingZeros(value - 1));
+   }
+
+   private static final class KeyCollector<V> implements EntryVisitor<V>
+   {
+      private long[] keys;
+
+      private int count;
+
+      KeyCollector(final int expectedSize)
+      {
+         keys = new long[expectedSize];
+      }
+
+      public void visit(final long key, final V value)
+      {
+         if (count == keys.length)
+         {
+            keys = Arrays.copyOf(keys, keys.length * 2 + 1);
+         }
+
+         keys[count++] = key;
+      }
+
+      long[] toArray()
+      {
+         return count == keys.length ? keys : Arrays.copyOf(keys, count);
+      }
+   }
+
+   private static final class Section<V>
+   {
+      private final int initialCapacity;
+
+      private long[] keys;
+
+      // a null value marks a free bucket
+      private Object[] values;
+
+      private volatile int size;
+
+      private int resizeThreshold;
+
+      Section(final int expectedItems)
+      {
+         initialCapacity = powerOfTwo(Math.max(2, (int) (expectedItems / MAP_FILL_FACTOR)));
+         allocate(initialCapacity);
+      }
+
+      int size()
+      {
+         return size;
+      }
+
+      synchronized V get(final long key, final int hash)
+      {
+         int mask = values.length - 1;
+
+         int bucket = hash & mask;
+
+         while (true)
+         {
+            Object value = values[bucket];
+
+            if (value == null)
+            {
+               return null;
+            }
+
+            if (keys[bucket] == key)
+            {
+               @SuppressWarnings("unchecked")
+               V v = (V) value;
+               return v;
+            }
+
+            bucket = (bucket + 1) & mask;
+         }
+      }
+
+      synchronized V put(final long key, final V value, final int hash, final boolean onlyIfAbsent)
+      {
+         int mask = values.length - 1;
+
+         int bucket = hash & mask;
+
+         while (true)
+         {
+            Object current = values[bucket];
+
+            if (current == null)
+            {
+               keys[bucket] = key;
+               values[bucket] = value;
+               size++;
+
+               if (size > resizeThreshold)
+               {
+                  rehash(values.length * 2);
+               }
+
+               return null;
+            }
+
+            if (keys[bucket] == key)
+            {
+               if (!onlyIfAbsent)
+               {
+                  values[bucket] = value;
+               }
+
+               @SuppressWarnings("unchecked")
+               V previous = (V) current;
+               return previous;
+            }
+
+            bucket = (bucket + 1) & mask;
+         }
+      }
+
+      synchronized V remove(final long key, final int hash)
+      {
+         int mask = values.length - 1;
+
+         int bucket = hash & mask;
+
+         while (true)
+         {
+            Object current = values[bucket];
+
+            if (current == null)
+            {
+               return null;
+            }
+
+            if (keys[bucket] == key)
+            {
+               size--;
+
+               shiftBack(bucket);
+
+               @SuppressWarnings("unchecked")
+               V previous = (V) current;
+               return previous;
+            }
+
+            bucket = (bucket + 1) & mask;
+         }
+      }
+
+      synchronized void clear()
+      {
+         if (values.length != initialCapacity)
+         {
+            allocate(initialCapacity);
+         }
+         else
+         {
+            Arrays.fill(values, null);
+         }
+
+         size = 0;
+      }
+
+      synchronized void forEach(final EntryVisitor<V> visitor)
+      {
+         for (int i = 0; i < values.length; i++)
+         {
+            Object value = values[i];
+
+            if (value != null)
+            {
+               @SuppressWarnings("unchecked")
+               V v = (V) value;
+               visitor.visit(keys[i], v);
+            }
+         }
+      }
+
+      /**
+       * Frees the bucket moving back any following entry that would no longer be reachable from its
+       * ideal bucket, so lookups never need tombstones.
+       */
+      private void shiftBack(int free)
+      {
+         int mask = values.length - 1;
+
+         int bucket = free;
+
+         while (true)
+         {
+            bucket = (bucket + 1) & mask;
+
+            if (values[bucket] == null)
+            {
+               break;
+            }
+
+            int ideal = (int) hash(keys[bucket]) & mask;
+
+            // the entry stays if its ideal bucket is cyclically within (free, bucket]
+            boolean reachable = free <= bucket ? free < ideal && ideal <= bucket : free < ideal || ideal <= bucket;
+
+            if (!reachable)
+            {
+               keys[free] = keys[bucket];
+               values[free] = values[bucket];
+               free = bucket;
+            }
+         }
+
+         values[free] = null;
+      }
+
+      private void rehash(final int newCapacity)
+      {
+         long[] oldKeys = keys;
+
+         Object[] oldValues = values;
+
+         allocate(newCapacity);
+
+         int mask = newCapacity - 1;
+
+         for (int i = 0; i < oldValues.length; i++)
+         {
+            if (oldValues[i] != null)
+            {
+               int bucket = (int) hash(oldKeys[i]) & mask;
+
+               while (values[bucket] != null)
+               {
+                  bucket = (bucket + 1) & mask;
+               }
+
+               keys[bucket] = oldKeys[i];
+               values[bucket] = oldValues[i];
+            }
+         }
+      }
+
+      private void allocate(final int capacity)
+      {
+         keys = new long[capacity];
+         values = new Object[capacity];
+         resizeThreshold = (int) (capacity * MAP_FILL_FACTOR);
+      }
+   }
+}
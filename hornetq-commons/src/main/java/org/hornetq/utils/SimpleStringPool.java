@@ -0,0 +1,162 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.SimpleString;
+
+/**
+ * A bounded cache of SimpleStrings read from buffers, so the addresses, queue names and property names arriving
+ * over and over resolve to the same instance, with its hash already computed.
+ * <p>
+ * Strings are looked up by their encoded bytes, which are compared in place on the buffer, so a string already on
+ * the pool is read without allocating anything. Each string has a single slot chosen by its hash, a string taking a
+ * slot replaces whatever was there. There are no locks: concurrent readers may both allocate the same string, in
+ * which case one of them stays on the slot. Strings longer than the maximum length are never pooled.
+ */
+public final class SimpleStringPool
+{
+   public static final int DEFAULT_CAPACITY = 4096;
+
+   public static final int DEFAULT_MAX_LENGTH = 128;
+
+   private static final SimpleStringPool DEFAULT = new SimpleStringPool(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+
+   private final SimpleString[] entries;
+
+   private final int mask;
+
+   private final int maxLength;
+
+   /**
+    * @param capacity  the number of slots, rounded up to a power of two
+    * @param maxLength the maximum length (in bytes) of a pooled string
+    */
+   public SimpleStringPool(final int capacity, final int maxLength)
+   {
+      if (capacity <= 0 || maxLength < 0)
+      {
+         throw new IllegalArgumentException("capacity=" + capacity + ", maxLength=" + maxLength);
+      }
+
+      int size = 1;
+
+      while (size < capacity)
+      {
+         size <<= 1;
+      }
+
+      entries = new SimpleString[size];
+
+      mask = size - 1;
+
+      this.maxLength = maxLength;
+   }
+
+   /**
+    * @return the pool used by the wire and journal decoders
+    */
+   public static SimpleStringPool getDefault()
+   {
+      return DEFAULT;
+   }
+
+   /**
+    * Reads a string written by {@link HornetQBuffer#writeSimpleString(SimpleString)}.
+    */
+   public SimpleString readSimpleString(final HornetQBuffer buffer)
+   {
+      return read(buffer, buffer.readInt());
+   }
+
+   /**
+    * Reads a string written by {@link HornetQBuffer#writeNullableSimpleString(SimpleString)}.
+    */
+   public SimpleString readNullableSimpleString(final HornetQBuffer buffer)
+   {
+      if (buffer.readByte() == DataConstants.NULL)
+      {
+         return null;
+      }
+
+      return readSimpleString(buffer);
+   }
+
+   /**
+    * Reads the given number of bytes of a string whose length was already read.
+    */
+   public SimpleString read(final HornetQBuffer buffer, final int length)
+   {
+      if (length > maxLength)
+      {
+         return newString(buffer, length);
+      }
+
+      int index = buffer.readerIndex();
+
+      // the same hash as SimpleString's
+      int hash = 0;
+
+      for (int i = 0; i < length; i++)
+      {
+         hash = (hash << 5) - hash + buffer.getByte(index + i);
+      }
+
+      int slot = (hash ^ hash >>> 16) & mask;
+
+      SimpleString pooled = entries[slot];
+
+      if (pooled != null && pooled.hashCode() == hash && matches(pooled.getData(), buffer, index, length))
+      {
+         buffer.skipBytes(length);
+
+         return pooled;
+      }
+
+      SimpleString string = newString(buffer, length);
+
+      // computed now so the users of the pooled string don't have to
+      string.hashCode();
+
+      entries[slot] = string;
+
+      return string;
+   }
+
+   private static boolean matches(final byte[] data, final HornetQBuffer buffer, final int index, final int length)
+   {
+      if (data.length != length)
+      {
+         return false;
+      }
+
+      for (int i = 0; i < length; i++)
+      {
+         if (data[i] != buffer.getByte(index + i))
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static SimpleString newString(final HornetQBuffer buffer, final int length)
+   {
+      byte[] data = new byte[length];
+
+      buffer.readBytes(data);
+
+      return new SimpleString(data);
+   }
+}
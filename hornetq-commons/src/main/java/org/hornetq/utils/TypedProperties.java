@@ -19,6 +19,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQPropertyConversionException;
 import org.hornetq.api.core.SimpleString;
 
@@ -40,6 +41,11 @@ import static org.hornetq.utils.DataConstants.STRING;
  * This implementation follows section 3.5.4 of the <i>Java Message Service</i> specification
  * (Version 1.1 April 12, 2002).
  * <p>
+ * Decoding keeps the encoded properties instead of building the map of properties. Looking up a property that isn't
+ * there is answered from the encoded bytes, anything else decodes them all first. Most messages have their properties
+ * looked up only for the few properties the server uses internally, so most never build the map. The names of those
+ * properties are shared by all decoded instances.
+ * <p>
  * TODO - should have typed property getters and do conversions herein
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
@@ -50,8 +56,42 @@ public final class TypedProperties
 
    private static final SimpleString HQ_PROPNAME = new SimpleString("_HQ_");
 
+   /**
+    * Names used on most messages, decoded to these instances instead of allocating new ones.
+    */
+   private static final SimpleString[] KNOWN_NAMES = {new SimpleString("_HQ_DUPL_ID"),
+      new SimpleString("_HQ_GROUP_ID"),
+      new SimpleString("_HQ_SCHED_DELIVERY"),
+      new SimpleString("_HQ_ROUTE_TO"),
+      new SimpleString("_HQ_ROUTE_TO_ACK"),
+      new SimpleString("_HQ_BRIDGE_DUP"),
+      new SimpleString("_HQ_ORIG_ADDRESS"),
+      new SimpleString("_HQ_ORIG_QUEUE"),
+      new SimpleString("_HQ_ORIG_MESSAGE_ID"),
+      new SimpleString("_HQ_ACTUAL_EXPIRY"),
+      new SimpleString("_HQ_LARGE_SIZE"),
+      new SimpleString("_HQ_LARGE_COMPRESSED"),
+      new SimpleString("_HQ_LVQ_NAME"),
+      new SimpleString("__HQ_CID"),
+      new SimpleString("JMSCorrelationID"),
+      new SimpleString("JMSType"),
+      new SimpleString("JMSReplyTo"),
+      new SimpleString("JMSXGroupSeq"),
+      new SimpleString("JMSXUserID")};
+
    private Map<SimpleString, PropertyValue> properties;
 
+   /**
+    * The encoded properties, from the first key on, while the map hasn't been built. It is never changed so copies
+    * share it.
+    */
+   private byte[] encoded;
+
+   /**
+    * The offset on {@link #encoded} of each property.
+    */
+   private int[] encodedOffsets;
+
    private volatile int size;
 
    private boolean internalProperties;
@@ -66,13 +106,23 @@ public final class TypedProperties
       // Note we don't include the attributes or anything else since they already included in the memory estimate
       // of the ServerMessage
 
+      if (encoded != null)
+      {
+         return size + 2 * DataConstants.SIZE_INT * encodedOffsets.length;
+      }
+
       return properties == null ? 0 : size + 2 * DataConstants.SIZE_INT * properties.size();
    }
 
    public TypedProperties(final TypedProperties other)
    {
-      properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
-      size = other.size;
+      synchronized (other)
+      {
+         properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
+         encoded = other.encoded;
+         encodedOffsets = other.encodedOffsets;
+         size = other.size;
+      }
    }
 
    public boolean hasInternalProperties()
@@ -148,7 +198,14 @@ public final class TypedProperties
 
    public void putTypedProperties(final TypedProperties otherProps)
    {
-      if (otherProps == null || otherProps.properties == null)
+      if (otherProps == null)
+      {
+         return;
+      }
+
+      otherProps.decodeEncoded();
+
+      if (otherProps.properties == null)
       {
          return;
       }
@@ -424,20 +481,24 @@ public final class TypedProperties
       return doRemoveProperty(key);
    }
 
-   public boolean containsProperty(final SimpleString key)
+   public synchronized boolean containsProperty(final SimpleString key)
    {
       if (size == 0)
       {
          return false;
 
       }
+      else if (encoded != null)
+      {
+         return findEncoded(key) >= 0;
+      }
       else
       {
          return properties.containsKey(key);
       }
    }
 
-   public Set<SimpleString> getPropertyNames()
+   public synchronized Set<SimpleString> getPropertyNames()
    {
       if (size == 0)
       {
@@ -445,6 +506,8 @@ public final class TypedProperties
       }
       else
       {
+         decodeEncoded();
+
          return properties.keySet();
       }
    }
@@ -453,6 +516,9 @@ public final class TypedProperties
    {
       byte b = buffer.readByte();
 
+      encoded = null;
+      encodedOffsets = null;
+
       if (b == DataConstants.NULL)
       {
          properties = null;
@@ -461,100 +527,50 @@ public final class TypedProperties
       {
          int numHeaders = buffer.readInt();
 
-         properties = new HashMap<SimpleString, PropertyValue>(numHeaders);
-         size = 0;
+         int start = buffer.readerIndex();
 
+         int[] offsets = new int[numHeaders];
+
+         // Only the limits of each property are read here, the rest waits until a property is needed
          for (int i = 0; i < numHeaders; i++)
          {
-            int len = buffer.readInt();
-            byte[] data = new byte[len];
-            buffer.readBytes(data);
-            SimpleString key = new SimpleString(data);
-
-            byte type = buffer.readByte();
+            offsets[i] = buffer.readerIndex() - start;
 
-            PropertyValue val;
+            int len = buffer.readInt();
 
-            switch (type)
+            if (!internalProperties && startsWith(buffer, buffer.readerIndex(), len, HQ_PROPNAME.getData()))
             {
-               case NULL:
-               {
-                  val = new NullValue();
-                  doPutValue(key, val);
-                  break;
-               }
-               case CHAR:
-               {
-                  val = new CharValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BOOLEAN:
-               {
-                  val = new BooleanValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTE:
-               {
-                  val = new ByteValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTES:
-               {
-                  val = new BytesValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case SHORT:
-               {
-                  val = new ShortValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case INT:
-               {
-                  val = new IntValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case LONG:
-               {
-                  val = new LongValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case FLOAT:
-               {
-                  val = new FloatValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case DOUBLE:
-               {
-                  val = new DoubleValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case STRING:
-               {
-                  val = new StringValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               default:
-               {
-                  throw HornetQUtilBundle.BUNDLE.invalidType(type);
-               }
+               internalProperties = true;
             }
+
+            buffer.skipBytes(len);
+
+            skipValue(buffer.readByte(), buffer);
          }
+
+         size = buffer.readerIndex() - start;
+
+         encoded = new byte[size];
+
+         buffer.getBytes(start, encoded);
+
+         encodedOffsets = offsets;
+
+         properties = null;
       }
    }
 
    public synchronized void encode(final HornetQBuffer buffer)
    {
-      if (properties == null)
+      if (encoded != null)
+      {
+         buffer.writeByte(DataConstants.NOT_NULL);
+
+         buffer.writeInt(encodedOffsets.length);
+
+         buffer.writeBytes(encoded);
+      }
+      else if (properties == null)
       {
          buffer.writeByte(DataConstants.NULL);
       }
@@ -578,7 +594,7 @@ public final class TypedProperties
 
    public int getEncodeSize()
    {
-      if (properties == null)
+      if (properties == null && encoded == null)
       {
          return DataConstants.SIZE_BYTE;
       }
@@ -588,8 +604,10 @@ public final class TypedProperties
       }
    }
 
-   public void clear()
+   public synchronized void clear()
    {
+      decodeEncoded();
+
       if (properties != null)
       {
          properties.clear();
@@ -597,8 +615,10 @@ public final class TypedProperties
    }
 
    @Override
-   public String toString()
+   public synchronized String toString()
    {
+      decodeEncoded();
+
       return "TypedProperties[" + properties + "]";
    }
 
@@ -606,12 +626,235 @@ public final class TypedProperties
 
    private void checkCreateProperties()
    {
+      decodeEncoded();
+
       if (properties == null)
       {
          properties = new HashMap<SimpleString, PropertyValue>();
       }
    }
 
+   /**
+    * Builds the map of properties out of the encoded properties, if they weren't decoded yet.
+    */
+   private synchronized void decodeEncoded()
+   {
+      if (encoded == null)
+      {
+         return;
+      }
+
+      HornetQBuffer buffer = HornetQBuffers.wrappedBuffer(encoded);
+
+      int numHeaders = encodedOffsets.length;
+
+      encoded = null;
+      encodedOffsets = null;
+
+      properties = new HashMap<SimpleString, PropertyValue>(numHeaders);
+      size = 0;
+
+      for (int i = 0; i < numHeaders; i++)
+      {
+         SimpleString key = readKey(buffer);
+
+         byte type = buffer.readByte();
+
+         PropertyValue val;
+
+         switch (type)
+         {
+            case NULL:
+            {
+               val = new NullValue();
+               doPutValue(key, val);
+               break;
+            }
+            case CHAR:
+            {
+               val = new CharValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case BOOLEAN:
+            {
+               val = new BooleanValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case BYTE:
+            {
+               val = new ByteValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case BYTES:
+            {
+               val = new BytesValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case SHORT:
+            {
+               val = new ShortValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case INT:
+            {
+               val = new IntValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case LONG:
+            {
+               val = new LongValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case FLOAT:
+            {
+               val = new FloatValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case DOUBLE:
+            {
+               val = new DoubleValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            case STRING:
+            {
+               val = new StringValue(buffer);
+               doPutValue(key, val);
+               break;
+            }
+            default:
+            {
+               throw HornetQUtilBundle.BUNDLE.invalidType(type);
+            }
+         }
+      }
+   }
+
+   /**
+    * @return the offset of the property on {@link #encoded}, or -1 if there's no such property
+    */
+   private int findEncoded(final SimpleString key)
+   {
+      byte[] data = key.getData();
+
+      for (int offset : encodedOffsets)
+      {
+         int len = (encoded[offset] & 0xff) << 24 | (encoded[offset + 1] & 0xff) << 16 |
+            (encoded[offset + 2] & 0xff) << 8 | encoded[offset + 3] & 0xff;
+
+         if (len == data.length && regionMatches(encoded, offset + DataConstants.SIZE_INT, data))
+         {
+            return offset;
+         }
+      }
+
+      return -1;
+   }
+
+   private static boolean regionMatches(final byte[] bytes, final int offset, final byte[] data)
+   {
+      for (int i = 0; i < data.length; i++)
+      {
+         if (bytes[offset + i] != data[i])
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static boolean startsWith(final HornetQBuffer buffer, final int index, final int len, final byte[] prefix)
+   {
+      if (len < prefix.length)
+      {
+         return false;
+      }
+
+      for (int i = 0; i < prefix.length; i++)
+      {
+         if (buffer.getByte(index + i) != prefix[i])
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static SimpleString readKey(final HornetQBuffer buffer)
+   {
+      int len = buffer.readInt();
+
+      int index = buffer.readerIndex();
+
+      for (SimpleString name : KNOWN_NAMES)
+      {
+         byte[] data = name.getData();
+
+         if (data.length == len && startsWith(buffer, index, len, data))
+         {
+            buffer.skipBytes(len);
+
+            return name;
+         }
+      }
+
+      return SimpleStringPool.getDefault().read(buffer, len);
+   }
+
+   private static void skipValue(final byte type, final HornetQBuffer buffer)
+   {
+      switch (type)
+      {
+         case NULL:
+         {
+            break;
+         }
+         case BOOLEAN:
+         case BYTE:
+         {
+            buffer.skipBytes(DataConstants.SIZE_BYTE);
+            break;
+         }
+         case CHAR:
+         case SHORT:
+         {
+            buffer.skipBytes(DataConstants.SIZE_SHORT);
+            break;
+         }
+         case INT:
+         case FLOAT:
+         {
+            buffer.skipBytes(DataConstants.SIZE_INT);
+            break;
+         }
+         case LONG:
+         case DOUBLE:
+         {
+            buffer.skipBytes(DataConstants.SIZE_LONG);
+            break;
+         }
+         case BYTES:
+         case STRING:
+         {
+            buffer.skipBytes(buffer.readInt());
+            break;
+         }
+         default:
+         {
+            throw HornetQUtilBundle.BUNDLE.invalidType(type);
+         }
+      }
+   }
    private synchronized void doPutValue(final SimpleString key, final PropertyValue value)
    {
       if (key.startsWith(HQ_PROPNAME))
@@ -632,6 +875,16 @@ public final class TypedProperties
 
    private synchronized Object doRemoveProperty(final SimpleString key)
    {
+      if (encoded != null)
+      {
+         if (findEncoded(key) < 0)
+         {
+            return null;
+         }
+
+         decodeEncoded();
+      }
+
       if (properties == null)
       {
          return null;
@@ -658,6 +911,16 @@ public final class TypedProperties
          return null;
       }
 
+      if (encoded != null)
+      {
+         if (key instanceof SimpleString && findEncoded((SimpleString) key) < 0)
+         {
+            return null;
+         }
+
+         decodeEncoded();
+      }
+
       PropertyValue val = properties.get(key);
 
       if (val == null)
@@ -1059,13 +1322,20 @@ public final class TypedProperties
       }
    }
 
-   public boolean isEmpty()
+   public synchronized boolean isEmpty()
    {
+      if (encoded != null)
+      {
+         return encodedOffsets.length == 0;
+      }
+
       return properties.isEmpty();
    }
 
-   public Map<String, Object> getMap()
+   public synchronized Map<String, Object> getMap()
    {
+      decodeEncoded();
+
       Map<String, Object> m = new HashMap<String, Object>();
       for (Entry<SimpleString, PropertyValue> entry : properties.entrySet())
       {
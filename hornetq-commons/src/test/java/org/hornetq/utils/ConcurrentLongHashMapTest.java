@@ -0,0 +1,161 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentLongHashMapTest extends Assert
+{
+   @Test
+   public void testSimpleOperations() throws Exception
+   {
+      ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<String>(4, 2);
+
+      assertTrue(map.isEmpty());
+      assertNull(map.get(1));
+      assertNull(map.put(1, "one"));
+      assertEquals("one", map.put(1, "uno"));
+      assertEquals("uno", map.putIfAbsent(1, "one"));
+      assertEquals("uno", map.get(1));
+      assertNull(map.putIfAbsent(2, "two"));
+      assertTrue(map.containsKey(2));
+      assertEquals(2, map.size());
+
+      long[] keys = map.keys();
+      Arrays.sort(keys);
+      assertArrayEquals(new long[]{1, 2}, keys);
+
+      assertEquals("uno", map.remove(1));
+      assertNull(map.remove(1));
+      assertEquals(1, map.size());
+
+      map.clear();
+      assertTrue(map.isEmpty());
+      assertNull(map.get(2));
+   }
+
+   @Test(expected = NullPointerException.class)
+   public void testNullValue() throws Exception
+   {
+      new ConcurrentLongHashMap<String>().put(1, null);
+   }
+
+   @Test
+   public void testCompareWithHashMap() throws Exception
+   {
+      // small key range so the same buckets are removed and reused, exercising the backward shift on remove
+      Random random = new Random(1);
+
+      ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>(16, 1);
+
+      Map<Long, Long> expected = new HashMap<Long, Long>();
+
+      for (int i = 0; i < 200000; i++)
+      {
+         long key = random.nextInt(2000) - 1000;
+
+         if (random.nextBoolean())
+         {
+            assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+         }
+         else
+         {
+            assertEquals(expected.remove(key), map.remove(key));
+         }
+      }
+
+      assertEquals(expected.size(), map.size());
+
+      for (Map.Entry<Long, Long> entry : expected.entrySet())
+      {
+         assertEquals(entry.getValue(), map.get(entry.getKey()));
+      }
+
+      assertEquals(expected.size(), map.keys().length);
+      assertEquals(expected.size(), map.values().size());
+   }
+
+   @Test
+   public void testConcurrentUpdates() throws Exception
+   {
+      final int threads = 4;
+      final int perThread = 50000;
+
+      final ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>();
+
+      final CountDownLatch start = new CountDownLatch(1);
+
+      Thread[] workers = new Thread[threads];
+
+      for (int i = 0; i < threads; i++)
+      {
+         final long base = (long) i * perThread;
+
+         workers[i] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+               }
+               catch (InterruptedException e)
+               {
+                  return;
+               }
+
+               for (long id = base; id < base + perThread; id++)
+               {
+                  map.put(id, id);
+               }
+
+               // remove every other id
+               for (long id = base; id < base + perThread; id += 2)
+               {
+                  map.remove(id);
+               }
+            }
+         };
+         workers[i].start();
+      }
+
+      start.countDown();
+
+      for (Thread worker : workers)
+      {
+         worker.join();
+      }
+
+      assertEquals(threads * perThread / 2, map.size());
+
+      for (long id = 0; id < threads * perThread; id++)
+      {
+         if (id % 2 == 0)
+         {
+            assertNull(map.get(id));
+         }
+         else
+         {
+            assertEquals(Long.valueOf(id), map.get(id));
+         }
+      }
+   }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.SimpleString;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimpleStringPoolTest extends Assert
+{
+   @Test
+   public void testSameInstance() throws Exception
+   {
+      SimpleStringPool pool = new SimpleStringPool(16, 32);
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(128);
+      buffer.writeSimpleString(new SimpleString("jms.queue.orders"));
+      buffer.writeSimpleString(new SimpleString("jms.queue.orders"));
+      buffer.writeInt(123);
+
+      SimpleString first = pool.readSimpleString(buffer);
+      SimpleString second = pool.readSimpleString(buffer);
+
+      assertEquals(new SimpleString("jms.queue.orders"), first);
+      assertSame(first, second);
+      assertEquals(123, buffer.readInt());
+   }
+
+   @Test
+   public void testNullable() throws Exception
+   {
+      SimpleStringPool pool = new SimpleStringPool(16, 32);
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(128);
+      buffer.writeNullableSimpleString(null);
+      buffer.writeNullableSimpleString(new SimpleString("address"));
+      buffer.writeNullableSimpleString(new SimpleString("address"));
+
+      assertNull(pool.readNullableSimpleString(buffer));
+      SimpleString address = pool.readNullableSimpleString(buffer);
+      assertEquals(new SimpleString("address"), address);
+      assertSame(address, pool.readNullableSimpleString(buffer));
+   }
+
+   @Test
+   public void testLongStringsAreNotPooled() throws Exception
+   {
+      SimpleStringPool pool = new SimpleStringPool(16, 4);
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(128);
+      buffer.writeSimpleString(new SimpleString("too-long"));
+      buffer.writeSimpleString(new SimpleString("too-long"));
+
+      SimpleString first = pool.readSimpleString(buffer);
+      SimpleString second = pool.readSimpleString(buffer);
+
+      assertEquals(first, second);
+      assertNotSame(first, second);
+   }
+
+   @Test
+   public void testSlotReplaced() throws Exception
+   {
+      // a single slot, every string collides
+      SimpleStringPool pool = new SimpleStringPool(1, 32);
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(128);
+      buffer.writeSimpleString(new SimpleString("a"));
+      buffer.writeSimpleString(new SimpleString("b"));
+      buffer.writeSimpleString(new SimpleString("b"));
+      buffer.writeSimpleString(new SimpleString("a"));
+
+      SimpleString a = pool.readSimpleString(buffer);
+      SimpleString b = pool.readSimpleString(buffer);
+
+      assertEquals(new SimpleString("a"), a);
+      assertEquals(new SimpleString("b"), b);
+      assertSame(b, pool.readSimpleString(buffer));
+
+      SimpleString otherA = pool.readSimpleString(buffer);
+      assertEquals(a, otherA);
+      assertNotSame(a, otherA);
+   }
+
+   @Test
+   public void testEmptyString() throws Exception
+   {
+      SimpleStringPool pool = new SimpleStringPool(16, 32);
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(128);
+      buffer.writeSimpleString(new SimpleString(""));
+      buffer.writeSimpleString(new SimpleString(""));
+
+      SimpleString empty = pool.readSimpleString(buffer);
+      assertEquals(0, empty.length());
+      assertSame(empty, pool.readSimpleString(buffer));
+   }
+}
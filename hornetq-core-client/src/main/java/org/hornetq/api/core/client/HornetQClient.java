@@ -56,6 +56,12 @@ public final class HornetQClient
 
    public static final int DEFAULT_PRODUCER_MAX_RATE = -1;
 
+   public static final int DEFAULT_PRODUCER_BATCH_SIZE = 1;
+
+   public static final int DEFAULT_PRODUCER_BATCH_MAX_BYTES = 64 * 1024;
+
+   public static final long DEFAULT_PRODUCER_BATCH_LINGER_TIME = 5;
+
    public static final boolean DEFAULT_BLOCK_ON_ACKNOWLEDGE = false;
 
    public static final boolean DEFAULT_BLOCK_ON_DURABLE_SEND = true;
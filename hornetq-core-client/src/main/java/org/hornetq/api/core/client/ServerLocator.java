@@ -318,6 +318,65 @@ public interface ServerLocator extends AutoCloseable
     */
    void setProducerMaxRate(int producerMaxRate);
 
+   /**
+    * Returns the maximum number of messages a producer created through this factory sends together on a single
+    * packet.
+    * <p>
+    * Only messages sent without blocking are batched. A batch is sent when it is full, when its oldest message has
+    * waited for the linger time or before the session commits, rolls back or closes.
+    * <p>
+    * Value is 1 (to disable) or greater. Default value is {@link HornetQClient#DEFAULT_PRODUCER_BATCH_SIZE}.
+    *
+    * @return the maximum number of messages on a batch
+    */
+   int getProducerBatchSize();
+
+   /**
+    * Sets the maximum number of messages a producer created through this factory sends together on a single packet.
+    * <p>
+    * Value must be 1 (to disable) or greater.
+    *
+    * @param producerBatchSize the maximum number of messages on a batch
+    */
+   void setProducerBatchSize(int producerBatchSize);
+
+   /**
+    * Returns the maximum size (in bytes) of the messages a producer sends together on a single packet.
+    * <p>
+    * The flow control credits of a batch are acquired at once when it is sent. Default value is
+    * {@link HornetQClient#DEFAULT_PRODUCER_BATCH_MAX_BYTES}.
+    *
+    * @return the maximum size (in bytes) of a batch
+    */
+   int getProducerBatchMaxBytes();
+
+   /**
+    * Sets the maximum size (in bytes) of the messages a producer sends together on a single packet.
+    * <p>
+    * Value must be greater than 0.
+    *
+    * @param producerBatchMaxBytes the maximum size (in bytes) of a batch
+    */
+   void setProducerBatchMaxBytes(int producerBatchMaxBytes);
+
+   /**
+    * Returns the maximum time (in milliseconds) a message waits on a batch before the batch is sent.
+    * <p>
+    * Default value is {@link HornetQClient#DEFAULT_PRODUCER_BATCH_LINGER_TIME}.
+    *
+    * @return the linger time (in milliseconds) of a batch
+    */
+   long getProducerBatchLingerTime();
+
+   /**
+    * Sets the maximum time (in milliseconds) a message waits on a batch before the batch is sent.
+    * <p>
+    * Value must be greater than 0.
+    *
+    * @param producerBatchLingerTime the linger time (in milliseconds) of a batch
+    */
+   void setProducerBatchLingerTime(long producerBatchLingerTime);
+
    /**
     * Returns whether consumers created through this factory will block while
     * sending message acknowledgments or do it asynchronously.
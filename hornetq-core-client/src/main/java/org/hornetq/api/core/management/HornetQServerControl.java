@@ -80,6 +80,21 @@ public interface HornetQServerControl
     */
    long getSecurityInvalidationInterval();
 
+   /**
+    * Returns the number of authentications and authorizations answered from the security cache.
+    */
+   long getSecurityCacheHitCount();
+
+   /**
+    * Returns the number of authentications and authorizations the security cache had no decision for.
+    */
+   long getSecurityCacheMissCount();
+
+   /**
+    * Returns the number of decisions currently kept on the security cache.
+    */
+   int getSecurityCacheSize();
+
    /**
     * Returns whether security is enabled for this server.
     */
@@ -135,6 +150,23 @@ public interface HornetQServerControl
     */
    int getJournalBufferTimeout();
 
+   /**
+    * Returns the timeout (in nanoseconds) currently used to flush internal buffers on the journal. It differs from
+    * the configured one only when the journal buffer latency target is set.
+    */
+   int getJournalBufferCurrentTimeout();
+
+   /**
+    * Returns the moving average of records written by each flush of the journal internal buffer.
+    */
+   double getJournalBufferAverageBatchSize();
+
+   /**
+    * Returns the moving average of the time (in nanoseconds) a flush of the journal internal buffer asking for a sync
+    * takes to complete.
+    */
+   long getJournalSyncLatency();
+
    /**
     * do any clients failover on a server shutdown
     */
@@ -156,6 +188,17 @@ public interface HornetQServerControl
     */
    int getJournalCompactPercentage();
 
+   /**
+    * Returns the number of bytes taken by live records on the message journal data files.
+    */
+   long getJournalLiveSize();
+
+   /**
+    * Returns the number of bytes on the message journal data files not taken by live records, which compacting can
+    * reclaim.
+    */
+   long getJournalGarbageSize();
+
    /**
     * Returns whether this server is using persistence and store data.
     */
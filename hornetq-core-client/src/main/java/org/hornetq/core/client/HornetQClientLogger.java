@@ -313,6 +313,10 @@ public interface HornetQClientLogger extends BasicLogger
    @Message(id = 212055, value = "Unable to close consumer", format = Message.Format.MESSAGE_FORMAT)
    void unableToCloseConsumer(@Cause Exception e);
 
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 212056, value = "Failed to send the batch of messages of a producer to address={0}", format = Message.Format.MESSAGE_FORMAT)
+   void errorSendingProducerBatch(String address, @Cause Exception e);
+
    @LogMessage(level = Logger.Level.ERROR)
    @Message(id = 214000, value = "Failed to call onMessage", format = Message.Format.MESSAGE_FORMAT)
    void onMessageError(@Cause Throwable e);
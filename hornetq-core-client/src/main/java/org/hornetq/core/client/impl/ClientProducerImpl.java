@@ -14,6 +14,12 @@ package org.hornetq.core.client.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.HornetQBuffer;
@@ -23,6 +29,7 @@ import org.hornetq.api.core.HornetQInterruptedException;
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.client.SendAcknowledgementHandler;
+import org.hornetq.core.client.HornetQClientLogger;
 import org.hornetq.core.client.HornetQClientMessageBundle;
 import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.message.impl.MessageInternal;
@@ -64,6 +71,32 @@ public class ClientProducerImpl implements ClientProducerInternal
 
    private final ClientProducerCredits producerCredits;
 
+   // For batching, the batch is guarded by this producer
+
+   private final int batchSize;
+
+   private final int batchMaxBytes;
+
+   private final long batchLingerTime;
+
+   private final Executor batchExecutor;
+
+   private final ScheduledExecutorService scheduledExecutor;
+
+   private List<MessageInternal> batchMessages;
+
+   private List<HornetQBuffer> batchEncodedMessages;
+
+   private List<SendAcknowledgementHandler> batchHandlers;
+
+   private ClientProducerCredits batchCredits;
+
+   private int batchBytes;
+
+   private ScheduledFuture<?> batchLingerFuture;
+
+   private HornetQException batchFailure;
+
    // Static ---------------------------------------------------------------------------------------
 
    // Constructors ---------------------------------------------------------------------------------
@@ -76,6 +109,11 @@ public class ClientProducerImpl implements ClientProducerInternal
                              final boolean autoGroup,
                              final SimpleString groupID,
                              final int minLargeMessageSize,
+                             final int batchSize,
+                             final int batchMaxBytes,
+                             final long batchLingerTime,
+                             final Executor batchExecutor,
+                             final ScheduledExecutorService scheduledExecutor,
                              final SessionContext sessionContext)
    {
       this.sessionContext = sessionContext;
@@ -101,6 +139,21 @@ public class ClientProducerImpl implements ClientProducerInternal
 
       this.minLargeMessageSize = minLargeMessageSize;
 
+      this.batchSize = batchSize;
+
+      this.batchMaxBytes = batchMaxBytes;
+
+      this.batchLingerTime = batchLingerTime;
+
+      this.batchExecutor = batchExecutor;
+
+      this.scheduledExecutor = scheduledExecutor;
+
+      if (batchSize > 1)
+      {
+         newBatch();
+      }
+
       if (address != null)
       {
          producerCredits = session.getCredits(address, false);
@@ -169,7 +222,14 @@ public class ClientProducerImpl implements ClientProducerInternal
          return;
       }
 
-      doCleanup();
+      try
+      {
+         flushBatch();
+      }
+      finally
+      {
+         doCleanup();
+      }
    }
 
    public void cleanUp()
@@ -209,8 +269,26 @@ public class ClientProducerImpl implements ClientProducerInternal
       return producerCredits;
    }
 
+   public synchronized void flushBatch() throws HornetQException
+   {
+      if (batchSize <= 1)
+      {
+         return;
+      }
+
+      checkBatchFailure();
+
+      doFlushBatch();
+   }
+
    private void doCleanup()
    {
+      if (batchLingerFuture != null)
+      {
+         batchLingerFuture.cancel(false);
+         batchLingerFuture = null;
+      }
+
       if (address != null)
       {
          session.returnCredits(address);
@@ -292,13 +370,23 @@ public class ClientProducerImpl implements ClientProducerInternal
 
          session.workDone();
 
-         if (isLarge)
+         if (!isLarge && !sendBlocking && batchSize > 1 && sessionContext.supportsSendBatch())
          {
-            largeMessageSend(sendBlocking, msgI, theCredits, handler);
+            addToBatch(msgI, theCredits, handler);
          }
          else
          {
-            sendRegularMessage(msgI, sendBlocking, theCredits, handler);
+            // whatever is waiting on the batch was sent before this message
+            flushBatch();
+
+            if (isLarge)
+            {
+               largeMessageSend(sendBlocking, msgI, theCredits, handler);
+            }
+            else
+            {
+               sendRegularMessage(msgI, sendBlocking, theCredits, handler);
+            }
          }
       }
       finally
@@ -329,6 +417,130 @@ public class ClientProducerImpl implements ClientProducerInternal
       sessionContext.sendFullMessage(msgI, sendBlocking, handler);
    }
 
+   private synchronized void addToBatch(final MessageInternal msgI,
+                                        final ClientProducerCredits theCredits,
+                                        final SendAcknowledgementHandler handler) throws HornetQException
+   {
+      checkBatchFailure();
+
+      // The credits of a batch are acquired at once, so it only holds messages sharing the same credits
+      if (theCredits != batchCredits)
+      {
+         doFlushBatch();
+      }
+
+      int creditSize = sessionContext.getCreditsOnSendingFull(msgI);
+
+      if (!batchMessages.isEmpty() && batchBytes + creditSize > batchMaxBytes)
+      {
+         doFlushBatch();
+      }
+
+      // The application may change the message as soon as send returns, the batch keeps its current encoding
+      batchEncodedMessages.add(msgI.getEncodedBufferSlice());
+      batchMessages.add(msgI);
+      batchHandlers.add(handler);
+      batchCredits = theCredits;
+      batchBytes += creditSize;
+
+      if (batchMessages.size() >= batchSize || batchBytes >= batchMaxBytes)
+      {
+         doFlushBatch();
+      }
+      else if (batchLingerFuture == null && batchLingerTime > 0)
+      {
+         batchLingerFuture = scheduledExecutor.schedule(new Runnable()
+         {
+            public void run()
+            {
+               // Sending may block on credits, which is not something to do on the scheduled pool
+               batchExecutor.execute(new Runnable()
+               {
+                  public void run()
+                  {
+                     flushLingeringBatch();
+                  }
+               });
+            }
+         }, batchLingerTime, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   private synchronized void flushLingeringBatch()
+   {
+      if (closed)
+      {
+         return;
+      }
+
+      try
+      {
+         doFlushBatch();
+      }
+      catch (HornetQException e)
+      {
+         HornetQClientLogger.LOGGER.errorSendingProducerBatch("" + address, e);
+
+         // the application gets it on its next call to the producer
+         batchFailure = e;
+      }
+   }
+
+   private void doFlushBatch() throws HornetQException
+   {
+      if (batchLingerFuture != null)
+      {
+         batchLingerFuture.cancel(false);
+         batchLingerFuture = null;
+      }
+
+      if (batchMessages.isEmpty())
+      {
+         return;
+      }
+
+      List<MessageInternal> messages = batchMessages;
+      List<HornetQBuffer> encodedMessages = batchEncodedMessages;
+      List<SendAcknowledgementHandler> handlers = batchHandlers;
+      ClientProducerCredits credits = batchCredits;
+      int bytes = batchBytes;
+
+      // the lists are kept by the packet until it is confirmed
+      newBatch();
+
+      try
+      {
+         credits.acquireCredits(bytes);
+      }
+      catch (InterruptedException e)
+      {
+         throw new HornetQInterruptedException(e);
+      }
+
+      sessionContext.sendBatch(messages, encodedMessages, handlers);
+   }
+
+   private void newBatch()
+   {
+      batchMessages = new ArrayList<MessageInternal>(batchSize);
+      batchEncodedMessages = new ArrayList<HornetQBuffer>(batchSize);
+      batchHandlers = new ArrayList<SendAcknowledgementHandler>(batchSize);
+      batchCredits = null;
+      batchBytes = 0;
+   }
+
+   private void checkBatchFailure() throws HornetQException
+   {
+      HornetQException failure = batchFailure;
+
+      if (failure != null)
+      {
+         batchFailure = null;
+
+         throw failure;
+      }
+   }
+
    private void checkClosed() throws HornetQException
    {
       if (closed)
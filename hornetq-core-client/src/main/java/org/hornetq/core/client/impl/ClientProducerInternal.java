@@ -12,6 +12,7 @@
  */
 package org.hornetq.core.client.impl;
 
+import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.client.ClientProducer;
 
 /**
@@ -26,4 +27,9 @@ public interface ClientProducerInternal extends ClientProducer
    void cleanUp();
 
    ClientProducerCredits getProducerCredits();
+
+   /**
+    * Sends the messages waiting on the batch of this producer, if any.
+    */
+   void flushBatch() throws HornetQException;
 }
@@ -774,6 +774,9 @@ public class ClientSessionFactoryImpl implements ClientSessionFactoryInternal, C
                                                             serverLocator.getConfirmationWindowSize(),
                                                             serverLocator.getProducerWindowSize(),
                                                             serverLocator.getProducerMaxRate(),
+                                                            serverLocator.getProducerBatchSize(),
+                                                            serverLocator.getProducerBatchMaxBytes(),
+                                                            serverLocator.getProducerBatchLingerTime(),
                                                             serverLocator.isBlockOnNonDurableSend(),
                                                             serverLocator.isBlockOnDurableSend(),
                                                             serverLocator.isCacheLargeMessagesClient(),
@@ -783,7 +786,9 @@ public class ClientSessionFactoryImpl implements ClientSessionFactoryInternal, C
                                                             serverLocator.getGroupID(),
                                                             context,
                                                             orderedExecutorFactory.getExecutor(),
-                                                            orderedExecutorFactory.getExecutor());
+                                                            orderedExecutorFactory.getExecutor(),
+                                                            orderedExecutorFactory.getExecutor(),
+                                                            scheduledThreadPool);
 
       context.setSession(session);
 
@@ -21,6 +21,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hornetq.api.core.HornetQBuffer;
@@ -101,6 +102,16 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
 
    private final int producerMaxRate;
 
+   private final int producerBatchSize;
+
+   private final int producerBatchMaxBytes;
+
+   private final long producerBatchLingerTime;
+
+   private final ScheduledExecutorService scheduledExecutor;
+
+   private final Executor producerBatchExecutor;
+
    private final boolean blockOnNonDurableSend;
 
    private final boolean blockOnDurableSend;
@@ -160,6 +171,9 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
                      final int confirmationWindowSize,
                      final int producerWindowSize,
                      final int producerMaxRate,
+                     final int producerBatchSize,
+                     final int producerBatchMaxBytes,
+                     final long producerBatchLingerTime,
                      final boolean blockOnNonDurableSend,
                      final boolean blockOnDurableSend,
                      final boolean cacheLargeMessageClient,
@@ -169,7 +183,9 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
                      final String groupID,
                      final SessionContext sessionContext,
                      final Executor executor,
-                     final Executor flowControlExecutor) throws HornetQException
+                     final Executor flowControlExecutor,
+                     final Executor producerBatchExecutor,
+                     final ScheduledExecutorService scheduledExecutor) throws HornetQException
    {
       this.sessionFactory = sessionFactory;
 
@@ -183,6 +199,10 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
 
       this.flowControlExecutor = flowControlExecutor;
 
+      this.producerBatchExecutor = producerBatchExecutor;
+
+      this.scheduledExecutor = scheduledExecutor;
+
       this.xa = xa;
 
       this.autoCommitAcks = autoCommitAcks;
@@ -205,6 +225,12 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
 
       this.producerMaxRate = producerMaxRate;
 
+      this.producerBatchSize = producerBatchSize;
+
+      this.producerBatchMaxBytes = producerBatchMaxBytes;
+
+      this.producerBatchLingerTime = producerBatchLingerTime;
+
       this.blockOnNonDurableSend = blockOnNonDurableSend;
 
       this.blockOnDurableSend = blockOnDurableSend;
@@ -511,6 +537,8 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
          rollbackOnFailover(true);
       }
 
+      flushProducers();
+
       flushAcks();
       /*
       * if we have failed over whilst flushing the acks then we should rollback and throw exception before attempting to
@@ -586,6 +614,8 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
          consumer.clear(true);
       }
 
+      flushProducers();
+
       // Acks must be flushed here *after connection is stopped and all onmessages finished executing
       flushAcks();
 
@@ -1249,6 +1279,8 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
 
          try
          {
+            flushProducers();
+
             flushAcks();
 
             startCall();
@@ -1684,6 +1716,11 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
                                                                autoGroup,
                                                                groupID == null ? null : new SimpleString(groupID),
                                                                minLargeMessageSize,
+                                                               producerBatchSize,
+                                                               producerBatchMaxBytes,
+                                                               producerBatchLingerTime,
+                                                               producerBatchExecutor,
+                                                               scheduledExecutor,
                                                                sessionContext);
 
       addProducer(producer);
@@ -1825,6 +1862,14 @@ public final class ClientSessionImpl implements ClientSessionInternal, FailureLi
       }
    }
 
+   private void flushProducers() throws HornetQException
+   {
+      for (ClientProducerInternal producer : cloneProducers())
+      {
+         producer.flushBatch();
+      }
+   }
+
    private void flushAcks() throws HornetQException
    {
       for (ClientConsumerInternal consumer : cloneConsumers())
@@ -145,6 +145,12 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
    private int producerMaxRate;
 
+   private int producerBatchSize;
+
+   private int producerBatchMaxBytes;
+
+   private long producerBatchLingerTime;
+
    private boolean blockOnAcknowledge;
 
    private boolean blockOnDurableSend;
@@ -436,6 +442,12 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
 
       producerMaxRate = HornetQClient.DEFAULT_PRODUCER_MAX_RATE;
 
+      producerBatchSize = HornetQClient.DEFAULT_PRODUCER_BATCH_SIZE;
+
+      producerBatchMaxBytes = HornetQClient.DEFAULT_PRODUCER_BATCH_MAX_BYTES;
+
+      producerBatchLingerTime = HornetQClient.DEFAULT_PRODUCER_BATCH_LINGER_TIME;
+
       blockOnAcknowledge = HornetQClient.DEFAULT_BLOCK_ON_ACKNOWLEDGE;
 
       blockOnDurableSend = HornetQClient.DEFAULT_BLOCK_ON_DURABLE_SEND;
@@ -563,6 +575,9 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
       confirmationWindowSize = locator.confirmationWindowSize;
       producerWindowSize = locator.producerWindowSize;
       producerMaxRate = locator.producerMaxRate;
+      producerBatchSize = locator.producerBatchSize;
+      producerBatchMaxBytes = locator.producerBatchMaxBytes;
+      producerBatchLingerTime = locator.producerBatchLingerTime;
       blockOnAcknowledge = locator.blockOnAcknowledge;
       blockOnDurableSend = locator.blockOnDurableSend;
       blockOnNonDurableSend = locator.blockOnNonDurableSend;
@@ -1078,6 +1093,39 @@ public final class ServerLocatorImpl implements ServerLocatorInternal, Discovery
       this.producerMaxRate = producerMaxRate;
    }
 
+   public int getProducerBatchSize()
+   {
+      return producerBatchSize;
+   }
+
+   public void setProducerBatchSize(final int producerBatchSize)
+   {
+      checkWrite();
+      this.producerBatchSize = producerBatchSize;
+   }
+
+   public int getProducerBatchMaxBytes()
+   {
+      return producerBatchMaxBytes;
+   }
+
+   public void setProducerBatchMaxBytes(final int producerBatchMaxBytes)
+   {
+      checkWrite();
+      this.producerBatchMaxBytes = producerBatchMaxBytes;
+   }
+
+   public long getProducerBatchLingerTime()
+   {
+      return producerBatchLingerTime;
+   }
+
+   public void setProducerBatchLingerTime(final long producerBatchLingerTime)
+   {
+      checkWrite();
+      this.producerBatchLingerTime = producerBatchLingerTime;
+   }
+
    public boolean isBlockOnAcknowledge()
    {
       return blockOnAcknowledge;
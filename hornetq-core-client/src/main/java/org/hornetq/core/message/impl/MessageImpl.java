@@ -27,6 +27,7 @@ import org.hornetq.core.buffers.impl.ResetLimitWrappedHornetQBuffer;
 import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.utils.DataConstants;
+import org.hornetq.utils.SimpleStringPool;
 import org.hornetq.utils.TypedProperties;
 import org.hornetq.utils.UUID;
 
@@ -159,17 +160,23 @@ public abstract class MessageImpl implements MessageInternal
          bufferValid = other.bufferValid;
          endOfBodyPosition = other.endOfBodyPosition;
          endOfMessagePosition = other.endOfMessagePosition;
-         copied = other.copied;
 
          if (other.buffer != null)
          {
+            // Both messages share the underlying buffer until one of them changes: the different messages thereafter
+            // might have different properties set on them, making their encoding different. Flagging the buffer as
+            // used and not copied on both sides makes the first to re-encode or to change its body copy it first
             other.bufferUsed = true;
+            other.copied = false;
 
-            // We need to copy the underlying buffer too, since the different messsages thereafter might have different
-            // properties set on them, making their encoding different
-            buffer = other.buffer.copy(0, other.buffer.writerIndex());
+            bufferUsed = true;
+            copied = false;
 
-            buffer.setIndex(other.buffer.readerIndex(), buffer.capacity());
+            buffer = other.buffer.duplicate();
+         }
+         else
+         {
+            copied = other.copied;
          }
       }
    }
@@ -226,7 +233,7 @@ public abstract class MessageImpl implements MessageInternal
    public void decodeHeadersAndProperties(final HornetQBuffer buffer)
    {
       messageID = buffer.readLong();
-      address = buffer.readNullableSimpleString();
+      address = SimpleStringPool.getDefault().readNullableSimpleString(buffer);
       if (buffer.readByte() == DataConstants.NOT_NULL)
       {
          byte[] bytes = new byte[16];
@@ -276,11 +283,13 @@ public abstract class MessageImpl implements MessageInternal
 
    public synchronized HornetQBuffer getBodyBufferCopy()
    {
-      // Must copy buffer before sending it
+      // Must copy buffer before sending it, only the body is needed as the headers are encoded after it
+
+      int endOfBody = getEndOfBodyPosition();
 
-      HornetQBuffer newBuffer = buffer.copy(0, buffer.capacity());
+      HornetQBuffer newBuffer = buffer.copy(0, endOfBody);
 
-      newBuffer.setIndex(0, getEndOfBodyPosition());
+      newBuffer.setIndex(0, endOfBody);
 
       return new ResetLimitWrappedHornetQBuffer(BODY_OFFSET, newBuffer, null);
    }
@@ -529,6 +538,16 @@ public abstract class MessageImpl implements MessageInternal
       }
    }
 
+   public synchronized HornetQBuffer getEncodedBufferSlice()
+   {
+      HornetQBuffer buff = encodeToBuffer();
+
+      // whoever changes this message from now on will do it on a copy
+      bufferUsed = true;
+
+      return buff.slice(BUFFER_HEADER_SPACE, endOfMessagePosition - BUFFER_HEADER_SPACE);
+   }
+
    public void setAddressTransient(final SimpleString address)
    {
       this.address = address;
@@ -1017,9 +1036,11 @@ public abstract class MessageImpl implements MessageInternal
    {
       // Must copy buffer before sending it
 
+      int endOfBody = getEndOfBodyPosition();
+
       buffer = buffer.copy(0, buffer.capacity());
 
-      buffer.setIndex(0, getEndOfBodyPosition());
+      buffer.setIndex(0, endOfBody);
 
       if (bodyBuffer != null)
       {
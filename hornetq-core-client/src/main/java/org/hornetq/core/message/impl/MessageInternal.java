@@ -48,6 +48,15 @@ public interface MessageInternal extends Message
 
    HornetQBuffer getEncodedBuffer();
 
+   /**
+    * Returns the encoded message, without the space reserved for the packet headers, sharing the bytes of this message
+    * instead of copying them.
+    * <p/>
+    * The slice must not be written to. This message won't change the shared bytes afterwards: a later change to its
+    * properties or body is done on a copy of the buffer.
+    */
+   HornetQBuffer getEncodedBufferSlice();
+
    int getHeadersAndPropertiesEncodeSize();
 
    HornetQBuffer getWholeBuffer();
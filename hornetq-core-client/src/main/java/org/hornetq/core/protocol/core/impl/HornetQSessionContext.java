@@ -73,6 +73,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuation
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionRequestProducerCreditsMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
@@ -141,6 +142,15 @@ public class HornetQSessionContext extends SessionContext
             SessionSendMessage ssm = (SessionSendMessage) packet;
             callSendAck(ssm.getHandler(), ssm.getMessage());
          }
+         else if (packet.getType() == PacketImpl.SESS_SEND_BATCH)
+         {
+            SessionSendBatchMessage ssbm = (SessionSendBatchMessage) packet;
+            List<MessageInternal> messages = ssbm.getMessages();
+            for (int i = 0; i < messages.size(); i++)
+            {
+               callSendAck(ssbm.getHandler(i), messages.get(i));
+            }
+         }
          else if (packet.getType() == PacketImpl.SESS_SEND_CONTINUATION)
          {
             SessionSendContinuationMessage scm = (SessionSendContinuationMessage) packet;
@@ -404,6 +414,23 @@ public class HornetQSessionContext extends SessionContext
       }
    }
 
+   /**
+    * Batches were introduced with version 126
+    */
+   @Override
+   public boolean supportsSendBatch()
+   {
+      return getServerVersion() >= 126;
+   }
+
+   @Override
+   public void sendBatch(List<MessageInternal> messages,
+                         List<HornetQBuffer> encodedMessages,
+                         List<SendAcknowledgementHandler> handlers) throws HornetQException
+   {
+      sessionChannel.send(new SessionSendBatchMessage(messages, encodedMessages, false, handlers));
+   }
+
    @Override
    public int sendInitialChunkOnLargeMessage(MessageInternal msgI) throws HornetQException
    {
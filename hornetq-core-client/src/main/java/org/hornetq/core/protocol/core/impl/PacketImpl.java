@@ -242,6 +242,8 @@ public class PacketImpl implements Packet
 
    public static final byte SCALEDOWN_ANNOUNCEMENT = -6;
 
+   public static final byte SESS_SEND_BATCH = -7;
+
    // Static --------------------------------------------------------
 
    public PacketImpl(final byte type)
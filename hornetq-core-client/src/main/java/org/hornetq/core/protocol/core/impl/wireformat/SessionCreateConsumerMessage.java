@@ -15,6 +15,7 @@ package org.hornetq.core.protocol.core.impl.wireformat;
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.utils.SimpleStringPool;
 
 /**
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
@@ -116,7 +117,7 @@ public class SessionCreateConsumerMessage extends PacketImpl
    public void decodeRest(final HornetQBuffer buffer)
    {
       id = buffer.readLong();
-      queueName = buffer.readSimpleString();
+      queueName = SimpleStringPool.getDefault().readSimpleString(buffer);
       filterString = buffer.readNullableSimpleString();
       browseOnly = buffer.readBoolean();
       requiresResponse = buffer.readBoolean();
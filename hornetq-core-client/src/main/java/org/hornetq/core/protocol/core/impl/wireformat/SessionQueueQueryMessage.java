@@ -15,6 +15,7 @@ package org.hornetq.core.protocol.core.impl.wireformat;
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.utils.SimpleStringPool;
 
 /**
  *
@@ -53,7 +54,7 @@ public class SessionQueueQueryMessage extends PacketImpl
    @Override
    public void decodeRest(final HornetQBuffer buffer)
    {
-      queueName = buffer.readSimpleString();
+      queueName = SimpleStringPool.getDefault().readSimpleString(buffer);
    }
 
    @Override
@@ -12,7 +12,10 @@
  */
 package org.hornetq.core.protocol.core.impl.wireformat;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.buffers.impl.ChannelBufferWrapper;
 import org.hornetq.core.message.impl.MessageInternal;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.utils.DataConstants;
@@ -57,33 +60,31 @@ public class SessionReceiveMessage extends MessagePacket
       return deliveryCount;
    }
 
+   /**
+    * The same message is often delivered to many consumers at once, so instead of copying it for every delivery this
+    * writes the packet headers, the consumer ID and the delivery count on their own small buffers around a slice of
+    * the encoded message.
+    */
    @Override
    public HornetQBuffer encode(final RemotingConnection connection)
    {
-      HornetQBuffer buffer = message.getEncodedBuffer();
+      HornetQBuffer encodedMessage = message.getEncodedBufferSlice();
 
-      // Sanity check
-      if (buffer.writerIndex() != message.getEndOfMessagePosition())
-      {
-         throw new IllegalStateException("Wrong encode position");
-      }
-
-      buffer.writeLong(consumerID);
-      buffer.writeInt(deliveryCount);
-
-      size = buffer.writerIndex();
+      size = PACKET_HEADERS_SIZE + encodedMessage.writerIndex() + DataConstants.SIZE_LONG + DataConstants.SIZE_INT;
 
       // Write standard headers
 
-      int len = size - DataConstants.SIZE_INT;
-      buffer.setInt(0, len);
-      buffer.setByte(DataConstants.SIZE_INT, getType());
-      buffer.setLong(DataConstants.SIZE_INT + DataConstants.SIZE_BYTE, channelID);
+      ByteBuf headers = Unpooled.buffer(PACKET_HEADERS_SIZE);
+      headers.writeInt(size - DataConstants.SIZE_INT);
+      headers.writeByte(getType());
+      headers.writeLong(channelID);
 
-      // Position reader for reading by Netty
-      buffer.setIndex(0, size);
+      ByteBuf trailer = Unpooled.buffer(DataConstants.SIZE_LONG + DataConstants.SIZE_INT);
+      trailer.writeLong(consumerID);
+      trailer.writeInt(deliveryCount);
 
-      return buffer;
+      // Positioned for reading by Netty
+      return new ChannelBufferWrapper(Unpooled.wrappedBuffer(headers, encodedMessage.byteBuf(), trailer));
    }
 
    @Override
@@ -15,6 +15,7 @@ package org.hornetq.core.protocol.core.impl.wireformat;
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.utils.SimpleStringPool;
 
 /**
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
@@ -68,7 +69,7 @@ public class SessionRequestProducerCreditsMessage extends PacketImpl
    public void decodeRest(final HornetQBuffer buffer)
    {
       credits = buffer.readInt();
-      address = buffer.readSimpleString();
+      address = SimpleStringPool.getDefault().readSimpleString(buffer);
    }
 
    @Override
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
+import org.hornetq.core.message.impl.MessageImpl;
+import org.hornetq.core.message.impl.MessageInternal;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.utils.DataConstants;
+
+/**
+ * Messages sent together by a producer on a single packet.
+ * <p/>
+ * Each message is written with its journal encoding, so the server side decodes them into messages of its own kind
+ * through the {@link MessageFactory} the packet is created with. Large messages can't be sent on a batch.
+ */
+public class SessionSendBatchMessage extends PacketImpl
+{
+   /**
+    * Creates the messages a batch is decoded into.
+    */
+   public interface MessageFactory
+   {
+      MessageImpl createMessage();
+   }
+
+   private List<MessageInternal> messages;
+
+   private boolean requiresResponse;
+
+   /**
+    * The encoding of each message, taken when the message was handed to the producer so later changes made to the
+    * message by the application don't reach the batch.
+    * <p/>
+    * This field is only used at the client side.
+    */
+   private final transient List<HornetQBuffer> encodedMessages;
+
+   /**
+    * The handlers of the messages, in case we are using different handlers than the one set on the
+    * {@link org.hornetq.api.core.client.ClientSession}. An entry may be <code>null</code>.
+    * <p/>
+    * This field is only used at the client side.
+    *
+    * @see org.hornetq.api.core.client.ClientSession#setSendAcknowledgementHandler(SendAcknowledgementHandler)
+    */
+   private final transient List<SendAcknowledgementHandler> handlers;
+
+   /**
+    * This field is only used when decoding.
+    */
+   private final transient MessageFactory messageFactory;
+
+   public SessionSendBatchMessage(final List<MessageInternal> messages,
+                                  final List<HornetQBuffer> encodedMessages,
+                                  final boolean requiresResponse,
+                                  final List<SendAcknowledgementHandler> handlers)
+   {
+      super(SESS_SEND_BATCH);
+      this.messages = messages;
+      this.encodedMessages = encodedMessages;
+      this.requiresResponse = requiresResponse;
+      this.handlers = handlers;
+      this.messageFactory = null;
+   }
+
+   public SessionSendBatchMessage(final MessageFactory messageFactory)
+   {
+      super(SESS_SEND_BATCH);
+      this.encodedMessages = null;
+      this.handlers = Collections.emptyList();
+      this.messageFactory = messageFactory;
+   }
+
+   // Public --------------------------------------------------------
+
+   public List<MessageInternal> getMessages()
+   {
+      return messages;
+   }
+
+   public boolean isRequiresResponse()
+   {
+      return requiresResponse;
+   }
+
+   /**
+    * @return the handler of the message at the given index on the batch, or <code>null</code>
+    */
+   public SendAcknowledgementHandler getHandler(final int index)
+   {
+      return index < handlers.size() ? handlers.get(index) : null;
+   }
+
+   @Override
+   public HornetQBuffer encode(final RemotingConnection connection)
+   {
+      int encodeSize = PACKET_HEADERS_SIZE + DataConstants.SIZE_INT + DataConstants.SIZE_BOOLEAN;
+
+      for (HornetQBuffer encoded : encodedMessages)
+      {
+         encodeSize += encoded.readableBytes();
+      }
+
+      HornetQBuffer buffer = connection.createBuffer(encodeSize);
+
+      buffer.writeInt(0);
+      buffer.writeByte(getType());
+      buffer.writeLong(channelID);
+
+      encodeRest(buffer);
+
+      size = buffer.writerIndex();
+
+      buffer.setInt(0, size - DataConstants.SIZE_INT);
+
+      return buffer;
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeInt(messages.size());
+
+      for (HornetQBuffer encoded : encodedMessages)
+      {
+         buffer.writeBytes(encoded, 0, encoded.readableBytes());
+      }
+
+      buffer.writeBoolean(requiresResponse);
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      int count = buffer.readInt();
+
+      messages = new ArrayList<MessageInternal>(count);
+
+      for (int i = 0; i < count; i++)
+      {
+         MessageImpl message = messageFactory.createMessage();
+
+         message.decode(buffer);
+
+         messages.add(message);
+      }
+
+      requiresResponse = buffer.readBoolean();
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", messages=" + (messages == null ? 0 : messages.size()) + ", requiresResponse=" +
+         requiresResponse + "]";
+   }
+
+   @Override
+   public int hashCode()
+   {
+      final int prime = 31;
+      int result = super.hashCode();
+      result = prime * result + ((messages == null) ? 0 : messages.hashCode());
+      result = prime * result + (requiresResponse ? 1231 : 1237);
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (!super.equals(obj))
+         return false;
+      if (!(obj instanceof SessionSendBatchMessage))
+         return false;
+      SessionSendBatchMessage other = (SessionSendBatchMessage) obj;
+      if (messages == null)
+      {
+         if (other.messages != null)
+            return false;
+      }
+      else if (!messages.equals(other.messages))
+         return false;
+      if (requiresResponse != other.requiresResponse)
+         return false;
+      return true;
+   }
+}
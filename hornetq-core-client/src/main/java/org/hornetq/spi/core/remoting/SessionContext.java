@@ -16,8 +16,10 @@ package org.hornetq.spi.core.remoting;
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.Xid;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.Executor;
 
+import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
@@ -140,6 +142,24 @@ public abstract class SessionContext
 
    public abstract void sendFullMessage(MessageInternal msgI, boolean sendBlocking, SendAcknowledgementHandler handler) throws HornetQException;
 
+   /**
+    * @return whether the server accepts messages sent through {@link #sendBatch(List, List, List)}
+    */
+   public abstract boolean supportsSendBatch();
+
+   /**
+    * Sends regular messages together, without blocking.
+    *
+    * @param messages        the messages
+    * @param encodedMessages the encoding of each message, as returned by
+    *                        {@link MessageInternal#getEncodedBufferSlice()} when the message was added to the batch
+    * @param handlers        the handler of each message, an entry may be <code>null</code>
+    * @throws HornetQException
+    */
+   public abstract void sendBatch(List<MessageInternal> messages,
+                                  List<HornetQBuffer> encodedMessages,
+                                  List<SendAcknowledgementHandler> handlers) throws HornetQException;
+
    /**
     * it should return the number of credits (or bytes) used to send this packet
     *
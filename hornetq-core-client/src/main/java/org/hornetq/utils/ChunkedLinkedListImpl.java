@@ -0,0 +1,653 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link LinkedList} keeping its elements on fixed size arrays (chunks) instead of a node per element, meant for the
+ * long lists of deep queues: adding and polling only move the head and the tail, and iterating reads consecutive
+ * slots of an array.
+ * <p>
+ * Every element takes a position when added, counting up from the tail or down from the head. The chunks sit on a
+ * ring indexed by position and are released once the head moves past them. An element removed from the middle of the
+ * list leaves an empty slot, which iterators skip, and the list is compacted when the empty slots outnumber the
+ * elements.
+ * <p>
+ * Iterators behave as the ones of {@link LinkedListImpl}: multiple iterators can exist at the same time, they see the
+ * elements added at the tail, and an iterator whose element is removed moves on to the next element, or back to the
+ * previous one when there was none after it. Moving on is done lazily, when the iterator is next used, so only
+ * removing the last element and adding at the head have to visit the iterators.
+ * <p>
+ * Null elements are not supported. This class is not thread safe.
+ */
+public class ChunkedLinkedListImpl<E> implements LinkedList<E>
+{
+   private static final int CHUNK_SHIFT = 7;
+
+   private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+   private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+   private static final int INITIAL_RING_SIZE = 2;
+
+   private static final int INITIAL_ITERATOR_ARRAY_SIZE = 10;
+
+   // The chunk holding a position is at ring[(position >> CHUNK_SHIFT) & (ring.length - 1)]
+   // Only the chunks between the head and the tail are on the ring, all their slots out of [head, tail) are empty
+   private Object[][] ring = new Object[INITIAL_RING_SIZE][];
+
+   // A released chunk kept to be reused, so a list going empty and back doesn't allocate
+   private Object[] spareChunk;
+
+   // The position of the first element
+   private long head;
+
+   // The position after the last slot used, slots are never reused before compacting
+   private long tail;
+
+   // The position of the last element
+   private long lastPosition = -1;
+
+   private int size;
+
+   // Counts the times the list went empty, an iterator not used since starts again from the head
+   private int emptied;
+
+   // We store in an array rather than a Map for the best performance
+   private volatile Iterator[] iters;
+
+   private int numIters;
+
+   private int nextIndex;
+
+   public ChunkedLinkedListImpl()
+   {
+      iters = createIteratorArray(INITIAL_ITERATOR_ARRAY_SIZE);
+   }
+
+   public void addHead(final E e)
+   {
+      if (size == 0)
+      {
+         // there is no head to add before
+         addTail(e);
+
+         return;
+      }
+
+      if (e == null)
+      {
+         throw new NullPointerException();
+      }
+
+      if (numIters != 0)
+      {
+         // the iterators left behind the head are on it
+         nudgeIterators(Long.MIN_VALUE, head - 1, head);
+      }
+
+      long position = head - 1;
+
+      Object[] chunk = (head & CHUNK_MASK) != 0 ? chunk(head) : allocateChunk(position);
+
+      chunk[(int) position & CHUNK_MASK] = e;
+
+      head = position;
+
+      size++;
+   }
+
+   public void addTail(final E e)
+   {
+      if (e == null)
+      {
+         throw new NullPointerException();
+      }
+
+      Object[] chunk = size != 0 && (tail & CHUNK_MASK) != 0 ? chunk(tail) : allocateChunk(tail);
+
+      chunk[(int) tail & CHUNK_MASK] = e;
+
+      lastPosition = tail++;
+
+      size++;
+   }
+
+   public E poll()
+   {
+      if (size == 0)
+      {
+         return null;
+      }
+
+      Object[] chunk = chunk(head);
+
+      int index = (int) head & CHUNK_MASK;
+
+      @SuppressWarnings("unchecked")
+      E e = (E) chunk[index];
+
+      chunk[index] = null;
+
+      size--;
+
+      moveHead();
+
+      return e;
+   }
+
+   public void clear()
+   {
+      ring = new Object[INITIAL_RING_SIZE][];
+
+      spareChunk = null;
+
+      head = tail;
+
+      size = 0;
+
+      emptied++;
+   }
+
+   public int size()
+   {
+      return size;
+   }
+
+   public LinkedListIterator<E> iterator()
+   {
+      return new Iterator();
+   }
+
+   public String toString()
+   {
+      StringBuilder str = new StringBuilder("ChunkedLinkedListImpl [ ");
+
+      for (long position = head; position < tail; position++)
+      {
+         Object e = element(position);
+
+         if (e != null)
+         {
+            if (position != head)
+            {
+               str.append(", ");
+            }
+
+            str.append(e);
+         }
+      }
+
+      return str.append(" ]").toString();
+   }
+
+   public int numIters()
+   {
+      return numIters;
+   }
+
+   private Iterator[] createIteratorArray(int size)
+   {
+      return (Iterator[]) Array.newInstance(Iterator.class, size);
+   }
+
+   private Object[] chunk(final long position)
+   {
+      return ring[(int) (position >> CHUNK_SHIFT) & (ring.length - 1)];
+   }
+
+   private Object element(final long position)
+   {
+      return chunk(position)[(int) position & CHUNK_MASK];
+   }
+
+   /**
+    * @return the position of the first element from the given position, or the tail if there is none
+    */
+   private long nextPosition(long position)
+   {
+      while (position < tail && element(position) == null)
+      {
+         position++;
+      }
+
+      return position;
+   }
+
+   /**
+    * @return the position of the first element back from the given position, or the tail if there is none
+    */
+   private long previousPosition(long position)
+   {
+      while (position >= head)
+      {
+         if (element(position) != null)
+         {
+            return position;
+         }
+
+         position--;
+      }
+
+      return tail;
+   }
+
+   /**
+    * Puts on the ring the chunk for a position right before the head or at the tail.
+    */
+   private Object[] allocateChunk(final long position)
+   {
+      long number = position >> CHUNK_SHIFT;
+
+      if (size != 0)
+      {
+         long chunks = Math.max(number, (tail - 1) >> CHUNK_SHIFT) - Math.min(number, head >> CHUNK_SHIFT) + 1;
+
+         if (chunks > ring.length)
+         {
+            growRing(chunks);
+         }
+      }
+
+      Object[] chunk = spareChunk;
+
+      if (chunk == null)
+      {
+         chunk = new Object[CHUNK_SIZE];
+      }
+      else
+      {
+         spareChunk = null;
+      }
+
+      ring[(int) number & (ring.length - 1)] = chunk;
+
+      return chunk;
+   }
+
+   private void growRing(final long chunks)
+   {
+      int length = ring.length;
+
+      while (length < chunks)
+      {
+         length <<= 1;
+      }
+
+      Object[][] newRing = new Object[length][];
+
+      for (long number = head >> CHUNK_SHIFT; number <= (tail - 1) >> CHUNK_SHIFT; number++)
+      {
+         newRing[(int) number & (length - 1)] = ring[(int) number & (ring.length - 1)];
+      }
+
+      ring = newRing;
+   }
+
+   /**
+    * Releases the chunks from the one holding the first position up to the one holding the last.
+    */
+   private void releaseChunks(final long first, final long last)
+   {
+      for (long number = first >> CHUNK_SHIFT; number <= last >> CHUNK_SHIFT; number++)
+      {
+         int index = (int) number & (ring.length - 1);
+
+         Object[] chunk = ring[index];
+
+         ring[index] = null;
+
+         Arrays.fill(chunk, null);
+
+         spareChunk = chunk;
+      }
+   }
+
+   /**
+    * Moves the head to the next element, after the slot at the head was emptied.
+    */
+   private void moveHead()
+   {
+      if (size == 0)
+      {
+         releaseChunks(head, tail - 1);
+
+         head = tail;
+
+         emptied++;
+
+         return;
+      }
+
+      // There is an element after the head, the loop will find it before the tail
+      do
+      {
+         head++;
+
+         if ((head & CHUNK_MASK) == 0)
+         {
+            releaseChunks(head - 1, head - 1);
+         }
+      }
+      while (element(head) == null);
+   }
+
+   private void removeAt(final long position)
+   {
+      Object[] chunk = chunk(position);
+
+      chunk[(int) position & CHUNK_MASK] = null;
+
+      size--;
+
+      if (position == head)
+      {
+         moveHead();
+
+         return;
+      }
+
+      if (position == lastPosition)
+      {
+         // There is an element before, as this one is not at the head
+         lastPosition = previousPosition(position - 1);
+
+         // the iterators on it, or on an empty slot before it, move back
+         nudgeIterators(lastPosition, position, lastPosition);
+      }
+
+      long empty = tail - head - size;
+
+      if (empty > size && empty > CHUNK_SIZE)
+      {
+         compact();
+      }
+   }
+
+   /**
+    * Moves the iterators on a position after from and up to to onto a new position.
+    */
+   private synchronized void nudgeIterators(final long from, final long to, final long position)
+   {
+      for (int i = 0; i < numIters; i++)
+      {
+         Iterator iter = iters[i];
+
+         if (iter.emptied == emptied && iter.position > from && iter.position <= to)
+         {
+            iter.position = position;
+         }
+      }
+   }
+
+   /**
+    * Moves the elements towards the head so there are no empty slots between them, and moves the iterators along.
+    */
+   private synchronized void compact()
+   {
+      Iterator[] sorted = createIteratorArray(numIters);
+
+      int numSorted = 0;
+
+      for (int i = 0; i < numIters; i++)
+      {
+         // the ones starting again from the head don't need to move
+         if (iters[i].emptied == emptied)
+         {
+            iters[i].current();
+
+            sorted[numSorted++] = iters[i];
+         }
+      }
+
+      sorted = Arrays.copyOf(sorted, numSorted);
+
+      Arrays.sort(sorted, new Comparator<Iterator>()
+      {
+         public int compare(final Iterator iter1, final Iterator iter2)
+         {
+            return iter1.position < iter2.position ? -1 : iter1.position == iter2.position ? 0 : 1;
+         }
+      });
+
+      int nextIter = 0;
+
+      long write = head;
+
+      for (long read = head; read < tail; read++)
+      {
+         Object[] chunk = chunk(read);
+
+         int index = (int) read & CHUNK_MASK;
+
+         Object e = chunk[index];
+
+         if (e != null)
+         {
+            while (nextIter < sorted.length && sorted[nextIter].position == read)
+            {
+               sorted[nextIter++].position = write;
+            }
+
+            if (write != read)
+            {
+               Object[] target = chunk(write);
+
+               target[(int) write & CHUNK_MASK] = e;
+
+               chunk[index] = null;
+            }
+
+            write++;
+         }
+      }
+
+      // Only the iterators not on an element are left
+      while (nextIter < sorted.length)
+      {
+         sorted[nextIter++].position = write;
+      }
+
+      if ((write - 1) >> CHUNK_SHIFT != (tail - 1) >> CHUNK_SHIFT)
+      {
+         releaseChunks((((write - 1) >> CHUNK_SHIFT) + 1) << CHUNK_SHIFT, tail - 1);
+      }
+
+      lastPosition = write - 1;
+
+      tail = write;
+   }
+
+   private synchronized void addIter(Iterator iter)
+   {
+      if (numIters == iters.length)
+      {
+         resize(2 * numIters);
+      }
+
+      iters[nextIndex++] = iter;
+
+      numIters++;
+   }
+
+   private synchronized void resize(int newSize)
+   {
+      Iterator[] newIters = createIteratorArray(newSize);
+
+      System.arraycopy(iters, 0, newIters, 0, numIters);
+
+      iters = newIters;
+   }
+
+   private synchronized void removeIter(Iterator iter)
+   {
+      for (int i = 0; i < numIters; i++)
+      {
+         if (iter == iters[i])
+         {
+            iters[i] = null;
+
+            if (i != numIters - 1)
+            {
+               // Fill in the hole
+
+               System.arraycopy(iters, i + 1, iters, i, numIters - i - 1);
+            }
+
+            numIters--;
+
+            if (numIters >= INITIAL_ITERATOR_ARRAY_SIZE && numIters == iters.length / 2)
+            {
+               resize(numIters);
+            }
+
+            nextIndex--;
+
+            return;
+         }
+      }
+
+      throw new IllegalStateException("Cannot find iter to remove");
+   }
+
+   private class Iterator implements LinkedListIterator<E>
+   {
+      // The position of the current element, the last one returned unless it was removed since
+      long position = head;
+
+      // Not the list's when the list went empty since the iterator was last used
+      int emptied = size == 0 ? ChunkedLinkedListImpl.this.emptied - 1 : ChunkedLinkedListImpl.this.emptied;
+
+      E last;
+
+      boolean repeat;
+
+      Iterator()
+      {
+         addIter(this);
+      }
+
+      public void repeat()
+      {
+         repeat = true;
+      }
+
+      public boolean hasNext()
+      {
+         Object e = current();
+
+         return e != null && (e != last || repeat || nextPosition(position + 1) < tail);
+      }
+
+      @SuppressWarnings("unchecked")
+      public E next()
+      {
+         boolean again = repeat;
+
+         repeat = false;
+
+         Object e = current();
+
+         if (e != null)
+         {
+            if (again)
+            {
+               return (E) e;
+            }
+
+            if (e != last)
+            {
+               last = (E) e;
+
+               return last;
+            }
+
+            for (long next = position + 1; next < tail; next++)
+            {
+               e = element(next);
+
+               if (e != null)
+               {
+                  position = next;
+
+                  last = (E) e;
+
+                  return last;
+               }
+            }
+         }
+
+         throw new NoSuchElementException();
+      }
+
+      public void remove()
+      {
+         if (last == null || current() == null)
+         {
+            throw new NoSuchElementException();
+         }
+
+         removeAt(position);
+
+         last = null;
+      }
+
+      public void close()
+      {
+         last = null;
+
+         removeIter(this);
+      }
+
+      /**
+       * Moves to the next element if the current one was removed.
+       *
+       * @return the current element, or null if there are no elements to move to
+       */
+      Object current()
+      {
+         if (emptied != ChunkedLinkedListImpl.this.emptied)
+         {
+            if (size == 0)
+            {
+               return null;
+            }
+
+            position = head;
+
+            emptied = ChunkedLinkedListImpl.this.emptied;
+         }
+         else if (position < head)
+         {
+            // polled, or the list was cleared
+            position = head;
+         }
+
+         for (; position < tail; position++)
+         {
+            Object e = element(position);
+
+            if (e != null)
+            {
+               return e;
+            }
+         }
+
+         return null;
+      }
+   }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.utils;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * An unbounded multi-producer / single-consumer linked queue.
+ * <p>
+ * Producers never block and never retry: {@link #offer(Object)} is a single atomic swap of the tail
+ * followed by an ordered store linking the previous node. {@link #poll()} and {@link #peek()} must
+ * only be called by one thread at a time (the consumer), which is what makes them cheaper than the
+ * equivalent {@link java.util.concurrent.ConcurrentLinkedQueue} operations.
+ * <p>
+ * {@link #isEmpty()}, {@link #size()} and {@link #iterator()} may be called from any thread, but
+ * they are only weakly consistent: an element whose producer is still in the middle of
+ * {@link #offer(Object)} may not be visible yet, and the iterator does not support removal.
+ */
+public final class MPSCLinkedQueue<E> extends AbstractQueue<E>
+{
+   @SuppressWarnings("rawtypes")
+   private static final AtomicReferenceFieldUpdater<MPSCLinkedQueue, Node> TAIL_UPDATER =
+      AtomicReferenceFieldUpdater.newUpdater(MPSCLinkedQueue.class, Node.class, "tail");
+
+   @SuppressWarnings("rawtypes")
+   private static final AtomicReferenceFieldUpdater<MPSCLinkedQueue, Node> HEAD_UPDATER =
+      AtomicReferenceFieldUpdater.newUpdater(MPSCLinkedQueue.class, Node.class, "head");
+
+   // The head is always a consumed (or stub) node, the first element lives on head.next
+   private volatile Node<E> head;
+
+   private volatile Node<E> tail;
+
+   public MPSCLinkedQueue()
+   {
+      Node<E> stub = new Node<E>(null);
+      head = stub;
+      tail = stub;
+   }
+
+   public boolean offer(final E e)
+   {
+      if (e == null)
+      {
+         throw new NullPointerException();
+      }
+
+      Node<E> node = new Node<E>(e);
+
+      @SuppressWarnings("unchecked")
+      Node<E> previous = TAIL_UPDATER.getAndSet(this, node);
+
+      // Until this store is visible the consumer will see the queue as ending on previous
+      previous.lazySetNext(node);
+
+      return true;
+   }
+
+   /**
+    * Must only be called by the consumer thread.
+    */
+   public E poll()
+   {
+      Node<E> current = head;
+
+      Node<E> next = current.next;
+
+      if (next == null)
+      {
+         return null;
+      }
+
+      E value = next.value;
+
+      // next becomes the new stub, we don't want to retain the element through it
+      next.value = null;
+
+      HEAD_UPDATER.lazySet(this, next);
+
+      return value;
+   }
+
+   /**
+    * Must only be called by the consumer thread.
+    */
+   public E peek()
+   {
+      Node<E> next = head.next;
+
+      return next == null ? null : next.value;
+   }
+
+   @Override
+   public boolean isEmpty()
+   {
+      return head.next == null;
+   }
+
+   /**
+    * This is a O(n) operation, meant for debug and management only.
+    */
+   @Override
+   public int size()
+   {
+      int size = 0;
+
+      Node<E> node = head.next;
+
+      while (node != null && size < Integer.MAX_VALUE)
+      {
+         if (node.value != null)
+         {
+            size++;
+         }
+         node = node.next;
+      }
+
+      return size;
+   }
+
+   @Override
+   public Iterator<E> iterator()
+   {
+      return new Iter();
+   }
+
+   private final class Iter implements Iterator<E>
+   {
+      private Node<E> node = head;
+
+      private E nextValue;
+
+      public boolean hasNext()
+      {
+         while (nextValue == null)
+         {
+            Node<E> next = node.next;
+
+            if (next == null)
+            {
+               return false;
+            }
+
+            node = next;
+
+            // the value is null when the consumer polled it after we started iterating
+            nextValue = next.value;
+         }
+
+         return true;
+      }
+
+      public E next()
+      {
+         if (!hasNext())
+         {
+            throw new NoSuchElementException();
+         }
+
+         E value = nextValue;
+
+         nextValue = null;
+
+         return value;
+      }
+
+      public void remove()
+      {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private static final class Node<E>
+   {
+      @SuppressWarnings("rawtypes")
+      private static final AtomicReferenceFieldUpdater<Node, Node> NEXT_UPDATER =
+         AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+      volatile E value;
+
+      volatile Node<E> next;
+
+      Node(final E value)
+      {
+         this.value = value;
+      }
+
+      void lazySetNext(final Node<E> node)
+      {
+         NEXT_UPDATER.lazySet(this, node);
+      }
+   }
+}
@@ -18,7 +18,7 @@ import java.util.NoSuchElementException;
 /**
  * A priority linked list implementation
  * <p>
- * It implements this by maintaining an individual LinkedBlockingDeque for each priority level.
+ * It implements this by maintaining an individual {@link ChunkedLinkedListImpl} for each priority level.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  * @author <a href="mailto:jmesnil@redhat.com">Jeff Mesnil</a>
@@ -26,7 +26,7 @@ import java.util.NoSuchElementException;
  */
 public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
 {
-   protected LinkedListImpl<T>[] levels;
+   protected ChunkedLinkedListImpl<T>[] levels;
 
    private int size;
 
@@ -38,11 +38,11 @@ public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
 
    public PriorityLinkedListImpl(final int priorities)
    {
-      levels = (LinkedListImpl<T>[]) Array.newInstance(LinkedListImpl.class, priorities);
+      levels = (ChunkedLinkedListImpl<T>[]) Array.newInstance(ChunkedLinkedListImpl.class, priorities);
 
       for (int i = 0; i < priorities; i++)
       {
-         levels[i] = new LinkedListImpl<T>();
+         levels[i] = new ChunkedLinkedListImpl<T>();
       }
    }
 
@@ -97,7 +97,7 @@ public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
 
       for (int i = highestPriority; i >= 0; i--)
       {
-         LinkedListImpl<T> ll = levels[i];
+         ChunkedLinkedListImpl<T> ll = levels[i];
 
          if (ll.size() != 0)
          {
@@ -125,7 +125,7 @@ public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
 
    public void clear()
    {
-      for (LinkedListImpl<T> list : levels)
+      for (ChunkedLinkedListImpl<T> list : levels)
       {
          list.clear();
       }
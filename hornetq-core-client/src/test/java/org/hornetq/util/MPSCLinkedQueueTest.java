@@ -0,0 +1,154 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.util;
+
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+
+import org.hornetq.utils.MPSCLinkedQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MPSCLinkedQueueTest extends Assert
+{
+   @Test
+   public void testOfferPoll() throws Exception
+   {
+      MPSCLinkedQueue<Integer> queue = new MPSCLinkedQueue<Integer>();
+
+      assertTrue(queue.isEmpty());
+      assertNull(queue.poll());
+      assertNull(queue.peek());
+
+      for (int i = 0; i < 10; i++)
+      {
+         assertTrue(queue.offer(i));
+      }
+
+      assertFalse(queue.isEmpty());
+      assertEquals(10, queue.size());
+      assertEquals(Integer.valueOf(0), queue.peek());
+
+      for (int i = 0; i < 10; i++)
+      {
+         assertEquals(Integer.valueOf(i), queue.poll());
+      }
+
+      assertTrue(queue.isEmpty());
+      assertEquals(0, queue.size());
+      assertNull(queue.poll());
+   }
+
+   @Test
+   public void testIteratorSkipsPolled() throws Exception
+   {
+      MPSCLinkedQueue<Integer> queue = new MPSCLinkedQueue<Integer>();
+
+      for (int i = 0; i < 5; i++)
+      {
+         queue.add(i);
+      }
+
+      Iterator<Integer> iterator = queue.iterator();
+
+      assertEquals(Integer.valueOf(0), queue.poll());
+      assertEquals(Integer.valueOf(1), queue.poll());
+
+      int expected = 2;
+      while (iterator.hasNext())
+      {
+         assertEquals(Integer.valueOf(expected++), iterator.next());
+      }
+
+      assertEquals(5, expected);
+   }
+
+   @Test(expected = NullPointerException.class)
+   public void testNullRejected() throws Exception
+   {
+      new MPSCLinkedQueue<Object>().offer(null);
+   }
+
+   @Test
+   public void testMultipleProducers() throws Exception
+   {
+      final int producers = 4;
+      final int messages = 100000;
+
+      final MPSCLinkedQueue<long[]> queue = new MPSCLinkedQueue<long[]>();
+
+      final CountDownLatch start = new CountDownLatch(1);
+
+      Thread[] threads = new Thread[producers];
+
+      for (int i = 0; i < producers; i++)
+      {
+         final int producer = i;
+         threads[i] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+               }
+               catch (InterruptedException e)
+               {
+                  return;
+               }
+               for (long j = 0; j < messages; j++)
+               {
+                  queue.offer(new long[]{producer, j});
+               }
+            }
+         };
+         threads[i].start();
+      }
+
+      start.countDown();
+
+      long[] lastSeen = new long[producers];
+      for (int i = 0; i < producers; i++)
+      {
+         lastSeen[i] = -1;
+      }
+
+      int received = 0;
+
+      long timeout = System.currentTimeMillis() + 30000;
+
+      while (received < producers * messages && System.currentTimeMillis() < timeout)
+      {
+         long[] element = queue.poll();
+         if (element == null)
+         {
+            Thread.yield();
+            continue;
+         }
+
+         // each producer's elements must come out in the order they were offered
+         assertEquals(lastSeen[(int) element[0]] + 1, element[1]);
+         lastSeen[(int) element[0]] = element[1];
+         received++;
+      }
+
+      for (Thread t : threads)
+      {
+         t.join();
+      }
+
+      assertEquals(producers * messages, received);
+      assertTrue(queue.isEmpty());
+   }
+}
@@ -239,6 +239,76 @@ public class TypedPropertiesTest
       TypedPropertiesTest.assertEqualsTypeProperties(emptyProps, decodedProps);
    }
 
+   @Test
+   public void testLookupBeforeDecodingAll() throws Exception
+   {
+      SimpleString stringKey = RandomUtil.randomSimpleString();
+      SimpleString stringValue = RandomUtil.randomSimpleString();
+      props.putIntProperty(key, 10);
+      props.putSimpleStringProperty(stringKey, stringValue);
+      props.putBytesProperty(RandomUtil.randomSimpleString(), RandomUtil.randomBytes());
+      props.putNullValue(RandomUtil.randomSimpleString());
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+      buffer.writeInt(1234);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer);
+
+      // the decode stops where the properties end
+      Assert.assertEquals(1234, buffer.readInt());
+
+      SimpleString missing = RandomUtil.randomSimpleString();
+      Assert.assertFalse(decodedProps.containsProperty(missing));
+      Assert.assertNull(decodedProps.getProperty(missing));
+      Assert.assertNull(decodedProps.removeProperty(missing));
+      Assert.assertFalse(decodedProps.hasInternalProperties());
+      Assert.assertFalse(decodedProps.isEmpty());
+      Assert.assertTrue(decodedProps.containsProperty(key));
+      Assert.assertEquals(props.getEncodeSize(), decodedProps.getEncodeSize());
+      Assert.assertEquals(props.getMemoryOffset(), decodedProps.getMemoryOffset());
+
+      // encoding what was decoded gives back the same bytes
+      HornetQBuffer reencoded = HornetQBuffers.dynamicBuffer(1024);
+      decodedProps.encode(reencoded);
+      buffer.readerIndex(0);
+      Assert.assertEquals(props.getEncodeSize(), reencoded.writerIndex());
+      for (int i = 0; i < reencoded.writerIndex(); i++)
+      {
+         Assert.assertEquals(buffer.getByte(i), reencoded.getByte(i));
+      }
+
+      TypedProperties copy = new TypedProperties(decodedProps);
+
+      Assert.assertEquals(10, decodedProps.getIntProperty(key).intValue());
+      Assert.assertEquals(stringValue, decodedProps.getSimpleStringProperty(stringKey));
+      TypedPropertiesTest.assertEqualsTypeProperties(props, decodedProps);
+      TypedPropertiesTest.assertEqualsTypeProperties(props, copy);
+
+      copy.putIntProperty(key, 20);
+      Assert.assertEquals(10, decodedProps.getIntProperty(key).intValue());
+      Assert.assertEquals(20, copy.getIntProperty(key).intValue());
+   }
+
+   @Test
+   public void testKnownNamesAreShared() throws Exception
+   {
+      props.putSimpleStringProperty(new SimpleString("_HQ_DUPL_ID"), RandomUtil.randomSimpleString());
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer.copy());
+      TypedProperties otherDecodedProps = new TypedProperties();
+      otherDecodedProps.decode(buffer.copy());
+
+      Assert.assertTrue(decodedProps.hasInternalProperties());
+      Assert.assertSame(decodedProps.getPropertyNames().iterator().next(),
+                        otherDecodedProps.getPropertyNames().iterator().next());
+   }
+
    @Before
    public void setUp() throws Exception
    {
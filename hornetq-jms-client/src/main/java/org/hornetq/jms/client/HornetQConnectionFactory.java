@@ -412,6 +412,39 @@ public class HornetQConnectionFactory implements Serializable, Referenceable, Co
       serverLocator.setProducerMaxRate(producerMaxRate);
    }
 
+   public synchronized int getProducerBatchSize()
+   {
+      return serverLocator.getProducerBatchSize();
+   }
+
+   public synchronized void setProducerBatchSize(final int producerBatchSize)
+   {
+      checkWrite();
+      serverLocator.setProducerBatchSize(producerBatchSize);
+   }
+
+   public synchronized int getProducerBatchMaxBytes()
+   {
+      return serverLocator.getProducerBatchMaxBytes();
+   }
+
+   public synchronized void setProducerBatchMaxBytes(final int producerBatchMaxBytes)
+   {
+      checkWrite();
+      serverLocator.setProducerBatchMaxBytes(producerBatchMaxBytes);
+   }
+
+   public synchronized long getProducerBatchLingerTime()
+   {
+      return serverLocator.getProducerBatchLingerTime();
+   }
+
+   public synchronized void setProducerBatchLingerTime(final long producerBatchLingerTime)
+   {
+      checkWrite();
+      serverLocator.setProducerBatchLingerTime(producerBatchLingerTime);
+   }
+
    public synchronized int getProducerWindowSize()
    {
       return serverLocator.getProducerWindowSize();
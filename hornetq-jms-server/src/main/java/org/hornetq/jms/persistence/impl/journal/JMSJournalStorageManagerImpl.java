@@ -79,9 +79,10 @@ public final class JMSJournalStorageManagerImpl implements JMSStorageManager
                                        final Configuration config,
                                        final ReplicationManager replicator)
    {
-      if (config.getJournalType() != JournalType.NIO && config.getJournalType() != JournalType.ASYNCIO)
+      if (config.getJournalType() != JournalType.NIO && config.getJournalType() != JournalType.ASYNCIO &&
+         config.getJournalType() != JournalType.IOURING && config.getJournalType() != JournalType.MAPPED)
       {
-         throw new IllegalArgumentException("Only NIO and AsyncIO are supported journals");
+         throw new IllegalArgumentException("Only NIO, AsyncIO, io_uring and mapped are supported journals");
       }
 
       // Will use the same place as the bindings directory from the core journal
@@ -178,6 +178,11 @@ public class AsynchronousFileImpl implements AsynchronousFile
 
    private final Lock writeLock = new ReentrantReadWriteLock().writeLock();
 
+   /**
+    * Writes handed to the write executor and not sent to the native layer yet
+    */
+   private final AtomicInteger queuedWrites = new AtomicInteger(0);
+
    private final ReusableLatch pendingWrites = new ReusableLatch();
 
    private Semaphore maxIOSemaphore;
@@ -238,7 +243,7 @@ public class AsynchronousFileImpl implements AsynchronousFile
 
          try
          {
-            handler = Native.init(AsynchronousFileImpl.class, fileName1, this.maxIO, HornetQJournalLogger.LOGGER);
+            handler = nativeInit(fileName1, this.maxIO);
          }
          catch (HornetQException e)
          {
@@ -295,7 +300,7 @@ public class AsynchronousFileImpl implements AsynchronousFile
 
          if (handler != null)
          {
-            Native.closeInternal(handler);
+            nativeClose(handler);
             AsynchronousFileImpl.addMax(-maxIO);
          }
          opened = false;
@@ -312,7 +317,7 @@ public class AsynchronousFileImpl implements AsynchronousFile
    {
       try
       {
-         Native.writeInternal(handler, positionToWrite, size, bytes);
+         nativeWriteInternal(handler, positionToWrite, size, bytes);
       }
       catch (HornetQException e)
       {
@@ -348,6 +353,8 @@ public class AsynchronousFileImpl implements AsynchronousFile
       {
          maxIOSemaphore.acquireUninterruptibly();
 
+         queuedWrites.incrementAndGet();
+
          writeExecutor.execute(new Runnable()
          {
             public void run()
@@ -356,7 +363,7 @@ public class AsynchronousFileImpl implements AsynchronousFile
 
                try
                {
-                  Native.write(AsynchronousFileImpl.this, handler, sequence, position, size, directByteBuffer, aioCallback);
+                  nativeWrite(handler, sequence, position, size, directByteBuffer, aioCallback);
                }
                catch (HornetQException e)
                {
@@ -370,6 +377,13 @@ public class AsynchronousFileImpl implements AsynchronousFile
                                 HornetQExceptionType.INTERNAL_ERROR.getCode(),
                                 e.getMessage());
                }
+               finally
+               {
+                  if (queuedWrites.decrementAndGet() == 0)
+                  {
+                     submitWrites();
+                  }
+               }
             }
          });
       }
@@ -381,7 +395,7 @@ public class AsynchronousFileImpl implements AsynchronousFile
 
          try
          {
-            Native.write(this, handler, sequence, position, size, directByteBuffer, aioCallback);
+            nativeWrite(handler, sequence, position, size, directByteBuffer, aioCallback);
          }
          catch (HornetQException e)
          {
@@ -391,6 +405,10 @@ public class AsynchronousFileImpl implements AsynchronousFile
          {
             callbackError(aioCallback, sequence, directByteBuffer, HornetQExceptionType.INTERNAL_ERROR.getCode(), e.getMessage());
          }
+         finally
+         {
+            submitWrites();
+         }
       }
 
    }
@@ -409,7 +427,7 @@ public class AsynchronousFileImpl implements AsynchronousFile
       maxIOSemaphore.acquireUninterruptibly();
       try
       {
-         Native.read(this, handler, position, size, directByteBuffer, aioPackage);
+         nativeRead(handler, position, size, directByteBuffer, aioPackage);
       }
       catch (HornetQException e)
       {
@@ -430,7 +448,7 @@ public class AsynchronousFileImpl implements AsynchronousFile
    public long size() throws HornetQException
    {
       checkOpened();
-      return Native.size0(handler);
+      return nativeSize(handler);
    }
 
    public void fill(final long position, final int blocks, final long size, final byte fillChar) throws HornetQException
@@ -438,7 +456,7 @@ public class AsynchronousFileImpl implements AsynchronousFile
       checkOpened();
       try
       {
-         Native.fill(handler, position, blocks, size, fillChar);
+         nativeFill(handler, position, blocks, size, fillChar);
       }
       catch (HornetQException e)
       {
@@ -488,6 +506,70 @@ public class AsynchronousFileImpl implements AsynchronousFile
 
    // Protected -------------------------------------------------------------------------
 
+   // The native layer this file is running on, overridden by URingFileImpl
+
+   protected ByteBuffer nativeInit(final String fileName1, final int maxIO1) throws HornetQException
+   {
+      return Native.init(AsynchronousFileImpl.class, fileName1, maxIO1, HornetQJournalLogger.LOGGER);
+   }
+
+   protected void nativeWrite(final ByteBuffer handler1,
+                              final long sequence,
+                              final long position,
+                              final long size,
+                              final ByteBuffer directByteBuffer,
+                              final AIOCallback aioCallback) throws HornetQException
+   {
+      Native.write(this, handler1, sequence, position, size, directByteBuffer, aioCallback);
+   }
+
+   /**
+    * Called once no more writes are queued on the write executor. libaio submits every write on its own so there is
+    * nothing to do here.
+    */
+   protected void nativeSubmit(final ByteBuffer handler1) throws HornetQException
+   {
+   }
+
+   protected void nativeWriteInternal(final ByteBuffer handler1, final long positionToWrite, final long size, final ByteBuffer bytes) throws HornetQException
+   {
+      Native.writeInternal(handler1, positionToWrite, size, bytes);
+   }
+
+   protected void nativeRead(final ByteBuffer handler1,
+                             final long position,
+                             final long size,
+                             final ByteBuffer directByteBuffer,
+                             final AIOCallback aioPackage) throws HornetQException
+   {
+      Native.read(this, handler1, position, size, directByteBuffer, aioPackage);
+   }
+
+   protected long nativeSize(final ByteBuffer handler1)
+   {
+      return Native.size0(handler1);
+   }
+
+   protected void nativeFill(final ByteBuffer handler1, final long position, final int blocks, final long size, final byte fillChar) throws HornetQException
+   {
+      Native.fill(handler1, position, blocks, size, fillChar);
+   }
+
+   protected void nativeClose(final ByteBuffer handler1)
+   {
+      Native.closeInternal(handler1);
+   }
+
+   protected void nativeStopPoller(final ByteBuffer handler1)
+   {
+      Native.stopPoller(handler1);
+   }
+
+   protected void nativePollEvents(final ByteBuffer handler1)
+   {
+      Native.internalPollEvents(handler1);
+   }
+
    @Override
    protected void finalize()
    {
@@ -623,13 +705,29 @@ public class AsynchronousFileImpl implements AsynchronousFile
       }
    }
 
+   /**
+    * The writes that failed to submit stay queued on the native layer and go with the next submit, so their callbacks
+    * aren't failed here.
+    */
+   private void submitWrites()
+   {
+      try
+      {
+         nativeSubmit(handler);
+      }
+      catch (HornetQException e)
+      {
+         fireExceptionListener(e.getType().getCode(), e.getMessage());
+      }
+   }
+
    private void pollEvents()
    {
       if (!opened)
       {
          return;
       }
-      Native.internalPollEvents(handler);
+      nativePollEvents(handler);
    }
 
    private void startPoller()
@@ -673,7 +771,7 @@ public class AsynchronousFileImpl implements AsynchronousFile
     */
    private void stopPoller() throws HornetQException, InterruptedException
    {
-      Native.stopPoller(handler);
+      nativeStopPoller(handler);
       // We need to make sure we won't call close until Poller is
       // completely done, or we might get beautiful GPFs
       pollerLatch.await();
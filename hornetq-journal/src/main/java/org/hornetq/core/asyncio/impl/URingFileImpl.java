@@ -0,0 +1,158 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.asyncio.impl;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.core.asyncio.AIOCallback;
+import org.hornetq.core.asyncio.IOExceptionListener;
+import org.hornetq.core.libaio.URingNative;
+import org.hornetq.journal.HornetQJournalLogger;
+
+/**
+ * AsynchronousFile implementation on io_uring.
+ * <p/>
+ * Each file owns a ring with the file registered as a fixed file. Writes handed to the write executor are only
+ * queued on the ring, and submitted with a single system call once the executor has no more writes queued. Ordering
+ * of the callbacks, maxIO and the poller thread work as on {@link AsynchronousFileImpl}.
+ * <p/>
+ * The io_uring functions live on the same native library as libaio, so a library built before them just leaves this
+ * implementation unsupported.
+ */
+public class URingFileImpl extends AsynchronousFileImpl
+{
+   /**
+    * This definition needs to match Version.h on the native sources.
+    */
+   private static final int EXPECTED_NATIVE_VERSION = 1;
+
+   private static boolean supported = false;
+
+   static
+   {
+      if (AsynchronousFileImpl.isLoaded())
+      {
+         try
+         {
+            if (URingNative.getNativeVersion() != URingFileImpl.EXPECTED_NATIVE_VERSION)
+            {
+               HornetQJournalLogger.LOGGER.incompatibleNativeLibrary();
+            }
+            else
+            {
+               URingFileImpl.supported = URingNative.isSupported();
+            }
+         }
+         catch (Throwable e)
+         {
+            HornetQJournalLogger.LOGGER.debug("The native library doesn't provide io_uring", e);
+         }
+      }
+
+      if (!URingFileImpl.supported)
+      {
+         HornetQJournalLogger.LOGGER.debug("Couldn't locate io_uring on the native library or on the kernel");
+      }
+   }
+
+   public static boolean isSupported()
+   {
+      return URingFileImpl.supported;
+   }
+
+   /**
+    * @param writeExecutor  It needs to be a single Thread executor. If null it will use the user thread to execute write operations
+    * @param pollerExecutor The thread pool that will initialize poller handlers
+    */
+   public URingFileImpl(final Executor writeExecutor, final Executor pollerExecutor, final IOExceptionListener ioExceptionListener)
+   {
+      super(writeExecutor, pollerExecutor, ioExceptionListener);
+   }
+
+   public URingFileImpl(final Executor writeExecutor, final Executor pollerExecutor)
+   {
+      this(writeExecutor, pollerExecutor, null);
+   }
+
+   @Override
+   protected ByteBuffer nativeInit(final String fileName1, final int maxIO1) throws HornetQException
+   {
+      // the callbacks are private methods of AsynchronousFileImpl
+      return URingNative.init(AsynchronousFileImpl.class, fileName1, maxIO1, HornetQJournalLogger.LOGGER);
+   }
+
+   @Override
+   protected void nativeWrite(final ByteBuffer handler1,
+                              final long sequence,
+                              final long position,
+                              final long size,
+                              final ByteBuffer directByteBuffer,
+                              final AIOCallback aioCallback) throws HornetQException
+   {
+      URingNative.write(this, handler1, sequence, position, size, directByteBuffer, aioCallback);
+   }
+
+   @Override
+   protected void nativeSubmit(final ByteBuffer handler1) throws HornetQException
+   {
+      URingNative.submit(handler1);
+   }
+
+   @Override
+   protected void nativeWriteInternal(final ByteBuffer handler1, final long positionToWrite, final long size, final ByteBuffer bytes) throws HornetQException
+   {
+      URingNative.writeInternal(handler1, positionToWrite, size, bytes);
+   }
+
+   @Override
+   protected void nativeRead(final ByteBuffer handler1,
+                             final long position,
+                             final long size,
+                             final ByteBuffer directByteBuffer,
+                             final AIOCallback aioPackage) throws HornetQException
+   {
+      URingNative.read(this, handler1, position, size, directByteBuffer, aioPackage);
+   }
+
+   @Override
+   protected long nativeSize(final ByteBuffer handler1)
+   {
+      return URingNative.size0(handler1);
+   }
+
+   @Override
+   protected void nativeFill(final ByteBuffer handler1, final long position, final int blocks, final long size, final byte fillChar) throws HornetQException
+   {
+      URingNative.fill(handler1, position, blocks, size, fillChar);
+   }
+
+   @Override
+   protected void nativeClose(final ByteBuffer handler1)
+   {
+      URingNative.closeInternal(handler1);
+   }
+
+   @Override
+   protected void nativeStopPoller(final ByteBuffer handler1)
+   {
+      URingNative.stopPoller(handler1);
+   }
+
+   @Override
+   protected void nativePollEvents(final ByteBuffer handler1)
+   {
+      URingNative.internalPollEvents(handler1);
+   }
+}
@@ -15,6 +15,8 @@ package org.hornetq.core.journal;
 import java.nio.ByteBuffer;
 import java.util.List;
 
+import org.hornetq.core.journal.impl.TimedBuffer;
+
 /**
  *
  * A SequentialFileFactory
@@ -85,4 +87,9 @@ public interface SequentialFileFactory
    void createDirs() throws Exception;
 
    void flush();
+
+   /**
+    * The buffer batching the writes, or null if this factory doesn't use one.
+    */
+   TimedBuffer getTimedBuffer();
 }
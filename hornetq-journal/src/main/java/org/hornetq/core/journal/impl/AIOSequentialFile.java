@@ -37,14 +37,14 @@ public class AIOSequentialFile extends AbstractSequentialFile implements IOExcep
 {
    private boolean opened = false;
 
-   private final int maxIO;
+   protected final int maxIO;
 
    private AsynchronousFile aioFile;
 
-   private final BufferCallback bufferCallback;
+   protected final BufferCallback bufferCallback;
 
    /** The pool for Thread pollers */
-   private final Executor pollerExecutor;
+   protected final Executor pollerExecutor;
 
    public AIOSequentialFile(final SequentialFileFactory factory,
                             final int bufferSize,
@@ -182,7 +182,7 @@ public class AIOSequentialFile extends AbstractSequentialFile implements IOExcep
    {
       opened = true;
 
-      aioFile = new AsynchronousFileImpl(useExecutor ? writerExecutor : null, pollerExecutor, this);
+      aioFile = createAsynchronousFile(useExecutor ? writerExecutor : null);
 
       try
       {
@@ -304,6 +304,11 @@ public class AIOSequentialFile extends AbstractSequentialFile implements IOExcep
    // Protected methods
    // -----------------------------------------------------------------------------------------------------
 
+   protected AsynchronousFile createAsynchronousFile(final Executor writer)
+   {
+      return new AsynchronousFileImpl(writer, pollerExecutor, this);
+   }
+
    @Override
    protected ByteBuffer newBuffer(int size, int limit)
    {
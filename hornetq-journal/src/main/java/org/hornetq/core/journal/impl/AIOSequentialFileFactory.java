@@ -16,6 +16,7 @@ import java.nio.ByteBuffer;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -34,7 +35,7 @@ import org.hornetq.utils.HornetQThreadFactory;
  *
  * @author clebert.suconic@jboss.com
  */
-public final class AIOSequentialFileFactory extends AbstractSequentialFileFactory
+public class AIOSequentialFileFactory extends AbstractSequentialFileFactory
 {
    private static final boolean trace = HornetQJournalLogger.LOGGER.isTraceEnabled();
 
@@ -86,6 +87,14 @@ public final class AIOSequentialFileFactory extends AbstractSequentialFileFactor
    }
 
    public SequentialFile createSequentialFile(final String fileName, final int maxIO)
+   {
+      return createSequentialFile(fileName, maxIO, buffersControl.callback, pollerExecutor);
+   }
+
+   protected SequentialFile createSequentialFile(final String fileName,
+                                                 final int maxIO,
+                                                 final BufferCallback bufferCallback,
+                                                 final Executor pollerExecutor1)
    {
       return new AIOSequentialFile(this,
                                    bufferSize,
@@ -93,9 +102,9 @@ public final class AIOSequentialFileFactory extends AbstractSequentialFileFactor
                                    journalDir,
                                    fileName,
                                    maxIO,
-                                   buffersControl.callback,
+                                   bufferCallback,
                                    writeExecutor,
-                                   pollerExecutor);
+                                   pollerExecutor1);
    }
 
    public boolean isSupportsCallbacks()
@@ -352,7 +361,7 @@ public final class AIOSequentialFileFactory extends AbstractSequentialFileFactor
    @Override
    public String toString()
    {
-      return AIOSequentialFileFactory.class.getSimpleName() + "(buffersControl.stopped=" + buffersControl.stopped +
+      return getClass().getSimpleName() + "(buffersControl.stopped=" + buffersControl.stopped +
          "):" + super.toString();
    }
 }
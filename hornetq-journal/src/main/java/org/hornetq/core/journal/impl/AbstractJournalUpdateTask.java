@@ -15,7 +15,6 @@ package org.hornetq.core.journal.impl;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
@@ -25,7 +24,7 @@ import org.hornetq.core.journal.SequentialFileFactory;
 import org.hornetq.core.journal.impl.dataformat.ByteArrayEncoding;
 import org.hornetq.core.journal.impl.dataformat.JournalAddRecord;
 import org.hornetq.core.journal.impl.dataformat.JournalInternalRecord;
-import org.hornetq.utils.ConcurrentHashSet;
+import org.hornetq.utils.ConcurrentLongHashMap;
 
 /**
  *
@@ -57,7 +56,8 @@ public abstract class AbstractJournalUpdateTask implements JournalReaderCallback
 
    private HornetQBuffer writingChannel;
 
-   private final Set<Long> recordsSnapshot = new ConcurrentHashSet<Long>();
+   // used as a set, the value is always Boolean.TRUE
+   private final ConcurrentLongHashMap<Boolean> recordsSnapshot;
 
    protected final List<JournalFile> newDataFiles = new ArrayList<JournalFile>();
 
@@ -68,7 +68,7 @@ public abstract class AbstractJournalUpdateTask implements JournalReaderCallback
    protected AbstractJournalUpdateTask(final SequentialFileFactory fileFactory,
                                        final JournalImpl journal,
                                        final JournalFilesRepository filesRepository,
-                                       final Set<Long> recordsSnapshot,
+                                       final long[] recordsSnapshot,
                                        final long nextOrderingID)
    {
       super();
@@ -76,7 +76,11 @@ public abstract class AbstractJournalUpdateTask implements JournalReaderCallback
       this.filesRepository = filesRepository;
       this.fileFactory = fileFactory;
       this.nextOrderingID = nextOrderingID;
-      this.recordsSnapshot.addAll(recordsSnapshot);
+      this.recordsSnapshot = new ConcurrentLongHashMap<Boolean>(Math.max(1, recordsSnapshot.length));
+      for (long id : recordsSnapshot)
+      {
+         this.recordsSnapshot.put(id, Boolean.TRUE);
+      }
    }
 
    // Public --------------------------------------------------------
@@ -192,7 +196,7 @@ public abstract class AbstractJournalUpdateTask implements JournalReaderCallback
 
    public boolean lookupRecord(final long id)
    {
-      return recordsSnapshot.contains(id);
+      return recordsSnapshot.containsKey(id);
    }
 
    // Package protected ---------------------------------------------
@@ -223,7 +227,7 @@ public abstract class AbstractJournalUpdateTask implements JournalReaderCallback
 
    protected void addToRecordsSnaptshot(final long id)
    {
-      recordsSnapshot.add(id);
+      recordsSnapshot.put(id, Boolean.TRUE);
    }
 
    /**
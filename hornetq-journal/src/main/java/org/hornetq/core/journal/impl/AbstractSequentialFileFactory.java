@@ -156,6 +156,11 @@ abstract class AbstractSequentialFileFactory implements SequentialFileFactory
       }
    }
 
+   public TimedBuffer getTimedBuffer()
+   {
+      return timedBuffer;
+   }
+
    public void deactivateBuffer()
    {
       if (timedBuffer != null)
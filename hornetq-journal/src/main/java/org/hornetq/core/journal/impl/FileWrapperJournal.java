@@ -314,7 +314,7 @@ public final class FileWrapperJournal extends JournalBase
    @Override
    public SequentialFileFactory getFileFactory()
    {
-      throw new UnsupportedOperationException();
+      return journal.getFileFactory();
    }
 
    @Override
@@ -17,7 +17,6 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.hornetq.api.core.HornetQBuffer;
@@ -35,6 +34,7 @@ import org.hornetq.core.journal.impl.dataformat.JournalDeleteRecordTX;
 import org.hornetq.core.journal.impl.dataformat.JournalInternalRecord;
 import org.hornetq.core.journal.impl.dataformat.JournalRollbackRecordTX;
 import org.hornetq.journal.HornetQJournalLogger;
+import org.hornetq.utils.ConcurrentLongHashMap;
 
 /**
  * A JournalCompactor
@@ -53,7 +53,7 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
    // Snapshot of transactions that were pending when the compactor started
    private final Map<Long, PendingTransaction> pendingTransactions = new ConcurrentHashMap<Long, PendingTransaction>();
 
-   private final Map<Long, JournalRecord> newRecords = new HashMap<Long, JournalRecord>();
+   private final ConcurrentLongHashMap<JournalRecord> newRecords = new ConcurrentLongHashMap<JournalRecord>();
 
    private final Map<Long, JournalTransaction> newTransactions = new HashMap<Long, JournalTransaction>();
 
@@ -62,6 +62,8 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
     *  we cache those updates. As soon as we are done we take the right account. */
    private final LinkedList<CompactCommand> pendingCommands = new LinkedList<CompactCommand>();
 
+   private final long fileIDLimit;
+
    public static SequentialFile readControlFile(final SequentialFileFactory fileFactory,
                                                 final List<String> dataFiles,
                                                 final List<String> newFiles,
@@ -129,7 +131,7 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
       return newDataFiles;
    }
 
-   public Map<Long, JournalRecord> getNewRecords()
+   public ConcurrentLongHashMap<JournalRecord> getNewRecords()
    {
       return newRecords;
    }
@@ -142,10 +144,26 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
    public JournalCompactor(final SequentialFileFactory fileFactory,
                            final JournalImpl journal,
                            final JournalFilesRepository filesRepository,
-                           final Set<Long> recordsSnapshot,
+                           final long[] recordsSnapshot,
                            final long firstFileID)
+   {
+      this(fileFactory, journal, filesRepository, recordsSnapshot, firstFileID, Long.MAX_VALUE);
+   }
+
+   /**
+    * @param fileIDLimit when compacting only the oldest files the new files have to be ordered before the files left
+    *           as they are: no file ID from this one on is used, and old records are not split from new ones as that
+    *           could take more files than were compacted
+    */
+   public JournalCompactor(final SequentialFileFactory fileFactory,
+                           final JournalImpl journal,
+                           final JournalFilesRepository filesRepository,
+                           final long[] recordsSnapshot,
+                           final long firstFileID,
+                           final long fileIDLimit)
    {
       super(fileFactory, journal, filesRepository, recordsSnapshot, firstFileID);
+      this.fileIDLimit = fileIDLimit;
    }
 
    /** This methods informs the Compactor about the existence of a pending (non committed) transaction */
@@ -253,6 +271,11 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
 
    private boolean checkCompact(final int compactCount) throws Exception
    {
+      if (fileIDLimit != Long.MAX_VALUE)
+      {
+         return false;
+      }
+
       if (compactCount >= COMPACT_SPLIT_LINE && !splitted)
       {
          willNeedToSplit = true;
@@ -271,6 +294,17 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
       }
    }
 
+   @Override
+   protected void openFile() throws Exception
+   {
+      if (nextOrderingID >= fileIDLimit)
+      {
+         throw new IllegalStateException("Compacted files would be ordered after file " + fileIDLimit);
+      }
+
+      super.openFile();
+   }
+
    /**
     * Replay pending counts that happened during compacting
     */
@@ -631,7 +665,7 @@ public class JournalCompactor extends AbstractJournalUpdateTask implements Journ
    }
 
    @Override
-   public Map<Long, JournalRecord> getRecords()
+   public ConcurrentLongHashMap<JournalRecord> getRecords()
    {
       return newRecords;
    }
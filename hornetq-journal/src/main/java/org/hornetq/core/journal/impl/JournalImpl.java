@@ -25,8 +25,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -65,6 +63,7 @@ import org.hornetq.core.journal.impl.dataformat.JournalRollbackRecordTX;
 import org.hornetq.journal.HornetQJournalBundle;
 import org.hornetq.journal.HornetQJournalLogger;
 import org.hornetq.utils.ConcurrentHashSet;
+import org.hornetq.utils.ConcurrentLongHashMap;
 import org.hornetq.utils.DataConstants;
 
 /**
@@ -163,6 +162,21 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    private volatile boolean autoReclaim = true;
 
+   // Number of threads reading the files ahead of the loading thread, 1 means files are read by the loading thread
+   private volatile int loadParallelism = 1;
+
+   // When greater than 0 compacting works on at most this many of the oldest files at a time
+   private volatile int compactBatchFiles;
+
+   // MiB per second compacting may read, 0 means no limit
+   private volatile int compactIOBudget;
+
+   // Milliseconds an incremental compacting should keep the journal locked, 0 means no limit
+   private volatile long compactPauseBudget;
+
+   // How long the last incremental compacting batch kept the journal locked
+   private volatile long lastCompactPause;
+
    private final int userVersion;
 
    private final int minFiles;
@@ -176,10 +190,10 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
    private final JournalFilesRepository filesRepository;
 
    // Compacting may replace this structure
-   private final ConcurrentMap<Long, JournalRecord> records = new ConcurrentHashMap<Long, JournalRecord>();
+   private final ConcurrentLongHashMap<JournalRecord> records = new ConcurrentLongHashMap<JournalRecord>();
 
    // Compacting may replace this structure
-   private final ConcurrentMap<Long, JournalTransaction> transactions = new ConcurrentHashMap<Long, JournalTransaction>();
+   private final ConcurrentLongHashMap<JournalTransaction> transactions = new ConcurrentLongHashMap<JournalTransaction>();
 
    // This will be set only while the JournalCompactor is being executed
    private volatile JournalCompactor compactor;
@@ -345,7 +359,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       latch.await();
    }
 
-   public Map<Long, JournalRecord> getRecords()
+   public ConcurrentLongHashMap<JournalRecord> getRecords()
    {
       return records;
    }
@@ -1458,6 +1472,18 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          throw new IllegalStateException("There is pending compacting operation");
       }
 
+      if (compactBatchFiles > 0)
+      {
+         compactIncrementally();
+      }
+      else
+      {
+         compactAll();
+      }
+   }
+
+   private void compactAll() throws Exception
+   {
       compactorLock.writeLock().lock();
       try
       {
@@ -1503,14 +1529,17 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
                compactor = new JournalCompactor(fileFactory,
                                                 this,
                                                 filesRepository,
-                                                records.keySet(),
+                                                records.keys(),
                                                 dataFilesToProcess.get(0).getFileID());
 
-               for (Map.Entry<Long, JournalTransaction> entry : transactions.entrySet())
+               transactions.forEach(new ConcurrentLongHashMap.EntryVisitor<JournalTransaction>()
                {
-                  compactor.addPendingTransaction(entry.getKey(), entry.getValue().getPositiveArray());
-                  entry.getValue().setCompacting();
-               }
+                  public void visit(final long txID, final JournalTransaction transaction)
+                  {
+                     compactor.addPendingTransaction(txID, transaction.getPositiveArray());
+                     transaction.setCompacting();
+                  }
+               });
 
                // We will calculate the new records during compacting, what will take the position the records will take
                // after compacting
@@ -1528,18 +1557,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
             // Read the files, and use the JournalCompactor class to create the new outputFiles, and the new collections as
             // well
-            for (final JournalFile file : dataFilesToProcess)
-            {
-               try
-               {
-                  JournalImpl.readJournalFile(fileFactory, file, compactor);
-               }
-               catch (Throwable e)
-               {
-                  HornetQJournalLogger.LOGGER.compactReadError(file);
-                  throw new Exception("Error on reading compacting for " + file, e);
-               }
-            }
+            readCompactedFiles(dataFilesToProcess);
 
             compactor.flush();
 
@@ -1565,10 +1583,13 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
                newDatafiles = localCompactor.getNewDataFiles();
 
                // Restore newRecords created during compacting
-               for (Map.Entry<Long, JournalRecord> newRecordEntry : localCompactor.getNewRecords().entrySet())
+               localCompactor.getNewRecords().forEach(new ConcurrentLongHashMap.EntryVisitor<JournalRecord>()
                {
-                  records.put(newRecordEntry.getKey(), newRecordEntry.getValue());
-               }
+                  public void visit(final long id, final JournalRecord record)
+                  {
+                     records.put(id, record);
+                  }
+               });
 
                // Restore compacted dataFiles
                for (int i = newDatafiles.size() - 1; i >= 0; i--)
@@ -1653,6 +1674,402 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    }
 
+   /**
+    * Compacts the journal in batches of the oldest files, while it is worth it.
+    */
+   private void compactIncrementally() throws Exception
+   {
+      int batchFiles = compactBatchFiles;
+
+      while (state == JournalState.LOADED)
+      {
+         long start = System.currentTimeMillis();
+
+         int freed = compactBatch(batchFiles);
+
+         if (freed < 0)
+         {
+            // The oldest file is held by a pending transaction, only compacting everything can get past it
+            HornetQJournalLogger.LOGGER.debug("Oldest journal file holds a pending transaction, compacting all files");
+            compactAll();
+            return;
+         }
+
+         if (JournalImpl.trace)
+         {
+            JournalImpl.trace("Compacting batch of " + batchFiles + " files freed " + freed + " files in " +
+                                 (System.currentTimeMillis() - start) + " ms, journal locked for " + lastCompactPause +
+                                 " ms");
+         }
+
+         if (!needsCompact())
+         {
+            return;
+         }
+
+         if (freed == 0)
+         {
+            // The oldest files didn't compact into fewer files, only a longer batch can free any
+            if (batchFiles >= filesRepository.getDataFilesCount())
+            {
+               return;
+            }
+
+            batchFiles *= 2;
+
+            continue;
+         }
+
+         long pauseBudget = compactPauseBudget;
+
+         if (pauseBudget > 0)
+         {
+            if (lastCompactPause > pauseBudget)
+            {
+               batchFiles = Math.max(1, batchFiles / 2);
+            }
+            else if (lastCompactPause < pauseBudget / 2)
+            {
+               batchFiles = Math.min(compactBatchFiles, batchFiles + 1);
+            }
+         }
+      }
+   }
+
+   /**
+    * Compacts the oldest data files only, leaving the newer ones as they are.
+    * <p>
+    * Only the head of the journal can be compacted on its own: dropping a delete from the middle of the journal would
+    * bring back a record added on an older file. Records added on the batch keep their updates on newer files, and
+    * transactions found on the batch but completed on newer files are accounted for as
+    * {@link JournalTransaction#completeOnFiles} describes. The batch stops before the first file holding records of a
+    * pending transaction, and it is extended while it doesn't hold at least one file worth of garbage.
+    * @return the number of files freed, -1 if the oldest file holds records of a pending transaction
+    */
+   private int compactBatch(final int batchFiles) throws Exception
+   {
+      compactorLock.writeLock().lock();
+      try
+      {
+         final List<JournalFile> dataFilesToProcess = new ArrayList<JournalFile>(batchFiles);
+
+         final Set<JournalFile> compactedFiles = new HashSet<JournalFile>();
+
+         // the records added on the batch, kept as they were in case compacting fails
+         final ConcurrentLongHashMap<JournalRecord> compactedRecords = new ConcurrentLongHashMap<JournalRecord>();
+
+         boolean previousReclaimValue = isAutoReclaim();
+
+         boolean swapped = false;
+
+         try
+         {
+            HornetQJournalLogger.LOGGER.debug("Starting compacting a batch of the journal");
+
+            onCompactStart();
+
+            journalLock.writeLock().lock();
+            try
+            {
+               if (state != JournalState.LOADED)
+               {
+                  return 0;
+               }
+
+               onCompactLockingTheJournal();
+
+               final Set<JournalFile> transactionFiles = new HashSet<JournalFile>();
+
+               transactions.forEach(new ConcurrentLongHashMap.EntryVisitor<JournalTransaction>()
+               {
+                  public void visit(final long txID, final JournalTransaction transaction)
+                  {
+                     transaction.collectPendingFiles(transactionFiles);
+                  }
+               });
+
+               long garbage = 0;
+
+               // the compacted files take the IDs of the batch, they must stay ordered before the next file
+               long fileIDLimit = currentFile.getFileID();
+
+               for (JournalFile file : filesRepository.getDataFiles())
+               {
+                  if (transactionFiles.contains(file) ||
+                     (dataFilesToProcess.size() >= batchFiles && garbage >= fileSize))
+                  {
+                     fileIDLimit = file.getFileID();
+                     break;
+                  }
+
+                  dataFilesToProcess.add(file);
+
+                  garbage += fileSize - file.getLiveSize();
+               }
+
+               if (dataFilesToProcess.isEmpty())
+               {
+                  return -1;
+               }
+
+               if (garbage < fileSize)
+               {
+                  trace("Finishing compacting, not enough garbage on the oldest files");
+                  return 0;
+               }
+
+               setAutoReclaim(false);
+
+               compactedFiles.addAll(dataFilesToProcess);
+
+               for (JournalFile file : dataFilesToProcess)
+               {
+                  filesRepository.removeDataFile(file);
+               }
+
+               records.forEach(new ConcurrentLongHashMap.EntryVisitor<JournalRecord>()
+               {
+                  public void visit(final long id, final JournalRecord record)
+                  {
+                     if (compactedFiles.contains(record.getAddFile()))
+                     {
+                        compactedRecords.put(id, record);
+                     }
+                  }
+               });
+
+               long[] ids = compactedRecords.keys();
+
+               for (long id : ids)
+               {
+                  records.remove(id);
+               }
+
+               compactor = new JournalCompactor(fileFactory,
+                                                this,
+                                                filesRepository,
+                                                ids,
+                                                dataFilesToProcess.get(0).getFileID(),
+                                                fileIDLimit);
+            }
+            finally
+            {
+               journalLock.writeLock().unlock();
+            }
+
+            readCompactedFiles(dataFilesToProcess);
+
+            compactor.flush();
+
+            // pointcut for tests
+            onCompactDone();
+
+            List<JournalFile> newDatafiles = null;
+
+            final JournalCompactor localCompactor = compactor;
+
+            SequentialFile controlFile = createControlFile(dataFilesToProcess, compactor.getNewDataFiles(), null);
+
+            journalLock.writeLock().lock();
+            try
+            {
+               long pauseStart = System.currentTimeMillis();
+
+               // Need to clear the compactor here, or the replay commands will send commands back (infinite loop)
+               compactor = null;
+
+               onCompactLockingTheJournal();
+
+               newDatafiles = localCompactor.getNewDataFiles();
+
+               // No transaction was pending on the batch, the ones left were completed on files not compacted
+               if (!localCompactor.getNewTransactions().isEmpty())
+               {
+                  List<JournalFile> completionFiles = new ArrayList<JournalFile>();
+
+                  for (JournalFile file : filesRepository.getDataFiles())
+                  {
+                     if (hasNegativesOn(file, dataFilesToProcess))
+                     {
+                        completionFiles.add(file);
+                     }
+                  }
+
+                  if (hasNegativesOn(currentFile, dataFilesToProcess))
+                  {
+                     completionFiles.add(currentFile);
+                  }
+
+                  for (JournalTransaction newTransaction : localCompactor.getNewTransactions().values())
+                  {
+                     newTransaction.completeOnFiles(completionFiles, compactedRecords);
+                  }
+               }
+
+               localCompactor.getNewRecords().forEach(new ConcurrentLongHashMap.EntryVisitor<JournalRecord>()
+               {
+                  public void visit(final long id, final JournalRecord record)
+                  {
+                     JournalRecord previous = compactedRecords.get(id);
+
+                     if (previous != null)
+                     {
+                        record.takeUpdates(previous, compactedFiles);
+                     }
+
+                     records.put(id, record);
+                  }
+               });
+
+               for (int i = newDatafiles.size() - 1; i >= 0; i--)
+               {
+                  filesRepository.addDataFileOnTop(newDatafiles.get(i));
+               }
+
+               swapped = true;
+
+               localCompactor.replayPendingCommands();
+
+               lastCompactPause = System.currentTimeMillis() - pauseStart;
+            }
+            finally
+            {
+               journalLock.writeLock().unlock();
+            }
+
+            renameFiles(dataFilesToProcess, newDatafiles);
+            deleteControlFile(controlFile);
+
+            HornetQJournalLogger.LOGGER.debug("Finished compacting a batch of the journal");
+
+            return dataFilesToProcess.size() - newDatafiles.size();
+         }
+         finally
+         {
+            if (compactor != null)
+            {
+               JournalCompactor failedCompactor = compactor;
+
+               try
+               {
+                  failedCompactor.flush();
+               }
+               catch (Throwable ignored)
+               {
+               }
+
+               compactor = null;
+
+               if (!swapped)
+               {
+                  restoreCompactedFiles(failedCompactor, dataFilesToProcess, compactedRecords);
+               }
+            }
+
+            setAutoReclaim(previousReclaimValue);
+         }
+      }
+      finally
+      {
+         compactorLock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Puts back the files and records taken by a compacting batch that failed, the batch files were not changed.
+    */
+   private void restoreCompactedFiles(final JournalCompactor failedCompactor,
+                                      final List<JournalFile> dataFilesToProcess,
+                                      final ConcurrentLongHashMap<JournalRecord> compactedRecords)
+   {
+      journalLock.writeLock().lock();
+      try
+      {
+         compactedRecords.forEach(new ConcurrentLongHashMap.EntryVisitor<JournalRecord>()
+         {
+            public void visit(final long id, final JournalRecord record)
+            {
+               records.put(id, record);
+            }
+         });
+
+         for (int i = dataFilesToProcess.size() - 1; i >= 0; i--)
+         {
+            filesRepository.addDataFileOnTop(dataFilesToProcess.get(i));
+         }
+
+         failedCompactor.replayPendingCommands();
+
+         for (JournalFile file : failedCompactor.getNewDataFiles())
+         {
+            try
+            {
+               file.getFile().delete();
+            }
+            catch (Exception e)
+            {
+               HornetQJournalLogger.LOGGER.errorDeletingFile(file);
+            }
+         }
+      }
+      finally
+      {
+         journalLock.writeLock().unlock();
+      }
+   }
+
+   private static boolean hasNegativesOn(final JournalFile file, final List<JournalFile> files)
+   {
+      for (JournalFile other : files)
+      {
+         if (file.getNegCount(other) != 0)
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Reads the files being compacted into the {@link #compactor}, within {@link #getCompactIOBudget()}.
+    */
+   private void readCompactedFiles(final List<JournalFile> dataFilesToProcess) throws Exception
+   {
+      long start = System.currentTimeMillis();
+
+      long bytesRead = 0;
+
+      for (final JournalFile file : dataFilesToProcess)
+      {
+         try
+         {
+            JournalImpl.readJournalFile(fileFactory, file, compactor);
+         }
+         catch (Throwable e)
+         {
+            HornetQJournalLogger.LOGGER.compactReadError(file);
+            throw new Exception("Error on reading compacting for " + file, e);
+         }
+
+         bytesRead += fileSize;
+
+         int ioBudget = compactIOBudget;
+
+         if (ioBudget > 0)
+         {
+            long expected = bytesRead * 1000 / (ioBudget * 1024L * 1024L);
+
+            long elapsed = System.currentTimeMillis() - start;
+
+            if (expected > elapsed)
+            {
+               Thread.sleep(expected - elapsed);
+            }
+         }
+      }
+   }
+
    /**
     * <p>Load data accordingly to the record layouts</p>
     * <p/>
@@ -1734,13 +2151,18 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       // AtomicLong is used only as a reference, not as an Atomic value
       final AtomicLong maxID = new AtomicLong(-1);
 
+      final long loadStart = System.currentTimeMillis();
+
+      final ParallelJournalReader parallelReader = loadParallelism > 1 && orderedFiles.size() > 1
+         ? new ParallelJournalReader(fileFactory, orderedFiles, loadParallelism) : null;
+
       for (final JournalFile file : orderedFiles)
       {
          JournalImpl.trace("Loading file " + file.getFile().getFileName());
 
          final AtomicBoolean hasData = new AtomicBoolean(false);
 
-         int resultLastPost = JournalImpl.readJournalFile(fileFactory, file, new JournalReaderCallback()
+         JournalReaderCallback loadCallback = new JournalReaderCallback()
          {
 
             private void checkID(final long id)
@@ -1986,7 +2408,18 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
                hasData.set(true);
             }
 
-         });
+         };
+
+         int resultLastPost;
+
+         if (parallelReader != null)
+         {
+            resultLastPost = parallelReader.replay(file, loadCallback);
+         }
+         else
+         {
+            resultLastPost = JournalImpl.readJournalFile(fileFactory, file, loadCallback);
+         }
 
          if (hasData.get())
          {
@@ -2003,6 +2436,15 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          }
       }
 
+      if (HornetQJournalLogger.LOGGER.isDebugEnabled())
+      {
+         HornetQJournalLogger.LOGGER.debug("Journal " + this + " read " + orderedFiles.size() + " files in " +
+                                              (System.currentTimeMillis() - loadStart) + " ms" +
+                                              (parallelReader != null ? ", " + parallelReader.getReplayTime() +
+                                                 " ms applying records read ahead by " + loadParallelism + " threads"
+                                                 : ""));
+      }
+
       if (replicationSync == JournalState.SYNCING)
       {
          assert filesRepository.getDataFiles().isEmpty();
@@ -2174,6 +2616,82 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       });
    }
 
+   /**
+    * When greater than 1 {@link #load} reads and decodes the journal files on that many threads, while the records
+    * are still applied one file at a time in file order.
+    */
+   public void setLoadParallelism(final int loadParallelism)
+   {
+      if (loadParallelism < 1)
+      {
+         throw new IllegalArgumentException("loadParallelism must be at least 1, was " + loadParallelism);
+      }
+
+      this.loadParallelism = loadParallelism;
+   }
+
+   public int getLoadParallelism()
+   {
+      return loadParallelism;
+   }
+
+   /**
+    * When greater than 0 compacting runs incrementally, on batches of at most this many of the oldest data files,
+    * locking the journal once per batch for as long as it takes to swap the records of those files only.
+    */
+   public void setCompactBatchFiles(final int compactBatchFiles)
+   {
+      if (compactBatchFiles < 0)
+      {
+         throw new IllegalArgumentException("compactBatchFiles can't be negative, was " + compactBatchFiles);
+      }
+
+      this.compactBatchFiles = compactBatchFiles;
+   }
+
+   public int getCompactBatchFiles()
+   {
+      return compactBatchFiles;
+   }
+
+   /**
+    * Limits the rate compacting reads the data files, in MiB per second. 0 means no limit.
+    */
+   public void setCompactIOBudget(final int compactIOBudget)
+   {
+      if (compactIOBudget < 0)
+      {
+         throw new IllegalArgumentException("compactIOBudget can't be negative, was " + compactIOBudget);
+      }
+
+      this.compactIOBudget = compactIOBudget;
+   }
+
+   public int getCompactIOBudget()
+   {
+      return compactIOBudget;
+   }
+
+   /**
+    * The time an incremental compacting should keep the journal locked on each batch, in milliseconds. Batches
+    * taking longer are halved, down to a single file, and grow back while well within the budget. 0 means batches
+    * are always of {@link #getCompactBatchFiles()} files.
+    */
+   public void setCompactPauseBudget(final long compactPauseBudget)
+   {
+      if (compactPauseBudget < 0)
+      {
+         throw new IllegalArgumentException("compactPauseBudget can't be negative, was " + compactPauseBudget);
+      }
+
+      this.compactPauseBudget = compactPauseBudget;
+   }
+
+   public long getCompactPauseBudget()
+   {
+      return compactPauseBudget;
+   }
+
    // TestableJournal implementation
    // --------------------------------------------------------------
 
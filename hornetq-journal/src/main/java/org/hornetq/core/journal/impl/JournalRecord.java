@@ -14,6 +14,7 @@ package org.hornetq.core.journal.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.hornetq.api.core.Pair;
 
@@ -44,6 +45,11 @@ public class JournalRecord
       addFile.addSize(size);
    }
 
+   JournalFile getAddFile()
+   {
+      return addFile;
+   }
+
    void addUpdateFile(final JournalFile updateFile, final int size)
    {
       if (updateFiles == null)
@@ -58,6 +64,29 @@ public class JournalRecord
       updateFile.addSize(size);
    }
 
+   /**
+    * Takes over the updates a previous record with the same ID has on files that were not compacted. These were
+    * already counted on their files when they were appended, so they are not counted again.
+    */
+   void takeUpdates(final JournalRecord previous, final Set<JournalFile> compactedFiles)
+   {
+      if (previous.updateFiles != null)
+      {
+         for (Pair<JournalFile, Integer> update : previous.updateFiles)
+         {
+            if (!compactedFiles.contains(update.getA()))
+            {
+               if (updateFiles == null)
+               {
+                  updateFiles = new ArrayList<Pair<JournalFile, Integer>>();
+               }
+
+               updateFiles.add(update);
+            }
+         }
+      }
+   }
+
    void delete(final JournalFile file)
    {
       file.incNegCount(addFile);
@@ -13,6 +13,7 @@
 package org.hornetq.core.journal.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -22,6 +23,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hornetq.api.core.HornetQExceptionType;
 import org.hornetq.core.journal.impl.dataformat.JournalInternalRecord;
+import org.hornetq.utils.ConcurrentLongHashMap;
 
 /**
  * A JournalTransaction
@@ -315,6 +317,74 @@ public class JournalTransaction
       }
    }
 
+   /**
+    * Used by an incremental compacting on transactions found on the compacted files but completed on a file that
+    * was not compacted. Only the records the journal had live before compacting, i.e. added by a commit it already
+    * read, go to the records of the compactor. The records of a rolled back transaction are not added, their files
+    * are only pinned: every file that may hold the completion is kept until the files of this transaction are
+    * reclaimed.
+    *
+    * @param liveRecords the records added on the compacted files, as the journal had them before compacting
+    */
+   void completeOnFiles(final Collection<JournalFile> completionFiles,
+                        final ConcurrentLongHashMap<JournalRecord> liveRecords)
+   {
+      if (pos != null)
+      {
+         for (JournalUpdate trUpdate : pos)
+         {
+            if (liveRecords.get(trUpdate.id) == null)
+            {
+               // rolled back, or deleted after the commit
+               continue;
+            }
+
+            JournalRecord posFiles = journal.getRecords().get(trUpdate.id);
+
+            if (posFiles == null)
+            {
+               journal.getRecords().put(trUpdate.id, new JournalRecord(trUpdate.file, trUpdate.size));
+            }
+            else
+            {
+               posFiles.addUpdateFile(trUpdate.file, trUpdate.size);
+            }
+         }
+      }
+
+      if (pendingFiles != null)
+      {
+         for (JournalFile jf : pendingFiles)
+         {
+            boolean first = true;
+
+            for (JournalFile file : completionFiles)
+            {
+               // addFile counted a single pos for the transaction on jf, each extra neg needs its own
+               if (!first)
+               {
+                  jf.incPosCount();
+               }
+
+               file.incNegCount(jf);
+
+               first = false;
+            }
+         }
+      }
+   }
+
+   /**
+    * Adds the files holding operations of this transaction to the given set.
+    */
+   void collectPendingFiles(final Set<JournalFile> files)
+   {
+      if (pendingFiles != null)
+      {
+         files.addAll(pendingFiles);
+      }
+   }
+
    public void waitCallbacks() throws InterruptedException
    {
       if (callbackList != null)
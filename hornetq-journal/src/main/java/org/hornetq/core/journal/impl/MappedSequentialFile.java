@@ -0,0 +1,557 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.journal.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.HornetQExceptionType;
+import org.hornetq.api.core.HornetQIOErrorException;
+import org.hornetq.api.core.HornetQIllegalStateException;
+import org.hornetq.core.journal.EncodingSupport;
+import org.hornetq.core.journal.IOAsyncTask;
+import org.hornetq.core.journal.SequentialFile;
+import org.hornetq.core.journal.SequentialFileFactory;
+import org.hornetq.journal.HornetQJournalBundle;
+import org.hornetq.journal.HornetQJournalLogger;
+
+/**
+ * A SequentialFile writing straight into a memory mapping of the whole file.
+ * <p/>
+ * Records are encoded directly on the mapping, so there is no TimedBuffer and no intermediate copy. The data is
+ * visible to the OS as soon as it is written; a sync only needs to {@link MappedByteBuffer#force()} the mapping.
+ * Callbacks are completed in order on the writer executor, and every sync requested while the executor was busy is
+ * satisfied by a single force.
+ */
+public final class MappedSequentialFile extends AbstractSequentialFile
+{
+   private RandomAccessFile rfile;
+
+   private FileChannel channel;
+
+   private volatile MappedByteBuffer mapped;
+
+   /**
+    * Held while forcing, so a mapping is never released in the middle of a force.
+    */
+   private final Object forceLock = new Object();
+
+   private final int defaultMaxIO;
+
+   private int maxIO;
+
+   private boolean useExecutor;
+
+   private final Object pendingLock = new Object();
+
+   private List<IOAsyncTask> pendingCallbacks = new ArrayList<IOAsyncTask>();
+
+   private boolean pendingSync;
+
+   private boolean flushScheduled;
+
+   private final Runnable flushTask = new Runnable()
+   {
+      public void run()
+      {
+         flushPending();
+      }
+   };
+
+   public MappedSequentialFile(final SequentialFileFactory factory,
+                               final String directory,
+                               final String fileName,
+                               final int maxIO,
+                               final Executor writerExecutor)
+   {
+      super(directory, new File(directory + "/" + fileName), factory, writerExecutor);
+      defaultMaxIO = maxIO;
+   }
+
+   public MappedSequentialFile(final SequentialFileFactory factory,
+                               final File file,
+                               final int maxIO,
+                               final Executor writerExecutor)
+   {
+      super(file.getParent(), new File(file.getPath()), factory, writerExecutor);
+      defaultMaxIO = maxIO;
+   }
+
+   public int getAlignment()
+   {
+      return 1;
+   }
+
+   public int calculateBlockStart(final int position)
+   {
+      return position;
+   }
+
+   public synchronized boolean isOpen()
+   {
+      return channel != null;
+   }
+
+   public synchronized void open() throws IOException
+   {
+      open(defaultMaxIO, true);
+   }
+
+   public synchronized void open(final int maxIO, final boolean useExecutor) throws IOException
+   {
+      try
+      {
+         rfile = new RandomAccessFile(getFile(), "rw");
+
+         channel = rfile.getChannel();
+
+         map(channel.size());
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+
+      this.maxIO = maxIO;
+      this.useExecutor = useExecutor && writerExecutor != null;
+      position.set(0);
+   }
+
+   public synchronized void fill(final int position, final int size, final byte fillCharacter) throws IOException
+   {
+      if (position + size > mapped.capacity())
+      {
+         map(position + size);
+      }
+
+      ByteBuffer target = mapped.duplicate();
+      target.position(position);
+      for (int i = 0; i < size; i++)
+      {
+         target.put(fillCharacter);
+      }
+
+      try
+      {
+         sync();
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+   }
+
+   public synchronized void waitForClose() throws InterruptedException
+   {
+      while (isOpen())
+      {
+         wait();
+      }
+   }
+
+   @Override
+   public synchronized void close() throws IOException, InterruptedException, HornetQException
+   {
+      // waits the writer executor, so every pending callback is done
+      super.close();
+
+      flushPending();
+
+      try
+      {
+         if (mapped != null)
+         {
+            synchronized (forceLock)
+            {
+               mapped.force();
+               unmap(mapped);
+               mapped = null;
+            }
+         }
+
+         if (channel != null)
+         {
+            channel.close();
+         }
+
+         if (rfile != null)
+         {
+            rfile.close();
+         }
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+
+      channel = null;
+
+      rfile = null;
+
+      notifyAll();
+   }
+
+   public int read(final ByteBuffer bytes) throws Exception
+   {
+      return read(bytes, null);
+   }
+
+   public synchronized int read(final ByteBuffer bytes, final IOAsyncTask callback) throws HornetQIllegalStateException
+   {
+      if (mapped == null)
+      {
+         throw new HornetQIllegalStateException("File " + this.getFileName() + " is not mapped");
+      }
+
+      int pos = (int)position.get();
+
+      int bytesRead = Math.min(bytes.remaining(), mapped.capacity() - pos);
+
+      if (bytesRead > 0)
+      {
+         ByteBuffer source = mapped.duplicate();
+         source.position(pos);
+         source.limit(pos + bytesRead);
+         bytes.put(source);
+         position.addAndGet(bytesRead);
+      }
+      else
+      {
+         bytesRead = -1;
+      }
+
+      if (callback != null)
+      {
+         callback.done();
+      }
+
+      bytes.flip();
+
+      return bytesRead;
+   }
+
+   public void sync() throws IOException
+   {
+      synchronized (forceLock)
+      {
+         MappedByteBuffer buffer = mapped;
+         if (buffer != null)
+         {
+            buffer.force();
+         }
+      }
+   }
+
+   public long size() throws IOException
+   {
+      if (channel == null)
+      {
+         return getFile().length();
+      }
+
+      try
+      {
+         return channel.size();
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "MappedSequentialFile " + getFile();
+   }
+
+   public SequentialFile cloneFile()
+   {
+      return new MappedSequentialFile(factory, getFile(), maxIO, writerExecutor);
+   }
+
+   @Override
+   public void write(final HornetQBuffer bytes, final boolean sync, final IOAsyncTask callback) throws IOException
+   {
+      bytes.setIndex(0, bytes.capacity());
+
+      synchronized (this)
+      {
+         ByteBuffer target = reserve(bytes.capacity(), callback);
+         if (target == null)
+         {
+            return;
+         }
+         bytes.getBytes(0, target);
+      }
+
+      complete(sync, callback);
+   }
+
+   @Override
+   public void write(final EncodingSupport bytes, final boolean sync, final IOAsyncTask callback)
+   {
+      synchronized (this)
+      {
+         ByteBuffer target;
+         try
+         {
+            target = reserve(bytes.getEncodeSize(), callback);
+         }
+         catch (IOException e)
+         {
+            callback.onError(HornetQExceptionType.IO_ERROR.getCode(), e.getMessage());
+            return;
+         }
+
+         if (target == null)
+         {
+            return;
+         }
+
+         HornetQBuffer outBuffer = HornetQBuffers.wrappedBuffer(target);
+         bytes.encode(outBuffer);
+      }
+
+      complete(sync, callback);
+   }
+
+   public void writeDirect(final ByteBuffer bytes, final boolean sync, final IOAsyncTask callback)
+   {
+      if (callback == null)
+      {
+         throw new NullPointerException("callback parameter need to be set");
+      }
+
+      try
+      {
+         synchronized (this)
+         {
+            ByteBuffer target = reserve(bytes.remaining(), callback);
+            if (target == null)
+            {
+               return;
+            }
+            target.put(bytes);
+         }
+         complete(sync, callback);
+      }
+      catch (Exception e)
+      {
+         callback.onError(HornetQExceptionType.GENERIC_EXCEPTION.getCode(), e.getMessage());
+      }
+   }
+
+   public void writeDirect(final ByteBuffer bytes, final boolean sync) throws Exception
+   {
+      synchronized (this)
+      {
+         if (mapped == null)
+         {
+            throw HornetQJournalBundle.BUNDLE.fileNotOpened();
+         }
+         ByteBuffer target = reserve(bytes.remaining(), null);
+         target.put(bytes);
+      }
+
+      if (sync)
+      {
+         sync();
+      }
+   }
+
+   public void writeInternal(final ByteBuffer bytes) throws Exception
+   {
+      writeDirect(bytes, true);
+   }
+
+   /**
+    * Returns a view of the mapping for the next {@code size} bytes and moves the position past them, remapping if the
+    * file is not big enough. Returns null after failing the callback if the file is not opened.
+    */
+   private ByteBuffer reserve(final int size, final IOAsyncTask callback) throws IOException
+   {
+      if (mapped == null)
+      {
+         callback.onError(HornetQExceptionType.IO_ERROR.getCode(), "File not opened");
+         return null;
+      }
+
+      long pos = position.get();
+
+      if (pos + size > mapped.capacity())
+      {
+         // Journal files are filled before being used, this is only the case for files growing as they are written
+         map(Math.max(pos + size, 2L * mapped.capacity()));
+      }
+
+      ByteBuffer target = mapped.duplicate();
+      target.position((int)pos);
+      target.limit((int)pos + size);
+
+      position.set(pos + size);
+
+      return target.slice();
+   }
+
+   /**
+    * The data is already on the mapping, so the callback only needs to wait for a force when a sync was asked. The
+    * callbacks are always completed through the writer executor, to keep them in order with the synced ones.
+    */
+   private void complete(final boolean sync, final IOAsyncTask callback)
+   {
+      if (!useExecutor)
+      {
+         if (sync)
+         {
+            try
+            {
+               sync();
+            }
+            catch (IOException e)
+            {
+               factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+               callback.onError(HornetQExceptionType.IO_ERROR.getCode(), e.getMessage());
+               return;
+            }
+         }
+         callback.done();
+         return;
+      }
+
+      synchronized (pendingLock)
+      {
+         pendingCallbacks.add(callback);
+         pendingSync |= sync;
+         if (flushScheduled)
+         {
+            return;
+         }
+         flushScheduled = true;
+      }
+
+      writerExecutor.execute(flushTask);
+   }
+
+   private void flushPending()
+   {
+      final List<IOAsyncTask> callbacks;
+      final boolean sync;
+
+      synchronized (pendingLock)
+      {
+         if (pendingCallbacks.isEmpty())
+         {
+            flushScheduled = false;
+            return;
+         }
+         callbacks = pendingCallbacks;
+         sync = pendingSync;
+         pendingCallbacks = new ArrayList<IOAsyncTask>();
+         pendingSync = false;
+         flushScheduled = false;
+      }
+
+      if (sync)
+      {
+         try
+         {
+            sync();
+         }
+         catch (Throwable e)
+         {
+            HornetQJournalLogger.LOGGER.errorSubmittingWrite(e);
+            factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+            for (IOAsyncTask callback : callbacks)
+            {
+               callback.onError(HornetQExceptionType.IO_ERROR.getCode(), e.getMessage());
+            }
+            return;
+         }
+      }
+
+      for (IOAsyncTask callback : callbacks)
+      {
+         try
+         {
+            callback.done();
+         }
+         catch (Throwable e)
+         {
+            HornetQJournalLogger.LOGGER.errorCompletingCallback(e);
+         }
+      }
+   }
+
+   private void map(final long size) throws IOException
+   {
+      if (size > Integer.MAX_VALUE)
+      {
+         throw new IOException("File " + getFileName() + " is too big to be mapped: " + size);
+      }
+
+      MappedByteBuffer previous = mapped;
+
+      mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+      fileSize = channel.size();
+
+      if (previous != null)
+      {
+         synchronized (forceLock)
+         {
+            previous.force();
+            unmap(previous);
+         }
+      }
+   }
+
+   /**
+    * Releases the mapping without waiting for the GC, otherwise the file could not be deleted or renamed on some
+    * platforms. The mapping is simply left to the GC if the JDK doesn't expose its cleaner.
+    */
+   private static void unmap(final MappedByteBuffer buffer)
+   {
+      try
+      {
+         Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+         cleanerMethod.setAccessible(true);
+         Object cleaner = cleanerMethod.invoke(buffer);
+         if (cleaner != null)
+         {
+            Method cleanMethod = cleaner.getClass().getMethod("clean");
+            cleanMethod.setAccessible(true);
+            cleanMethod.invoke(cleaner);
+         }
+      }
+      catch (Exception e)
+      {
+         HornetQJournalLogger.LOGGER.debug("Couldn't unmap " + buffer, e);
+      }
+   }
+}
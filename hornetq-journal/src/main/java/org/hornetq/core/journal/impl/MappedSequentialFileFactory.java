@@ -0,0 +1,100 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.journal.impl;
+
+import java.nio.ByteBuffer;
+
+import org.hornetq.core.journal.IOCriticalErrorListener;
+import org.hornetq.core.journal.SequentialFile;
+
+/**
+ * A SequentialFileFactory creating {@link MappedSequentialFile}s.
+ * <p/>
+ * Records are written straight into a mapping of the journal file, so this factory never uses a TimedBuffer.
+ */
+public class MappedSequentialFileFactory extends AbstractSequentialFileFactory
+{
+   public MappedSequentialFileFactory(final String journalDir)
+   {
+      this(journalDir, null);
+   }
+
+   public MappedSequentialFileFactory(final String journalDir, final IOCriticalErrorListener listener)
+   {
+      super(journalDir,
+            false,
+            JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_NIO,
+            JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_NIO,
+            false,
+            listener);
+   }
+
+   public SequentialFile createSequentialFile(final String fileName, int maxIO)
+   {
+      if (maxIO < 1)
+      {
+         maxIO = 1;
+      }
+
+      return new MappedSequentialFile(this, journalDir, fileName, maxIO, writeExecutor);
+   }
+
+   public boolean isSupportsCallbacks()
+   {
+      return true;
+   }
+
+   public ByteBuffer allocateDirectBuffer(final int size)
+   {
+      return ByteBuffer.allocateDirect(size);
+   }
+
+   public void releaseDirectBuffer(final ByteBuffer buffer)
+   {
+      // nothing we can do on this case. we can just have good faith on GC
+   }
+
+   public ByteBuffer newBuffer(final int size)
+   {
+      return ByteBuffer.allocate(size);
+   }
+
+   public void clearBuffer(final ByteBuffer buffer)
+   {
+      final int limit = buffer.limit();
+      buffer.rewind();
+
+      for (int i = 0; i < limit; i++)
+      {
+         buffer.put((byte)0);
+      }
+
+      buffer.rewind();
+   }
+
+   public ByteBuffer wrapBuffer(final byte[] bytes)
+   {
+      return ByteBuffer.wrap(bytes);
+   }
+
+   public int getAlignment()
+   {
+      return 1;
+   }
+
+   public int calculateBlockSize(final int bytes)
+   {
+      return bytes;
+   }
+
+}
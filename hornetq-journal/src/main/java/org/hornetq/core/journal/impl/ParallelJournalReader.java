@@ -0,0 +1,319 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.journal.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.core.journal.RecordInfo;
+import org.hornetq.core.journal.SequentialFileFactory;
+
+/**
+ * Reads and decodes journal files on a pool of threads ahead of the loading thread.
+ * <p>
+ * Reading a file (I/O, record validation and copying the record bodies) doesn't depend on any other file, but the
+ * records have to be applied in file order as updates and deletes refer to records added on previous files. Each
+ * file is read into a list of decoded records by the pool, while {@link #replay(JournalFile, JournalReaderCallback)}
+ * hands them to the loading callback one file at a time, in the same order {@link JournalImpl#readJournalFile} would
+ * have done. At most {@code parallelism * 2} files are held in memory.
+ */
+public class ParallelJournalReader
+{
+   private final SequentialFileFactory fileFactory;
+
+   private final List<JournalFile> files;
+
+   private final int window;
+
+   private final ExecutorService executor;
+
+   private final List<Future<ReadFile>> pending;
+
+   private int nextToRead;
+
+   private int nextToReplay;
+
+   private long replayTime;
+
+   public ParallelJournalReader(final SequentialFileFactory fileFactory,
+                                final List<JournalFile> files,
+                                final int parallelism)
+   {
+      this.fileFactory = fileFactory;
+
+      this.files = files;
+
+      this.window = parallelism * 2;
+
+      this.pending = new ArrayList<Future<ReadFile>>(files.size());
+
+      final AtomicInteger threadCount = new AtomicInteger(0);
+
+      this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory()
+      {
+         public Thread newThread(final Runnable r)
+         {
+            Thread t = new Thread(r, "JournalImpl::LoadReader-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+         }
+      });
+
+      while (nextToRead < files.size() && nextToRead < window)
+      {
+         readNext();
+      }
+   }
+
+   /**
+    * Applies the records of the next file to the callback, as {@link JournalImpl#readJournalFile} would.
+    *
+    * @return the position after the last valid record of the file
+    */
+   public int replay(final JournalFile file, final JournalReaderCallback callback) throws Exception
+   {
+      if (nextToReplay >= files.size() || files.get(nextToReplay) != file)
+      {
+         throw new IllegalStateException("Journal file " + file + " replayed out of order");
+      }
+
+      ReadFile read;
+
+      try
+      {
+         read = pending.get(nextToReplay).get();
+
+         // release the decoded records as soon as they are used
+         pending.set(nextToReplay++, null);
+
+         if (nextToRead < files.size())
+         {
+            readNext();
+         }
+         else if (nextToReplay == files.size())
+         {
+            close();
+         }
+
+         long start = System.currentTimeMillis();
+
+         read.replay(callback);
+
+         replayTime += System.currentTimeMillis() - start;
+      }
+      catch (ExecutionException e)
+      {
+         close();
+
+         Throwable cause = e.getCause();
+
+         if (cause instanceof Exception)
+         {
+            throw (Exception) cause;
+         }
+
+         throw new Exception(cause.getMessage(), cause);
+      }
+      catch (Exception e)
+      {
+         close();
+
+         throw e;
+      }
+
+      return read.lastDataPos;
+   }
+
+   /**
+    * @return the time spent by the loading thread applying the records
+    */
+   public long getReplayTime()
+   {
+      return replayTime;
+   }
+
+   /**
+    * Stops the reading threads, done once the last file is handed out or as soon as reading or replaying fails.
+    */
+   public void close()
+   {
+      executor.shutdownNow();
+   }
+
+   private void readNext()
+   {
+      final JournalFile file = files.get(nextToRead++);
+
+      pending.add(executor.submit(new Callable<ReadFile>()
+      {
+         public ReadFile call() throws Exception
+         {
+            ReadFile read = new ReadFile();
+
+            read.lastDataPos = JournalImpl.readJournalFile(fileFactory, file, read);
+
+            return read;
+         }
+      }));
+   }
+
+   /**
+    * Records the callbacks received while a file is read, to be applied later on the loading thread.
+    */
+   private static final class ReadFile implements JournalReaderCallback
+   {
+      private static final byte ADD = 0;
+      private static final byte UPDATE = 1;
+      private static final byte DELETE = 2;
+      private static final byte ADD_TX = 3;
+      private static final byte UPDATE_TX = 4;
+      private static final byte DELETE_TX = 5;
+      private static final byte PREPARE = 6;
+      private static final byte COMMIT = 7;
+      private static final byte ROLLBACK = 8;
+      private static final byte DATA_FILE = 9;
+
+      private final List<Event> events = new ArrayList<Event>();
+
+      private int lastDataPos;
+
+      void replay(final JournalReaderCallback callback) throws Exception
+      {
+         for (Event event : events)
+         {
+            switch (event.type)
+            {
+               case ADD:
+                  callback.onReadAddRecord(event.info);
+                  break;
+               case UPDATE:
+                  callback.onReadUpdateRecord(event.info);
+                  break;
+               case DELETE:
+                  callback.onReadDeleteRecord(event.id);
+                  break;
+               case ADD_TX:
+                  callback.onReadAddRecordTX(event.id, event.info);
+                  break;
+               case UPDATE_TX:
+                  callback.onReadUpdateRecordTX(event.id, event.info);
+                  break;
+               case DELETE_TX:
+                  callback.onReadDeleteRecordTX(event.id, event.info);
+                  break;
+               case PREPARE:
+                  callback.onReadPrepareRecord(event.id, event.extraData, event.numberOfRecords);
+                  break;
+               case COMMIT:
+                  callback.onReadCommitRecord(event.id, event.numberOfRecords);
+                  break;
+               case ROLLBACK:
+                  callback.onReadRollbackRecord(event.id);
+                  break;
+               case DATA_FILE:
+                  callback.markAsDataFile(event.file);
+                  break;
+               default:
+                  throw new IllegalStateException("Invalid event type " + event.type);
+            }
+         }
+      }
+
+      public void onReadAddRecord(final RecordInfo info)
+      {
+         events.add(new Event(ADD, 0, info));
+      }
+
+      public void onReadUpdateRecord(final RecordInfo info)
+      {
+         events.add(new Event(UPDATE, 0, info));
+      }
+
+      public void onReadDeleteRecord(final long recordID)
+      {
+         events.add(new Event(DELETE, recordID, null));
+      }
+
+      public void onReadAddRecordTX(final long transactionID, final RecordInfo info)
+      {
+         events.add(new Event(ADD_TX, transactionID, info));
+      }
+
+      public void onReadUpdateRecordTX(final long transactionID, final RecordInfo info)
+      {
+         events.add(new Event(UPDATE_TX, transactionID, info));
+      }
+
+      public void onReadDeleteRecordTX(final long transactionID, final RecordInfo info)
+      {
+         events.add(new Event(DELETE_TX, transactionID, info));
+      }
+
+      public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords)
+      {
+         Event event = new Event(PREPARE, transactionID, null);
+         event.extraData = extraData;
+         event.numberOfRecords = numberOfRecords;
+         events.add(event);
+      }
+
+      public void onReadCommitRecord(final long transactionID, final int numberOfRecords)
+      {
+         Event event = new Event(COMMIT, transactionID, null);
+         event.numberOfRecords = numberOfRecords;
+         events.add(event);
+      }
+
+      public void onReadRollbackRecord(final long transactionID)
+      {
+         events.add(new Event(ROLLBACK, transactionID, null));
+      }
+
+      public void markAsDataFile(final JournalFile file)
+      {
+         Event event = new Event(DATA_FILE, 0, null);
+         event.file = file;
+         events.add(event);
+      }
+   }
+
+   private static final class Event
+   {
+      final byte type;
+
+      // the record ID on deletes, the transaction ID on transactional records
+      final long id;
+
+      final RecordInfo info;
+
+      byte[] extraData;
+
+      int numberOfRecords;
+
+      JournalFile file;
+
+      Event(final byte type, final long id, final RecordInfo info)
+      {
+         this.type = type;
+         this.id = id;
+         this.info = info;
+      }
+   }
+}
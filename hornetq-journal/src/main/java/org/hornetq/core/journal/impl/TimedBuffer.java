@@ -16,9 +16,8 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.HornetQBuffer;
@@ -31,6 +30,11 @@ import org.hornetq.journal.HornetQJournalLogger;
 
 /**
  * A TimedBuffer
+ * <p/>
+ * When a latency target is set the timeout is adaptive. It follows the average time a flush asking for a sync takes
+ * to complete, since flushing more often only queues syncs on the disk, without going over the latency target. When
+ * records arrive too slowly for another one to join the pending one while a sync is done, waiting would only delay
+ * it, so the buffer is flushed on the next check.
  *
  * @author <a href="mailto:clebert.suconic@jboss.org">Clebert Suconic</a>
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
@@ -42,6 +46,14 @@ public class TimedBuffer
    // The number of tries on sleep before switching to spin
    public static final int MAX_CHECKS_ON_SLEEP = 20;
 
+   // The smallest timeout (in nanoseconds) chosen when the timeout is adaptive
+   public static final int MIN_ADAPTIVE_TIMEOUT = 10000;
+
+   // Weight of a new sample on the moving averages, the same TCP uses for the round trip time
+   private static final double SAMPLE_WEIGHT = 0.125;
+
+   private static final long LOG_RATES_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+
    // Attributes ----------------------------------------------------
 
    private TimedBufferObserver bufferObserver;
@@ -61,8 +73,13 @@ public class TimedBuffer
 
    private List<IOAsyncTask> callbacks;
 
+   private final int configuredTimeout;
+
    private volatile int timeout;
 
+   // <= 0 means the configured timeout is always used
+   private volatile int latencyTarget;
+
    // used to measure sync requests. When a sync is requested, it shouldn't take more than timeout to happen
    private volatile boolean pendingSync = false;
 
@@ -75,17 +92,31 @@ public class TimedBuffer
    // can get in an inconsistent state
    private boolean delayFlush;
 
-   // for logging write rates
-
-   private final boolean logRates;
+   // metrics, also used to adapt the timeout
 
    private final AtomicLong bytesFlushed = new AtomicLong(0);
 
    private final AtomicLong flushesDone = new AtomicLong(0);
 
-   private Timer logRatesTimer;
+   private volatile double averageBatchSize;
+
+   private volatile double averageSyncLatency;
+
+   // records per nanosecond, guarded by this
+   private double arrivalRate;
+
+   // guarded by this
+   private long lastFlushTime;
+
+   // for logging write rates
+
+   private final boolean logRates;
 
-   private TimerTask logRatesTimerTask;
+   private long lastLogTime;
+
+   private long lastLogBytesFlushed;
+
+   private long lastLogFlushesDone;
 
    private boolean useSleep = true;
 
@@ -99,15 +130,20 @@ public class TimedBuffer
    // Public --------------------------------------------------------
 
    public TimedBuffer(final int size, final int timeout, final boolean logRates)
+   {
+      this(size, timeout, -1, logRates);
+   }
+
+   /**
+    * @param latencyTarget the time (in nanoseconds) a record should take to be synced, making the timeout adaptive.
+    *                      <= 0 means the timeout is fixed.
+    */
+   public TimedBuffer(final int size, final int timeout, final int latencyTarget, final boolean logRates)
    {
       bufferSize = size;
 
       this.logRates = logRates;
 
-      if (logRates)
-      {
-         logRatesTimer = new Timer(true);
-      }
       // Setting the interval for nano-sleeps
 
       buffer = HornetQBuffers.fixedBuffer(bufferSize);
@@ -118,7 +154,11 @@ public class TimedBuffer
 
       callbacks = new ArrayList<IOAsyncTask>();
 
+      configuredTimeout = timeout;
+
       this.timeout = timeout;
+
+      this.latencyTarget = latencyTarget;
    }
 
    // for Debug purposes
@@ -155,13 +195,6 @@ public class TimedBuffer
 
       timerThread.start();
 
-      if (logRates)
-      {
-         logRatesTimerTask = new LogRatesTimerTask();
-
-         logRatesTimer.scheduleAtFixedRate(logRatesTimerTask, 2000, 2000);
-      }
-
       started = true;
    }
 
@@ -180,11 +213,6 @@ public class TimedBuffer
 
       spinLimiter.release();
 
-      if (logRates)
-      {
-         logRatesTimerTask.cancel();
-      }
-
       while (timerThread.isAlive())
       {
          try
@@ -311,9 +339,12 @@ public class TimedBuffer
          {
             int pos = buffer.writerIndex();
 
-            if (logRates)
+            int records = callbacks.size();
+
+            if (pendingSync)
             {
-               bytesFlushed.addAndGet(pos);
+               // completed after every other callback, once the write is synced
+               callbacks.add(new SyncLatencyCallback());
             }
 
             ByteBuffer bufferToFlush = bufferObserver.newBuffer(bufferSize, pos);
@@ -337,61 +368,160 @@ public class TimedBuffer
 
             bufferLimit = 0;
 
-            flushesDone.incrementAndGet();
+            flushed(pos, records);
          }
       }
    }
 
+   /**
+    * The timeout (in nanoseconds) currently used, which differs from the configured one only if the timeout is
+    * adaptive.
+    */
+   public int getTimeout()
+   {
+      return timeout;
+   }
+
+   public int getLatencyTarget()
+   {
+      return latencyTarget;
+   }
+
+   /**
+    * Makes the timeout adaptive, or fixed again if latencyTarget <= 0.
+    */
+   public synchronized void setLatencyTarget(final int latencyTarget)
+   {
+      this.latencyTarget = latencyTarget;
+
+      if (latencyTarget <= 0)
+      {
+         timeout = configuredTimeout;
+      }
+   }
+
+   /**
+    * The moving average of records written by each flush.
+    */
+   public double getAverageBatchSize()
+   {
+      return averageBatchSize;
+   }
+
+   /**
+    * The moving average of the time (in nanoseconds) a flush asking for a sync took to complete.
+    */
+   public long getAverageSyncLatency()
+   {
+      return (long)averageSyncLatency;
+   }
+
+   public long getBytesFlushed()
+   {
+      return bytesFlushed.get();
+   }
+
+   public long getFlushesDone()
+   {
+      return flushesDone.get();
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
 
    // Private -------------------------------------------------------
 
-   // Inner classes -------------------------------------------------
-
-   private class LogRatesTimerTask extends TimerTask
+   /**
+    * Called holding the lock after each flush
+    */
+   private void flushed(final int bytes, final int records)
    {
-      private boolean closed;
+      long bytesF = bytesFlushed.addAndGet(bytes);
 
-      private long lastExecution;
+      long flushesD = flushesDone.incrementAndGet();
 
-      private long lastBytesFlushed;
+      averageBatchSize = average(averageBatchSize, records);
 
-      private long lastFlushesDone;
+      long now = System.nanoTime();
 
-      @Override
-      public synchronized void run()
+      if (lastFlushTime != 0)
       {
-         if (!closed)
-         {
-            long now = System.currentTimeMillis();
+         arrivalRate = average(arrivalRate, (double)records / Math.max(1, now - lastFlushTime));
+      }
 
-            long bytesF = bytesFlushed.get();
-            long flushesD = flushesDone.get();
+      lastFlushTime = now;
 
-            if (lastExecution != 0)
-            {
-               double rate = 1000 * (double) (bytesF - lastBytesFlushed) / (now - lastExecution);
-               HornetQJournalLogger.LOGGER.writeRate(rate, (long) (rate / (1024 * 1024)));
-               double flushRate = 1000 * (double) (flushesD - lastFlushesDone) / (now - lastExecution);
-               HornetQJournalLogger.LOGGER.flushRate(flushRate);
-            }
+      if (latencyTarget > 0)
+      {
+         adaptTimeout();
+      }
 
-            lastExecution = now;
+      if (logRates)
+      {
+         if (lastLogTime == 0)
+         {
+            lastLogTime = now;
+         }
+         else if (now - lastLogTime >= LOG_RATES_INTERVAL)
+         {
+            double seconds = (double)(now - lastLogTime) / TimeUnit.SECONDS.toNanos(1);
+            double rate = (bytesF - lastLogBytesFlushed) / seconds;
+            HornetQJournalLogger.LOGGER.writeRate(rate, (long)(rate / (1024 * 1024)));
+            HornetQJournalLogger.LOGGER.flushRate((flushesD - lastLogFlushesDone) / seconds);
+            HornetQJournalLogger.LOGGER.flushTimeout(timeout, averageBatchSize, getAverageSyncLatency());
+
+            lastLogTime = now;
+            lastLogBytesFlushed = bytesF;
+            lastLogFlushesDone = flushesD;
+         }
+      }
+   }
 
-            lastBytesFlushed = bytesF;
+   private void adaptTimeout()
+   {
+      double syncLatency = averageSyncLatency;
 
-            lastFlushesDone = flushesD;
-         }
+      if (syncLatency == 0)
+      {
+         // no sync done yet
+         return;
       }
 
-      @Override
-      public synchronized boolean cancel()
+      if (arrivalRate * syncLatency < 2)
       {
-         closed = true;
+         // no other record is expected to join the pending one while a sync is done
+         timeout = MIN_ADAPTIVE_TIMEOUT;
+      }
+      else
+      {
+         timeout = (int)Math.max(MIN_ADAPTIVE_TIMEOUT, Math.min(syncLatency, latencyTarget - syncLatency));
+      }
+   }
+
+   private static double average(final double average, final double sample)
+   {
+      if (average == 0)
+      {
+         return sample;
+      }
+
+      return average + SAMPLE_WEIGHT * (sample - average);
+   }
+
+   // Inner classes -------------------------------------------------
+
+   private class SyncLatencyCallback implements IOAsyncTask
+   {
+      private final long flushTime = System.nanoTime();
 
-         return super.cancel();
+      public void done()
+      {
+         averageSyncLatency = average(averageSyncLatency, System.nanoTime() - flushTime);
+      }
+
+      public void onError(final int errorCode, final String errorMessage)
+      {
       }
    }
 
@@ -403,9 +533,6 @@ public class TimedBuffer
       int failedChecks = 0;
       long timeBefore = 0;
 
-      final int sleepMillis = timeout / 1000000; // truncates
-      final int sleepNanos = timeout % 1000000;
-
 
       public void run()
       {
@@ -466,9 +593,12 @@ public class TimedBuffer
                timeBefore = System.nanoTime();
             }
 
+            // the timeout can change if it is adaptive
+            final int currentTimeout = timeout;
+
             try
             {
-               sleep(sleepMillis, sleepNanos);
+               sleep(currentTimeout / 1000000, currentTimeout % 1000000);
             }
             catch (InterruptedException e)
             {
@@ -485,7 +615,7 @@ public class TimedBuffer
                long realTimeSleep = System.nanoTime() - timeBefore;
 
                // I'm letting the real time to be up to 50% than the requested sleep.
-               if (realTimeSleep > timeout * 1.5)
+               if (realTimeSleep > currentTimeout * 1.5)
                {
                   failedChecks++;
                }
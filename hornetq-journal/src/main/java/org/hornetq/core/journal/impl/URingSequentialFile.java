@@ -0,0 +1,74 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.journal.impl;
+
+import java.util.concurrent.Executor;
+
+import org.hornetq.core.asyncio.AsynchronousFile;
+import org.hornetq.core.asyncio.BufferCallback;
+import org.hornetq.core.asyncio.impl.URingFileImpl;
+import org.hornetq.core.journal.SequentialFile;
+import org.hornetq.core.journal.SequentialFileFactory;
+
+/**
+ * An {@link AIOSequentialFile} doing its IO through io_uring.
+ */
+public class URingSequentialFile extends AIOSequentialFile
+{
+   public URingSequentialFile(final SequentialFileFactory factory,
+                              final int bufferSize,
+                              final long bufferTimeoutMilliseconds,
+                              final String directory,
+                              final String fileName,
+                              final int maxIO,
+                              final BufferCallback bufferCallback,
+                              final Executor writerExecutor,
+                              final Executor pollerExecutor)
+   {
+      super(factory,
+            bufferSize,
+            bufferTimeoutMilliseconds,
+            directory,
+            fileName,
+            maxIO,
+            bufferCallback,
+            writerExecutor,
+            pollerExecutor);
+   }
+
+   @Override
+   public SequentialFile cloneFile()
+   {
+      return new URingSequentialFile(factory,
+                                     -1,
+                                     -1,
+                                     getFile().getParent(),
+                                     getFileName(),
+                                     maxIO,
+                                     bufferCallback,
+                                     writerExecutor,
+                                     pollerExecutor);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "URingSequentialFile:" + getFile().getAbsolutePath();
+   }
+
+   @Override
+   protected AsynchronousFile createAsynchronousFile(final Executor writer)
+   {
+      return new URingFileImpl(writer, pollerExecutor, this);
+   }
+}
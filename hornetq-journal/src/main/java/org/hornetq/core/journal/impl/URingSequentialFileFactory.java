@@ -0,0 +1,86 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.journal.impl;
+
+import java.util.concurrent.Executor;
+
+import org.hornetq.core.asyncio.BufferCallback;
+import org.hornetq.core.asyncio.impl.URingFileImpl;
+import org.hornetq.core.journal.IOCriticalErrorListener;
+import org.hornetq.core.journal.SequentialFile;
+
+/**
+ * A SequentialFileFactory on io_uring.
+ * <p/>
+ * Files are opened with O_DIRECT and use the same aligned native buffers, buffer reuse and completion semantics as
+ * {@link AIOSequentialFileFactory}, only the submission and the reaping of the IO go through io_uring.
+ */
+public class URingSequentialFileFactory extends AIOSequentialFileFactory
+{
+   public URingSequentialFileFactory(final String journalDir)
+   {
+      this(journalDir,
+           JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_AIO,
+           JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_AIO,
+           false,
+           null);
+   }
+
+   public URingSequentialFileFactory(final String journalDir, final IOCriticalErrorListener listener)
+   {
+      this(journalDir,
+           JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_AIO,
+           JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_AIO,
+           false,
+           listener);
+   }
+
+   public URingSequentialFileFactory(final String journalDir,
+                                     final int bufferSize,
+                                     final int bufferTimeout,
+                                     final boolean logRates)
+   {
+      this(journalDir, bufferSize, bufferTimeout, logRates, null);
+   }
+
+   public URingSequentialFileFactory(final String journalDir,
+                                     final int bufferSize,
+                                     final int bufferTimeout,
+                                     final boolean logRates,
+                                     final IOCriticalErrorListener listener)
+   {
+      super(journalDir, bufferSize, bufferTimeout, logRates, listener);
+   }
+
+   public static boolean isSupported()
+   {
+      return URingFileImpl.isSupported();
+   }
+
+   @Override
+   protected SequentialFile createSequentialFile(final String fileName,
+                                                 final int maxIO,
+                                                 final BufferCallback bufferCallback,
+                                                 final Executor pollerExecutor)
+   {
+      return new URingSequentialFile(this,
+                                     bufferSize,
+                                     bufferTimeout,
+                                     journalDir,
+                                     fileName,
+                                     maxIO,
+                                     bufferCallback,
+                                     writeExecutor,
+                                     pollerExecutor);
+   }
+}
@@ -61,6 +61,10 @@ public interface HornetQJournalLogger extends BasicLogger
    @Message(id = 141004, value = "Flush rate = {0} flushes / sec", format = Message.Format.MESSAGE_FORMAT)
    void flushRate(Double rate);
 
+   @LogMessage(level = Logger.Level.INFO)
+   @Message(id = 141010, value = "Flush timeout = {0} ns, {1} records / flush, sync latency = {2} ns", format = Message.Format.MESSAGE_FORMAT)
+   void flushTimeout(Integer timeout, Double batchSize, Long syncLatency);
+
    @LogMessage(level = Logger.Level.INFO)
    @Message(id = 141005, value = "Check Data Files:", format = Message.Format.MESSAGE_FORMAT)
    void checkFiles();
@@ -14,46 +14,12 @@
 
 #include <string>
 #include "AIOController.h"
-#include "JavaUtilities.h"
 #include "JAIODatatypes.h"
 
-AIOController::AIOController(std::string fileName, int maxIO) : logger(0), fileOutput(fileName, this, maxIO) 
+AIOController::AIOController(std::string fileName, int maxIO) : JNIController(), fileOutput(fileName, this, maxIO) 
 {
 }
 
-void AIOController::log(THREAD_CONTEXT threadContext, short level, const char * message)
-{
-	jmethodID methodID = 0;
-	
-	switch (level)
-	{
-	case 0: methodID = loggerError; break;
-	case 1: methodID = loggerWarn; break;
-	case 2: methodID = loggerInfo; break;
-	case 3: methodID = loggerDebug; break;
-	default: methodID = loggerDebug; break;
-	}
-
-#ifdef DEBUG
-	fprintf (stderr,"Callig log methodID=%ld, message=%s, logger=%ld, threadContext = %ld\n", (long) methodID, message, (long) logger, (long) threadContext); fflush(stderr);
-#endif
-	threadContext->CallVoidMethod(logger,methodID,threadContext->NewStringUTF(message));
-}
-
-
-void AIOController::destroy(THREAD_CONTEXT context)
-{
-	if (logger != 0)
-	{
-		context->DeleteGlobalRef(logger);
-	}
-}
-
-/*
- * level = 0-error, 1-warn, 2-info, 3-debug
- */
-
-
 AIOController::~AIOController()
 {
 }
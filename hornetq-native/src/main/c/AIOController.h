@@ -17,30 +17,14 @@
 #include <jni.h>
 #include <string>
 #include "JAIODatatypes.h"
+#include "JNIController.h"
 #include "AsyncFile.h"
 
-class AIOController
+class AIOController : public JNIController
 {
 public:
-	jmethodID done;
-	jmethodID error;
-
-	jobject logger;
-	
-	jmethodID loggerError;
-	jmethodID loggerWarn;
-	jmethodID loggerDebug;
-	jmethodID loggerInfo;
-
-	/*
-	 * level = 0-error, 1-warn, 2-info, 3-debug
-	 */
-	void log(THREAD_CONTEXT threadContext, short level, const char * message);
-	
 	AsyncFile fileOutput;
 	
-	void destroy(THREAD_CONTEXT context);
-	
 	AIOController(std::string fileName, int maxIO);
 	virtual ~AIOController();
 };
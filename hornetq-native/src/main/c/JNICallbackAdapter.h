@@ -17,7 +17,7 @@
 #include <iostream>
 
 #include "CallbackAdapter.h"
-#include "AIOController.h"
+#include "JNIController.h"
 #include "JAIODatatypes.h"
 
 
@@ -25,7 +25,7 @@ class JNICallbackAdapter : public CallbackAdapter
 {
 private:
 
-	AIOController * controller;
+	JNIController * controller;
 	
 	jobject callback;
 	
@@ -50,7 +50,7 @@ private:
 	
 public:
 	// _ob must be a global Reference (use createGloblReferente before calling the constructor)
-	JNICallbackAdapter(AIOController * _controller, jlong sequence, jobject _callback, jobject _fileController, jobject _bufferReference, short _isRead);
+	JNICallbackAdapter(JNIController * _controller, jlong sequence, jobject _callback, jobject _fileController, jobject _bufferReference, short _isRead);
 	virtual ~JNICallbackAdapter();
 
 	void done(THREAD_CONTEXT threadContext);
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+#include <stdio.h>
+#include "JNIController.h"
+
+JNIController::JNIController() : done(0), error(0), logger(0)
+{
+}
+
+void JNIController::log(THREAD_CONTEXT threadContext, short level, const char * message)
+{
+	jmethodID methodID = 0;
+	
+	switch (level)
+	{
+	case 0: methodID = loggerError; break;
+	case 1: methodID = loggerWarn; break;
+	case 2: methodID = loggerInfo; break;
+	case 3: methodID = loggerDebug; break;
+	default: methodID = loggerDebug; break;
+	}
+
+#ifdef DEBUG
+	fprintf (stderr,"Callig log methodID=%ld, message=%s, logger=%ld, threadContext = %ld\n", (long) methodID, message, (long) logger, (long) threadContext); fflush(stderr);
+#endif
+	threadContext->CallVoidMethod(logger,methodID,threadContext->NewStringUTF(message));
+}
+
+
+void JNIController::destroy(THREAD_CONTEXT context)
+{
+	if (logger != 0)
+	{
+		context->DeleteGlobalRef(logger);
+	}
+}
+
+JNIController::~JNIController()
+{
+}
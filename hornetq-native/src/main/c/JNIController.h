@@ -0,0 +1,44 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+#ifndef JNICONTROLLER_H_
+#define JNICONTROLLER_H_
+#include <jni.h>
+#include "JAIODatatypes.h"
+
+/** The Java callbacks and logger shared by the libaio and the io_uring controllers */
+class JNIController
+{
+public:
+	jmethodID done;
+	jmethodID error;
+
+	jobject logger;
+	
+	jmethodID loggerError;
+	jmethodID loggerWarn;
+	jmethodID loggerDebug;
+	jmethodID loggerInfo;
+
+	/*
+	 * level = 0-error, 1-warn, 2-info, 3-debug
+	 */
+	void log(THREAD_CONTEXT threadContext, short level, const char * message);
+	
+	void destroy(THREAD_CONTEXT context);
+	
+	JNIController();
+	virtual ~JNIController();
+};
+#endif /*JNICONTROLLER_H_*/
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#include <jni.h>
+#include <stdlib.h>
+#include <string>
+
+#include "org_hornetq_core_libaio_URingNative.h"
+
+
+#include "JavaUtilities.h"
+#include "URingController.h"
+#include "JNICallbackAdapter.h"
+#include "AIOException.h"
+#include "Version.h"
+
+
+inline URingController * getURingController(JNIEnv *env, jobject & controllerAddress)
+{
+     return (URingController *) env->GetDirectBufferAddress(controllerAddress);
+}
+
+JNIEXPORT jint JNICALL Java_org_hornetq_core_libaio_URingNative_getNativeVersion
+  (JNIEnv *, jclass)
+{
+     return _VERSION_NATIVE_URING;
+}
+
+JNIEXPORT jboolean JNICALL Java_org_hornetq_core_libaio_URingNative_isSupported
+  (JNIEnv *, jclass)
+{
+     return URingFile::isSupported();
+}
+
+JNIEXPORT jobject JNICALL Java_org_hornetq_core_libaio_URingNative_init
+  (JNIEnv * env, jclass, jclass controllerClazz, jstring jstrFileName, jint maxIO, jobject logger)
+{
+	URingController * controller = 0;
+	try
+	{
+		std::string fileName = convertJavaString(env, jstrFileName);
+
+		controller = new URingController(fileName, (int) maxIO);
+		controller->done = env->GetMethodID(controllerClazz,"callbackDone","(Lorg/hornetq/core/asyncio/AIOCallback;JLjava/nio/ByteBuffer;)V");
+		if (!controller->done)
+		{
+		   delete controller;
+		   throwException (env, -1, "can't get callbackDone method");
+		   return 0;
+		}
+
+		controller->error = env->GetMethodID(controllerClazz, "callbackError", "(Lorg/hornetq/core/asyncio/AIOCallback;JLjava/nio/ByteBuffer;ILjava/lang/String;)V");
+		if (!controller->error)
+		{
+		   delete controller;
+		   throwException (env, -1, "can't get callbackError method");
+		   return 0;
+		}
+
+		jclass loggerClass = env->GetObjectClass(logger);
+
+		if (!(controller->loggerDebug = env->GetMethodID(loggerClass, "debug", "(Ljava/lang/Object;)V")) ||
+		    !(controller->loggerWarn = env->GetMethodID(loggerClass, "warn", "(Ljava/lang/Object;)V")) ||
+		    !(controller->loggerInfo = env->GetMethodID(loggerClass, "info", "(Ljava/lang/Object;)V")) ||
+		    !(controller->loggerError = env->GetMethodID(loggerClass, "error", "(Ljava/lang/Object;)V")))
+		{
+		   delete controller;
+		   return 0;
+		}
+
+		controller->logger = env->NewGlobalRef(logger);
+
+		return env->NewDirectByteBuffer(controller, 0);
+	}
+	catch (AIOException& e){
+		if (controller != 0)
+		{
+			delete controller;
+		}
+		throwException(env, e.getErrorCode(), e.what());
+		return 0;
+	}
+}
+
+JNIEXPORT void JNICALL Java_org_hornetq_core_libaio_URingNative_read
+  (JNIEnv *env, jclass, jobject objThis, jobject controllerAddress, jlong position, jlong size, jobject jbuffer, jobject callback)
+{
+	try
+	{
+		URingController * controller = getURingController(env, controllerAddress);
+		void * buffer = env->GetDirectBufferAddress(jbuffer);
+
+		if (buffer == 0)
+		{
+			throwException(env, NATIVE_ERROR_INVALID_BUFFER, "Invalid Buffer used, io_uring requires NativeBuffer instead of Java ByteBuffer");
+			return;
+		}
+
+		if (((long)buffer) % 512)
+		{
+			throwException(env, NATIVE_ERROR_NOT_ALIGNED, "Buffer not aligned for use with DMA");
+			return;
+		}
+
+		CallbackAdapter * adapter = new JNICallbackAdapter(controller, -1, env->NewGlobalRef(callback), env->NewGlobalRef(objThis), env->NewGlobalRef(jbuffer), true);
+
+		controller->fileOutput.read(env, position, (size_t)size, buffer, adapter);
+	}
+	catch (AIOException& e)
+	{
+		throwException(env, e.getErrorCode(), e.what());
+	}
+}
+
+JNIEXPORT void JNICALL Java_org_hornetq_core_libaio_URingNative_write
+  (JNIEnv *env, jclass, jobject objThis, jobject controllerAddress, jlong sequence, jlong position, jlong size, jobject jbuffer, jobject callback)
+{
+	try
+	{
+		URingController * controller = getURingController(env, controllerAddress);
+		void * buffer = env->GetDirectBufferAddress(jbuffer);
+
+		if (buffer == 0)
+		{
+			throwException(env, NATIVE_ERROR_INVALID_BUFFER, "Invalid Buffer used, io_uring requires NativeBuffer instead of Java ByteBuffer");
+			return;
+		}
+
+		CallbackAdapter * adapter = new JNICallbackAdapter(controller, sequence, env->NewGlobalRef(callback), env->NewGlobalRef(objThis), env->NewGlobalRef(jbuffer), false);
+
+		controller->fileOutput.write(env, position, (size_t)size, buffer, adapter);
+	}
+	catch (AIOException& e)
+	{
+		throwException(env, e.getErrorCode(), e.what());
+	}
+}
+
+JNIEXPORT void JNICALL Java_org_hornetq_core_libaio_URingNative_submit
+  (JNIEnv *env, jclass, jobject controllerAddress)
+{
+	try
+	{
+		URingController * controller = getURingController(env, controllerAddress);
+		controller->fileOutput.submit(env);
+	}
+	catch (AIOException& e)
+	{
+		throwException(env, e.getErrorCode(), e.what());
+	}
+}
+
+JNIEXPORT void JNICALL Java_org_hornetq_core_libaio_URingNative_writeInternal
+  (JNIEnv * env, jclass, jobject controllerAddress, jlong positionToWrite, jlong size, jobject jbuffer)
+{
+	try
+	{
+		URingController * controller = getURingController(env, controllerAddress);
+		void * buffer = env->GetDirectBufferAddress(jbuffer);
+
+		if (buffer == 0)
+		{
+			throwException(env, NATIVE_ERROR_INVALID_BUFFER, "Invalid Buffer used, io_uring requires NativeBuffer instead of Java ByteBuffer");
+			return;
+		}
+
+		controller->fileOutput.writeInternal(env, positionToWrite, (size_t)size, buffer);
+	}
+	catch (AIOException& e)
+	{
+		throwException(env, e.getErrorCode(), e.what());
+	}
+}
+
+JNIEXPORT void JNICALL Java_org_hornetq_core_libaio_URingNative_internalPollEvents
+  (JNIEnv *env, jclass, jobject controllerAddress)
+{
+	try
+	{
+		URingController * controller = getURingController(env, controllerAddress);
+		controller->fileOutput.pollEvents(env);
+	}
+	catch (AIOException& e)
+	{
+		throwException(env, e.getErrorCode(), e.what());
+	}
+}
+
+JNIEXPORT void JNICALL Java_org_hornetq_core_libaio_URingNative_stopPoller
+  (JNIEnv *env, jclass, jobject controllerAddress)
+{
+	try
+	{
+		URingController * controller = getURingController(env, controllerAddress);
+		controller->fileOutput.stopPoller(env);
+	}
+	catch (AIOException& e)
+	{
+		throwException(env, e.getErrorCode(), e.what());
+	}
+}
+
+JNIEXPORT void JNICALL Java_org_hornetq_core_libaio_URingNative_closeInternal
+  (JNIEnv *env, jclass, jobject controllerAddress)
+{
+	try
+	{
+		URingController * controller = getURingController(env, controllerAddress);
+		controller->destroy(env);
+		delete controller;
+	}
+	catch (AIOException& e)
+	{
+		throwException(env, e.getErrorCode(), e.what());
+	}
+}
+
+JNIEXPORT void JNICALL Java_org_hornetq_core_libaio_URingNative_fill
+  (JNIEnv * env, jclass, jobject controllerAddress, jlong position, jint blocks, jlong size, jbyte fillChar)
+{
+	try
+	{
+		URingController * controller = getURingController(env, controllerAddress);
+
+		controller->fileOutput.preAllocate(env, position, blocks, size, fillChar);
+	}
+	catch (AIOException& e)
+	{
+		throwException(env, e.getErrorCode(), e.what());
+	}
+}
+
+JNIEXPORT jlong JNICALL Java_org_hornetq_core_libaio_URingNative_size0
+  (JNIEnv * env, jclass, jobject controllerAddress)
+{
+	try
+	{
+		URingController * controller = getURingController(env, controllerAddress);
+
+		long size = controller->fileOutput.getSize();
+		if (size < 0)
+		{
+			throwException(env, NATIVE_ERROR_INTERNAL, "InternalError on Native Layer: method size failed");
+			return -1l;
+		}
+		return size;
+	}
+	catch (AIOException& e)
+	{
+		throwException(env, e.getErrorCode(), e.what());
+		return -1l;
+	}
+}
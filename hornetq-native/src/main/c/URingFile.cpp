@@ -0,0 +1,500 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#ifndef _GNU_SOURCE
+#define _GNU_SOURCE
+#endif
+
+
+#include <stdlib.h>
+#include <stdint.h>
+#include <sstream>
+#include <memory.h>
+#include <errno.h>
+#include <fcntl.h>
+#include <unistd.h>
+#include <sys/mman.h>
+#include <sys/stat.h>
+#include <sys/syscall.h>
+#include "URingFile.h"
+#include "JNIController.h"
+#include "AIOException.h"
+#include "pthread.h"
+#include "LockClass.h"
+#include "CallbackAdapter.h"
+
+//#define DEBUG
+
+#define WAIT_FOR_SPOT 10000
+#define TRIES_BEFORE_ERROR 500
+
+// user_data of the NOP used to stop the poller
+#define STOP_POLLER ((__u64) -1)
+
+
+static int uring_setup(unsigned entries, struct io_uring_params * params)
+{
+	return (int) ::syscall(__NR_io_uring_setup, entries, params);
+}
+
+static int uring_enter(int ringHandle, unsigned toSubmit, unsigned minComplete, unsigned flags)
+{
+	return (int) ::syscall(__NR_io_uring_enter, ringHandle, toSubmit, minComplete, flags, NULL, 0);
+}
+
+static int uring_register(int ringHandle, unsigned opcode, void * arg, unsigned nrArgs)
+{
+	return (int) ::syscall(__NR_io_uring_register, ringHandle, opcode, arg, nrArgs);
+}
+
+static std::string uring_error(int rc)
+{
+	std::stringstream buffer;
+
+	if (rc == -ENOSYS)
+		buffer << "io_uring not in this kernel";
+	else
+		buffer << "Error:= " << strerror((int)-rc);
+
+	return buffer.str();
+}
+
+
+bool URingFile::isSupported()
+{
+	struct io_uring_params params;
+	memset(&params, 0, sizeof(params));
+
+	int ring = uring_setup(1, &params);
+	if (ring < 0)
+	{
+		return false;
+	}
+
+	bool supported = false;
+
+	size_t probeSize = sizeof(struct io_uring_probe) + 256 * sizeof(struct io_uring_probe_op);
+	struct io_uring_probe * probe = (struct io_uring_probe *) calloc(1, probeSize);
+
+	if (probe != 0 && uring_register(ring, IORING_REGISTER_PROBE, probe, 256) >= 0)
+	{
+		supported = probe->last_op >= IORING_OP_WRITE &&
+		            (probe->ops[IORING_OP_READ].flags & IO_URING_OP_SUPPORTED) &&
+		            (probe->ops[IORING_OP_WRITE].flags & IO_URING_OP_SUPPORTED) &&
+		            (probe->ops[IORING_OP_NOP].flags & IO_URING_OP_SUPPORTED);
+	}
+
+	free(probe);
+	::close(ring);
+
+	return supported;
+}
+
+
+URingFile::URingFile(std::string & _fileName, JNIController * _controller, int maxIO) : ringHandle(-1), fileHandle(-1),
+	sqRing(MAP_FAILED), sqRingSize(0), cqRing(MAP_FAILED), cqRingSize(0), sqes((struct io_uring_sqe *) MAP_FAILED), sqesSize(0),
+	toSubmit(0), controller(_controller), pollerRunning(0)
+{
+	::pthread_mutex_init(&submitMutex,0);
+	::pthread_mutex_init(&pollerMutex,0);
+
+	fileName = _fileName;
+
+	struct io_uring_params params;
+	memset(&params, 0, sizeof(params));
+
+	// one extra entry for the NOP stopping the poller
+	// the ring is clamped by the kernel if maxIO is above what it supports, the submission queue is drained when full
+	params.flags = IORING_SETUP_CLAMP;
+
+	ringHandle = uring_setup(maxIO + 1, &params);
+	if (ringHandle < 0)
+	{
+		release();
+		throw AIOException(NATIVE_ERROR_CANT_INITIALIZE_AIO, "Can't initialize io_uring, " + uring_error(-errno));
+	}
+
+	sqRingSize = params.sq_off.array + params.sq_entries * sizeof(unsigned);
+	cqRingSize = params.cq_off.cqes + params.cq_entries * sizeof(struct io_uring_cqe);
+
+	if (params.features & IORING_FEAT_SINGLE_MMAP)
+	{
+		if (cqRingSize > sqRingSize)
+		{
+			sqRingSize = cqRingSize;
+		}
+		cqRingSize = sqRingSize;
+	}
+
+	sqRing = ::mmap(0, sqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringHandle, IORING_OFF_SQ_RING);
+	if (sqRing == MAP_FAILED)
+	{
+		release();
+		throw AIOException(NATIVE_ERROR_CANT_ALLOCATE_QUEUE, "Can't map the io_uring submission queue");
+	}
+
+	if (params.features & IORING_FEAT_SINGLE_MMAP)
+	{
+		cqRing = sqRing;
+	}
+	else
+	{
+		cqRing = ::mmap(0, cqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringHandle, IORING_OFF_CQ_RING);
+		if (cqRing == MAP_FAILED)
+		{
+			release();
+			throw AIOException(NATIVE_ERROR_CANT_ALLOCATE_QUEUE, "Can't map the io_uring completion queue");
+		}
+	}
+
+	sqesSize = params.sq_entries * sizeof(struct io_uring_sqe);
+	sqes = (struct io_uring_sqe *) ::mmap(0, sqesSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringHandle, IORING_OFF_SQES);
+	if (sqes == MAP_FAILED)
+	{
+		release();
+		throw AIOException(NATIVE_ERROR_CANT_ALLOCATE_QUEUE, "Can't map the io_uring submission entries");
+	}
+
+	char * sq = (char *) sqRing;
+	sqHead = (unsigned *) (sq + params.sq_off.head);
+	sqTail = (unsigned *) (sq + params.sq_off.tail);
+	sqMask = *(unsigned *) (sq + params.sq_off.ring_mask);
+	sqEntries = *(unsigned *) (sq + params.sq_off.ring_entries);
+	sqArray = (unsigned *) (sq + params.sq_off.array);
+
+	char * cq = (char *) cqRing;
+	cqHead = (unsigned *) (cq + params.cq_off.head);
+	cqTail = (unsigned *) (cq + params.cq_off.tail);
+	cqMask = *(unsigned *) (cq + params.cq_off.ring_mask);
+	cqes = (struct io_uring_cqe *) (cq + params.cq_off.cqes);
+
+	fileHandle = ::open(fileName.data(),  O_RDWR | O_CREAT | O_DIRECT, 0666);
+	if (fileHandle < 0)
+	{
+		release();
+		throw AIOException(NATIVE_ERROR_CANT_OPEN_CLOSE_FILE, "Can't open file");
+	}
+
+	// The file is registered as fixed file 0, sparing the kernel a file table lookup on every operation
+	if (uring_register(ringHandle, IORING_REGISTER_FILES, &fileHandle, 1) < 0)
+	{
+		int registerError = errno;
+		release();
+		throw AIOException(NATIVE_ERROR_CANT_INITIALIZE_AIO, "Can't register the file on io_uring, " + uring_error(-registerError));
+	}
+
+#ifdef DEBUG
+	fprintf (stderr,"File Handle %d, ring entries %d\n", fileHandle, sqEntries);
+#endif
+}
+
+void URingFile::release()
+{
+	if (sqes != MAP_FAILED)
+	{
+		::munmap(sqes, sqesSize);
+	}
+	if (cqRing != MAP_FAILED && cqRing != sqRing)
+	{
+		::munmap(cqRing, cqRingSize);
+	}
+	if (sqRing != MAP_FAILED)
+	{
+		::munmap(sqRing, sqRingSize);
+	}
+	if (ringHandle >= 0)
+	{
+		::close(ringHandle);
+	}
+	if (fileHandle >= 0)
+	{
+		::close(fileHandle);
+	}
+	::pthread_mutex_destroy(&submitMutex);
+	::pthread_mutex_destroy(&pollerMutex);
+}
+
+URingFile::~URingFile()
+{
+	// closing the ring also unregisters the fixed file
+	release();
+}
+
+static int isPendingException(THREAD_CONTEXT threadContext)
+{
+	return JNI_ENV(threadContext)->ExceptionOccurred() != 0;
+}
+
+void URingFile::pollEvents(THREAD_CONTEXT threadContext)
+{
+
+	LockClass lock(&pollerMutex);
+	pollerRunning=1;
+
+
+	while (pollerRunning)
+	{
+		if (isPendingException(threadContext))
+		{
+			return;
+		}
+
+		unsigned head = *cqHead;
+		unsigned tail = __atomic_load_n(cqTail, __ATOMIC_ACQUIRE);
+
+		if (head == tail)
+		{
+			if (uring_enter(ringHandle, 0, 1, IORING_ENTER_GETEVENTS) < 0 && errno != EINTR)
+			{
+				std::string message = "Error waiting for io_uring completions, " + uring_error(-errno);
+				controller->log(threadContext, 1, message.data());
+				::usleep(WAIT_FOR_SPOT);
+			}
+			continue;
+		}
+
+#ifdef DEBUG
+		fprintf (stdout, "Received %d events\n", tail - head);
+		fflush(stdout);
+#endif
+
+		while (head != tail)
+		{
+			struct io_uring_cqe * cqe = &cqes[head & cqMask];
+
+			__u64 data = cqe->user_data;
+			int result = cqe->res;
+
+			head++;
+
+			// the entry is handed back to the kernel before calling Java, which may take a while
+			__atomic_store_n(cqHead, head, __ATOMIC_RELEASE);
+
+			if (data == STOP_POLLER)
+			{
+				pollerRunning = 0;
+#ifdef DEBUG
+				controller->log(threadContext, 2, "Received poller request to stop");
+#endif
+			}
+			else
+			{
+				CallbackAdapter * adapter = (CallbackAdapter *) (uintptr_t) data;
+
+				if (result < 0)
+				{
+					std::string strerror = uring_error(result);
+					adapter->onError(threadContext, result, strerror);
+				}
+				else
+				{
+					adapter->done(threadContext);
+				}
+			}
+		}
+	}
+#ifdef DEBUG
+	controller->log(threadContext, 2, "Poller finished execution");
+#endif
+}
+
+
+void URingFile::preAllocate(THREAD_CONTEXT , off_t position, int blocks, size_t size, int fillChar)
+{
+
+	if (size % ALIGNMENT != 0)
+	{
+		throw AIOException (NATIVE_ERROR_PREALLOCATE_FILE, "You can only pre allocate files in multiples of 512");
+	}
+
+	void * preAllocBuffer = 0;
+	if (posix_memalign(&preAllocBuffer, 512, size))
+	{
+		throw AIOException(NATIVE_ERROR_ALLOCATE_MEMORY, "Error on posix_memalign");
+	}
+
+	memset(preAllocBuffer, fillChar, size);
+
+	for (int i=0; i<blocks; i++)
+	{
+		if (::pwrite(fileHandle, preAllocBuffer, size, position + (off_t) i * size) < 0)
+		{
+			free (preAllocBuffer);
+			throw AIOException (NATIVE_ERROR_PREALLOCATE_FILE, "Error pre allocating the file");
+		}
+	}
+
+	free (preAllocBuffer);
+}
+
+
+/** Write directly to the file without using the ring */
+void URingFile::writeInternal(THREAD_CONTEXT, long position, size_t size, void *& buffer)
+{
+	if (::pwrite(fileHandle, buffer, size, position) < 0)
+	{
+		throw AIOException (NATIVE_ERROR_IO, "Error writing file");
+	}
+
+	if (::fsync(fileHandle) < 0)
+	{
+		throw AIOException (NATIVE_ERROR_IO, "Error on synchronizing file");
+	}
+}
+
+
+/** Has to be called holding submitMutex */
+struct io_uring_sqe * URingFile::nextSubmission(THREAD_CONTEXT threadContext)
+{
+	int tries = 0;
+
+	while (*sqTail - __atomic_load_n(sqHead, __ATOMIC_ACQUIRE) >= sqEntries)
+	{
+		// The ring was clamped below maxIO, the kernel frees the entries as soon as they are submitted
+		if (toSubmit > 0)
+		{
+			submitQueued(threadContext);
+			continue;
+		}
+
+		if (++tries > TRIES_BEFORE_ERROR)
+		{
+			throw AIOException(NATIVE_ERROR_AIO_FULL, "Too many retries (500) waiting for a submission entry, please decrease MAX_IO limit");
+		}
+
+		::usleep(WAIT_FOR_SPOT);
+	}
+
+	unsigned tail = *sqTail;
+	unsigned index = tail & sqMask;
+
+	struct io_uring_sqe * sqe = &sqes[index];
+	memset(sqe, 0, sizeof(struct io_uring_sqe));
+
+	sqArray[index] = index;
+
+	return sqe;
+}
+
+/** Has to be called holding submitMutex */
+void URingFile::queue(THREAD_CONTEXT threadContext, int opcode, long position, size_t size, void * buffer, __u64 data)
+{
+	struct io_uring_sqe * sqe = nextSubmission(threadContext);
+
+	sqe->opcode = (__u8) opcode;
+	if (opcode != IORING_OP_NOP)
+	{
+		sqe->flags = IOSQE_FIXED_FILE;
+		sqe->fd = 0;
+		sqe->off = (__u64) position;
+		sqe->addr = (__u64) (uintptr_t) buffer;
+		sqe->len = (__u32) size;
+	}
+	sqe->user_data = data;
+
+	__atomic_store_n(sqTail, *sqTail + 1, __ATOMIC_RELEASE);
+
+	toSubmit++;
+}
+
+/** Has to be called holding submitMutex */
+void URingFile::submitQueued(THREAD_CONTEXT threadContext)
+{
+	int tries = 0;
+
+	while (toSubmit > 0)
+	{
+		int result = uring_enter(ringHandle, toSubmit, 0, 0);
+
+		if (result >= 0)
+		{
+			toSubmit -= result;
+			continue;
+		}
+
+		int submitError = errno;
+
+		if (submitError == EINTR)
+		{
+			continue;
+		}
+
+		if (submitError != EAGAIN && submitError != EBUSY)
+		{
+			// the entries stay on the ring and go out with the next submit
+			throw AIOException (NATIVE_ERROR_IO, "Problem on submit block, " + uring_error(-submitError));
+		}
+
+		if (++tries > TRIES_BEFORE_ERROR)
+		{
+			throw AIOException(NATIVE_ERROR_AIO_FULL, "Too many retries (500) submitting to io_uring, please decrease MAX_IO limit");
+		}
+
+		controller->log(threadContext, 1, "The kernel is short of resources to take io_uring submissions, you should consider decreasing MAX_IO");
+
+		::usleep(WAIT_FOR_SPOT);
+	}
+}
+
+
+void URingFile::write(THREAD_CONTEXT threadContext, long position, size_t size, void *& buffer, CallbackAdapter *& adapter)
+{
+	LockClass lock(&submitMutex);
+
+	queue(threadContext, IORING_OP_WRITE, position, size, buffer, (__u64) (uintptr_t) adapter);
+}
+
+void URingFile::submit(THREAD_CONTEXT threadContext)
+{
+	LockClass lock(&submitMutex);
+
+	submitQueued(threadContext);
+}
+
+void URingFile::read(THREAD_CONTEXT threadContext, long position, size_t size, void *& buffer, CallbackAdapter *& adapter)
+{
+	LockClass lock(&submitMutex);
+
+	queue(threadContext, IORING_OP_READ, position, size, buffer, (__u64) (uintptr_t) adapter);
+
+	// reads aren't batched, the caller is usually waiting for them
+	submitQueued(threadContext);
+}
+
+long URingFile::getSize()
+{
+	struct stat statBuffer;
+
+	if (fstat(fileHandle, &statBuffer) < 0)
+	{
+		return -1l;
+	}
+	return statBuffer.st_size;
+}
+
+
+void URingFile::stopPoller(THREAD_CONTEXT threadContext)
+{
+	{
+		LockClass lock(&submitMutex);
+
+		pollerRunning = 0;
+
+		queue(threadContext, IORING_OP_NOP, 0, 0, 0, STOP_POLLER);
+
+		submitQueued(threadContext);
+	}
+
+	// Waiting the Poller to finish (by giving up the lock)
+	LockClass lock(&pollerMutex);
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+#ifndef URINGFILE_H_
+#define URINGFILE_H_
+
+#include <string>
+#include <stdlib.h>
+#include <pthread.h>
+#include <sys/types.h>
+#include <linux/io_uring.h>
+#include "JAIODatatypes.h"
+#include "AIOException.h"
+
+class JNIController;
+
+class CallbackAdapter;
+
+/**
+ * The io_uring counterpart of AsyncFile.
+ *
+ * Each file owns a ring with the file registered as fixed file 0. Writes are only queued on the submission ring
+ * and the Java layer calls submit once its writer queue is drained, so a burst of writes costs a single
+ * io_uring_enter. Completions are reaped by a single poller thread per file, just like on AsyncFile.
+ */
+class URingFile
+{
+private:
+	int ringHandle;
+	int fileHandle;
+	std::string fileName;
+
+	void * sqRing;
+	size_t sqRingSize;
+	void * cqRing;
+	size_t cqRingSize;
+	struct io_uring_sqe * sqes;
+	size_t sqesSize;
+
+	unsigned * sqHead;
+	unsigned * sqTail;
+	unsigned sqMask;
+	unsigned sqEntries;
+	unsigned * sqArray;
+
+	unsigned * cqHead;
+	unsigned * cqTail;
+	unsigned cqMask;
+	struct io_uring_cqe * cqes;
+
+	// submission entries queued on the ring and not submitted yet
+	unsigned toSubmit;
+
+	pthread_mutex_t submitMutex;
+	pthread_mutex_t pollerMutex;
+
+	JNIController * controller;
+
+	bool pollerRunning;
+
+	void release();
+
+	struct io_uring_sqe * nextSubmission(THREAD_CONTEXT threadContext);
+
+	void queue(THREAD_CONTEXT threadContext, int opcode, long position, size_t size, void * buffer, __u64 data);
+
+	void submitQueued(THREAD_CONTEXT threadContext);
+
+public:
+	URingFile(std::string & _fileName, JNIController * controller, int maxIO);
+	virtual ~URingFile();
+
+	/** Whether the running kernel provides io_uring with the read and write operations used here */
+	static bool isSupported();
+
+	/** Queues the write, it won't reach the kernel until submit is called */
+	void write(THREAD_CONTEXT threadContext, long position, size_t size, void *& buffer, CallbackAdapter *& adapter);
+
+	/** Submits every queued operation with a single system call */
+	void submit(THREAD_CONTEXT threadContext);
+
+	/** Write directly to the file without using the ring */
+	void writeInternal(THREAD_CONTEXT threadContext, long position, size_t size, void *& buffer);
+
+	void read(THREAD_CONTEXT threadContext, long position, size_t size, void *& buffer, CallbackAdapter *& adapter);
+
+	int getHandle()
+	{
+		return fileHandle;
+	}
+
+	long getSize();
+
+	// Finishes the polling thread (if any) and return
+	void stopPoller(THREAD_CONTEXT threadContext);
+	void preAllocate(THREAD_CONTEXT threadContext, off_t position, int blocks, size_t size, int fillChar);
+
+	void pollEvents(THREAD_CONTEXT threadContext);
+
+};
+
+#endif /*URINGFILE_H_*/
@@ -6,3 +6,9 @@
 #define _VERSION_NATIVE_AIO 52
 #endif
 
+
+#ifndef _VERSION_NATIVE_URING
+
+// This definition needs to match org.hornetq.core.asyncio.impl.URingFileImpl.EXPECTED_NATIVE_VERSION
+#define _VERSION_NATIVE_URING 1
+#endif
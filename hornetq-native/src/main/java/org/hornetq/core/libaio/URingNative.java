@@ -0,0 +1,61 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.libaio;
+
+import java.nio.ByteBuffer;
+
+import org.hornetq.api.core.HornetQException;
+
+/**
+ * The io_uring functions of the native library, buffers are still allocated through {@link Native}.
+ */
+public class URingNative
+{
+   /** Needs to match Version.h on the native sources, or else io_uring won't be used */
+   public static native int getNativeVersion();
+
+   /** Whether the running kernel provides io_uring with the operations used by the native layer */
+   public static native boolean isSupported();
+
+   public static native ByteBuffer init(Class controllerClass, String fileName, int maxIO, Object logger) throws HornetQException;
+
+   public static native long size0(ByteBuffer handle);
+
+   /** Queues the write on the submission ring, it won't be sent to the kernel until {@link #submit(ByteBuffer)} */
+   public static native void write(Object thisObject, ByteBuffer handle,
+                                   long sequence,
+                                   long position,
+                                   long size,
+                                   ByteBuffer buffer,
+                                   Object aioPackageCallback) throws HornetQException;
+
+   /** Submits every queued write with a single io_uring_enter */
+   public static native void submit(ByteBuffer handle) throws HornetQException;
+
+   /** a direct write to the file without the use of the ring. */
+   public static native void writeInternal(ByteBuffer handle, long positionToWrite, long size, ByteBuffer bytes) throws HornetQException;
+
+   /**
+    * This is using org.hornetq.core.asyncio.AIOCallback
+    */
+   public static native void read(Object thisObject, ByteBuffer handle, long position, long size, ByteBuffer buffer, Object aioPackageCallback) throws HornetQException;
+
+   public static native void fill(ByteBuffer handle, long position, int blocks, long size, byte fillChar) throws HornetQException;
+
+   public static native void closeInternal(ByteBuffer handler);
+
+   public static native void stopPoller(ByteBuffer handler);
+
+   /** Poll completions from the ring */
+   public static native void internalPollEvents(ByteBuffer handler);
+}
@@ -79,7 +79,7 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
       REGEXP_CONTROL_CHARS.add(Character.valueOf('!'));
    }
 
-   static class LikeExpression extends UnaryExpression implements BooleanExpression
+   public static class LikeExpression extends UnaryExpression implements BooleanExpression
    {
 
       Pattern likePattern;
@@ -131,6 +131,11 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
          likePattern = Pattern.compile(regexp.toString(), Pattern.DOTALL);
       }
 
+      public Pattern getLikePattern()
+      {
+         return likePattern;
+      }
+
       /**
        * @see org.apache.activemq.filter.UnaryExpression#getExpressionSymbol()
        */
@@ -642,6 +647,11 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
 
    protected abstract boolean asBoolean(int answer);
 
+   public boolean isConvertStringExpressions()
+   {
+      return convertStringExpressions;
+   }
+
    public boolean matches(Filterable message) throws FilterException
    {
       Object object = evaluate(message);
@@ -81,70 +81,95 @@ public abstract class UnaryExpression implements Expression
       {
          t = new HashSet<Object>(elements);
       }
-      final Collection<Object> inList = t;
 
-      return new BooleanUnaryExpression(right)
+      return new InExpression(right, t, not);
+   }
+
+   public static class InExpression extends BooleanUnaryExpression
+   {
+      private final Collection<Object> inList;
+
+      private final boolean not;
+
+      InExpression(PropertyExpression right, Collection<Object> inList, boolean not)
       {
-         public Object evaluate(Filterable message) throws FilterException
-         {
+         super(right);
+         this.inList = inList;
+         this.not = not;
+      }
 
-            Object rvalue = right.evaluate(message);
-            if (rvalue == null)
-            {
-               return null;
-            }
-            if (rvalue.getClass() != String.class)
-            {
-               return null;
-            }
+      public Object evaluate(Filterable message) throws FilterException
+      {
 
-            if ((inList != null && inList.contains(rvalue)) ^ not)
-            {
-               return Boolean.TRUE;
-            }
-            else
-            {
-               return Boolean.FALSE;
-            }
+         Object rvalue = right.evaluate(message);
+         if (rvalue == null)
+         {
+            return null;
+         }
+         if (rvalue.getClass() != String.class)
+         {
+            return null;
+         }
 
+         if ((inList != null && inList.contains(rvalue)) ^ not)
+         {
+            return Boolean.TRUE;
+         }
+         else
+         {
+            return Boolean.FALSE;
          }
 
-         public String toString()
+      }
+
+      /**
+       * @return the values, null if there are none
+       */
+      public Collection<Object> getInList()
+      {
+         return inList;
+      }
+
+      public boolean isNot()
+      {
+         return not;
+      }
+
+      public String toString()
+      {
+         StringBuffer answer = new StringBuffer();
+         answer.append(right);
+         answer.append(" ");
+         answer.append(getExpressionSymbol());
+         answer.append(" ( ");
+
+         int count = 0;
+         for (Iterator<Object> i = inList.iterator(); i.hasNext(); )
          {
-            StringBuffer answer = new StringBuffer();
-            answer.append(right);
-            answer.append(" ");
-            answer.append(getExpressionSymbol());
-            answer.append(" ( ");
-
-            int count = 0;
-            for (Iterator<Object> i = inList.iterator(); i.hasNext(); )
+            Object o = (Object) i.next();
+            if (count != 0)
             {
-               Object o = (Object) i.next();
-               if (count != 0)
-               {
-                  answer.append(", ");
-               }
-               answer.append(o);
-               count++;
+               answer.append(", ");
             }
-
-            answer.append(" )");
-            return answer.toString();
+            answer.append(o);
+            count++;
          }
 
-         public String getExpressionSymbol()
+         answer.append(" )");
+         return answer.toString();
+      }
+
+      public String getExpressionSymbol()
+      {
+         if (not)
          {
-            if (not)
-            {
-               return "NOT IN";
-            }
-            else
-            {
-               return "IN";
-            }
+            return "NOT IN";
          }
-      };
+         else
+         {
+            return "IN";
+         }
+      }
    }
 
    abstract static class BooleanUnaryExpression extends UnaryExpression implements BooleanExpression
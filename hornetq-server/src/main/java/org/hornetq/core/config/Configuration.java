@@ -204,6 +204,29 @@ public interface Configuration extends Serializable
     */
    void setSecurityInvalidationInterval(long interval);
 
+   /**
+    * Returns the time (in milliseconds) failed authentications and authorizations are kept on the security cache. 0
+    * means they are not cached. <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_SECURITY_NEGATIVE_INVALIDATION_INTERVAL}.
+    */
+   long getSecurityNegativeInvalidationInterval();
+
+   /**
+    * Sets the time (in milliseconds) failed authentications and authorizations are kept on the security cache.
+    */
+   void setSecurityNegativeInvalidationInterval(long interval);
+
+   /**
+    * Returns the maximum number of authentications and of authorizations kept on the security cache. <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_SECURITY_CACHE_SIZE}.
+    */
+   int getSecurityCacheSize();
+
+   /**
+    * Sets the maximum number of authentications and of authorizations kept on the security cache.
+    */
+   void setSecurityCacheSize(int size);
+
    /**
     * Returns whether security is enabled for this server. <br>
     * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_SECURITY_ENABLED}.
@@ -609,6 +632,52 @@ public interface Configuration extends Serializable
     */
    void setJournalCompactPercentage(int percentage);
 
+   /**
+    * Returns the number of threads reading the message journal files at startup. <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_JOURNAL_LOAD_PARALLELISM}.
+    */
+   int getJournalLoadParallelism();
+
+   /**
+    * Sets the number of threads reading the message journal files at startup.
+    */
+   void setJournalLoadParallelism(int parallelism);
+
+   /**
+    * Returns the maximum number of the oldest journal files compacted at a time, 0 meaning the whole journal is
+    * compacted at once. <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_JOURNAL_COMPACT_BATCH_FILES}.
+    */
+   int getJournalCompactBatchFiles();
+
+   /**
+    * Sets the maximum number of the oldest journal files compacted at a time.
+    */
+   void setJournalCompactBatchFiles(int batchFiles);
+
+   /**
+    * Returns the rate in MiB per second at which compacting may read the journal files, 0 meaning no limit. <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_JOURNAL_COMPACT_IO_BUDGET}.
+    */
+   int getJournalCompactIOBudget();
+
+   /**
+    * Sets the rate in MiB per second at which compacting may read the journal files.
+    */
+   void setJournalCompactIOBudget(int budget);
+
+   /**
+    * Returns the time in milliseconds compacting a batch of journal files should keep the journal locked, 0 meaning
+    * batches are not resized. <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_JOURNAL_COMPACT_PAUSE_BUDGET}.
+    */
+   int getJournalCompactPauseBudget();
+
+   /**
+    * Sets the time in milliseconds compacting a batch of journal files should keep the journal locked.
+    */
+   void setJournalCompactPauseBudget(int budget);
+
    /**
     * Returns the number of journal files to pre-create. <br>
     * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_JOURNAL_MIN_FILES}.
@@ -692,6 +761,18 @@ public interface Configuration extends Serializable
     */
    void setJournalBufferSize_NIO(int journalBufferSize);
 
+   /**
+    * Returns the time (in nanoseconds) a record should take to be synced on the journal, making the buffer timeout
+    * adaptive. -1 means the buffer timeout is fixed. <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_JOURNAL_BUFFER_LATENCY_TARGET}.
+    */
+   int getJournalBufferLatencyTarget();
+
+   /**
+    * Sets the time (in nanoseconds) a record should take to be synced on the journal.
+    */
+   void setJournalBufferLatencyTarget(int latencyTarget);
+
    /**
     * Returns whether the bindings directory is created on this server startup. <br>
     * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_CREATE_BINDINGS_DIR}.
@@ -753,6 +834,18 @@ public interface Configuration extends Serializable
     */
    void setPagingDirectory(String dir);
 
+   /**
+    * Returns the maximum memory (in bytes) taken by the pages cached for all the addresses, -1 meaning a quarter of
+    * the maximum heap size. <br>
+    * Default value is {@value org.hornetq.api.config.HornetQDefaultConfiguration#DEFAULT_GLOBAL_PAGE_CACHE_MAX_SIZE}.
+    */
+   long getGlobalPageCacheMaxSize();
+
+   /**
+    * Sets the maximum memory (in bytes) taken by the pages cached for all the addresses.
+    */
+   void setGlobalPageCacheMaxSize(long maxSize);
+
    // Large Messages Properties ------------------------------------------------------------
 
    /**
@@ -73,6 +73,10 @@ public class ConfigurationImpl implements Configuration
 
    private long securityInvalidationInterval = HornetQDefaultConfiguration.getDefaultSecurityInvalidationInterval();
 
+   private long securityNegativeInvalidationInterval = HornetQDefaultConfiguration.getDefaultSecurityNegativeInvalidationInterval();
+
+   private int securityCacheSize = HornetQDefaultConfiguration.getDefaultSecurityCacheSize();
+
    private boolean securityEnabled = HornetQDefaultConfiguration.isDefaultSecurityEnabled();
 
    protected boolean jmxManagementEnabled = HornetQDefaultConfiguration.isDefaultJmxManagementEnabled();
@@ -115,6 +119,8 @@ public class ConfigurationImpl implements Configuration
 
    private String pagingDirectory = HornetQDefaultConfiguration.getDefaultPagingDir();
 
+   private long globalPageCacheMaxSize = HornetQDefaultConfiguration.getDefaultGlobalPageCacheMaxSize();
+
    // File related attributes -----------------------------------------------------------
 
    private int maxConcurrentPageIO = HornetQDefaultConfiguration.getDefaultMaxConcurrentPageIo();
@@ -139,6 +145,14 @@ public class ConfigurationImpl implements Configuration
 
    protected int journalCompactPercentage = HornetQDefaultConfiguration.getDefaultJournalCompactPercentage();
 
+   protected int journalLoadParallelism = HornetQDefaultConfiguration.getDefaultJournalLoadParallelism();
+
+   protected int journalCompactBatchFiles = HornetQDefaultConfiguration.getDefaultJournalCompactBatchFiles();
+
+   protected int journalCompactIOBudget = HornetQDefaultConfiguration.getDefaultJournalCompactIoBudget();
+
+   protected int journalCompactPauseBudget = HornetQDefaultConfiguration.getDefaultJournalCompactPauseBudget();
+
    protected int journalFileSize = HornetQDefaultConfiguration.getDefaultJournalFileSize();
 
    protected int journalMinFiles = HornetQDefaultConfiguration.getDefaultJournalMinFiles();
@@ -157,6 +171,8 @@ public class ConfigurationImpl implements Configuration
 
    protected int journalBufferSize_NIO = HornetQDefaultConfiguration.getDefaultJournalBufferSizeNio();
 
+   protected int journalBufferLatencyTarget = HornetQDefaultConfiguration.getDefaultJournalBufferLatencyTarget();
+
    protected boolean logJournalWriteRate = HornetQDefaultConfiguration.isDefaultJournalLogWriteRate();
 
    protected int journalPerfBlastPages = HornetQDefaultConfiguration.getDefaultJournalPerfBlastPages();
@@ -332,6 +348,26 @@ public class ConfigurationImpl implements Configuration
       securityInvalidationInterval = interval;
    }
 
+   public long getSecurityNegativeInvalidationInterval()
+   {
+      return securityNegativeInvalidationInterval;
+   }
+
+   public void setSecurityNegativeInvalidationInterval(final long interval)
+   {
+      securityNegativeInvalidationInterval = interval;
+   }
+
+   public int getSecurityCacheSize()
+   {
+      return securityCacheSize;
+   }
+
+   public void setSecurityCacheSize(final int size)
+   {
+      securityCacheSize = size;
+   }
+
    public long getConnectionTTLOverride()
    {
       return connectionTTLOverride;
@@ -545,6 +581,16 @@ public class ConfigurationImpl implements Configuration
       return pagingDirectory;
    }
 
+   public long getGlobalPageCacheMaxSize()
+   {
+      return globalPageCacheMaxSize;
+   }
+
+   public void setGlobalPageCacheMaxSize(final long maxSize)
+   {
+      globalPageCacheMaxSize = maxSize;
+   }
+
    public void setJournalType(final JournalType type)
    {
       journalType = type;
@@ -830,6 +876,46 @@ public class ConfigurationImpl implements Configuration
       journalCompactPercentage = percentage;
    }
 
+   public int getJournalLoadParallelism()
+   {
+      return journalLoadParallelism;
+   }
+
+   public void setJournalLoadParallelism(final int parallelism)
+   {
+      journalLoadParallelism = parallelism;
+   }
+
+   public int getJournalCompactBatchFiles()
+   {
+      return journalCompactBatchFiles;
+   }
+
+   public void setJournalCompactBatchFiles(final int batchFiles)
+   {
+      journalCompactBatchFiles = batchFiles;
+   }
+
+   public int getJournalCompactIOBudget()
+   {
+      return journalCompactIOBudget;
+   }
+
+   public void setJournalCompactIOBudget(final int budget)
+   {
+      journalCompactIOBudget = budget;
+   }
+
+   public int getJournalCompactPauseBudget()
+   {
+      return journalCompactPauseBudget;
+   }
+
+   public void setJournalCompactPauseBudget(final int budget)
+   {
+      journalCompactPauseBudget = budget;
+   }
+
    public long getServerDumpInterval()
    {
       return serverDumpInterval;
@@ -920,6 +1006,16 @@ public class ConfigurationImpl implements Configuration
       journalBufferSize_NIO = journalBufferSize;
    }
 
+   public int getJournalBufferLatencyTarget()
+   {
+      return journalBufferLatencyTarget;
+   }
+
+   public void setJournalBufferLatencyTarget(final int latencyTarget)
+   {
+      journalBufferLatencyTarget = latencyTarget;
+   }
+
    @Override
    public Map<String, AddressSettings> getAddressesSettings()
    {
@@ -1129,8 +1225,13 @@ public class ConfigurationImpl implements Configuration
       result = prime * result + journalBufferSize_NIO;
       result = prime * result + journalBufferTimeout_AIO;
       result = prime * result + journalBufferTimeout_NIO;
+      result = prime * result + journalBufferLatencyTarget;
       result = prime * result + journalCompactMinFiles;
       result = prime * result + journalCompactPercentage;
+      result = prime * result + journalLoadParallelism;
+      result = prime * result + journalCompactBatchFiles;
+      result = prime * result + journalCompactIOBudget;
+      result = prime * result + journalCompactPauseBudget;
       result = prime * result + ((journalDirectory == null) ? 0 : journalDirectory.hashCode());
       result = prime * result + journalFileSize;
       result = prime * result + journalMaxIO_AIO;
@@ -1161,6 +1262,7 @@ public class ConfigurationImpl implements Configuration
                prime * result +
                         ((outgoingInterceptorClassNames == null) ? 0 : outgoingInterceptorClassNames.hashCode());
       result = prime * result + ((pagingDirectory == null) ? 0 : pagingDirectory.hashCode());
+      result = prime * result + (int)(globalPageCacheMaxSize ^ (globalPageCacheMaxSize >>> 32));
       result = prime * result + (persistDeliveryCountBeforeDelivery ? 1231 : 1237);
       result = prime * result + (persistIDCache ? 1231 : 1237);
       result = prime * result + (persistenceEnabled ? 1231 : 1237);
@@ -1171,6 +1273,9 @@ public class ConfigurationImpl implements Configuration
       result = prime * result + scheduledThreadPoolMaxSize;
       result = prime * result + (securityEnabled ? 1231 : 1237);
       result = prime * result + (int)(securityInvalidationInterval ^ (securityInvalidationInterval >>> 32));
+      result = prime * result +
+         (int)(securityNegativeInvalidationInterval ^ (securityNegativeInvalidationInterval >>> 32));
+      result = prime * result + securityCacheSize;
       result = prime * result + ((securitySettings == null) ? 0 : securitySettings.hashCode());
       result = prime * result + (int)(serverDumpInterval ^ (serverDumpInterval >>> 32));
       result = prime * result + (haPolicy.isSharedStore() ? 1231 : 1237);
@@ -1332,10 +1437,20 @@ public class ConfigurationImpl implements Configuration
          return false;
       if (journalBufferTimeout_NIO != other.journalBufferTimeout_NIO)
          return false;
+      if (journalBufferLatencyTarget != other.journalBufferLatencyTarget)
+         return false;
       if (journalCompactMinFiles != other.journalCompactMinFiles)
          return false;
       if (journalCompactPercentage != other.journalCompactPercentage)
          return false;
+      if (journalLoadParallelism != other.journalLoadParallelism)
+         return false;
+      if (journalCompactBatchFiles != other.journalCompactBatchFiles)
+         return false;
+      if (journalCompactIOBudget != other.journalCompactIOBudget)
+         return false;
+      if (journalCompactPauseBudget != other.journalCompactPauseBudget)
+         return false;
       if (journalDirectory == null)
       {
          if (other.journalDirectory != null)
@@ -1428,6 +1543,8 @@ public class ConfigurationImpl implements Configuration
       }
       else if (!pagingDirectory.equals(other.pagingDirectory))
          return false;
+      if (globalPageCacheMaxSize != other.globalPageCacheMaxSize)
+         return false;
       if (persistDeliveryCountBeforeDelivery != other.persistDeliveryCountBeforeDelivery)
          return false;
       if (persistIDCache != other.persistIDCache)
@@ -1463,6 +1580,10 @@ public class ConfigurationImpl implements Configuration
          return false;
       if (securityInvalidationInterval != other.securityInvalidationInterval)
          return false;
+      if (securityNegativeInvalidationInterval != other.securityNegativeInvalidationInterval)
+         return false;
+      if (securityCacheSize != other.securityCacheSize)
+         return false;
       if (securitySettings == null)
       {
          if (other.securitySettings != null)
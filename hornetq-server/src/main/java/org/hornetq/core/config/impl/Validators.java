@@ -15,6 +15,7 @@ package org.hornetq.core.config.impl;
 import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.JournalType;
 import org.hornetq.core.settings.impl.AddressFullMessagePolicy;
+import org.hornetq.core.settings.impl.QueueEngine;
 
 /**
  * A Validators.
@@ -145,7 +146,8 @@ public final class Validators
       public void validate(final String name, final Object value)
       {
          String val = (String) value;
-         if (val == null || !val.equals(JournalType.NIO.toString()) && !val.equals(JournalType.ASYNCIO.toString()))
+         if (val == null || !val.equals(JournalType.NIO.toString()) && !val.equals(JournalType.ASYNCIO.toString()) &&
+            !val.equals(JournalType.IOURING.toString()) && !val.equals(JournalType.MAPPED.toString()))
          {
             throw HornetQMessageBundle.BUNDLE.invalidJournalType(val);
          }
@@ -166,4 +168,18 @@ public final class Validators
          }
       }
    };
+
+   public static final Validator QUEUE_ENGINE_TYPE = new Validator()
+   {
+      public void validate(final String name, final Object value)
+      {
+         String val = (String) value;
+         if (val == null || !val.equals(QueueEngine.DEFAULT.toString()) &&
+               !val.equals(QueueEngine.LOCK_FREE.toString()) &&
+               !val.equals(QueueEngine.SHARDED.toString()))
+         {
+            throw HornetQMessageBundle.BUNDLE.invalidQueueEngineType(val);
+         }
+      }
+   };
 }
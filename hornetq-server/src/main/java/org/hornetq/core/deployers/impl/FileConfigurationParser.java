@@ -43,6 +43,7 @@ import org.hornetq.core.config.impl.ConfigurationImpl;
 import org.hornetq.core.config.impl.FileConfiguration;
 import org.hornetq.core.config.impl.Validators;
 import org.hornetq.core.journal.impl.AIOSequentialFileFactory;
+import org.hornetq.core.journal.impl.URingSequentialFileFactory;
 import org.hornetq.core.journal.impl.JournalConstants;
 import org.hornetq.core.security.Role;
 import org.hornetq.core.server.HornetQServerLogger;
@@ -52,6 +53,7 @@ import org.hornetq.core.server.cluster.ha.HAPolicyTemplate;
 import org.hornetq.core.server.group.impl.GroupingHandlerConfiguration;
 import org.hornetq.core.settings.impl.AddressFullMessagePolicy;
 import org.hornetq.core.settings.impl.AddressSettings;
+import org.hornetq.core.settings.impl.QueueEngine;
 import org.hornetq.utils.DefaultSensitiveStringCodec;
 import org.hornetq.utils.PasswordMaskingUtil;
 import org.hornetq.utils.SensitiveDataCodec;
@@ -128,6 +130,10 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
    private static final String PAGE_MAX_CACHE_SIZE_NODE_NAME = "page-max-cache-size";
 
+   private static final String PAGE_MAX_CACHE_SIZE_BYTES_NODE_NAME = "page-max-cache-size-bytes";
+
+   private static final String PAGE_READ_AHEAD_NODE_NAME = "page-read-ahead";
+
    private static final String MESSAGE_COUNTER_HISTORY_DAY_LIMIT_NODE_NAME = "message-counter-history-day-limit";
 
    private static final String LVQ_NODE_NAME = "last-value-queue";
@@ -136,6 +142,12 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
    private static final String SEND_TO_DLA_ON_NO_ROUTE = "send-to-dla-on-no-route";
 
+   private static final String QUEUE_ENGINE_NODE_NAME = "queue-engine";
+
+   private static final String QUEUE_SHARDS_NODE_NAME = "queue-shards";
+
+   private static final String PAGE_INDEX_NODE_NAME = "page-index";
+
    // Attributes ----------------------------------------------------
 
    private boolean validateAIO = false;
@@ -384,6 +396,13 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                      config.getSecurityInvalidationInterval(),
                                                      Validators.GT_ZERO));
 
+      config.setSecurityNegativeInvalidationInterval(getLong(e, "security-negative-invalidation-interval",
+                                                             config.getSecurityNegativeInvalidationInterval(),
+                                                             Validators.GE_ZERO));
+
+      config.setSecurityCacheSize(getInteger(e, "security-cache-size", config.getSecurityCacheSize(),
+                                             Validators.GE_ZERO));
+
       config.setConnectionTTLOverride(getLong(e,
                                               "connection-ttl-override",
                                               config.getConnectionTTLOverride(),
@@ -639,6 +658,9 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                           config.getPagingDirectory(),
                                           Validators.NOT_NULL_OR_EMPTY));
 
+      config.setGlobalPageCacheMaxSize(getLong(e, "global-page-cache-max-size", config.getGlobalPageCacheMaxSize(),
+                                               Validators.MINUS_ONE_OR_GE_ZERO));
+
       config.setCreateJournalDir(getBoolean(e, "create-journal-dir", config.isCreateJournalDir()));
 
       String s = getString(e,
@@ -672,6 +694,29 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
             config.setJournalType(JournalType.NIO);
          }
       }
+      else if (s.equals(JournalType.IOURING.toString()))
+      {
+         // Same as with AIO, io_uring falls back to AIO or to NIO here so the correct defaults are used
+         if (URingSequentialFileFactory.isSupported())
+         {
+            config.setJournalType(JournalType.IOURING);
+         }
+         else
+         {
+            JournalType fallback = AIOSequentialFileFactory.isSupported() ? JournalType.ASYNCIO : JournalType.NIO;
+
+            if (validateAIO)
+            {
+               HornetQServerLogger.LOGGER.URingNotFound(fallback);
+            }
+
+            config.setJournalType(fallback);
+         }
+      }
+      else if (s.equals(JournalType.MAPPED.toString()))
+      {
+         config.setJournalType(JournalType.MAPPED);
+      }
 
       config.setJournalSyncTransactional(getBoolean(e,
                                                     "journal-sync-transactional",
@@ -686,25 +731,29 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                            config.getJournalFileSize(),
                                            Validators.GT_ZERO));
 
+      // io_uring shares the AIO settings, the mapped journal the NIO ones
+      boolean aioSettings = config.getJournalType() == JournalType.ASYNCIO ||
+         config.getJournalType() == JournalType.IOURING;
+
       int journalBufferTimeout = getInteger(e,
                                             "journal-buffer-timeout",
-                                            config.getJournalType() == JournalType.ASYNCIO ? JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_AIO
+                                            aioSettings ? JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_AIO
                                                : JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_NIO,
                                             Validators.GT_ZERO);
 
       int journalBufferSize = getInteger(e,
                                          "journal-buffer-size",
-                                         config.getJournalType() == JournalType.ASYNCIO ? JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_AIO
+                                         aioSettings ? JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_AIO
                                             : JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_NIO,
                                          Validators.GT_ZERO);
 
       int journalMaxIO = getInteger(e,
                                     "journal-max-io",
-                                    config.getJournalType() == JournalType.ASYNCIO ? HornetQDefaultConfiguration.getDefaultJournalMaxIoAio()
+                                    aioSettings ? HornetQDefaultConfiguration.getDefaultJournalMaxIoAio()
                                        : HornetQDefaultConfiguration.getDefaultJournalMaxIoNio(),
                                     Validators.GT_ZERO);
 
-      if (config.getJournalType() == JournalType.ASYNCIO)
+      if (aioSettings)
       {
          config.setJournalBufferTimeout_AIO(journalBufferTimeout);
          config.setJournalBufferSize_AIO(journalBufferSize);
@@ -717,6 +766,11 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
          config.setJournalMaxIO_NIO(journalMaxIO);
       }
 
+      config.setJournalBufferLatencyTarget(getInteger(e,
+                                                      "journal-buffer-latency-target",
+                                                      config.getJournalBufferLatencyTarget(),
+                                                      Validators.MINUS_ONE_OR_GT_ZERO));
+
       config.setJournalMinFiles(getInteger(e, "journal-min-files", config.getJournalMinFiles(), Validators.GT_ZERO));
 
       config.setJournalCompactMinFiles(getInteger(e, "journal-compact-min-files", config.getJournalCompactMinFiles(),
@@ -727,6 +781,26 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                     config.getJournalCompactPercentage(),
                                                     Validators.PERCENTAGE));
 
+      config.setJournalLoadParallelism(getInteger(e,
+                                                  "journal-load-parallelism",
+                                                  config.getJournalLoadParallelism(),
+                                                  Validators.GT_ZERO));
+
+      config.setJournalCompactBatchFiles(getInteger(e,
+                                                    "journal-compact-batch-files",
+                                                    config.getJournalCompactBatchFiles(),
+                                                    Validators.GE_ZERO));
+
+      config.setJournalCompactIOBudget(getInteger(e,
+                                                  "journal-compact-io-budget",
+                                                  config.getJournalCompactIOBudget(),
+                                                  Validators.GE_ZERO));
+
+      config.setJournalCompactPauseBudget(getInteger(e,
+                                                     "journal-compact-pause-budget",
+                                                     config.getJournalCompactPauseBudget(),
+                                                     Validators.GE_ZERO));
+
       config.setLogJournalWriteRate(getBoolean(e,
                                                "log-journal-write-rate",
                                                HornetQDefaultConfiguration.isDefaultJournalLogWriteRate()));
@@ -995,6 +1069,16 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
          {
             addressSettings.setPageCacheMaxSize(XMLUtil.parseInt(child));
          }
+         else if (PAGE_MAX_CACHE_SIZE_BYTES_NODE_NAME.equalsIgnoreCase(name))
+         {
+            addressSettings.setPageCacheMaxSizeBytes(XMLUtil.parseLong(child));
+         }
+         else if (PAGE_READ_AHEAD_NODE_NAME.equalsIgnoreCase(name))
+         {
+            int readAhead = XMLUtil.parseInt(child);
+            Validators.GE_ZERO.validate(PAGE_READ_AHEAD_NODE_NAME, readAhead);
+            addressSettings.setPageReadAhead(readAhead);
+         }
          else if (MESSAGE_COUNTER_HISTORY_DAY_LIMIT_NODE_NAME.equalsIgnoreCase(name))
          {
             addressSettings.setMessageCounterHistoryDayLimit(XMLUtil.parseInt(child));
@@ -1023,6 +1107,23 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
          {
             addressSettings.setSendToDLAOnNoRoute(XMLUtil.parseBoolean(child));
          }
+         else if (QUEUE_ENGINE_NODE_NAME.equalsIgnoreCase(name))
+         {
+            String value = getTrimmedTextContent(child);
+            Validators.QUEUE_ENGINE_TYPE.validate(QUEUE_ENGINE_NODE_NAME, value);
+            QueueEngine engine = Enum.valueOf(QueueEngine.class, value);
+            addressSettings.setQueueEngine(engine);
+         }
+         else if (QUEUE_SHARDS_NODE_NAME.equalsIgnoreCase(name))
+         {
+            int shards = XMLUtil.parseInt(child);
+            Validators.GT_ZERO.validate(QUEUE_SHARDS_NODE_NAME, shards);
+            addressSettings.setQueueShards(shards);
+         }
+         else if (PAGE_INDEX_NODE_NAME.equalsIgnoreCase(name))
+         {
+            addressSettings.setPageIndex(XMLUtil.parseBoolean(child));
+         }
       }
       return setting;
    }
@@ -0,0 +1,688 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.filter.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.hornetq.api.core.FilterConstants;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.selector.filter.BooleanExpression;
+import org.hornetq.selector.filter.ComparisonExpression;
+import org.hornetq.selector.filter.ConstantExpression;
+import org.hornetq.selector.filter.Expression;
+import org.hornetq.selector.filter.LogicExpression;
+import org.hornetq.selector.filter.PropertyExpression;
+import org.hornetq.selector.filter.UnaryExpression;
+
+/**
+ * Turns a parsed selector into a tree of evaluators working straight on the {@link ServerMessage}.
+ * <p/>
+ * Property names are resolved once, to a header field or to a {@link SimpleString} key, and string constants are
+ * kept as {@link SimpleString} so string properties are compared without being converted. AND, OR, NOT, comparisons
+ * between a property and a constant, LIKE and IN are compiled, anything else is left to the interpreter on that
+ * subtree. The evaluators hold no state, so a compiled selector can be used by any number of threads at once.
+ * <p/>
+ * Evaluation follows the three valued logic of the interpreter, including its conversions between numeric types.
+ */
+final class FilterCompiler
+{
+   static final int FALSE = 0;
+
+   static final int TRUE = 1;
+
+   static final int UNKNOWN = -1;
+
+   // not a possible result of a comparison
+   private static final int INCOMPARABLE = 2;
+
+   private FilterCompiler()
+   {
+      // Utility class
+   }
+
+   abstract static class Evaluator
+   {
+      /**
+       * @return {@link #TRUE}, {@link #FALSE} or {@link #UNKNOWN}
+       */
+      abstract int evaluate(ServerMessage message) throws Exception;
+   }
+
+   static Evaluator compile(final BooleanExpression expression)
+   {
+      Evaluator evaluator = null;
+
+      if (expression instanceof LogicExpression)
+      {
+         evaluator = compileLogic((LogicExpression) expression);
+      }
+      else if (expression instanceof ComparisonExpression)
+      {
+         evaluator = compileComparison((ComparisonExpression) expression);
+      }
+      else if (expression instanceof ComparisonExpression.LikeExpression)
+      {
+         evaluator = compileLike((ComparisonExpression.LikeExpression) expression);
+      }
+      else if (expression instanceof UnaryExpression.InExpression)
+      {
+         evaluator = compileIn((UnaryExpression.InExpression) expression);
+      }
+      else if (expression instanceof UnaryExpression && "NOT".equals(((UnaryExpression) expression).getExpressionSymbol()))
+      {
+         Expression operand = ((UnaryExpression) expression).getRight();
+         if (operand instanceof BooleanExpression)
+         {
+            evaluator = new Not(compile((BooleanExpression) operand));
+         }
+      }
+
+      return evaluator == null ? new Interpreted(expression) : evaluator;
+   }
+
+   /**
+    * @return the string values a property must have for the selector to match, or null if there is no such
+    * property, see {@link FilterGuard}
+    */
+   static FilterGuard guard(final BooleanExpression expression)
+   {
+      if (expression instanceof LogicExpression)
+      {
+         LogicExpression logic = (LogicExpression) expression;
+
+         if (!(logic.getLeft() instanceof BooleanExpression) || !(logic.getRight() instanceof BooleanExpression))
+         {
+            return null;
+         }
+
+         FilterGuard left = guard((BooleanExpression) logic.getLeft());
+         FilterGuard right = guard((BooleanExpression) logic.getRight());
+
+         if ("AND".equals(logic.getExpressionSymbol()))
+         {
+            // either side will do, the one with less values is more selective
+            if (left == null || right != null && right.getValues().size() < left.getValues().size())
+            {
+               return right;
+            }
+            return left;
+         }
+         else if ("OR".equals(logic.getExpressionSymbol()) && left != null && right != null &&
+            left.getPropertyName().equals(right.getPropertyName()))
+         {
+            Set<SimpleString> values = new HashSet<SimpleString>(left.getValues());
+            values.addAll(right.getValues());
+            return new FilterGuard(left.getProperty(), values);
+         }
+      }
+      else if (expression instanceof ComparisonExpression)
+      {
+         ComparisonExpression comparison = (ComparisonExpression) expression;
+
+         if (!comparison.isConvertStringExpressions() && "=".equals(comparison.getExpressionSymbol()) &&
+            comparison.getLeft() instanceof PropertyExpression &&
+            comparison.getRight() instanceof ConstantExpression &&
+            ((ConstantExpression) comparison.getRight()).getValue() instanceof String)
+         {
+            String value = (String) ((ConstantExpression) comparison.getRight()).getValue();
+            return new FilterGuard(property((PropertyExpression) comparison.getLeft()),
+                                   Collections.singleton(new SimpleString(value)));
+         }
+      }
+      else if (expression instanceof UnaryExpression.InExpression)
+      {
+         UnaryExpression.InExpression in = (UnaryExpression.InExpression) expression;
+
+         if (in.isNot() || in.getInList() == null)
+         {
+            return null;
+         }
+
+         Set<SimpleString> values = new HashSet<SimpleString>();
+         for (Object value : in.getInList())
+         {
+            if (!(value instanceof String))
+            {
+               return null;
+            }
+            values.add(new SimpleString((String) value));
+         }
+         return new FilterGuard(property((PropertyExpression) in.getRight()), values);
+      }
+
+      return null;
+   }
+
+   private static Evaluator compileLogic(final LogicExpression expression)
+   {
+      if (!(expression.getLeft() instanceof BooleanExpression) || !(expression.getRight() instanceof BooleanExpression))
+      {
+         return null;
+      }
+
+      Evaluator left = compile((BooleanExpression) expression.getLeft());
+      Evaluator right = compile((BooleanExpression) expression.getRight());
+
+      String symbol = expression.getExpressionSymbol();
+      if ("AND".equals(symbol))
+      {
+         return new And(left, right);
+      }
+      else if ("OR".equals(symbol))
+      {
+         return new Or(left, right);
+      }
+      return null;
+   }
+
+   private static Evaluator compileComparison(final ComparisonExpression expression)
+   {
+      if (expression.isConvertStringExpressions() ||
+         !(expression.getLeft() instanceof PropertyExpression) ||
+         !(expression.getRight() instanceof ConstantExpression))
+      {
+         return null;
+      }
+
+      Property property = property((PropertyExpression) expression.getLeft());
+      Object constant = ((ConstantExpression) expression.getRight()).getValue();
+
+      String symbol = expression.getExpressionSymbol();
+
+      if ("=".equals(symbol))
+      {
+         if (constant == null)
+         {
+            return new IsNull(property);
+         }
+         else if (constant instanceof String)
+         {
+            return new EqualString(property, (String) constant);
+         }
+         else if (constant instanceof Boolean)
+         {
+            return new EqualBoolean(property, (Boolean) constant);
+         }
+         else if (isCompiledNumber(constant))
+         {
+            return new CompareNumber(property, (Number) constant, CompareNumber.EQUAL);
+         }
+      }
+      else if (isCompiledNumber(constant))
+      {
+         if (">".equals(symbol))
+         {
+            return new CompareNumber(property, (Number) constant, CompareNumber.GREATER);
+         }
+         else if (">=".equals(symbol))
+         {
+            return new CompareNumber(property, (Number) constant, CompareNumber.GREATER_EQUAL);
+         }
+         else if ("<".equals(symbol))
+         {
+            return new CompareNumber(property, (Number) constant, CompareNumber.LESS);
+         }
+         else if ("<=".equals(symbol))
+         {
+            return new CompareNumber(property, (Number) constant, CompareNumber.LESS_EQUAL);
+         }
+      }
+
+      return null;
+   }
+
+   private static Evaluator compileLike(final ComparisonExpression.LikeExpression expression)
+   {
+      if (!(expression.getRight() instanceof PropertyExpression))
+      {
+         return null;
+      }
+
+      return new Like(property((PropertyExpression) expression.getRight()), expression.getLikePattern());
+   }
+
+   private static Evaluator compileIn(final UnaryExpression.InExpression expression)
+   {
+      Set<SimpleString> values = new HashSet<SimpleString>();
+
+      Collection<Object> inList = expression.getInList();
+      if (inList != null)
+      {
+         for (Object value : inList)
+         {
+            if (!(value instanceof String))
+            {
+               return null;
+            }
+            values.add(new SimpleString((String) value));
+         }
+      }
+
+      return new In(property((PropertyExpression) expression.getRight()), values, expression.isNot());
+   }
+
+   private static boolean isCompiledNumber(final Object constant)
+   {
+      Class<?> type = constant.getClass();
+      return type == Integer.class || type == Long.class || type == Double.class;
+   }
+
+   static Property property(final PropertyExpression expression)
+   {
+      SimpleString name = new SimpleString(expression.getName());
+
+      if (name.startsWith(FilterConstants.HORNETQ_PREFIX))
+      {
+         if (FilterConstants.HORNETQ_USERID.equals(name))
+         {
+            return new Header(name, Header.USER_ID);
+         }
+         else if (FilterConstants.HORNETQ_PRIORITY.equals(name))
+         {
+            return new Header(name, Header.PRIORITY);
+         }
+         else if (FilterConstants.HORNETQ_TIMESTAMP.equals(name))
+         {
+            return new Header(name, Header.TIMESTAMP);
+         }
+         else if (FilterConstants.HORNETQ_DURABLE.equals(name))
+         {
+            return new Header(name, Header.DURABLE);
+         }
+         else if (FilterConstants.HORNETQ_EXPIRATION.equals(name))
+         {
+            return new Header(name, Header.EXPIRATION);
+         }
+         else if (FilterConstants.HORNETQ_SIZE.equals(name))
+         {
+            return new Header(name, Header.SIZE);
+         }
+      }
+
+      return new Property(name);
+   }
+
+   /**
+    * Compares a property value with a numeric constant, converting them as the interpreter does.
+    *
+    * @return the comparison, or {@link #INCOMPARABLE} if the value is not a number
+    */
+   private static int compareNumber(final Object value, final Number constant)
+   {
+      Class<?> type = value.getClass();
+      boolean floating = constant.getClass() == Double.class;
+
+      if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class)
+      {
+         long number = ((Number) value).longValue();
+         return floating ? Double.compare(number, constant.doubleValue()) : compareLong(number, constant.longValue());
+      }
+      else if (type == Double.class)
+      {
+         return Double.compare((Double) value, constant.doubleValue());
+      }
+      else if (type == Float.class)
+      {
+         float number = (Float) value;
+         return floating ? Double.compare(number, constant.doubleValue()) : Float.compare(number, constant.floatValue());
+      }
+
+      return INCOMPARABLE;
+   }
+
+   private static int compareLong(final long x, final long y)
+   {
+      return (x < y) ? -1 : ((x == y) ? 0 : 1);
+   }
+
+   private static int result(final boolean value)
+   {
+      return value ? TRUE : FALSE;
+   }
+
+   /**
+    * A message property, or one of the header fields that can be used on a selector.
+    */
+   static class Property
+   {
+      final SimpleString name;
+
+      Property(final SimpleString name)
+      {
+         this.name = name;
+      }
+
+      Object get(final ServerMessage message)
+      {
+         return message.getObjectProperty(name);
+      }
+   }
+
+   static final class Header extends Property
+   {
+      static final int USER_ID = 0;
+
+      static final int PRIORITY = 1;
+
+      static final int TIMESTAMP = 2;
+
+      static final int DURABLE = 3;
+
+      static final int EXPIRATION = 4;
+
+      static final int SIZE = 5;
+
+      private final int field;
+
+      Header(final SimpleString name, final int field)
+      {
+         super(name);
+         this.field = field;
+      }
+
+      @Override
+      Object get(final ServerMessage message)
+      {
+         switch (field)
+         {
+            case USER_ID:
+               // It's the stringified (hex) representation of a user id that can be used in a selector expression
+               return new SimpleString("ID:" + message.getUserID());
+            case PRIORITY:
+               return Integer.valueOf(message.getPriority());
+            case TIMESTAMP:
+               return message.getTimestamp();
+            case DURABLE:
+               return message.isDurable() ? FilterConstants.DURABLE : FilterConstants.NON_DURABLE;
+            case EXPIRATION:
+               return message.getExpiration();
+            default:
+               return message.getEncodeSize();
+         }
+      }
+   }
+
+   private static final class And extends Evaluator
+   {
+      private final Evaluator left;
+
+      private final Evaluator right;
+
+      And(final Evaluator left, final Evaluator right)
+      {
+         this.left = left;
+         this.right = right;
+      }
+
+      @Override
+      int evaluate(final ServerMessage message) throws Exception
+      {
+         int result = left.evaluate(message);
+         // the interpreter doesn't look at the right side when the left one is unknown
+         return result == TRUE ? right.evaluate(message) : result;
+      }
+   }
+
+   private static final class Or extends Evaluator
+   {
+      private final Evaluator left;
+
+      private final Evaluator right;
+
+      Or(final Evaluator left, final Evaluator right)
+      {
+         this.left = left;
+         this.right = right;
+      }
+
+      @Override
+      int evaluate(final ServerMessage message) throws Exception
+      {
+         return left.evaluate(message) == TRUE ? TRUE : right.evaluate(message);
+      }
+   }
+
+   private static final class Not extends Evaluator
+   {
+      private final Evaluator operand;
+
+      Not(final Evaluator operand)
+      {
+         this.operand = operand;
+      }
+
+      @Override
+      int evaluate(final ServerMessage message) throws Exception
+      {
+         int result = operand.evaluate(message);
+         return result == UNKNOWN ? UNKNOWN : TRUE - result;
+      }
+   }
+
+   private static final class IsNull extends Evaluator
+   {
+      private final Property property;
+
+      IsNull(final Property property)
+      {
+         this.property = property;
+      }
+
+      @Override
+      int evaluate(final ServerMessage message)
+      {
+         return result(property.get(message) == null);
+      }
+   }
+
+   private static final class EqualString extends Evaluator
+   {
+      private final Property property;
+
+      private final SimpleString constant;
+
+      private final String stringConstant;
+
+      EqualString(final Property property, final String constant)
+      {
+         this.property = property;
+         this.constant = new SimpleString(constant);
+         this.stringConstant = constant;
+      }
+
+      @Override
+      int evaluate(final ServerMessage message)
+      {
+         Object value = property.get(message);
+
+         if (value instanceof SimpleString)
+         {
+            return result(constant.equals(value));
+         }
+
+         return result(stringConstant.equals(value));
+      }
+   }
+
+   private static final class EqualBoolean extends Evaluator
+   {
+      private final Property property;
+
+      private final Boolean constant;
+
+      EqualBoolean(final Property property, final Boolean constant)
+      {
+         this.property = property;
+         this.constant = constant;
+      }
+
+      @Override
+      int evaluate(final ServerMessage message)
+      {
+         return result(constant.equals(property.get(message)));
+      }
+   }
+
+   private static final class CompareNumber extends Evaluator
+   {
+      static final int EQUAL = 0;
+
+      static final int GREATER = 1;
+
+      static final int GREATER_EQUAL = 2;
+
+      static final int LESS = 3;
+
+      static final int LESS_EQUAL = 4;
+
+      private final Property property;
+
+      private final Number constant;
+
+      private final int operator;
+
+      CompareNumber(final Property property, final Number constant, final int operator)
+      {
+         this.property = property;
+         this.constant = constant;
+         this.operator = operator;
+      }
+
+      @Override
+      int evaluate(final ServerMessage message)
+      {
+         Object value = property.get(message);
+
+         if (value == null)
+         {
+            return operator == EQUAL ? FALSE : UNKNOWN;
+         }
+
+         if (operator != EQUAL && !(value instanceof Comparable))
+         {
+            // the interpreter fails the whole selector on this
+            throw new ClassCastException(value.getClass() + " can't be compared");
+         }
+
+         int comparison = compareNumber(value, constant);
+
+         switch (operator)
+         {
+            case EQUAL:
+               return result(comparison == 0);
+            case GREATER:
+               return result(comparison != INCOMPARABLE && comparison > 0);
+            case GREATER_EQUAL:
+               return result(comparison != INCOMPARABLE && comparison >= 0);
+            case LESS:
+               return result(comparison < 0);
+            default:
+               return result(comparison <= 0);
+         }
+      }
+   }
+
+   private static final class Like extends Evaluator
+   {
+      private final Property property;
+
+      private final Pattern pattern;
+
+      Like(final Property property, final Pattern pattern)
+      {
+         this.property = property;
+         this.pattern = pattern;
+      }
+
+      @Override
+      int evaluate(final ServerMessage message)
+      {
+         Object value = property.get(message);
+
+         if (value == null)
+         {
+            return UNKNOWN;
+         }
+
+         if (!(value instanceof SimpleString) && !(value instanceof String))
+         {
+            return FALSE;
+         }
+
+         // SimpleString is a CharSequence, no need for a String here
+         return result(pattern.matcher((CharSequence) value).matches());
+      }
+   }
+
+   private static final class In extends Evaluator
+   {
+      private final Property property;
+
+      private final Set<SimpleString> values;
+
+      private final boolean not;
+
+      In(final Property property, final Set<SimpleString> values, final boolean not)
+      {
+         this.property = property;
+         this.values = values;
+         this.not = not;
+      }
+
+      @Override
+      int evaluate(final ServerMessage message)
+      {
+         Object value = property.get(message);
+
+         SimpleString string;
+
+         if (value instanceof SimpleString)
+         {
+            string = (SimpleString) value;
+         }
+         else if (value instanceof String)
+         {
+            string = new SimpleString((String) value);
+         }
+         else
+         {
+            return UNKNOWN;
+         }
+
+         return result(values.contains(string) ^ not);
+      }
+   }
+
+   private static final class Interpreted extends Evaluator
+   {
+      private final BooleanExpression expression;
+
+      Interpreted(final BooleanExpression expression)
+      {
+         this.expression = expression;
+      }
+
+      @Override
+      int evaluate(final ServerMessage message) throws Exception
+      {
+         Boolean result = (Boolean) expression.evaluate(new FilterImpl.FilterableServerMessage(message));
+
+         return result == null ? UNKNOWN : result(result);
+      }
+   }
+}
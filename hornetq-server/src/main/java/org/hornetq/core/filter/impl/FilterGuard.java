@@ -0,0 +1,86 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.filter.impl;
+
+import java.util.Set;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.server.ServerMessage;
+
+/**
+ * The values a string property must have for a filter to match.
+ * <p/>
+ * It comes from an equality or an IN on the property, possibly combined with AND, or with OR on the same property.
+ * A message whose value is not one of them will never match the filter, which lets filters be indexed by value.
+ * The filter still has to be evaluated on the messages that pass the guard.
+ */
+public final class FilterGuard
+{
+   private final FilterCompiler.Property property;
+
+   private final Set<SimpleString> values;
+
+   FilterGuard(final FilterCompiler.Property property, final Set<SimpleString> values)
+   {
+      this.property = property;
+      this.values = values;
+   }
+
+   /**
+    * @return the guard of the filter, null if it has none
+    */
+   public static FilterGuard getGuard(final Filter filter)
+   {
+      return filter instanceof FilterImpl ? ((FilterImpl) filter).getGuard() : null;
+   }
+
+   public SimpleString getPropertyName()
+   {
+      return property.name;
+   }
+
+   public Set<SimpleString> getValues()
+   {
+      return values;
+   }
+
+   /**
+    * @return the value of the property on the message, null if it is not set or not a string
+    */
+   public SimpleString getValue(final ServerMessage message)
+   {
+      Object value = property.get(message);
+
+      if (value instanceof SimpleString)
+      {
+         return (SimpleString) value;
+      }
+      else if (value instanceof String)
+      {
+         return new SimpleString((String) value);
+      }
+      return null;
+   }
+
+   FilterCompiler.Property getProperty()
+   {
+      return property;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "FilterGuard [" + property.name + " in " + values + "]";
+   }
+}
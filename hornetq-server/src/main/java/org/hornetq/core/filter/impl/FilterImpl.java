@@ -62,7 +62,9 @@ public class FilterImpl implements Filter
 
    private final SimpleString sfilterString;
 
-   private final BooleanExpression booleanExpression;
+   private final FilterCompiler.Evaluator evaluator;
+
+   private final FilterGuard guard;
 
    // Static ---------------------------------------------------------
 
@@ -104,7 +106,8 @@ public class FilterImpl implements Filter
    private FilterImpl(final SimpleString str, final BooleanExpression expression)
    {
       sfilterString = str;
-      this.booleanExpression = expression;
+      this.evaluator = FilterCompiler.compile(expression);
+      this.guard = FilterCompiler.guard(expression);
    }
 
    // Filter implementation ---------------------------------------------------------------------
@@ -114,12 +117,11 @@ public class FilterImpl implements Filter
       return sfilterString;
    }
 
-   public synchronized boolean match(final ServerMessage message)
+   public boolean match(final ServerMessage message)
    {
       try
       {
-         boolean result = booleanExpression.matches(new FilterableServerMessage(message));
-         return result;
+         return evaluator.evaluate(message) == FilterCompiler.TRUE;
       }
       catch (Exception e)
       {
@@ -128,6 +130,11 @@ public class FilterImpl implements Filter
       }
    }
 
+   FilterGuard getGuard()
+   {
+      return guard;
+   }
+
    @Override
    public int hashCode()
    {
@@ -198,7 +205,10 @@ public class FilterImpl implements Filter
       }
    }
 
-   private static class FilterableServerMessage implements Filterable
+   /**
+    * Used by the interpreter on the parts of a selector that are not compiled.
+    */
+   static class FilterableServerMessage implements Filterable
    {
       private final ServerMessage message;
 
@@ -131,7 +131,7 @@ public class AddressControlImpl extends AbstractControl implements AddressContro
       clearIO();
       try
       {
-         Set<Role> roles = securityRepository.getMatch(address.toString());
+         Set<Role> roles = securityRepository.getMatch(address);
 
          Object[] objRoles = new Object[roles.size()];
 
@@ -162,7 +162,7 @@ public class AddressControlImpl extends AbstractControl implements AddressContro
       try
       {
          JSONArray json = new JSONArray();
-         Set<Role> roles = securityRepository.getMatch(address.toString());
+         Set<Role> roles = securityRepository.getMatch(address);
 
          for (Role role : roles)
          {
@@ -265,6 +265,45 @@ public class AddressControlImpl extends AbstractControl implements AddressContro
       }
    }
 
+   public long getPageCacheHits() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheHits();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPageCacheMisses() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheMisses();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getPageCacheEvictions() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getCursorProvider().getCacheEvictions();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    @Override
    protected MBeanOperationInfo[] fillMBeanOperationInfo()
    {
@@ -47,6 +47,9 @@ import org.hornetq.api.core.management.QueueControl;
 import org.hornetq.core.config.BridgeConfiguration;
 import org.hornetq.core.config.Configuration;
 import org.hornetq.core.config.DivertConfiguration;
+import org.hornetq.core.journal.Journal;
+import org.hornetq.core.journal.impl.JournalFile;
+import org.hornetq.core.journal.impl.TimedBuffer;
 import org.hornetq.core.messagecounter.MessageCounterManager;
 import org.hornetq.core.messagecounter.impl.MessageCounterManagerImpl;
 import org.hornetq.core.persistence.StorageManager;
@@ -252,7 +255,7 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       clearIO();
       try
       {
-         return configuration.getJournalType() == JournalType.ASYNCIO ? configuration.getJournalBufferSize_AIO()
+         return isAIOJournal() ? configuration.getJournalBufferSize_AIO()
                : configuration.getJournalBufferSize_NIO();
       }
       finally
@@ -268,7 +271,7 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       clearIO();
       try
       {
-         return configuration.getJournalType() == JournalType.ASYNCIO ? configuration.getJournalBufferTimeout_AIO()
+         return isAIOJournal() ? configuration.getJournalBufferTimeout_AIO()
                : configuration.getJournalBufferTimeout_NIO();
       }
       finally
@@ -277,6 +280,57 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       }
    }
 
+   public int getJournalBufferCurrentTimeout()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         TimedBuffer timedBuffer = getMessageJournalBuffer();
+
+         return timedBuffer == null ? 0 : timedBuffer.getTimeout();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public double getJournalBufferAverageBatchSize()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         TimedBuffer timedBuffer = getMessageJournalBuffer();
+
+         return timedBuffer == null ? 0 : timedBuffer.getAverageBatchSize();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalSyncLatency()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         TimedBuffer timedBuffer = getMessageJournalBuffer();
+
+         return timedBuffer == null ? 0 : timedBuffer.getAverageSyncLatency();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public void setFailoverOnServerShutdown(boolean failoverOnServerShutdown)
    {
       checkStarted();
@@ -315,7 +369,7 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       clearIO();
       try
       {
-         return configuration.getJournalType() == JournalType.ASYNCIO ? configuration.getJournalMaxIO_AIO()
+         return isAIOJournal() ? configuration.getJournalMaxIO_AIO()
                : configuration.getJournalMaxIO_NIO();
       }
       finally
@@ -399,6 +453,52 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       }
    }
 
+   public long getJournalLiveSize()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         long liveSize = 0;
+
+         for (JournalFile file : getMessageJournalFiles())
+         {
+            liveSize += file.getLiveSize();
+         }
+
+         return liveSize;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getJournalGarbageSize()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         JournalFile[] files = getMessageJournalFiles();
+
+         long garbageSize = (long) files.length * configuration.getJournalFileSize();
+
+         for (JournalFile file : files)
+         {
+            garbageSize -= file.getLiveSize();
+         }
+
+         return garbageSize;
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public boolean isPersistenceEnabled()
    {
       checkStarted();
@@ -489,6 +589,51 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       }
    }
 
+   public long getSecurityCacheHitCount()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return server.getSecurityStore().getCacheHitCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getSecurityCacheMissCount()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return server.getSecurityStore().getCacheMissCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public int getSecurityCacheSize()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return server.getSecurityStore().getCacheSize();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public boolean isClustered()
    {
       checkStarted();
@@ -1995,6 +2140,29 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       return MBeanInfoHelper.getMBeanOperationsInfo(HornetQServerControl.class);
    }
 
+   /**
+    * io_uring shares the AIO settings, the mapped journal the NIO ones.
+    */
+   private boolean isAIOJournal()
+   {
+      return configuration.getJournalType() == JournalType.ASYNCIO ||
+         configuration.getJournalType() == JournalType.IOURING;
+   }
+
+   private JournalFile[] getMessageJournalFiles()
+   {
+      Journal journal = storageManager.getMessageJournal();
+
+      return journal == null ? new JournalFile[0] : journal.getDataFiles();
+   }
+
+   private TimedBuffer getMessageJournalBuffer()
+   {
+      Journal journal = storageManager.getMessageJournal();
+
+      return journal == null ? null : journal.getFileFactory().getTimedBuffer();
+   }
+
    private void checkStarted()
    {
       if (!server.isStarted())
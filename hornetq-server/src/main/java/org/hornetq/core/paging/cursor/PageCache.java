@@ -13,7 +13,6 @@
 package org.hornetq.core.paging.cursor;
 
 import org.hornetq.core.paging.PagedMessage;
-import org.hornetq.utils.SoftValueHashMap;
 
 /**
  * A PageCache
@@ -22,7 +21,7 @@ import org.hornetq.utils.SoftValueHashMap;
  *
  *
  */
-public interface PageCache extends SoftValueHashMap.ValueCache
+public interface PageCache
 {
    long getPageId();
 
@@ -32,6 +31,11 @@ public interface PageCache extends SoftValueHashMap.ValueCache
 
    PagedMessage[] getMessages();
 
+   /**
+    * @return the memory taken by the messages on this cache, estimated from their encoded size
+    */
+   long getSizeBytes();
+
    /**
     * @return whether this cache is still being updated
     */
@@ -43,6 +43,11 @@ public interface PageCursorProvider
 
    void processReload() throws Exception;
 
+   /**
+    * Resumes a provider stopped along with its store.
+    */
+   void start();
+
    void stop();
 
    void flushExecutors();
@@ -65,6 +70,54 @@ public interface PageCursorProvider
 
    void setCacheMaxSize(int size);
 
+   /**
+    * @param size the bytes the cached pages of this address may take, -1 for no limit
+    */
+   void setCacheMaxSizeBytes(long size);
+
+   /**
+    * @return the memory taken by the cached pages, estimated from the encoded size of their messages
+    */
+   long getCacheSizeBytes();
+
+   /**
+    * @return how many times a page was found on the cache
+    */
+   long getCacheHits();
+
+   /**
+    * @return how many times a page had to be read as it wasn't on the cache
+    */
+   long getCacheMisses();
+
+   /**
+    * @return how many pages were evicted from the cache to keep it under its limits
+    */
+   long getCacheEvictions();
+
+   /**
+    * @param pages the most pages to read ahead of a subscription, 0 for no read-ahead
+    */
+   void setMaxReadAhead(int pages);
+
+   /**
+    * @param pageIndex whether single messages may be read through the index of their page
+    */
+   void setPageIndex(boolean pageIndex);
+
+   /**
+    * Reads the pages following pageId into the cache asynchronously, as many as can be read while a page is consumed.
+    *
+    * @param pageId the page a subscription just started reading
+    * @param pageConsumeTime the nanoseconds the subscription took to consume its previous page, 0 if unknown
+    */
+   void scheduleReadAhead(long pageId, long pageConsumeTime);
+
+   /**
+    * @return how many pages were read ahead of the subscriptions
+    */
+   long getReadAheads();
+
    /**
     * @param pageCursorImpl
     */
@@ -87,6 +87,11 @@ public interface PageSubscription
     */
    long getFirstPage();
 
+   /**
+    * @return the page the last message read by the iterators of this subscription was on, or -1 if none was read
+    */
+   long getReadingPage();
+
    // Reload operations
 
    /**
@@ -35,6 +35,8 @@ public class LivePageCacheImpl implements LivePageCache
 
    private boolean isLive = true;
 
+   private volatile long sizeBytes;
+
    public LivePageCacheImpl(final Page page)
    {
       this.page = page;
@@ -101,6 +103,13 @@ public class LivePageCacheImpl implements LivePageCache
          ((LargeServerMessage)message.getMessage()).incrementDelayDeletionCount();
       }
       this.messages.add(message);
+      sizeBytes += message.getEncodeSize();
+   }
+
+   @Override
+   public long getSizeBytes()
+   {
+      return sizeBytes;
    }
 
    @Override
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.paging.cursor.impl;
+
+import java.util.Set;
+
+import org.hornetq.utils.ConcurrentHashSet;
+
+/**
+ * The memory shared by the page caches of all the addresses.
+ * <p>
+ * Each {@link PageCursorProviderImpl} bounds its own cache by number of pages and by bytes. Once the pages cached by
+ * all of them take more than maxSize bytes, the least recently used page that isn't pinned is evicted, whatever
+ * address it belongs to. Pinned pages (live pages and the pages subscriptions are reading) are never evicted, so they
+ * may take the cache over its budget.
+ */
+public final class PageCacheBudget
+{
+   private final long maxSize;
+
+   private final Set<PageCursorProviderImpl> providers = new ConcurrentHashSet<PageCursorProviderImpl>();
+
+   /**
+    * @param maxSize the bytes the page caches of all addresses may take, -1 if they are only bounded per address
+    */
+   public PageCacheBudget(final long maxSize)
+   {
+      this.maxSize = maxSize;
+   }
+
+   public long getMaxSize()
+   {
+      return maxSize;
+   }
+
+   /**
+    * @return the bytes taken by the page caches of all addresses
+    */
+   public long getSize()
+   {
+      long size = 0;
+      for (PageCursorProviderImpl provider : providers)
+      {
+         size += provider.getCacheSizeBytes();
+      }
+      return size;
+   }
+
+   /**
+    * To be called after a provider cached a page, outside of any lock of the provider.
+    */
+   void checkSize()
+   {
+      // the least recently used pages are only looked for once over the budget
+      if (maxSize < 0 || getSize() <= maxSize)
+      {
+         return;
+      }
+
+      // one eviction at a time, otherwise concurrent callers would evict more than needed
+      synchronized (this)
+      {
+         while (true)
+         {
+            long size = 0;
+            PageCursorProviderImpl victim = null;
+            long victimLastUsed = Long.MAX_VALUE;
+
+            for (PageCursorProviderImpl candidate : providers)
+            {
+               size += candidate.getCacheSizeBytes();
+
+               long lastUsed = candidate.getLeastRecentlyUsed();
+               if (lastUsed != Long.MAX_VALUE && (victim == null || lastUsed < victimLastUsed))
+               {
+                  victim = candidate;
+                  victimLastUsed = lastUsed;
+               }
+            }
+
+            if (size <= maxSize || victim == null || !victim.evictLeastRecentlyUsed())
+            {
+               return;
+            }
+         }
+      }
+   }
+
+   void add(final PageCursorProviderImpl provider)
+   {
+      providers.add(provider);
+   }
+
+   void remove(final PageCursorProviderImpl provider)
+   {
+      providers.remove(provider);
+   }
+}
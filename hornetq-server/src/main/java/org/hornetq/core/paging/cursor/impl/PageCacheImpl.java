@@ -37,6 +37,8 @@ class PageCacheImpl implements PageCache
 
    private PagedMessage[] messages;
 
+   private volatile long sizeBytes;
+
    private final Page page;
 
    // Static --------------------------------------------------------
@@ -89,6 +91,18 @@ class PageCacheImpl implements PageCache
    public void setMessages(final PagedMessage[] messages)
    {
       this.messages = messages;
+
+      long size = 0;
+      for (PagedMessage message : messages)
+      {
+         size += message.getEncodeSize();
+      }
+      sizeBytes = size;
+   }
+
+   public long getSizeBytes()
+   {
+      return sizeBytes;
    }
 
    public int getNumberOfMessages()
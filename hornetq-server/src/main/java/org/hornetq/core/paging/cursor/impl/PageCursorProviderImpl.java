@@ -14,11 +14,16 @@ package org.hornetq.core.paging.cursor.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.core.filter.Filter;
 import org.hornetq.core.paging.PagedMessage;
@@ -35,7 +40,6 @@ import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.transaction.Transaction;
 import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.utils.FutureLatch;
-import org.hornetq.utils.SoftValueHashMap;
 /**
  * A PageProviderIMpl
  *
@@ -68,7 +72,54 @@ public class PageCursorProviderImpl implements PageCursorProvider
    // This is the same executor used at the PageStoreImpl. One Executor per pageStore
    private final Executor executor;
 
-   private final SoftValueHashMap<Long, PageCache> softCache;
+   // The pages are read ahead on an executor of their own, as the one of the store also runs its cleanup and the
+   // tasks of its subscriptions
+   private final Executor readAheadExecutor;
+
+   /**
+    * The cached pages, evicted once there are more than maxCacheSize of them or they take more than maxCacheSizeBytes,
+    * or when the pages of all addresses go over the cacheBudget
+    */
+   private final Map<Long, CachedPage> cache = new HashMap<Long, CachedPage>();
+
+   private volatile int maxCacheSize;
+
+   private volatile long maxCacheSizeBytes;
+
+   private final PageCacheBudget cacheBudget;
+
+   /**
+    * Set once the provider is stopped, so no page is read ahead into its cache any more. Guarded by the cache
+    */
+   private boolean stopped;
+
+   private final AtomicLong cacheHits = new AtomicLong(0);
+
+   private final AtomicLong cacheMisses = new AtomicLong(0);
+
+   private final AtomicLong cacheEvictions = new AtomicLong(0);
+
+   /**
+    * Whether the pages of this address are indexed, only then single messages are read through the index
+    */
+   private volatile boolean pageIndex;
+
+   /**
+    * The most pages read ahead of a subscription, 0 if they are only read once needed
+    */
+   private volatile int maxReadAhead;
+
+   /**
+    * The pages scheduled to be read ahead, guarded by the cache
+    */
+   private final Set<Long> pendingReadAheads = new HashSet<Long>();
+
+   private final AtomicLong readAheads = new AtomicLong(0);
+
+   /**
+    * Moving average of the nanoseconds taken to read a page
+    */
+   private volatile long pageReadTime;
 
    private final ConcurrentMap<Long, PageSubscription> activeCursors = new ConcurrentHashMap<Long, PageSubscription>();
 
@@ -80,11 +131,27 @@ public class PageCursorProviderImpl implements PageCursorProvider
                                  final StorageManager storageManager,
                                  final Executor executor,
                                  final int maxCacheSize)
+   {
+      this(pagingStore, storageManager, executor, maxCacheSize, -1, new PageCacheBudget(-1), executor);
+   }
+
+   public PageCursorProviderImpl(final PagingStore pagingStore,
+                                 final StorageManager storageManager,
+                                 final Executor executor,
+                                 final int maxCacheSize,
+                                 final long maxCacheSizeBytes,
+                                 final PageCacheBudget cacheBudget,
+                                 final Executor readAheadExecutor)
    {
       this.pagingStore = pagingStore;
       this.storageManager = storageManager;
       this.executor = executor;
-      this.softCache = new SoftValueHashMap<Long, PageCache>(maxCacheSize);
+      this.readAheadExecutor = readAheadExecutor;
+      this.maxCacheSize = maxCacheSize;
+      this.maxCacheSizeBytes = maxCacheSizeBytes;
+      this.cacheBudget = cacheBudget;
+
+      cacheBudget.add(this);
    }
 
    // Public --------------------------------------------------------
@@ -114,6 +181,13 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    public PagedMessage getMessage(final PagePosition pos)
    {
+      PagedMessage indexedMessage = readIndexedMessage(pos);
+
+      if (indexedMessage != null)
+      {
+         return indexedMessage;
+      }
+
       PageCache cache = getPageCache(pos.getPageNr());
 
       if (cache == null || pos.getMessageNr() >= cache.getNumberOfMessages())
@@ -133,37 +207,65 @@ public class PageCursorProviderImpl implements PageCursorProvider
    }
 
    public PageCache getPageCache(final long pageId)
+   {
+      return getPageCache(pageId, false);
+   }
+
+   /**
+    * @param readAhead whether the page is read ahead of the subscriptions, it's then only read if it's not cached
+    *                  and still there, and it doesn't count on the hits and misses of the cache
+    * @return the cache of the page, null if there is no such page or it was read ahead already
+    */
+   private PageCache getPageCache(final long pageId, final boolean readAhead)
    {
       try
       {
          boolean needToRead = false;
-         PageCache cache = null;
-         synchronized (softCache)
+         PageCache pageCache = null;
+         synchronized (cache)
          {
             if (pageId > pagingStore.getCurrentWritingPage())
             {
                return null;
             }
 
-            cache = softCache.get(pageId);
-            if (cache == null)
+            CachedPage cached = cache.get(pageId);
+            if (readAhead && (stopped || cached != null || pageId < pagingStore.getFirstPage()))
+            {
+               // stopped, cached by the subscription already, or depaged and about to be deleted by cleanup
+               return null;
+            }
+
+            if (cached == null)
             {
+               // checked on the same lock as cleanup looks for the cached page before deleting it
                if (!pagingStore.checkPageFileExists((int)pageId))
                {
                   return null;
                }
 
-               cache = createPageCache(pageId);
+               if (!readAhead)
+               {
+                  cacheMisses.incrementAndGet();
+               }
+               pageCache = createPageCache(pageId);
                needToRead = true;
                // anyone reading from this cache will have to wait reading to finish first
                // we also want only one thread reading this cache
-               cache.lock();
+               pageCache.lock();
                if (isTrace)
                {
                   HornetQServerLogger.LOGGER.trace("adding " + pageId +  " into cursor = " + this.pagingStore.getAddress());
                }
-               softCache.put(pageId, cache);
+               cached = new CachedPage(pageCache);
+               cache.put(pageId, cached);
+            }
+            else
+            {
+               cacheHits.incrementAndGet();
+               pageCache = cached.pageCache;
             }
+            cached.lastUsed = System.nanoTime();
          }
 
          // Reading is done outside of the synchronized block, however
@@ -176,10 +278,16 @@ public class PageCursorProviderImpl implements PageCursorProvider
                page = pagingStore.createPage((int)pageId);
 
                storageManager.beforePageRead();
+
+               long start = System.nanoTime();
+
                page.open();
 
                List<PagedMessage> pgdMessages = page.read(storageManager);
-               cache.setMessages(pgdMessages.toArray(new PagedMessage[pgdMessages.size()]));
+               pageCache.setMessages(pgdMessages.toArray(new PagedMessage[pgdMessages.size()]));
+
+               long readTime = System.nanoTime() - start;
+               pageReadTime = pageReadTime == 0 ? readTime : (pageReadTime * 3 + readTime) / 4;
             }
             finally
             {
@@ -194,11 +302,14 @@ public class PageCursorProviderImpl implements PageCursorProvider
                {
                }
                storageManager.afterPageRead();
-               cache.unlock();
+               pageCache.unlock();
             }
+
+            // only now the size of the page is known
+            checkCacheSize();
          }
 
-         return cache;
+         return pageCache;
       }
       catch (Exception e)
       {
@@ -206,32 +317,194 @@ public class PageCursorProviderImpl implements PageCursorProvider
       }
    }
 
-   public void addPageCache(PageCache cache)
+   /**
+    * A single message on a page that is not cached (e.g. a redelivery or an ack on a page that was mostly consumed
+    * already) is read through the index of the page when there is one, instead of reading and caching the whole page.
+    *
+    * @return the message, or null if the page is cached or it couldn't be read through its index
+    */
+   private PagedMessage readIndexedMessage(final PagePosition pos)
    {
-      synchronized (softCache)
+      if (!pageIndex)
       {
-         softCache.put(cache.getPageId(), cache);
+         return null;
       }
+
+      final long pageId = pos.getPageNr();
+
+      try
+      {
+         synchronized (cache)
+         {
+            if (pageId >= pagingStore.getCurrentWritingPage() || cache.containsKey(pageId) ||
+               !pagingStore.checkPageFileExists((int)pageId))
+            {
+               return null;
+            }
+         }
+
+         Page page = null;
+         try
+         {
+            page = pagingStore.createPage((int)pageId);
+
+            storageManager.beforePageRead();
+            page.open();
+
+            List<PagedMessage> pgdMessages = page.read(storageManager, pos.getMessageNr(), 1);
+
+            return pgdMessages != null ? pgdMessages.get(0) : null;
+         }
+         finally
+         {
+            try
+            {
+               if (page != null)
+               {
+                  page.close();
+               }
+            }
+            catch (Throwable ignored)
+            {
+            }
+            storageManager.afterPageRead();
+         }
+      }
+      catch (Exception e)
+      {
+         throw new RuntimeException("Couldn't complete paging due to an IO Exception on Paging - " + e.getMessage(), e);
+      }
+   }
+
+   public void addPageCache(PageCache pageCache)
+   {
+      synchronized (cache)
+      {
+         CachedPage cached = new CachedPage(pageCache);
+         cached.lastUsed = System.nanoTime();
+         cache.put(pageCache.getPageId(), cached);
+      }
+
+      checkCacheSize();
    }
 
    public void setCacheMaxSize(final int size)
    {
-      softCache.setMaxElements(size);
+      maxCacheSize = size;
+   }
+
+   public void setCacheMaxSizeBytes(final long size)
+   {
+      maxCacheSizeBytes = size;
    }
 
    public int getCacheSize()
    {
-      synchronized (softCache)
+      synchronized (cache)
+      {
+         return cache.size();
+      }
+   }
+
+   public long getCacheSizeBytes()
+   {
+      synchronized (cache)
+      {
+         long size = 0;
+         for (CachedPage cached : cache.values())
+         {
+            size += cached.pageCache.getSizeBytes();
+         }
+         return size;
+      }
+   }
+
+   public long getCacheHits()
+   {
+      return cacheHits.get();
+   }
+
+   public long getCacheMisses()
+   {
+      return cacheMisses.get();
+   }
+
+   public long getCacheEvictions()
+   {
+      return cacheEvictions.get();
+   }
+
+   public void setMaxReadAhead(final int pages)
+   {
+      maxReadAhead = pages;
+   }
+
+   public void setPageIndex(final boolean pageIndex)
+   {
+      this.pageIndex = pageIndex;
+   }
+
+   public long getReadAheads()
+   {
+      return readAheads.get();
+   }
+
+   public void scheduleReadAhead(final long pageId, final long pageConsumeTime)
+   {
+      int pages = getReadAheadDepth(pageConsumeTime);
+
+      for (long nextPage = pageId + 1; nextPage <= pageId + pages; nextPage++)
       {
-         return softCache.size();
+         synchronized (cache)
+         {
+            // the page being written is cached as it's written
+            if (stopped || nextPage >= pagingStore.getCurrentWritingPage())
+            {
+               return;
+            }
+
+            if (cache.containsKey(nextPage) || !pendingReadAheads.add(nextPage))
+            {
+               continue;
+            }
+         }
+
+         final long readAheadPage = nextPage;
+
+         readAheadExecutor.execute(new Runnable()
+         {
+            public void run()
+            {
+               try
+               {
+                  if (getPageCache(readAheadPage, true) != null)
+                  {
+                     readAheads.incrementAndGet();
+                  }
+               }
+               catch (Throwable e)
+               {
+                  // the subscription will read the page itself when it gets there
+                  HornetQServerLogger.LOGGER.debug("Couldn't read ahead page " + readAheadPage + " of " +
+                                                      pagingStore.getAddress(), e);
+               }
+               finally
+               {
+                  synchronized (cache)
+                  {
+                     pendingReadAheads.remove(readAheadPage);
+                  }
+               }
+            }
+         });
       }
    }
 
    public void clearCache()
    {
-      synchronized (softCache)
+      synchronized (cache)
       {
-         softCache.clear();
+         cache.clear();
       }
    }
 
@@ -267,25 +540,52 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    }
 
+   public void start()
+   {
+      synchronized (cache)
+      {
+         stopped = false;
+      }
+
+      cacheBudget.add(this);
+   }
+
    public void stop()
    {
+      synchronized (cache)
+      {
+         stopped = true;
+      }
+
       for (PageSubscription cursor : activeCursors.values())
       {
          cursor.stop();
       }
 
       waitForFuture();
+
+      // a page still being read ahead would be cached after the cache is cleared
+      waitForFuture(readAheadExecutor);
+
+      cacheBudget.remove(this);
+
+      clearCache();
    }
 
    private void waitForFuture()
+   {
+      waitForFuture(executor);
+   }
+
+   private void waitForFuture(final Executor executorToWait)
    {
       FutureLatch future = new FutureLatch();
 
-      executor.execute(future);
+      executorToWait.execute(future);
 
       while (!future.await(10000))
       {
-         HornetQServerLogger.LOGGER.timedOutStoppingPagingCursor(future, executor);
+         HornetQServerLogger.LOGGER.timedOutStoppingPagingCursor(future, executorToWait);
       }
    }
 
@@ -511,11 +811,11 @@ public class PageCursorProviderImpl implements PageCursorProvider
       {
          for (Page depagedPage : depagedPages)
          {
-            PageCache cache;
+            CachedPage cached;
             PagedMessage[] pgdMessages;
-            synchronized (softCache)
+            synchronized (cache)
             {
-               cache = softCache.get((long)depagedPage.getPageId());
+               cached = cache.get((long)depagedPage.getPageId());
             }
 
             if (isTrace)
@@ -523,7 +823,18 @@ public class PageCursorProviderImpl implements PageCursorProvider
                HornetQServerLogger.LOGGER.trace("Removing page " + depagedPage.getPageId() + " from page-cache");
             }
 
-            if (cache == null)
+            pgdMessages = null;
+
+            if (cached != null)
+            {
+               // a page read ahead may still be being read
+               cached.pageCache.lock();
+               cached.pageCache.unlock();
+
+               pgdMessages = cached.pageCache.getMessages();
+            }
+
+            if (pgdMessages == null)
             {
                // The page is not on cache any more
                // We need to read the page-file before deleting it
@@ -551,17 +862,13 @@ public class PageCursorProviderImpl implements PageCursorProvider
                depagedPage.close();
                pgdMessages = pgdMessagesList.toArray(new PagedMessage[pgdMessagesList.size()]);
             }
-            else
-            {
-               pgdMessages = cache.getMessages();
-            }
 
             depagedPage.delete(pgdMessages);
             onDeletePage(depagedPage);
 
-            synchronized (softCache)
+            synchronized (cache)
             {
-               softCache.remove((long)depagedPage.getPageId());
+               cache.remove((long)depagedPage.getPageId());
             }
          }
       }
@@ -623,9 +930,12 @@ public class PageCursorProviderImpl implements PageCursorProvider
    public void printDebug()
    {
       System.out.println("Debug information for PageCursorProviderImpl:");
-      for (PageCache cache : softCache.values())
+      synchronized (cache)
       {
-         System.out.println("Cache " + cache);
+         for (CachedPage cached : cache.values())
+         {
+            System.out.println("Cache " + cached.pageCache);
+         }
       }
    }
 
@@ -634,13 +944,141 @@ public class PageCursorProviderImpl implements PageCursorProvider
    // Protected -----------------------------------------------------
 
    /* Protected as we may let test cases to instrument the test */
-   protected PageCacheImpl createPageCache(final long pageId) throws Exception
+   protected PageCache createPageCache(final long pageId) throws Exception
    {
       return new PageCacheImpl(pagingStore.createPage((int)pageId));
    }
 
    // Private -------------------------------------------------------
 
+   /**
+    * Enough pages to be read while the subscription consumes the page it's on, so it never waits on a read.
+    * The pages read ahead are kept within the cache, or they would be evicted before they are used.
+    */
+   private int getReadAheadDepth(final long pageConsumeTime)
+   {
+      int depth = maxReadAhead;
+
+      if (depth <= 0)
+      {
+         return 0;
+      }
+
+      long readTime = pageReadTime;
+
+      if (pageConsumeTime > 0 && readTime > 0)
+      {
+         depth = (int)Math.min(depth, 1 + readTime / pageConsumeTime);
+      }
+      else
+      {
+         // nothing observed yet
+         depth = 1;
+      }
+
+      int maxSize = maxCacheSize;
+
+      if (maxSize > 0)
+      {
+         depth = Math.min(depth, maxSize - 1);
+      }
+
+      return depth;
+   }
+
+   /**
+    * Evicts pages over the limits of this address, then over the budget of all addresses.
+    */
+   private void checkCacheSize()
+   {
+      synchronized (cache)
+      {
+         int maxSize = maxCacheSize;
+         long maxSizeBytes = maxCacheSizeBytes;
+
+         long sizeBytes = maxSizeBytes >= 0 ? getCacheSizeBytes() : 0;
+
+         while (maxSize > 0 && cache.size() > maxSize || maxSizeBytes >= 0 && sizeBytes > maxSizeBytes)
+         {
+            CachedPage evicted = evict(findLeastRecentlyUsed());
+
+            if (evicted == null)
+            {
+               break;
+            }
+
+            sizeBytes -= evicted.pageCache.getSizeBytes();
+         }
+      }
+
+      cacheBudget.checkSize();
+   }
+
+   /**
+    * @return when the least recently used page that could be evicted was used, Long.MAX_VALUE if there's none
+    */
+   long getLeastRecentlyUsed()
+   {
+      synchronized (cache)
+      {
+         CachedPage lru = findLeastRecentlyUsed();
+         return lru != null ? lru.lastUsed : Long.MAX_VALUE;
+      }
+   }
+
+   /**
+    * @return whether there was an unpinned page to evict
+    */
+   boolean evictLeastRecentlyUsed()
+   {
+      synchronized (cache)
+      {
+         return evict(findLeastRecentlyUsed()) != null;
+      }
+   }
+
+   /**
+    * Live pages and the pages being read by the subscriptions are pinned, evicting them would only have the
+    * subscriptions read them again right away.
+    */
+   private CachedPage findLeastRecentlyUsed()
+   {
+      Set<Long> pinnedPages = new HashSet<Long>();
+      for (PageSubscription subscription : activeCursors.values())
+      {
+         pinnedPages.add(subscription.getReadingPage());
+      }
+
+      CachedPage lru = null;
+      for (CachedPage cached : cache.values())
+      {
+         if (!cached.pageCache.isLive() && !pinnedPages.contains(cached.pageCache.getPageId()) &&
+            (lru == null || cached.lastUsed < lru.lastUsed))
+         {
+            lru = cached;
+         }
+      }
+      return lru;
+   }
+
+   private CachedPage evict(final CachedPage cached)
+   {
+      if (cached == null)
+      {
+         return null;
+      }
+
+      if (isTrace)
+      {
+         HornetQServerLogger.LOGGER.trace("Evicting page " + cached.pageCache.getPageId() + " from the page-cache of " +
+                                             pagingStore.getAddress());
+      }
+
+      cache.remove(cached.pageCache.getPageId());
+      cacheEvictions.incrementAndGet();
+      return cached;
+   }
+
    /**
     * This method is synchronized because we want it to be atomic with the cursors being used
     */
@@ -674,4 +1112,19 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    // Inner classes -------------------------------------------------
 
+   private static final class CachedPage
+   {
+      private final PageCache pageCache;
+
+      /**
+       * System.nanoTime() of the last lookup, guarded by the cache
+       */
+      private long lastUsed;
+
+      private CachedPage(final PageCache pageCache)
+      {
+         this.pageCache = pageCache;
+      }
+   }
+
 }
@@ -95,6 +95,19 @@ final class PageSubscriptionImpl implements PageSubscription
 
    private final AtomicLong deliveredCount = new AtomicLong(0);
 
+   /**
+    * The page being read by the iterators, pinned on the page cache
+    */
+   private volatile long readingPage = -1;
+
+   /**
+    * When the iterators started reading readingPage, and moving average of the nanoseconds they took per page.
+    * Guarded by this subscription, they tune how many pages are read ahead.
+    */
+   private long readingPageStart;
+
+   private long pageConsumeTime;
+
    // We only store the position for redeliveries. They will be read from the SoftCache again during delivery.
    private final java.util.Queue<PagePosition> redeliveries = new LinkedList<PagePosition>();
 
@@ -410,6 +423,10 @@ final class PageSubscriptionImpl implements PageSubscription
 
          if (serverMessage != null)
          {
+            if (readingPage != retPos.getPageNr())
+            {
+               onReadingPage(retPos.getPageNr());
+            }
             return cursorProvider.newReference(retPos, serverMessage, this);
          }
          else
@@ -419,6 +436,23 @@ final class PageSubscriptionImpl implements PageSubscription
       }
    }
 
+   private void onReadingPage(final long pageNr)
+   {
+      long now = System.nanoTime();
+
+      // only moving forward means a page was consumed, the iterators may also start over from an earlier page
+      if (readingPage >= 0 && pageNr > readingPage)
+      {
+         long consumeTime = (now - readingPageStart) / (pageNr - readingPage);
+         pageConsumeTime = pageConsumeTime == 0 ? consumeTime : (pageConsumeTime * 3 + consumeTime) / 4;
+      }
+
+      readingPage = pageNr;
+      readingPageStart = now;
+
+      cursorProvider.scheduleReadAhead(pageNr, pageConsumeTime);
+   }
+
    private PagePosition moveNextPage(final PagePosition pos)
    {
       PagePosition retPos = pos;
@@ -572,6 +606,12 @@ final class PageSubscriptionImpl implements PageSubscription
 
    }
 
+   @Override
+   public long getReadingPage()
+   {
+      return readingPage;
+   }
+
    public void addPendingDelivery(final PagePosition position)
    {
       getPageInfo(position).incrementPendingTX();
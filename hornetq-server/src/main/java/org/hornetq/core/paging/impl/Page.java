@@ -48,6 +48,15 @@ public final class Page implements Comparable<Page>
 
    private static final byte END_BYTE = (byte) '}';
 
+   /**
+    * An entry on the index of a page is the offset and the length of one record on the page file
+    */
+   public static final int SIZE_INDEX_ENTRY = DataConstants.SIZE_INT + DataConstants.SIZE_INT;
+
+   public static final String INDEX_EXTENSION = ".index";
+
+   private static final int INDEX_BUFFER_ENTRIES = 512;
+
    // Attributes ----------------------------------------------------
 
    private final int pageId;
@@ -71,6 +80,20 @@ public final class Page implements Comparable<Page>
 
    private final SimpleString storeName;
 
+   /**
+    * Whether writes should append the position of each record to the index file
+    */
+   private boolean indexed;
+
+   private SequentialFile indexFile;
+
+   /**
+    * Index entries not written to the index file yet
+    */
+   private ByteBuffer indexBuffer;
+
+   private int indexedMessages;
+
    /**
     * A list of subscriptions containing pending counters (with non tx adds) on this page
     */
@@ -99,6 +122,15 @@ public final class Page implements Comparable<Page>
       this.pageCache = pageCache;
    }
 
+   /**
+    * Keep an index with the position of every message written to this page, so single messages or ranges can be read
+    * later through {@link #read(StorageManager, int, int)} without reading the whole page.
+    */
+   public synchronized void setIndexed(final boolean indexed)
+   {
+      this.indexed = indexed;
+   }
+
    public synchronized List<PagedMessage> read(StorageManager storage) throws Exception
    {
       if (isDebug)
@@ -188,6 +220,118 @@ public final class Page implements Comparable<Page>
       return messages;
    }
 
+   /**
+    * Reads count messages starting at firstMessage using the index of this page, decoding only their records.
+    * <p>
+    * The index isn't synced with the page, so anything it doesn't cover or records that don't match what the index
+    * says are reported by returning null, and the caller has to read the whole page instead.
+    * </p>
+    *
+    * @return the messages, or null if they couldn't be located through the index
+    */
+   public synchronized List<PagedMessage> read(final StorageManager storage,
+                                               final int firstMessage,
+                                               final int count) throws Exception
+   {
+      if (!file.isOpen())
+      {
+         throw HornetQMessageBundle.BUNDLE.invalidPageIO();
+      }
+
+      // the live page is still being written, and moving its file positions would break the next write
+      if (isLive() || firstMessage < 0 || count <= 0)
+      {
+         return null;
+      }
+
+      SequentialFile index = getIndexFile();
+
+      if (!index.isOpen())
+      {
+         if (!index.exists())
+         {
+            return null;
+         }
+         index.open();
+      }
+
+      if (((long) firstMessage + count) * Page.SIZE_INDEX_ENTRY > index.size())
+      {
+         return null;
+      }
+
+      ByteBuffer entries = ByteBuffer.allocate(count * Page.SIZE_INDEX_ENTRY);
+      index.position((long) firstMessage * Page.SIZE_INDEX_ENTRY);
+      if (index.read(entries) != entries.capacity())
+      {
+         return null;
+      }
+
+      final int lastEntry = (count - 1) * Page.SIZE_INDEX_ENTRY;
+      final int start = entries.getInt(0);
+      final int end = entries.getInt(lastEntry) + entries.getInt(lastEntry + DataConstants.SIZE_INT);
+
+      if (start < 0 || end <= start || end > file.size())
+      {
+         return null;
+      }
+
+      if (isDebug)
+      {
+         HornetQServerLogger.LOGGER.debug("reading " + count + " messages from " + firstMessage + " on page " + this.pageId +
+                                             " on address = " + storeName + " through its index");
+      }
+
+      ByteBuffer directBuffer = storage.allocateDirectBuffer(end - start);
+      HornetQBuffer fileBuffer = null;
+      try
+      {
+         file.position(start);
+         if (file.read(directBuffer) != end - start)
+         {
+            return null;
+         }
+
+         directBuffer.rewind();
+
+         fileBuffer = HornetQBuffers.wrappedBuffer(directBuffer);
+         fileBuffer.writerIndex(fileBuffer.capacity());
+
+         ArrayList<PagedMessage> messages = new ArrayList<PagedMessage>(count);
+
+         for (int i = 0; i < count; i++)
+         {
+            final int position = entries.getInt(i * Page.SIZE_INDEX_ENTRY) - start;
+            final int length = entries.getInt(i * Page.SIZE_INDEX_ENTRY + DataConstants.SIZE_INT);
+
+            if (!isRecord(fileBuffer, position, length))
+            {
+               return null;
+            }
+
+            fileBuffer.readerIndex(position + DataConstants.SIZE_BYTE + DataConstants.SIZE_INT);
+            PagedMessage msg = new PagedMessageImpl();
+            msg.decode(fileBuffer);
+            if (fileBuffer.readerIndex() != position + length - DataConstants.SIZE_BYTE)
+            {
+               return null;
+            }
+            msg.initMessage(storage);
+            messages.add(msg);
+         }
+
+         return messages;
+      }
+      finally
+      {
+         if (fileBuffer != null)
+         {
+            fileBuffer.byteBuf().unwrap().release();
+         }
+         storage.freeDirectBuffer(directBuffer);
+      }
+   }
+
    public synchronized void write(final PagedMessage message) throws Exception
    {
       if (!file.isOpen())
@@ -211,8 +355,15 @@ public final class Page implements Comparable<Page>
 
       buffer.rewind();
 
+      final int offset = size.get();
+
       file.writeDirect(buffer, false);
 
+      if (indexed)
+      {
+         appendIndex(offset, buffer.limit());
+      }
+
       if (pageCache != null)
       {
          pageCache.addLiveMessage(message);
@@ -226,6 +377,10 @@ public final class Page implements Comparable<Page>
 
    public void sync() throws Exception
    {
+      synchronized (this)
+      {
+         flushIndex();
+      }
       file.sync();
    }
 
@@ -251,6 +406,12 @@ public final class Page implements Comparable<Page>
          // leave it to the soft cache to decide when to release it now
          pageCache = null;
       }
+      flushIndex();
+      indexBuffer = null;
+      if (indexFile != null && indexFile.isOpen())
+      {
+         indexFile.close();
+      }
       file.close();
 
       Set<PageSubscriptionCounter> counters = getPendingCounters();
@@ -298,6 +459,8 @@ public final class Page implements Comparable<Page>
 
       try
       {
+         deleteIndex();
+
          if (suspiciousRecords)
          {
             HornetQServerLogger.LOGGER.pageInvalid(file.getFileName(), file.getFileName());
@@ -379,6 +542,86 @@ public final class Page implements Comparable<Page>
       return true;
    }
 
+   private static boolean isRecord(final HornetQBuffer fileBuffer, final int position, final int length)
+   {
+      return position >= 0 && length >= Page.SIZE_RECORD &&
+         position + length <= fileBuffer.capacity() &&
+         fileBuffer.getByte(position) == Page.START_BYTE &&
+         fileBuffer.getInt(position + DataConstants.SIZE_BYTE) == length - Page.SIZE_RECORD &&
+         fileBuffer.getByte(position + length - DataConstants.SIZE_BYTE) == Page.END_BYTE;
+   }
+
+   private SequentialFile getIndexFile()
+   {
+      if (indexFile == null)
+      {
+         indexFile = fileFactory.createSequentialFile(file.getFileName() + Page.INDEX_EXTENSION, 1);
+      }
+      return indexFile;
+   }
+
+   private void appendIndex(final int offset, final int length) throws Exception
+   {
+      if (indexBuffer == null)
+      {
+         SequentialFile index = getIndexFile();
+         index.open();
+         long indexSize = index.size();
+         indexedMessages = (int) (indexSize / Page.SIZE_INDEX_ENTRY);
+         index.position(indexSize);
+         indexBuffer = ByteBuffer.allocate(Page.INDEX_BUFFER_ENTRIES * Page.SIZE_INDEX_ENTRY);
+      }
+
+      // numberOfMessages doesn't count this message yet
+      if (indexedMessages != numberOfMessages.get())
+      {
+         // The index doesn't match what was on the page before it was opened for writing (e.g. entries not
+         // written before a crash), and we can't tell where the records it's missing are
+         if (isDebug)
+         {
+            HornetQServerLogger.LOGGER.debug("dropping the index of page " + pageId + " on address = " + storeName +
+                                                " as it has " + indexedMessages + " entries for " +
+                                                numberOfMessages.get() + " messages");
+         }
+         indexed = false;
+         indexBuffer = null;
+         deleteIndex();
+         return;
+      }
+
+      indexBuffer.putInt(offset);
+      indexBuffer.putInt(length);
+      indexedMessages++;
+
+      if (!indexBuffer.hasRemaining())
+      {
+         flushIndex();
+      }
+   }
+
+   private void flushIndex() throws Exception
+   {
+      if (indexBuffer != null && indexBuffer.position() > 0 && indexFile.isOpen())
+      {
+         indexBuffer.flip();
+         indexFile.writeDirect(indexBuffer, false);
+         indexBuffer.clear();
+      }
+   }
+
+   private void deleteIndex() throws Exception
+   {
+      SequentialFile index = getIndexFile();
+      if (index.isOpen())
+      {
+         index.close();
+      }
+      if (index.exists())
+      {
+         index.delete();
+      }
+   }
+
    /**
     * @param position
     * @param msgNumber
@@ -82,7 +82,7 @@ public final class PagingManagerImpl implements PagingManager
    {
       for (PagingStore store : stores.values())
       {
-         AddressSettings settings = this.addressSettingsRepository.getMatch(store.getAddress().toString());
+         AddressSettings settings = this.addressSettingsRepository.getMatch(store.getAddress());
          store.applySetting(settings);
       }
    }
@@ -301,7 +301,7 @@ public final class PagingManagerImpl implements PagingManager
          PagingStore store = stores.get(address);
          if (store == null)
          {
-            store = pagingStoreFactory.newStore(address, addressSettingsRepository.getMatch(address.toString()));
+            store = pagingStoreFactory.newStore(address, addressSettingsRepository.getMatch(address));
             store.start();
             if (!cleanupEnabled)
             {
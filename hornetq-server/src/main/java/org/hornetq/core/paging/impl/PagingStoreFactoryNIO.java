@@ -31,6 +31,7 @@ import org.hornetq.core.journal.impl.NIOSequentialFileFactory;
 import org.hornetq.core.paging.PagingManager;
 import org.hornetq.core.paging.PagingStore;
 import org.hornetq.core.paging.PagingStoreFactory;
+import org.hornetq.core.paging.cursor.impl.PageCacheBudget;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.settings.HierarchicalRepository;
@@ -69,12 +70,35 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
 
    private final IOCriticalErrorListener critialErrorListener;
 
+   private final PageCacheBudget pageCacheBudget;
+
    public PagingStoreFactoryNIO(final StorageManager storageManager, final String directory,
                                 final long syncTimeout,
                                 final ScheduledExecutorService scheduledExecutor,
                                 final ExecutorFactory executorFactory,
                                 final boolean syncNonTransactional,
                                 final IOCriticalErrorListener critialErrorListener)
+   {
+      this(storageManager,
+           directory,
+           syncTimeout,
+           scheduledExecutor,
+           executorFactory,
+           syncNonTransactional,
+           critialErrorListener,
+           -1);
+   }
+
+   /**
+    * @param globalPageCacheMaxSize the bytes the page caches of all addresses may take, -1 for a quarter of the heap
+    */
+   public PagingStoreFactoryNIO(final StorageManager storageManager, final String directory,
+                                final long syncTimeout,
+                                final ScheduledExecutorService scheduledExecutor,
+                                final ExecutorFactory executorFactory,
+                                final boolean syncNonTransactional,
+                                final IOCriticalErrorListener critialErrorListener,
+                                final long globalPageCacheMaxSize)
    {
       this.storageManager = storageManager;
       this.directory = directory;
@@ -83,8 +107,11 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
       this.scheduledExecutor = scheduledExecutor;
       this.syncTimeout = syncTimeout;
       this.critialErrorListener = critialErrorListener;
+      this.pageCacheBudget = new PageCacheBudget(globalPageCacheMaxSize < 0 ? Runtime.getRuntime().maxMemory() / 4
+         : globalPageCacheMaxSize);
    }
 
+
    // Public --------------------------------------------------------
 
    public void stop()
@@ -104,7 +131,9 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
                                  address,
                                  settings,
                                  executorFactory.getExecutor(),
-                                 syncNonTransactional);
+                                 syncNonTransactional,
+                                 pageCacheBudget,
+                                 executorFactory.getExecutor());
    }
 
    public synchronized SequentialFileFactory newFileFactory(final SimpleString address) throws Exception
@@ -185,7 +214,7 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
 
             SequentialFileFactory factory = newFileFactory(guid);
 
-            AddressSettings settings = addressSettingsRepository.getMatch(address.toString());
+            AddressSettings settings = addressSettingsRepository.getMatch(address);
 
             PagingStore store = new PagingStoreImpl(address,
                                                     scheduledExecutor,
@@ -197,7 +226,9 @@ public class PagingStoreFactoryNIO implements PagingStoreFactory
                                                     address,
                                                     settings,
                                                     executorFactory.getExecutor(),
-                                                    syncNonTransactional);
+                                                    syncNonTransactional,
+                                                    pageCacheBudget,
+                                                    executorFactory.getExecutor());
 
             storesReturn.add(store);
          }
@@ -23,6 +23,7 @@ import org.hornetq.core.paging.PagingStoreFactory;
 import org.hornetq.core.paging.cursor.LivePageCache;
 import org.hornetq.core.paging.cursor.PageCursorProvider;
 import org.hornetq.core.paging.cursor.impl.LivePageCacheImpl;
+import org.hornetq.core.paging.cursor.impl.PageCacheBudget;
 import org.hornetq.core.paging.cursor.impl.PageCursorProviderImpl;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.replication.ReplicationManager;
@@ -87,6 +88,8 @@ public class PagingStoreImpl implements PagingStore
 
    private long pageSize;
 
+   private volatile boolean pageIndex;
+
    private volatile AddressFullMessagePolicy addressFullMessagePolicy;
 
    private boolean printedDropMessagesWarning;
@@ -131,6 +134,35 @@ public class PagingStoreImpl implements PagingStore
                           final AddressSettings addressSettings,
                           final Executor executor,
                           final boolean syncNonTransactional)
+   {
+      this(address,
+           scheduledExecutor,
+           syncTimeout,
+           pagingManager,
+           storageManager,
+           fileFactory,
+           storeFactory,
+           storeName,
+           addressSettings,
+           executor,
+           syncNonTransactional,
+           new PageCacheBudget(-1),
+           executor);
+   }
+
+   public PagingStoreImpl(final SimpleString address,
+                          final ScheduledExecutorService scheduledExecutor,
+                          final long syncTimeout,
+                          final PagingManager pagingManager,
+                          final StorageManager storageManager,
+                          final SequentialFileFactory fileFactory,
+                          final PagingStoreFactory storeFactory,
+                          final SimpleString storeName,
+                          final AddressSettings addressSettings,
+                          final Executor executor,
+                          final boolean syncNonTransactional,
+                          final PageCacheBudget pageCacheBudget,
+                          final Executor readAheadExecutor)
    {
       if (pagingManager == null)
       {
@@ -177,7 +209,14 @@ public class PagingStoreImpl implements PagingStore
       this.cursorProvider = new PageCursorProviderImpl(this,
          this.storageManager,
          executor,
-         addressSettings.getPageCacheMaxSize());
+         addressSettings.getPageCacheMaxSize(),
+         addressSettings.getPageCacheMaxSizeBytes(),
+         pageCacheBudget,
+         readAheadExecutor);
+
+      this.cursorProvider.setMaxReadAhead(addressSettings.getPageReadAhead());
+
+      this.cursorProvider.setPageIndex(pageIndex);
 
    }
 
@@ -192,9 +231,14 @@ public class PagingStoreImpl implements PagingStore
 
       addressFullMessagePolicy = addressSettings.getAddressFullMessagePolicy();
 
+      pageIndex = addressSettings.isPageIndex();
+
       if (cursorProvider != null)
       {
          cursorProvider.setCacheMaxSize(addressSettings.getPageCacheMaxSize());
+         cursorProvider.setCacheMaxSizeBytes(addressSettings.getPageCacheMaxSizeBytes());
+         cursorProvider.setMaxReadAhead(addressSettings.getPageReadAhead());
+         cursorProvider.setPageIndex(pageIndex);
       }
    }
 
@@ -417,6 +461,9 @@ public class PagingStoreImpl implements PagingStore
             running = true;
             firstPageId = Integer.MAX_VALUE;
 
+            // the provider may have been stopped along with the store before
+            cursorProvider.start();
+
             // There are no files yet on this Storage. We will just return it empty
             if (fileFactory != null)
             {
@@ -590,6 +637,8 @@ public class PagingStoreImpl implements PagingStore
 
       Page page = new Page(storeName, storageManager, fileFactory, file, pageNumber);
 
+      page.setIndexed(pageIndex);
+
       // To create the file
       file.open();
 
@@ -63,7 +63,9 @@ import org.hornetq.core.journal.TransactionFailureCallback;
 import org.hornetq.core.journal.impl.AIOSequentialFileFactory;
 import org.hornetq.core.journal.impl.JournalFile;
 import org.hornetq.core.journal.impl.JournalImpl;
+import org.hornetq.core.journal.impl.MappedSequentialFileFactory;
 import org.hornetq.core.journal.impl.NIOSequentialFileFactory;
+import org.hornetq.core.journal.impl.URingSequentialFileFactory;
 import org.hornetq.core.message.impl.MessageInternal;
 import org.hornetq.core.paging.PageTransactionInfo;
 import org.hornetq.core.paging.PagedMessage;
@@ -231,7 +233,8 @@ public class JournalStorageManager implements StorageManager
 
       executor = executorFactory.getExecutor();
 
-      if (config.getJournalType() != JournalType.NIO && config.getJournalType() != JournalType.ASYNCIO)
+      if (config.getJournalType() != JournalType.NIO && config.getJournalType() != JournalType.ASYNCIO &&
+         config.getJournalType() != JournalType.IOURING && config.getJournalType() != JournalType.MAPPED)
       {
          throw HornetQMessageBundle.BUNDLE.invalidJournal();
       }
@@ -281,6 +284,16 @@ public class JournalStorageManager implements StorageManager
                                                   config.isLogJournalWriteRate(),
                                                   criticalErrorListener);
       }
+      else if (config.getJournalType() == JournalType.IOURING)
+      {
+         HornetQServerLogger.LOGGER.journalUseURing();
+
+         journalFF = new URingSequentialFileFactory(journalDir,
+                                                    config.getJournalBufferSize_AIO(),
+                                                    config.getJournalBufferTimeout_AIO(),
+                                                    config.isLogJournalWriteRate(),
+                                                    criticalErrorListener);
+      }
       else if (config.getJournalType() == JournalType.NIO)
       {
          HornetQServerLogger.LOGGER.journalUseNIO();
@@ -291,22 +304,41 @@ public class JournalStorageManager implements StorageManager
                                                   config.isLogJournalWriteRate(),
                                                   criticalErrorListener);
       }
+      else if (config.getJournalType() == JournalType.MAPPED)
+      {
+         HornetQServerLogger.LOGGER.journalUseMapped();
+         journalFF = new MappedSequentialFileFactory(journalDir, criticalErrorListener);
+      }
       else
       {
          throw HornetQMessageBundle.BUNDLE.invalidJournalType2(config.getJournalType());
       }
 
+      if (journalFF.getTimedBuffer() != null)
+      {
+         journalFF.getTimedBuffer().setLatencyTarget(config.getJournalBufferLatencyTarget());
+      }
+
       idGenerator = new BatchingIDGenerator(0, JournalStorageManager.CHECKPOINT_BATCH_SIZE, this);
 
-      Journal localMessage = new JournalImpl(config.getJournalFileSize(),
-                                             config.getJournalMinFiles(),
-                                             config.getJournalCompactMinFiles(),
-                                             config.getJournalCompactPercentage(),
-                                             journalFF,
-                                             "hornetq-data",
-                                             "hq",
-                                             config.getJournalType() == JournalType.ASYNCIO ? config.getJournalMaxIO_AIO()
-                                                : config.getJournalMaxIO_NIO());
+      JournalImpl localMessage = new JournalImpl(config.getJournalFileSize(),
+                                                 config.getJournalMinFiles(),
+                                                 config.getJournalCompactMinFiles(),
+                                                 config.getJournalCompactPercentage(),
+                                                 journalFF,
+                                                 "hornetq-data",
+                                                 "hq",
+                                                 config.getJournalType() == JournalType.ASYNCIO ||
+                                                    config.getJournalType() == JournalType.IOURING ? config.getJournalMaxIO_AIO()
+                                                    : config.getJournalMaxIO_NIO());
+
+      localMessage.setLoadParallelism(config.getJournalLoadParallelism());
+
+      localMessage.setCompactBatchFiles(config.getJournalCompactBatchFiles());
+
+      localMessage.setCompactIOBudget(config.getJournalCompactIOBudget());
+
+      localMessage.setCompactPauseBudget(config.getJournalCompactPauseBudget());
 
       messageJournal = localMessage;
       originalMessageJournal = localMessage;
@@ -1528,11 +1560,14 @@ public class JournalStorageManager implements StorageManager
       readLock();
       try
       {
+         final long loadStart = System.currentTimeMillis();
 
          JournalLoadInformation info = messageJournal.load(records,
                                                            preparedTransactions,
                                                            new LargeMessageTXFailureCallback(messages));
 
+         final long journalRead = System.currentTimeMillis();
+
          ArrayList<LargeServerMessage> largeMessages = new ArrayList<LargeServerMessage>();
 
          Map<Long, Map<Long, AddMessageRecord>> queueMap = new HashMap<Long, Map<Long, AddMessageRecord>>();
@@ -1879,8 +1914,12 @@ public class JournalStorageManager implements StorageManager
          records.clear();
          records = null;
 
+         final long recordsDecoded = System.currentTimeMillis();
+
          journalLoader.handleAddMessage(queueMap);
 
+         final long referencesAdded = System.currentTimeMillis();
+
          loadPreparedTransactions(postOffice,
                                   pagingManager,
                                   resourceManager,
@@ -1922,6 +1961,13 @@ public class JournalStorageManager implements StorageManager
 
          journalLoader.postLoad(messageJournal, resourceManager, duplicateIDMap);
          journalLoaded = true;
+
+         HornetQServerLogger.LOGGER.messageJournalLoaded(totalSize,
+                                                         System.currentTimeMillis() - loadStart,
+                                                         journalRead - loadStart,
+                                                         recordsDecoded - journalRead,
+                                                         referencesAdded - recordsDecoded,
+                                                         System.currentTimeMillis() - referencesAdded);
          return info;
       }
       finally
@@ -12,6 +12,7 @@
  */
 package org.hornetq.core.postoffice;
 
+import java.util.List;
 import java.util.Map;
 
 import org.hornetq.api.core.Pair;
@@ -74,6 +75,14 @@ public interface PostOffice extends HornetQComponent
 
    void route(ServerMessage message, RoutingContext context, boolean direct, boolean rejectDuplicates) throws Exception;
 
+   /**
+    * Routes messages sent together, in order, as each one would be routed on its own. The bindings, settings and
+    * paging store are resolved once for each run of messages sent to the same address, and the references are added
+    * to their queues once the whole batch is stored. A failure stops the batch, the messages before it may have been
+    * routed.
+    */
+   void route(List<ServerMessage> messages, RoutingContext context, boolean direct) throws Exception;
+
    MessageReference reroute(ServerMessage message, Queue queue, Transaction tx) throws Exception;
 
    Pair<RoutingContext, ServerMessage> redistribute(ServerMessage message, final Queue originatingQueue, Transaction tx) throws Exception;
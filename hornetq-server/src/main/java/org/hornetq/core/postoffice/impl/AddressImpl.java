@@ -12,8 +12,10 @@
  */
 package org.hornetq.core.postoffice.impl;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.postoffice.Address;
@@ -31,7 +33,11 @@ public class AddressImpl implements Address
 
    private final boolean containsWildCard;
 
-   private final List<Address> linkedAddresses = new ArrayList<Address>();
+   /**
+    * A set, as a wildcard like # may be linked to every other address. It is iterated without the lock of the
+    * address manager.
+    */
+   private final Set<Address> linkedAddresses = Collections.newSetFromMap(new ConcurrentHashMap<Address, Boolean>());
 
    public AddressImpl(final SimpleString address)
    {
@@ -55,17 +61,14 @@ public class AddressImpl implements Address
       return containsWildCard;
    }
 
-   public List<Address> getLinkedAddresses()
+   public Collection<Address> getLinkedAddresses()
    {
       return linkedAddresses;
    }
 
    public void addLinkedAddress(final Address address)
    {
-      if (!linkedAddresses.contains(address))
-      {
-         linkedAddresses.add(address);
-      }
+      linkedAddresses.add(address);
    }
 
    public void removeLinkedAddress(final Address actualAddress)
@@ -79,71 +82,52 @@ public class AddressImpl implements Address
       {
          return address.equals(add.getAddress());
       }
-      int pos = 0;
-      int matchPos = 0;
+      return AddressImpl.matches(addressParts, 0, add.getAddressParts(), 0);
+   }
 
-      SimpleString nextToMatch;
-      for (; matchPos < add.getAddressParts().length; )
+   /**
+    * A * matches a single word and a # any sequence of zero or more words.
+    */
+   private static boolean matches(final SimpleString[] words,
+                                  int pos,
+                                  final SimpleString[] wildcard,
+                                  final int startMatchPos)
+   {
+      for (int matchPos = startMatchPos; matchPos < wildcard.length; matchPos++)
       {
-         if (pos >= addressParts.length)
-         {
-            // test for # as last address part
-            return pos + 1 == add.getAddressParts().length && add.getAddressParts()[pos].equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING);
-         }
-         SimpleString curr = addressParts[pos];
-         SimpleString next = addressParts.length > pos + 1 ? addressParts[pos + 1] : null;
-         SimpleString currMatch = add.getAddressParts()[matchPos];
-         if (currMatch.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING))
-         {
-            pos++;
-            matchPos++;
-         }
-         else if (currMatch.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
+         SimpleString currMatch = wildcard[matchPos];
+
+         if (currMatch.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
          {
-            if (matchPos == addressParts.length - 1)
-            {
-               pos++;
-               matchPos++;
-            }
-            else if (next == null)
-            {
-               return false;
-            }
-            else if (matchPos == add.getAddressParts().length - 1)
+            if (matchPos == wildcard.length - 1)
             {
                return true;
             }
-            else
+
+            // try the rest of the wildcard after every number of words taken by the #
+            for (int next = pos; next <= words.length; next++)
             {
-               nextToMatch = add.getAddressParts()[matchPos + 1];
-               while (curr != null)
-               {
-                  if (curr.equals(nextToMatch))
-                  {
-                     break;
-                  }
-                  pos++;
-                  curr = next;
-                  next = addressParts.length > pos + 1 ? addressParts[pos + 1] : null;
-               }
-               if (curr == null)
+               if (AddressImpl.matches(words, next, wildcard, matchPos + 1))
                {
-                  return false;
+                  return true;
                }
-               matchPos++;
             }
+            return false;
          }
-         else
+
+         if (pos >= words.length)
          {
-            if (!curr.equals(currMatch))
-            {
-               return false;
-            }
-            pos++;
-            matchPos++;
+            return false;
          }
+
+         if (!currMatch.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING) && !currMatch.equals(words[pos]))
+         {
+            return false;
+         }
+
+         pos++;
       }
-      return pos == addressParts.length;
+      return pos == words.length;
    }
 
    @Override
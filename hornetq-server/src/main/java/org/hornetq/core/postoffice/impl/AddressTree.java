@@ -0,0 +1,242 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.postoffice.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.postoffice.Address;
+
+/**
+ * A tree of addresses by their words, so the addresses matching a wildcard (or the wildcards matching an address)
+ * are found walking the words of the address instead of looking at every address.
+ * <p/>
+ * The lookups return candidates, a superset of what {@link Address#matches(Address)} accepts: a {@code *} stands for
+ * one word and a {@code #} for any number of words, including none. Callers still check the candidates with
+ * {@link Address#matches(Address)}, which stays the definition of a match.
+ * <p/>
+ * This class is not thread safe, {@link WildcardAddressManager} only uses it while holding its lock.
+ */
+final class AddressTree
+{
+   private final Node root = new Node();
+
+   private int size;
+
+   private static final class Node
+   {
+      private Map<SimpleString, Node> children;
+
+      private Address address;
+
+      Node child(final SimpleString word)
+      {
+         return children == null ? null : children.get(word);
+      }
+
+      boolean isEmpty()
+      {
+         return address == null && (children == null || children.isEmpty());
+      }
+   }
+
+   public int size()
+   {
+      return size;
+   }
+
+   public boolean isEmpty()
+   {
+      return size == 0;
+   }
+
+   public void put(final Address address)
+   {
+      Node node = root;
+
+      for (SimpleString word : address.getAddressParts())
+      {
+         Node child = node.child(word);
+
+         if (child == null)
+         {
+            if (node.children == null)
+            {
+               node.children = new HashMap<SimpleString, Node>(4);
+            }
+            child = new Node();
+            node.children.put(word, child);
+         }
+
+         node = child;
+      }
+
+      if (node.address == null)
+      {
+         size++;
+      }
+
+      node.address = address;
+   }
+
+   public void remove(final Address address)
+   {
+      if (remove(root, address.getAddressParts(), 0))
+      {
+         size--;
+      }
+   }
+
+   public void clear()
+   {
+      root.children = null;
+      root.address = null;
+      size = 0;
+   }
+
+   /**
+    * Collects the wildcard addresses on this tree that may match an address without wildcards.
+    */
+   public void collectWildcardsMatching(final Address address, final Collection<Address> result)
+   {
+      collectWildcardsMatching(root, address.getAddressParts(), 0, result);
+   }
+
+   /**
+    * Collects the addresses on this tree that may be matched by a wildcard address.
+    */
+   public void collectMatchedBy(final Address wildcard, final Collection<Address> result)
+   {
+      collectMatchedBy(root, wildcard.getAddressParts(), 0, result);
+   }
+
+   /**
+    * @return true if the address was on the tree
+    */
+   private static boolean remove(final Node node, final SimpleString[] words, final int index)
+   {
+      if (index == words.length)
+      {
+         boolean removed = node.address != null;
+         node.address = null;
+         return removed;
+      }
+
+      Node child = node.child(words[index]);
+
+      if (child == null)
+      {
+         return false;
+      }
+
+      boolean removed = remove(child, words, index + 1);
+
+      if (child.isEmpty())
+      {
+         node.children.remove(words[index]);
+      }
+
+      return removed;
+   }
+
+   private static void collectWildcardsMatching(final Node node,
+                                                final SimpleString[] words,
+                                                final int index,
+                                                final Collection<Address> result)
+   {
+      Node anyWords = node.child(WildcardAddressManager.ANY_WORDS_SIMPLESTRING);
+
+      if (anyWords != null)
+      {
+         for (int i = index; i <= words.length; i++)
+         {
+            collectWildcardsMatching(anyWords, words, i, result);
+         }
+      }
+
+      if (index == words.length)
+      {
+         if (node.address != null)
+         {
+            result.add(node.address);
+         }
+         return;
+      }
+
+      Node child = node.child(words[index]);
+
+      if (child != null)
+      {
+         collectWildcardsMatching(child, words, index + 1, result);
+      }
+
+      Node singleWord = node.child(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING);
+
+      if (singleWord != null)
+      {
+         collectWildcardsMatching(singleWord, words, index + 1, result);
+      }
+   }
+
+   private static void collectMatchedBy(final Node node,
+                                        final SimpleString[] words,
+                                        final int index,
+                                        final Collection<Address> result)
+   {
+      if (index == words.length)
+      {
+         if (node.address != null)
+         {
+            result.add(node.address);
+         }
+         return;
+      }
+
+      SimpleString word = words[index];
+
+      if (word.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
+      {
+         // no words, or one more word for the same #
+         collectMatchedBy(node, words, index + 1, result);
+
+         if (node.children != null)
+         {
+            for (Node child : node.children.values())
+            {
+               collectMatchedBy(child, words, index, result);
+            }
+         }
+      }
+      else if (word.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING))
+      {
+         if (node.children != null)
+         {
+            for (Node child : node.children.values())
+            {
+               collectMatchedBy(child, words, index + 1, result);
+            }
+         }
+      }
+      else
+      {
+         Node child = node.child(word);
+
+         if (child != null)
+         {
+            collectMatchedBy(child, words, index + 1, result);
+         }
+      }
+   }
+}
@@ -17,15 +17,18 @@ import java.io.StringWriter;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterGuard;
 import org.hornetq.core.message.impl.MessageImpl;
 import org.hornetq.core.paging.PagingStore;
 import org.hornetq.core.postoffice.Binding;
@@ -60,6 +63,13 @@ public final class BindingsImpl implements Bindings
 
    private final List<Binding> exclusiveBindings = new CopyOnWriteArrayList<Binding>();
 
+   /**
+    * Bumped after every change on routingNameBindingMap, so route() knows when to rebuild the routing table
+    */
+   private final AtomicInteger version = new AtomicInteger();
+
+   private volatile RoutingTable routingTable = new RoutingTable(-1, new SimpleString[0], new List[0], new PropertyIndex[0]);
+
    private volatile boolean routeWhenNoConsumers;
 
    private final GroupingHandler groupingHandler;
@@ -122,6 +132,8 @@ public final class BindingsImpl implements Bindings
          }
 
          bindings.add(binding);
+
+         version.incrementAndGet();
       }
 
       bindingsMap.put(binding.getID(), binding);
@@ -154,6 +166,8 @@ public final class BindingsImpl implements Bindings
                routingNameBindingMap.remove(routingName);
             }
          }
+
+         version.incrementAndGet();
       }
 
       bindingsMap.remove(binding.getID());
@@ -299,20 +313,30 @@ public final class BindingsImpl implements Bindings
             {
                HornetQServerLogger.LOGGER.trace("Routing message " + message + " on binding=" + this);
             }
-            for (Map.Entry<SimpleString, List<Binding>> entry : routingNameBindingMap.entrySet())
+            RoutingTable table = getRoutingTable();
+
+            for (PropertyIndex index : table.indexes)
             {
-               SimpleString routingName = entry.getKey();
+               SimpleString value = index.guard.getValue(message);
 
-               List<Binding> bindings = entry.getValue();
+               Binding[] candidates = value == null ? null : index.bindingsByValue.get(value);
 
-               if (bindings == null)
+               if (candidates != null)
                {
-                  // The value can become null if it's concurrently removed while we're iterating - this is expected
-                  // ConcurrentHashMap behaviour!
-                  continue;
+                  for (Binding binding : candidates)
+                  {
+                     // the only binding of its routing name, so getNextBinding would route to it if it matches
+                     if (binding.getFilter().match(message))
+                     {
+                        binding.route(message, context);
+                     }
+                  }
                }
+            }
 
-               Binding theBinding = getNextBinding(message, routingName, bindings);
+            for (int i = 0; i < table.routingNames.length; i++)
+            {
+               Binding theBinding = getNextBinding(message, table.routingNames[i], table.bindings[i]);
 
                if (theBinding != null)
                {
@@ -329,6 +353,126 @@ public final class BindingsImpl implements Bindings
       return "BindingsImpl [name=" + name + "]";
    }
 
+   private RoutingTable getRoutingTable()
+   {
+      RoutingTable table = routingTable;
+
+      if (table.version != version.get())
+      {
+         synchronized (this)
+         {
+            table = routingTable;
+
+            int currentVersion = version.get();
+
+            if (table.version != currentVersion)
+            {
+               // the version is read before the map, so a concurrent change will cause another rebuild
+               table = buildRoutingTable(currentVersion);
+               routingTable = table;
+            }
+         }
+      }
+
+      return table;
+   }
+
+   /**
+    * Routing names with a single binding whose filter has a {@link FilterGuard} are indexed by the values of the
+    * guard, so a message only looks at the bindings that may want it. The other routing names are scanned.
+    */
+   @SuppressWarnings("unchecked")
+   private RoutingTable buildRoutingTable(final int tableVersion)
+   {
+      List<SimpleString> scannedNames = new ArrayList<SimpleString>();
+
+      List<List<Binding>> scannedBindings = new ArrayList<List<Binding>>();
+
+      Map<SimpleString, Map<SimpleString, List<Binding>>> indexed = new HashMap<SimpleString, Map<SimpleString, List<Binding>>>();
+
+      Map<SimpleString, FilterGuard> guards = new HashMap<SimpleString, FilterGuard>();
+
+      for (Map.Entry<SimpleString, List<Binding>> entry : routingNameBindingMap.entrySet())
+      {
+         List<Binding> bindings = entry.getValue();
+
+         Binding single = null;
+
+         if (bindings.size() == 1)
+         {
+            try
+            {
+               single = bindings.get(0);
+            }
+            catch (IndexOutOfBoundsException e)
+            {
+               // removed meanwhile, the version has changed already
+            }
+         }
+
+         FilterGuard guard = single == null ? null : FilterGuard.getGuard(single.getFilter());
+
+         if (guard == null)
+         {
+            scannedNames.add(entry.getKey());
+            scannedBindings.add(bindings);
+            continue;
+         }
+
+         Map<SimpleString, List<Binding>> byValue = indexed.get(guard.getPropertyName());
+
+         if (byValue == null)
+         {
+            byValue = new HashMap<SimpleString, List<Binding>>();
+            indexed.put(guard.getPropertyName(), byValue);
+            guards.put(guard.getPropertyName(), guard);
+         }
+
+         for (SimpleString value : guard.getValues())
+         {
+            List<Binding> candidates = byValue.get(value);
+
+            if (candidates == null)
+            {
+               candidates = new ArrayList<Binding>(1);
+               byValue.put(value, candidates);
+            }
+
+            candidates.add(single);
+         }
+      }
+
+      PropertyIndex[] indexes = new PropertyIndex[indexed.size()];
+
+      int i = 0;
+
+      for (Map.Entry<SimpleString, Map<SimpleString, List<Binding>>> entry : indexed.entrySet())
+      {
+         PropertyIndex index = new PropertyIndex(guards.get(entry.getKey()));
+
+         for (Map.Entry<SimpleString, List<Binding>> candidates : entry.getValue().entrySet())
+         {
+            index.bindingsByValue.put(candidates.getKey(),
+                                      candidates.getValue().toArray(new Binding[candidates.getValue().size()]));
+         }
+
+         indexes[i++] = index;
+      }
+
+      RoutingTable table = new RoutingTable(tableVersion,
+                                            scannedNames.toArray(new SimpleString[scannedNames.size()]),
+                                            scannedBindings.toArray(new List[scannedBindings.size()]),
+                                            indexes);
+
+      if (isTrace)
+      {
+         HornetQServerLogger.LOGGER.trace("Routing table of " + this + " rebuilt with " + table.indexes.length +
+                                             " indexes and " + table.routingNames.length + " scanned routing names");
+      }
+
+      return table;
+   }
+
    /**
     * This code has a race on the assigned value to routing names.
     * <p/>
@@ -671,4 +815,44 @@ public final class BindingsImpl implements Bindings
       return pos;
    }
 
+
+   /**
+    * An immutable snapshot of routingNameBindingMap, rebuilt on route() after the bindings change
+    */
+   private static final class RoutingTable
+   {
+      final int version;
+
+      final SimpleString[] routingNames;
+
+      final List<Binding>[] bindings;
+
+      final PropertyIndex[] indexes;
+
+      RoutingTable(final int version,
+                   final SimpleString[] routingNames,
+                   final List<Binding>[] bindings,
+                   final PropertyIndex[] indexes)
+      {
+         this.version = version;
+         this.routingNames = routingNames;
+         this.bindings = bindings;
+         this.indexes = indexes;
+      }
+   }
+
+   private static final class PropertyIndex
+   {
+      /**
+       * Any of the guards on the property, all of them read the same value from the message
+       */
+      final FilterGuard guard;
+
+      final Map<SimpleString, Binding[]> bindingsByValue = new HashMap<SimpleString, Binding[]>();
+
+      PropertyIndex(final FilterGuard guard)
+      {
+         this.guard = guard;
+      }
+   }
 }
@@ -12,10 +12,10 @@
  */
 package org.hornetq.core.postoffice.impl;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.hornetq.api.core.Pair;
 import org.hornetq.api.core.SimpleString;
@@ -30,6 +30,14 @@ import org.hornetq.core.transaction.TransactionOperationAbstract;
  * A DuplicateIDCacheImpl
  *
  * A fixed size rotating cache of last X duplicate ids.
+ * <p/>
+ * The ids and their record ids are kept off the heap on a ring of X fixed size entries, allocated in chunks as the
+ * cache fills up, the oldest entry overwritten first. Ids longer than an entry are kept on the heap.
+ * <p/>
+ * The ring positions are indexed by open addressing tables. Large caches split the index by hash into sections,
+ * each one with its own lock, so looking up ids on different sections doesn't contend. Adding or removing an id
+ * locks the ring and the sections of the entries changed, an entry being taken off its section before the ring
+ * position is written again, so the eviction order is exact whatever the spread of the hashes.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  *
@@ -37,16 +45,34 @@ import org.hornetq.core.transaction.TransactionOperationAbstract;
  */
 public class DuplicateIDCacheImpl implements DuplicateIDCache
 {
-   // ByteHolder, position
-   private final Map<ByteArrayHolder, Integer> cache = new ConcurrentHashMap<ByteArrayHolder, Integer>();
+   private static final long NO_RECORD = -1;
 
-   private final SimpleString address;
+   // caches smaller than this have a single index section
+   private static final int MIN_SECTION_SIZE = 1024;
 
-   // Note - deliberately typed as ArrayList since we want to ensure fast indexed
-   // based array access
-   private final ArrayList<Pair<ByteArrayHolder, Long>> ids;
+   private static final int MAX_SECTIONS = 16;
 
-   private int pos;
+   private static final int CHUNK_BITS = 10;
+
+   private static final int CHUNK_ENTRIES = 1 << CHUNK_BITS;
+
+   // Entry layout: record id (long), hash (int), id length (int, -1 once the id was removed or added again) and the id
+   // itself when it fits.
+   private static final int RECORD_OFFSET = 0;
+
+   private static final int HASH_OFFSET = 8;
+
+   private static final int LENGTH_OFFSET = 12;
+
+   private static final int ID_OFFSET = 16;
+
+   private static final int ENTRY_SIZE = 96;
+
+   private static final int INLINE_ID_SIZE = ENTRY_SIZE - ID_OFFSET;
+
+   private final SimpleString address;
+
+   private final Section[] sections;
 
    private final int cacheSize;
 
@@ -54,6 +80,18 @@ public class DuplicateIDCacheImpl implements DuplicateIDCache
 
    private final boolean persist;
 
+   // The ring, guarded by this. An entry may only be read by a section while it is indexed there.
+   private final ByteBuffer[] chunks;
+
+   // ids that don't fit on their entry, created on demand
+   private byte[][] largeIDs;
+
+   // next position to be written
+   private int pos;
+
+   // positions written at least once
+   private int used;
+
    public DuplicateIDCacheImpl(final SimpleString address,
                                final int size,
                                final StorageManager storageManager,
@@ -61,9 +99,18 @@ public class DuplicateIDCacheImpl implements DuplicateIDCache
    {
       this.address = address;
 
-      cacheSize = size;
+      cacheSize = Math.max(1, size);
 
-      ids = new ArrayList<Pair<ByteArrayHolder, Long>>(size);
+      chunks = new ByteBuffer[(cacheSize + CHUNK_ENTRIES - 1) >> CHUNK_BITS];
+
+      int numSections = Math.max(1, Math.min(MAX_SECTIONS, Integer.highestOneBit(size / MIN_SECTION_SIZE)));
+
+      sections = new Section[numSections];
+
+      for (int i = 0; i < numSections; i++)
+      {
+         sections[i] = new Section();
+      }
 
       this.storageManager = storageManager;
 
@@ -78,25 +125,26 @@ public class DuplicateIDCacheImpl implements DuplicateIDCache
 
       for (Pair<byte[], Long> id : theIds)
       {
+         long evicted;
+
          if (count < cacheSize)
          {
-            ByteArrayHolder bah = new ByteArrayHolder(id.getA());
-
-            Pair<ByteArrayHolder, Long> pair = new Pair<ByteArrayHolder, Long>(bah, id.getB());
-
-            cache.put(bah, ids.size());
-
-            ids.add(pair);
+            evicted = add(id.getA(), id.getB() == null ? NO_RECORD : id.getB());
          }
          else
          {
             // cache size has been reduced in config - delete the extra records
+            evicted = id.getB() == null ? NO_RECORD : id.getB();
+         }
+
+         if (evicted != NO_RECORD)
+         {
             if (txID == -1)
             {
                txID = storageManager.generateUniqueID();
             }
 
-            storageManager.deleteDuplicateIDTransactional(txID, id.getB());
+            storageManager.deleteDuplicateIDTransactional(txID, evicted);
          }
 
          count++;
@@ -106,49 +154,33 @@ public class DuplicateIDCacheImpl implements DuplicateIDCache
       {
          storageManager.commit(txID);
       }
-
-      pos = ids.size();
-
-      if (pos == cacheSize)
-      {
-         pos = 0;
-      }
-
    }
 
 
    public void deleteFromCache(byte[] duplicateID) throws Exception
    {
-      ByteArrayHolder bah = new ByteArrayHolder(duplicateID);
-
-      Integer posUsed = cache.remove(bah);
+      long recordID = remove(duplicateID);
 
-      if (posUsed != null)
+      if (recordID != NO_RECORD)
       {
-         Pair<ByteArrayHolder, Long> id;
-
-         synchronized (this)
-         {
-            id = ids.get(posUsed.intValue());
-
-            if (id.getA().equals(bah))
-            {
-               id.setA(null);
-               storageManager.deleteDuplicateID(id.getB());
-               id.setB(null);
-            }
-         }
+         storageManager.deleteDuplicateID(recordID);
       }
-
    }
 
 
    public boolean contains(final byte[] duplID)
    {
-      return cache.get(new ByteArrayHolder(duplID)) != null;
+      int hash = hash(duplID);
+
+      Section section = sectionFor(hash);
+
+      synchronized (section)
+      {
+         return section.find(duplID, hash) >= 0;
+      }
    }
 
-   public synchronized void addToCache(final byte[] duplID, final Transaction tx) throws Exception
+   public void addToCache(final byte[] duplID, final Transaction tx) throws Exception
    {
       long recordID = -1;
 
@@ -183,90 +215,291 @@ public class DuplicateIDCacheImpl implements DuplicateIDCache
       tx.addOperation(new AddDuplicateIDOperation(duplID, tx.getID()));
    }
 
-   private synchronized void addToCacheInMemory(final byte[] duplID, final long recordID)
+   private void addToCacheInMemory(final byte[] duplID, final long recordID)
+   {
+      // The recordID could be negative if the duplicateCache is configured to not persist
+      long evicted = add(duplID, recordID >= 0 ? recordID : NO_RECORD);
+
+      if (evicted != NO_RECORD)
+      {
+         // Record already exists - we delete the old one and add the new one
+         // Note we can't use update since journal update doesn't let older records get
+         // reclaimed
+         try
+         {
+            storageManager.deleteDuplicateID(evicted);
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.errorDeletingDuplicateCache(e);
+         }
+      }
+   }
+
+   public synchronized void clear() throws Exception
    {
-      ByteArrayHolder holder = new ByteArrayHolder(duplID);
+      long tx = storageManager.generateUniqueID();
+
+      for (int i = 0; i < used; i++)
+      {
+         long recordID = getEntry(i).getLong(offset(i) + RECORD_OFFSET);
+         if (recordID != NO_RECORD)
+         {
+            storageManager.deleteDuplicateIDTransactional(tx, recordID);
+         }
+      }
+
+      for (Section section : sections)
+      {
+         synchronized (section)
+         {
+            section.clear();
+         }
+      }
 
-      cache.put(holder, pos);
+      largeIDs = null;
+      pos = 0;
+      used = 0;
+
+      storageManager.commit(tx);
+   }
 
-      Pair<ByteArrayHolder, Long> id;
+   /**
+    * @return the ids oldest first
+    */
+   @Override
+   public synchronized List<Pair<byte[], Long>> getMap()
+   {
+      List<Pair<byte[], Long>> list = new ArrayList<>();
 
-      if (pos < ids.size())
+      int position = used < cacheSize ? 0 : pos;
+
+      for (int i = 0; i < used; i++)
       {
-         // Need fast array style access here -hence ArrayList typing
-         id = ids.get(pos);
+         if (lengthAt(position) >= 0)
+         {
+            long recordID = getEntry(position).getLong(offset(position) + RECORD_OFFSET);
+            list.add(new Pair<>(idAt(position), recordID == NO_RECORD ? null : recordID));
+         }
 
-         // The id here might be null if it was explicit deleted
-         if (id.getA() != null)
+         if (++position == cacheSize)
          {
-            cache.remove(id.getA());
+            position = 0;
+         }
+      }
+
+      return list;
+   }
+
+   /**
+    * @return the record id of the entry overwritten on the ring, if any
+    */
+   private synchronized long add(final byte[] id, final long recordID)
+   {
+      int hash = hash(id);
 
-            // Record already exists - we delete the old one and add the new one
-            // Note we can't use update since journal update doesn't let older records get
-            // reclaimed
+      long evicted = NO_RECORD;
 
-            if (id.getB() != null)
+      if (pos < used)
+      {
+         Section evictedSection = sectionFor(hashAt(pos));
+
+         synchronized (evictedSection)
+         {
+            evicted = getEntry(pos).getLong(offset(pos) + RECORD_OFFSET);
+
+            if (lengthAt(pos) >= 0)
             {
-               try
-               {
-                  storageManager.deleteDuplicateID(id.getB());
-               }
-               catch (Exception e)
-               {
-                  HornetQServerLogger.LOGGER.errorDeletingDuplicateCache(e);
-               }
+               evictedSection.unindex(evictedSection.indexOf(pos));
             }
          }
+      }
 
-         id.setA(holder);
-
-         // The recordID could be negative if the duplicateCache is configured to not persist,
-         // -1 would mean null on this case
-         id.setB(recordID >= 0 ? recordID : null);
+      Section section = sectionFor(hash);
 
-         holder.pos = pos;
-      }
-      else
+      synchronized (section)
       {
-         id = new Pair<ByteArrayHolder, Long>(holder, recordID >= 0 ? recordID : null);
+         int existing = section.find(id, hash);
+         if (existing >= 0)
+         {
+            // the older entry is just left to be overwritten, its record still deleted by then
+            int existingPos = section.positionAt(existing);
+            getEntry(existingPos).putInt(offset(existingPos) + LENGTH_OFFSET, -1);
+            section.unindex(existing);
+         }
+
+         ByteBuffer chunk = getEntry(pos);
+         int offset = offset(pos);
+
+         chunk.putLong(offset + RECORD_OFFSET, recordID);
+         chunk.putInt(offset + HASH_OFFSET, hash);
+         chunk.putInt(offset + LENGTH_OFFSET, id.length);
+
+         if (id.length <= INLINE_ID_SIZE)
+         {
+            for (int i = 0; i < id.length; i++)
+            {
+               chunk.put(offset + ID_OFFSET + i, id[i]);
+            }
+            if (largeIDs != null)
+            {
+               largeIDs[pos] = null;
+            }
+         }
+         else
+         {
+            if (largeIDs == null)
+            {
+               largeIDs = new byte[cacheSize][];
+            }
+            largeIDs[pos] = id;
+         }
 
-         ids.add(id);
+         section.addToIndex(pos, hash);
+      }
 
-         holder.pos = pos;
+      if (pos == used)
+      {
+         used++;
       }
 
-      if (pos++ == cacheSize - 1)
+      if (++pos == cacheSize)
       {
          pos = 0;
       }
+
+      return evicted;
    }
 
-   public void clear() throws Exception
+   /**
+    * @return the record id of the removed id, if there was one
+    */
+   private synchronized long remove(final byte[] id)
    {
-      synchronized (this)
+      int hash = hash(id);
+
+      Section section = sectionFor(hash);
+
+      synchronized (section)
       {
-         long tx = storageManager.generateUniqueID();
-         for (Pair<ByteArrayHolder, Long> id : ids)
+         int slot = section.find(id, hash);
+
+         if (slot < 0)
          {
-            storageManager.deleteDuplicateIDTransactional(tx, id.getB());
+            return NO_RECORD;
          }
-         storageManager.commit(tx);
 
-         ids.clear();
-         cache.clear();
-         pos = 0;
+         int position = section.positionAt(slot);
+         ByteBuffer chunk = getEntry(position);
+         int offset = offset(position);
+
+         long recordID = chunk.getLong(offset + RECORD_OFFSET);
+
+         chunk.putLong(offset + RECORD_OFFSET, NO_RECORD);
+         chunk.putInt(offset + LENGTH_OFFSET, -1);
+
+         section.unindex(slot);
+
+         return recordID;
       }
    }
 
-   @Override
-   public List<Pair<byte[], Long>> getMap()
+   private Section sectionFor(final int hash)
    {
-      List<Pair<byte[], Long>> list = new ArrayList<>();
-      for (Pair<ByteArrayHolder, Long> id : ids)
+      // the low bits are used by the index inside the section
+      return sections[(hash >>> 24) & (sections.length - 1)];
+   }
+
+   private ByteBuffer getEntry(final int position)
+   {
+      ByteBuffer chunk = chunks[position >> CHUNK_BITS];
+
+      if (chunk == null)
       {
-         list.add(new Pair<>(id.getA().bytes, id.getB()));
+         int entries = Math.min(CHUNK_ENTRIES, cacheSize - (position & ~(CHUNK_ENTRIES - 1)));
+         chunk = ByteBuffer.allocateDirect(entries * ENTRY_SIZE);
+         chunks[position >> CHUNK_BITS] = chunk;
       }
-      return list;
+
+      return chunk;
+   }
+
+   private static int offset(final int position)
+   {
+      return (position & (CHUNK_ENTRIES - 1)) * ENTRY_SIZE;
+   }
+
+   private int lengthAt(final int position)
+   {
+      return getEntry(position).getInt(offset(position) + LENGTH_OFFSET);
+   }
+
+   private int hashAt(final int position)
+   {
+      return getEntry(position).getInt(offset(position) + HASH_OFFSET);
+   }
+
+   private byte[] idAt(final int position)
+   {
+      int length = lengthAt(position);
+
+      if (length > INLINE_ID_SIZE)
+      {
+         return largeIDs[position];
+      }
+
+      ByteBuffer chunk = getEntry(position);
+      int offset = offset(position) + ID_OFFSET;
+
+      byte[] id = new byte[length];
+      for (int i = 0; i < length; i++)
+      {
+         id[i] = chunk.get(offset + i);
+      }
+      return id;
+   }
+
+   private boolean matches(final int position, final byte[] id, final int hash)
+   {
+      ByteBuffer chunk = getEntry(position);
+      int offset = offset(position);
+
+      if (chunk.getInt(offset + HASH_OFFSET) != hash || chunk.getInt(offset + LENGTH_OFFSET) != id.length)
+      {
+         return false;
+      }
+
+      if (id.length > INLINE_ID_SIZE)
+      {
+         return Arrays.equals(largeIDs[position], id);
+      }
+
+      for (int i = 0; i < id.length; i++)
+      {
+         if (chunk.get(offset + ID_OFFSET + i) != id[i])
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static int hash(final byte[] bytes)
+   {
+      int h = 0;
+      for (byte b : bytes)
+      {
+         h = 31 * h + b;
+      }
+
+      // MurmurHash3 32 bits finalizer, ids often differ only on a few bytes
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      h *= 0xc2b2ae35;
+      h ^= h >>> 16;
+      return h;
    }
 
    private final class AddDuplicateIDOperation extends TransactionOperationAbstract
@@ -306,59 +539,122 @@ public class DuplicateIDCacheImpl implements DuplicateIDCache
       }
    }
 
-   private static final class ByteArrayHolder
+   /**
+    * An open addressing index of the ring positions holding the ids of a section, guarded by the section itself.
+    */
+   private final class Section
    {
-      ByteArrayHolder(final byte[] bytes)
+      private static final int MIN_INDEX_SIZE = 16;
+
+      // ring position + 1 of each id, 0 for a free slot
+      private int[] index = new int[MIN_INDEX_SIZE];
+
+      private int indexed;
+
+      void clear()
       {
-         this.bytes = bytes;
+         index = new int[MIN_INDEX_SIZE];
+         indexed = 0;
       }
 
-      final byte[] bytes;
+      int positionAt(final int slot)
+      {
+         return index[slot] - 1;
+      }
 
-      int hash;
+      /**
+       * @return the index slot holding the id, or -1
+       */
+      int find(final byte[] id, final int hash)
+      {
+         int mask = index.length - 1;
 
-      int pos;
+         for (int slot = hash & mask; index[slot] != 0; slot = (slot + 1) & mask)
+         {
+            if (matches(index[slot] - 1, id, hash))
+            {
+               return slot;
+            }
+         }
 
-      @Override
-      public boolean equals(final Object other)
+         return -1;
+      }
+
+      int indexOf(final int position)
       {
-         if (other instanceof ByteArrayHolder)
+         int mask = index.length - 1;
+
+         int slot = hashAt(position) & mask;
+         while (index[slot] != position + 1)
          {
-            ByteArrayHolder s = (ByteArrayHolder) other;
+            slot = (slot + 1) & mask;
+         }
 
-            if (bytes.length != s.bytes.length)
-            {
-               return false;
-            }
+         return slot;
+      }
 
-            for (int i = 0; i < bytes.length; i++)
+      void addToIndex(final int position, final int hash)
+      {
+         if ((indexed + 1) * 2 > index.length)
+         {
+            int[] old = index;
+            index = new int[old.length * 2];
+            for (int value : old)
             {
-               if (bytes[i] != s.bytes[i])
+               if (value != 0)
                {
-                  return false;
+                  insert(value - 1, hashAt(value - 1));
                }
             }
-
-            return true;
          }
-         else
+
+         insert(position, hash);
+
+         indexed++;
+      }
+
+      private void insert(final int position, final int hash)
+      {
+         int mask = index.length - 1;
+
+         int slot = hash & mask;
+         while (index[slot] != 0)
          {
-            return false;
+            slot = (slot + 1) & mask;
          }
+
+         index[slot] = position + 1;
       }
 
-      @Override
-      public int hashCode()
+      // removal on linear probing, shifting back the entries that would not be found anymore
+      void unindex(int slot)
       {
-         if (hash == 0)
+         int mask = index.length - 1;
+
+         int next = slot;
+         while (true)
          {
-            for (byte b : bytes)
+            next = (next + 1) & mask;
+
+            int value = index[next];
+            if (value == 0)
+            {
+               break;
+            }
+
+            int home = hashAt(value - 1) & mask;
+
+            boolean reachable = slot <= next ? slot < home && home <= next : slot < home || home <= next;
+            if (!reachable)
             {
-               hash = 31 * hash + b;
+               index[slot] = value;
+               slot = next;
             }
          }
 
-         return hash;
+         index[slot] = 0;
+
+         indexed--;
       }
    }
 }
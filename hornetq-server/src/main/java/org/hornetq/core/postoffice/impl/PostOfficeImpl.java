@@ -63,6 +63,7 @@ import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.group.GroupingHandler;
 import org.hornetq.core.server.impl.RoutingContextImpl;
 import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.core.server.impl.ShardedQueue;
 import org.hornetq.core.server.management.ManagementService;
 import org.hornetq.core.server.management.Notification;
 import org.hornetq.core.server.management.NotificationListener;
@@ -352,8 +353,7 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
                      // We have a local queue
                      Queue queue = (Queue) binding.getBindable();
 
-                     AddressSettings addressSettings = addressSettingsRepository.getMatch(binding.getAddress()
-                                                                                             .toString());
+                     AddressSettings addressSettings = addressSettingsRepository.getMatch(binding.getAddress());
 
                      long redistributionDelay = addressSettings.getRedistributionDelay();
 
@@ -422,8 +422,7 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
                      Queue queue = (Queue) binding.getBindable();
 
-                     AddressSettings addressSettings = addressSettingsRepository.getMatch(binding.getAddress()
-                                                                                             .toString());
+                     AddressSettings addressSettings = addressSettingsRepository.getMatch(binding.getAddress());
 
                      long redistributionDelay = addressSettings.getRedistributionDelay();
 
@@ -638,7 +637,9 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
       AtomicBoolean startedTX = new AtomicBoolean(false);
 
-      applyExpiryDelay(message, address);
+      AddressSettings addressSettings = addressSettingsRepository.getMatch(address);
+
+      applyExpiryDelay(message, addressSettings);
 
       if (!checkDuplicateID(message, context, rejectDuplicates, startedTX))
       {
@@ -674,79 +675,271 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
       if (context.getQueueCount() == 0)
       {
-         // Send to DLA if appropriate
+         routeWithoutQueues(message, context, addressSettings);
+      }
+      else
+      {
+         try
+         {
+            processRoute(message, context, direct);
+         }
+         catch (HornetQAddressFullException e)
+         {
+            if (startedTX.get())
+            {
+               context.getTransaction().rollback();
+            }
+            else if (context.getTransaction() != null)
+            {
+               context.getTransaction().markAsRollbackOnly(e);
+            }
+            throw e;
+         }
+      }
 
-         AddressSettings addressSettings = addressSettingsRepository.getMatch(address.toString());
+      if (startedTX.get())
+      {
+         context.getTransaction().commit();
+      }
+   }
+
+   public void route(final List<ServerMessage> messages, final RoutingContext context, final boolean direct) throws Exception
+   {
+      Transaction tx = context.getTransaction();
 
-         boolean sendToDLA = addressSettings.isSendToDLAOnNoRoute();
+      List<ServerMessage> routed = new ArrayList<ServerMessage>(messages.size());
 
-         if (sendToDLA)
-         {
-            // Send to the DLA for the address
+      List<RoutingContext> routedContexts = new ArrayList<RoutingContext>(messages.size());
 
-            SimpleString dlaAddress = addressSettings.getDeadLetterAddress();
+      SimpleString address = null;
+
+      Bindings bindings = null;
+
+      AddressSettings addressSettings = null;
+
+      PagingStore store = null;
+
+      // the duplicate ids of the batch are only added to their caches once stored, so they are checked against each
+      // other here
+      Map<SimpleString, Set<SimpleString>> batchDuplicateIDs = null;
+
+      for (ServerMessage message : messages)
+      {
+         byte[] bridgeDupBytes = (byte[]) message.getObjectProperty(MessageImpl.HDR_BRIDGE_DUPLICATE_ID);
 
-            if (HornetQServerLogger.LOGGER.isDebugEnabled())
+         byte[] duplicateIDBytes = bridgeDupBytes == null ? message.getDuplicateIDBytes() : bridgeDupBytes;
+
+         if (duplicateIDBytes != null)
+         {
+            if (batchDuplicateIDs == null)
             {
-               HornetQServerLogger.LOGGER.debug("sending message to dla address = " + dlaAddress + ", message=" + message);
+               batchDuplicateIDs = new HashMap<SimpleString, Set<SimpleString>>();
             }
 
-            if (dlaAddress == null)
+            SimpleString cacheName = bridgeDupBytes == null ? message.getAddress()
+               : BRIDGE_CACHE_STR.concat(message.getAddress());
+
+            Set<SimpleString> ids = batchDuplicateIDs.get(cacheName);
+
+            if (ids == null)
             {
-               HornetQServerLogger.LOGGER.noDLA(address);
+               ids = new HashSet<SimpleString>();
+               batchDuplicateIDs.put(cacheName, ids);
             }
-            else
-            {
-               message.setOriginalHeaders(message, null, false);
 
-               message.setAddress(dlaAddress);
+            if (!ids.add(new SimpleString(duplicateIDBytes)))
+            {
+               rejectBatchDuplicate(message, tx, bridgeDupBytes != null);
 
-               route(message, context.getTransaction(), false);
+               continue;
             }
          }
-         else
+
+         if (message.isLargeMessage() || duplicateIDBytes != null ||
+            message.containsProperty(Message.HDR_SCHEDULED_DELIVERY_TIME))
          {
-            if (HornetQServerLogger.LOGGER.isDebugEnabled())
-            {
-               HornetQServerLogger.LOGGER.debug("Message " + message + " is not going anywhere as it didn't have a binding on address:" + address);
-            }
+            // these may need a transaction or journal records of their own: the messages routed so far go first,
+            // keeping the order
+            processRoutes(routed, routedContexts, tx, direct);
 
-            if (message.isLargeMessage())
-            {
-               ((LargeServerMessage) message).deleteFile();
-            }
+            routed.clear();
+            routedContexts.clear();
+
+            route(message, new RoutingContextImpl(tx), direct);
+
+            continue;
+         }
+
+         // Sanity check
+         if (message.getRefCount() > 0)
+         {
+            throw new IllegalStateException("Message cannot be routed more than once");
+         }
+
+         if (!message.getAddress().equals(address))
+         {
+            address = message.getAddress();
+            bindings = addressManager.getBindingsForRoutingAddress(address);
+            addressSettings = addressSettingsRepository.getMatch(address);
+            store = pagingManager.getPageStore(address);
+         }
+
+         message.setPagingStore(store);
+
+         applyExpiryDelay(message, addressSettings);
+
+         if (message.hasInternalProperties())
+         {
+            cleanupInternalPropertiesBeforeRouting(message);
+         }
+
+         RoutingContext messageContext = new RoutingContextImpl(tx);
+
+         if (bindings != null)
+         {
+            bindings.route(message, messageContext);
+         }
+         else if (HornetQServerLogger.LOGGER.isDebugEnabled())
+         {
+            HornetQServerLogger.LOGGER.debug("Couldn't find any bindings for address=" + address + " on message=" + message);
+         }
+
+         if (messageContext.getQueueCount() == 0)
+         {
+            routeWithoutQueues(message, messageContext, addressSettings);
+         }
+         else
+         {
+            routed.add(message);
+            routedContexts.add(messageContext);
          }
       }
+
+      processRoutes(routed, routedContexts, tx, direct);
+   }
+
+   private void rejectBatchDuplicate(final ServerMessage message, final Transaction tx, final boolean thruBridge) throws Exception
+   {
+      HornetQDuplicateIdException exception;
+
+      if (thruBridge)
+      {
+         HornetQServerLogger.LOGGER.duplicateMessageDetectedThruBridge(message);
+
+         exception = new HornetQDuplicateIdException();
+      }
       else
       {
-         try
+         HornetQServerLogger.LOGGER.duplicateMessageDetected(message);
+
+         exception = new HornetQDuplicateIdException("Duplicate message detected - message will not be routed. Message information:" +
+                                                        message.toString());
+      }
+
+      if (tx != null)
+      {
+         tx.markAsRollbackOnly(exception);
+      }
+
+      message.decrementRefCount();
+   }
+
+   /**
+    * Stores the messages routed by a batch, the references being added to their queues once all of them are stored.
+    * Without a transaction only the last reference stored is synced.
+    */
+   private void processRoutes(final List<ServerMessage> messages,
+                              final List<RoutingContext> contexts,
+                              final Transaction tx,
+                              final boolean direct) throws Exception
+   {
+      if (messages.isEmpty())
+      {
+         return;
+      }
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      PendingReference pending = tx == null ? new PendingReference() : null;
+
+      try
+      {
+         for (int i = 0; i < messages.size(); i++)
          {
-            processRoute(message, context, direct);
+            storeReferences(messages.get(i), contexts.get(i), refs, pending);
          }
-         catch (HornetQAddressFullException e)
+      }
+      catch (HornetQAddressFullException e)
+      {
+         if (tx != null)
          {
-            if (startedTX.get())
-            {
-               context.getTransaction().rollback();
-            }
-            else if (context.getTransaction() != null)
-            {
-               context.getTransaction().markAsRollbackOnly(e);
-            }
-            throw e;
+            tx.markAsRollbackOnly(e);
          }
+         throw e;
       }
+      finally
+      {
+         if (pending != null)
+         {
+            pending.store(true);
+         }
 
-      if (startedTX.get())
+         scheduleAddReferences(tx, refs, direct);
+      }
+   }
+
+   private void routeWithoutQueues(final ServerMessage message,
+                                   final RoutingContext context,
+                                   final AddressSettings addressSettings) throws Exception
+   {
+      SimpleString address = message.getAddress();
+
+      // Send to DLA if appropriate
+
+      boolean sendToDLA = addressSettings.isSendToDLAOnNoRoute();
+
+      if (sendToDLA)
       {
-         context.getTransaction().commit();
+         // Send to the DLA for the address
+
+         SimpleString dlaAddress = addressSettings.getDeadLetterAddress();
+
+         if (HornetQServerLogger.LOGGER.isDebugEnabled())
+         {
+            HornetQServerLogger.LOGGER.debug("sending message to dla address = " + dlaAddress + ", message=" + message);
+         }
+
+         if (dlaAddress == null)
+         {
+            HornetQServerLogger.LOGGER.noDLA(address);
+         }
+         else
+         {
+            message.setOriginalHeaders(message, null, false);
+
+            message.setAddress(dlaAddress);
+
+            route(message, context.getTransaction(), false);
+         }
+      }
+      else
+      {
+         if (HornetQServerLogger.LOGGER.isDebugEnabled())
+         {
+            HornetQServerLogger.LOGGER.debug("Message " + message + " is not going anywhere as it didn't have a binding on address:" + address);
+         }
+
+         if (message.isLargeMessage())
+         {
+            ((LargeServerMessage) message).deleteFile();
+         }
       }
    }
 
    // HORNETQ-1029
-   private void applyExpiryDelay(ServerMessage message, SimpleString address)
+   private void applyExpiryDelay(ServerMessage message, AddressSettings addressSettings)
    {
-      long expirationOverride = addressSettingsRepository.getMatch(address.toString()).getExpiryDelay();
+      long expirationOverride = addressSettings.getExpiryDelay();
 
       // A -1 <expiry-delay> means don't do anything
       if (expirationOverride >= 0)
@@ -759,10 +952,16 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
       }
    }
 
-   public MessageReference reroute(final ServerMessage message, final Queue queue, final Transaction tx) throws Exception
+   public MessageReference reroute(final ServerMessage message, Queue queue, final Transaction tx) throws Exception
    {
       setPagingStore(message);
 
+      if (queue instanceof ShardedQueue)
+      {
+         // references always belong to one of the shards
+         queue = ((ShardedQueue) queue).selectReloadShard(message);
+      }
+
       MessageReference reference = message.createReference(queue);
 
       if (message.containsProperty(Message.HDR_SCHEDULED_DELIVERY_TIME))
@@ -1032,6 +1231,20 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
    {
       final List<MessageReference> refs = new ArrayList<MessageReference>();
 
+      storeReferences(message, context, refs, null);
+
+      scheduleAddReferences(context.getTransaction(), refs, direct);
+   }
+
+   /**
+    * @param pending where the last reference stored without a transaction is held until the next one, so only the
+    *                last of a batch gets synced. <code>null</code> syncs the last reference of each address.
+    */
+   private void storeReferences(final ServerMessage message,
+                                final RoutingContext context,
+                                final List<MessageReference> refs,
+                                final PendingReference pending) throws Exception
+   {
       Transaction tx = context.getTransaction();
 
       for (Map.Entry<SimpleString, RouteContextList> entry : context.getContexListing().entrySet())
@@ -1118,6 +1331,10 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
                   tx.setContainsPersistent();
                }
+               else if (pending != null)
+               {
+                  pending.hold(queue.getID(), message.getMessageID());
+               }
                else
                {
                   storageManager.storeReference(queue.getID(), message.getMessageID(), !iter.hasNext());
@@ -1139,6 +1356,14 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
             message.incrementRefCount();
          }
       }
+   }
+
+   private void scheduleAddReferences(final Transaction tx, final List<MessageReference> refs, final boolean direct)
+   {
+      if (refs.isEmpty())
+      {
+         return;
+      }
 
       if (tx != null)
       {
@@ -1430,6 +1655,38 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
       }
    }
 
+   /**
+    * The last reference stored by a batch without a transaction, held back until the next one so that only the last
+    * of the batch is synced.
+    */
+   private final class PendingReference
+   {
+      private boolean held;
+
+      private long queueID;
+
+      private long messageID;
+
+      void hold(final long queueID, final long messageID) throws Exception
+      {
+         store(false);
+
+         this.queueID = queueID;
+         this.messageID = messageID;
+         held = true;
+      }
+
+      void store(final boolean last) throws Exception
+      {
+         if (held)
+         {
+            held = false;
+
+            storageManager.storeReference(queueID, messageID, last);
+         }
+      }
+   }
+
    public static final class AddOperation implements TransactionOperation
    {
       private final List<MessageReference> refs;
@@ -13,7 +13,8 @@
 package org.hornetq.core.postoffice.impl;
 
 import java.util.Collection;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -49,6 +50,14 @@ public class WildcardAddressManager extends SimpleAddressManager
 
    private final Map<SimpleString, Address> wildCardAddresses = new ConcurrentHashMap<SimpleString, Address>();
 
+   /**
+    * The same addresses by their words, to link an address to its matches without looking at all the others. Only
+    * used while holding the lock on this.
+    */
+   private final AddressTree addressTree = new AddressTree();
+
+   private final AddressTree wildCardAddressTree = new AddressTree();
+
    public WildcardAddressManager(final BindingsFactory bindingsFactory)
    {
       super(bindingsFactory);
@@ -149,8 +158,13 @@ public class WildcardAddressManager extends SimpleAddressManager
    public void clear()
    {
       super.clear();
-      addresses.clear();
-      wildCardAddresses.clear();
+      synchronized (this)
+      {
+         addresses.clear();
+         wildCardAddresses.clear();
+         addressTree.clear();
+         wildCardAddressTree.clear();
+      }
    }
 
    private Address getAddress(final SimpleString address)
@@ -185,9 +199,11 @@ public class WildcardAddressManager extends SimpleAddressManager
          actualAddress = add;
          addAddress(address, actualAddress);
       }
+      Set<Address> candidates = new LinkedHashSet<Address>();
       if (actualAddress.containsWildCard())
       {
-         for (Address destAdd : addresses.values())
+         addressTree.collectMatchedBy(actualAddress, candidates);
+         for (Address destAdd : candidates)
          {
             if (destAdd.matches(actualAddress))
             {
@@ -198,7 +214,8 @@ public class WildcardAddressManager extends SimpleAddressManager
       }
       else
       {
-         for (Address destAdd : wildCardAddresses.values())
+         wildCardAddressTree.collectWildcardsMatching(actualAddress, candidates);
+         for (Address destAdd : candidates)
          {
             if (actualAddress.matches(destAdd))
             {
@@ -216,10 +233,12 @@ public class WildcardAddressManager extends SimpleAddressManager
       if (actualAddress.containsWildCard())
       {
          wildCardAddresses.put(address, actualAddress);
+         wildCardAddressTree.put(actualAddress);
       }
       else
       {
          addresses.put(address, actualAddress);
+         addressTree.put(actualAddress);
       }
    }
 
@@ -229,7 +248,7 @@ public class WildcardAddressManager extends SimpleAddressManager
       Bindings bindings = super.getBindingsForRoutingAddress(address.getAddress());
       if (bindings == null || bindings.getBindings().size() == 0)
       {
-         List<Address> addresses = address.getLinkedAddresses();
+         Collection<Address> addresses = address.getLinkedAddresses();
          for (Address address1 : addresses)
          {
             address1.removeLinkedAddress(address);
@@ -248,10 +267,12 @@ public class WildcardAddressManager extends SimpleAddressManager
       if (add.containsWildCard())
       {
          wildCardAddresses.remove(add.getAddress());
+         wildCardAddressTree.remove(add);
       }
       else
       {
          addresses.remove(add.getAddress());
+         addressTree.remove(add);
       }
    }
 }
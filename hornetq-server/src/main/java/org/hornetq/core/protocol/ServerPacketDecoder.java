@@ -33,10 +33,12 @@ import static org.hornetq.core.protocol.core.impl.PacketImpl.REPLICATION_PAGE_WR
 import static org.hornetq.core.protocol.core.impl.PacketImpl.REPLICATION_PREPARE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.REPLICATION_RESPONSE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_BATCH;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_LARGE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SCALEDOWN_ANNOUNCEMENT;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.message.impl.MessageImpl;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.BackupRegistrationMessage;
@@ -64,6 +66,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.ReplicationResponseMessage
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationStartSyncMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationSyncFileMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ScaleDownAnnounceMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
 import org.hornetq.core.server.impl.ServerMessageImpl;
@@ -77,6 +80,15 @@ public class ServerPacketDecoder extends ClientPacketDecoder
    private static final long serialVersionUID = 3348673114388400766L;
    public static final ServerPacketDecoder INSTANCE = new ServerPacketDecoder();
 
+   private static final SessionSendBatchMessage.MessageFactory BATCH_MESSAGE_FACTORY = new SessionSendBatchMessage.MessageFactory()
+   {
+      public MessageImpl createMessage()
+      {
+         // the id is assigned by the session
+         return new ServerMessageImpl(-1, 50);
+      }
+   };
+
    @Override
    public Packet decode(final HornetQBuffer in)
    {
@@ -92,6 +104,11 @@ public class ServerPacketDecoder extends ClientPacketDecoder
             packet = new SessionSendMessage(new ServerMessageImpl());
             break;
          }
+         case SESS_SEND_BATCH:
+         {
+            packet = new SessionSendBatchMessage(BATCH_MESSAGE_FACTORY);
+            break;
+         }
          case SESS_SEND_LARGE:
          {
             packet = new SessionSendLargeMessage(new ServerMessageImpl());
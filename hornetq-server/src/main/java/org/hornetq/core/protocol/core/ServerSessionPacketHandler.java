@@ -28,6 +28,7 @@ import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_INDIVIDUAL_ACK
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_QUEUEQUERY;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_ROLLBACK;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND;
+import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_BATCH;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_CONTINUATION;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_SEND_LARGE;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_START;
@@ -46,6 +47,7 @@ import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_XA_START;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_XA_FAILED;
 import static org.hornetq.core.protocol.core.impl.PacketImpl.SESS_XA_SUSPEND;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.transaction.xa.XAResource;
@@ -56,6 +58,7 @@ import org.hornetq.api.core.HornetQExceptionType;
 import org.hornetq.api.core.HornetQInternalErrorException;
 import org.hornetq.core.exception.HornetQXAException;
 import org.hornetq.core.journal.IOAsyncTask;
+import org.hornetq.core.message.impl.MessageInternal;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.CreateQueueMessage;
@@ -78,6 +81,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionIndividualAcknowled
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionQueueQueryResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionRequestProducerCreditsMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
@@ -474,6 +478,22 @@ public class ServerSessionPacketHandler implements ChannelHandler
                   }
                   break;
                }
+               case SESS_SEND_BATCH:
+               {
+                  SessionSendBatchMessage message = (SessionSendBatchMessage)packet;
+                  requiresResponse = message.isRequiresResponse();
+                  List<ServerMessage> messages = new ArrayList<ServerMessage>(message.getMessages().size());
+                  for (MessageInternal msg : message.getMessages())
+                  {
+                     messages.add((ServerMessage)msg);
+                  }
+                  session.sendBatch(messages, direct);
+                  if (requiresResponse)
+                  {
+                     response = new NullResponseMessage();
+                  }
+                  break;
+               }
                case SESS_SEND_LARGE:
                {
                   SessionSendLargeMessage message = (SessionSendLargeMessage)packet;
@@ -525,13 +525,13 @@ public class ReplicatedJournal implements Journal
    @Override
    public JournalFile[] getDataFiles()
    {
-      throw new UnsupportedOperationException();
+      return localJournal.getDataFiles();
    }
 
    @Override
    public SequentialFileFactory getFileFactory()
    {
-      throw new UnsupportedOperationException();
+      return localJournal.getFileFactory();
    }
 
    public int getFileSize()
@@ -293,7 +293,8 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
                                                             config.getJournalBufferSize_NIO(),
                                                             server.getScheduledPool(),
                                                             server.getExecutorFactory(),
-                                                            config.isJournalSyncNonTransactional(), criticalErrorListener),
+                                                            config.isJournalSyncNonTransactional(), criticalErrorListener,
+                                                            config.getGlobalPageCacheMaxSize()),
                                   server.getAddressSettingsRepository());
 
          pageManager.start();
@@ -27,4 +27,19 @@ public interface SecurityStore
    void check(SimpleString address, CheckType checkType, ServerSession session) throws Exception;
 
    void stop();
+
+   /**
+    * Returns the number of authentications and authorizations answered from the cache.
+    */
+   long getCacheHitCount();
+
+   /**
+    * Returns the number of authentications and authorizations the cache had no decision for.
+    */
+   long getCacheMissCount();
+
+   /**
+    * Returns the number of decisions currently cached.
+    */
+   int getCacheSize();
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.security.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of security decisions.
+ * <p/>
+ * Granted and denied decisions expire after their own timeout, a timeout not greater than zero meaning those
+ * decisions are not cached. The entries are spread over segments by hash, each segment evicting its least recently
+ * used entry once it holds its share of the maximum size.
+ */
+final class SecurityCache<K>
+{
+   private static final int SEGMENTS = 16;
+
+   private final Segment<K>[] segments;
+
+   private final long grantedTimeout;
+
+   private final long deniedTimeout;
+
+   private final AtomicLong hits = new AtomicLong();
+
+   private final AtomicLong misses = new AtomicLong();
+
+   @SuppressWarnings("unchecked")
+   SecurityCache(final int maxSize, final long grantedTimeout, final long deniedTimeout)
+   {
+      this.grantedTimeout = maxSize > 0 ? grantedTimeout : 0;
+      this.deniedTimeout = maxSize > 0 ? deniedTimeout : 0;
+
+      int segmentCount = maxSize >= SEGMENTS * SEGMENTS ? SEGMENTS : 1;
+
+      segments = new Segment[segmentCount];
+
+      for (int i = 0; i < segmentCount; i++)
+      {
+         segments[i] = new Segment<K>((maxSize + segmentCount - 1) / segmentCount);
+      }
+   }
+
+   /**
+    * @return the cached decision, or <code>null</code> if there is none or it has expired
+    */
+   Boolean get(final K key, final long now)
+   {
+      if (grantedTimeout <= 0 && deniedTimeout <= 0)
+      {
+         return null;
+      }
+
+      Segment<K> segment = segmentFor(key);
+
+      Entry entry;
+
+      synchronized (segment)
+      {
+         entry = segment.get(key);
+
+         if (entry != null && now - entry.expiry >= 0)
+         {
+            segment.remove(key);
+
+            entry = null;
+         }
+      }
+
+      if (entry == null)
+      {
+         misses.incrementAndGet();
+
+         return null;
+      }
+
+      hits.incrementAndGet();
+
+      return entry.granted;
+   }
+
+   void put(final K key, final boolean granted, final long now)
+   {
+      long timeout = granted ? grantedTimeout : deniedTimeout;
+
+      if (timeout <= 0)
+      {
+         return;
+      }
+
+      Segment<K> segment = segmentFor(key);
+
+      synchronized (segment)
+      {
+         segment.put(key, new Entry(granted, now + timeout));
+      }
+   }
+
+   void clear()
+   {
+      for (Segment<K> segment : segments)
+      {
+         synchronized (segment)
+         {
+            segment.clear();
+         }
+      }
+   }
+
+   int size()
+   {
+      int size = 0;
+
+      for (Segment<K> segment : segments)
+      {
+         synchronized (segment)
+         {
+            size += segment.size();
+         }
+      }
+
+      return size;
+   }
+
+   long getHitCount()
+   {
+      return hits.get();
+   }
+
+   long getMissCount()
+   {
+      return misses.get();
+   }
+
+   private Segment<K> segmentFor(final K key)
+   {
+      int h = key.hashCode();
+
+      h ^= (h >>> 20) ^ (h >>> 12);
+      h ^= (h >>> 7) ^ (h >>> 4);
+
+      return segments[h & (segments.length - 1)];
+   }
+
+   private static final class Entry
+   {
+      final boolean granted;
+
+      final long expiry;
+
+      Entry(final boolean granted, final long expiry)
+      {
+         this.granted = granted;
+         this.expiry = expiry;
+      }
+   }
+
+   private static final class Segment<K> extends LinkedHashMap<K, Entry>
+   {
+      private static final long serialVersionUID = 7457302645297469417L;
+
+      private final int maxSize;
+
+      Segment(final int maxSize)
+      {
+         super(16, 0.75f, true);
+         this.maxSize = maxSize;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<K, Entry> eldest)
+      {
+         return size() > maxSize;
+      }
+   }
+}
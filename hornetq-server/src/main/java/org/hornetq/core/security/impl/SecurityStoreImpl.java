@@ -14,9 +14,11 @@ package org.hornetq.core.security.impl;
 
 import static org.hornetq.api.core.management.NotificationType.SECURITY_AUTHENTICATION_VIOLATION;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.management.ManagementHelper;
@@ -32,11 +34,15 @@ import org.hornetq.core.server.management.NotificationService;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.HierarchicalRepositoryChangeListener;
 import org.hornetq.spi.core.security.HornetQSecurityManager;
-import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.TypedProperties;
 
 /**
  * The HornetQ SecurityStore implementation
+ * <p/>
+ * Decisions of the security manager are kept on bounded caches, authentications by user and password digest and
+ * authorizations by user, address and check type. Granted decisions expire after the invalidation interval and
+ * denied ones after the negative invalidation interval. Changes to the security settings invalidate the
+ * authorizations.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  * @author <a href="ataylor@redhat.com">Andy Taylor</a>
@@ -59,11 +65,9 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
 
    private final HornetQSecurityManager securityManager;
 
-   private final ConcurrentMap<String, ConcurrentHashSet<SimpleString>> cache = new ConcurrentHashMap<String, ConcurrentHashSet<SimpleString>>();
+   private final SecurityCache<AuthenticationKey> authenticationCache;
 
-   private final long invalidationInterval;
-
-   private volatile long lastCheck;
+   private final SecurityCache<AuthorizationKey> authorizationCache;
 
    private final boolean securityEnabled;
 
@@ -81,6 +85,8 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
    public SecurityStoreImpl(final HierarchicalRepository<Set<Role>> securityRepository,
                             final HornetQSecurityManager securityManager,
                             final long invalidationInterval,
+                            final long negativeInvalidationInterval,
+                            final int cacheSize,
                             final boolean securityEnabled,
                             final String managementClusterUser,
                             final String managementClusterPassword,
@@ -88,7 +94,12 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
    {
       this.securityRepository = securityRepository;
       this.securityManager = securityManager;
-      this.invalidationInterval = invalidationInterval;
+      authenticationCache = new SecurityCache<AuthenticationKey>(cacheSize,
+                                                                 invalidationInterval,
+                                                                 negativeInvalidationInterval);
+      authorizationCache = new SecurityCache<AuthorizationKey>(cacheSize,
+                                                               invalidationInterval,
+                                                               negativeInvalidationInterval);
       this.securityEnabled = securityEnabled;
       this.managementClusterUser = managementClusterUser;
       this.managementClusterPassword = managementClusterPassword;
@@ -129,7 +140,20 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
             }
          }
 
-         if (!securityManager.validateUser(user, password))
+         AuthenticationKey key = new AuthenticationKey(user, password);
+
+         long now = System.currentTimeMillis();
+
+         Boolean validated = authenticationCache.get(key, now);
+
+         if (validated == null)
+         {
+            validated = securityManager.validateUser(user, password);
+
+            authenticationCache.put(key, validated, now);
+         }
+
+         if (!validated)
          {
             if (notificationService != null)
             {
@@ -157,23 +181,29 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
          }
 
          String user = session.getUsername();
-         if (checkCached(address, user, checkType))
+
+         // bypass permission checks for management cluster user
+         if (managementClusterUser.equals(user) && session.getPassword().equals(managementClusterPassword))
          {
-            // OK
             return;
          }
 
-         String saddress = address.toString();
+         AuthorizationKey key = new AuthorizationKey(user, address, checkType);
 
-         Set<Role> roles = securityRepository.getMatch(saddress);
+         long now = System.currentTimeMillis();
 
-         // bypass permission checks for management cluster user
-         if (managementClusterUser.equals(user) && session.getPassword().equals(managementClusterPassword))
+         Boolean granted = authorizationCache.get(key, now);
+
+         if (granted == null)
          {
-            return;
+            Set<Role> roles = securityRepository.getMatch(address);
+
+            granted = securityManager.validateUserAndRole(user, session.getPassword(), roles, checkType);
+
+            authorizationCache.put(key, granted, now);
          }
 
-         if (!securityManager.validateUserAndRole(user, session.getPassword(), roles, checkType))
+         if (!granted)
          {
             if (notificationService != null)
             {
@@ -188,23 +218,29 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
                notificationService.sendNotification(notification);
             }
 
-            throw HornetQMessageBundle.BUNDLE.userNoPermissions(session.getUsername(), checkType, saddress);
+            throw HornetQMessageBundle.BUNDLE.userNoPermissions(session.getUsername(), checkType, address.toString());
          }
-         // if we get here we're granted, add to the cache
-         ConcurrentHashSet<SimpleString> set = new ConcurrentHashSet<SimpleString>();
-         ConcurrentHashSet<SimpleString> act = cache.putIfAbsent(user + "." + checkType.name(), set);
-         if (act != null)
-         {
-            set = act;
-         }
-         set.add(address);
-
       }
    }
 
    public void onChange()
    {
-      invalidateCache();
+      authorizationCache.clear();
+   }
+
+   public long getCacheHitCount()
+   {
+      return authenticationCache.getHitCount() + authorizationCache.getHitCount();
+   }
+
+   public long getCacheMissCount()
+   {
+      return authenticationCache.getMissCount() + authorizationCache.getMissCount();
+   }
+
+   public int getCacheSize()
+   {
+      return authenticationCache.size() + authorizationCache.size();
    }
 
    // Public --------------------------------------------------------
@@ -214,35 +250,99 @@ public class SecurityStoreImpl implements SecurityStore, HierarchicalRepositoryC
    // Package Private -----------------------------------------------
 
    // Private -------------------------------------------------------
-   private void invalidateCache()
-   {
-      cache.clear();
-   }
 
-   private boolean checkCached(final SimpleString dest, final String user, final CheckType checkType)
+   // Inner class ---------------------------------------------------
+
+   private static final class AuthenticationKey
    {
-      long now = System.currentTimeMillis();
+      private final String user;
 
-      boolean granted = false;
+      // a digest, so that the cache doesn't keep the passwords around
+      private final byte[] password;
 
-      if (now - lastCheck > invalidationInterval)
-      {
-         invalidateCache();
+      private final int hash;
 
-         lastCheck = now;
+      AuthenticationKey(final String user, final String password)
+      {
+         this.user = user;
+         this.password = password == null ? null : digest(password);
+         hash = 31 * (user == null ? 0 : user.hashCode()) + Arrays.hashCode(this.password);
       }
-      else
+
+      private static byte[] digest(final String password)
       {
-         ConcurrentHashSet<SimpleString> act = cache.get(user + "." + checkType.name());
-         if (act != null)
+         try
+         {
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+         }
+         catch (NoSuchAlgorithmException e)
          {
-            granted = act.contains(dest);
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
          }
       }
 
-      return granted;
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+
+      @Override
+      public boolean equals(final Object other)
+      {
+         if (this == other)
+         {
+            return true;
+         }
+         if (!(other instanceof AuthenticationKey))
+         {
+            return false;
+         }
+         AuthenticationKey key = (AuthenticationKey) other;
+         return hash == key.hash && (user == null ? key.user == null : user.equals(key.user)) &&
+            Arrays.equals(password, key.password);
+      }
    }
 
-   // Inner class ---------------------------------------------------
+   private static final class AuthorizationKey
+   {
+      private final String user;
 
+      private final SimpleString address;
+
+      private final CheckType checkType;
+
+      private final int hash;
+
+      AuthorizationKey(final String user, final SimpleString address, final CheckType checkType)
+      {
+         this.user = user;
+         this.address = address;
+         this.checkType = checkType;
+         hash = 31 * (31 * (user == null ? 0 : user.hashCode()) + address.hashCode()) + checkType.ordinal();
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+
+      @Override
+      public boolean equals(final Object other)
+      {
+         if (this == other)
+         {
+            return true;
+         }
+         if (!(other instanceof AuthorizationKey))
+         {
+            return false;
+         }
+         AuthorizationKey key = (AuthorizationKey) other;
+         return hash == key.hash && checkType == key.checkType && address.equals(key.address) &&
+            (user == null ? key.user == null : user.equals(key.user));
+      }
+   }
 }
@@ -356,4 +356,7 @@ public interface HornetQMessageBundle
 
    @Message(id = 119105, value = "Server will not accept create session request since scale down has not occurred", format = Message.Format.MESSAGE_FORMAT)
    HornetQSessionCreationException sessionNotFailedOver();
+
+   @Message(id = 119106, value = "Invalid queue engine type {0}", format = Message.Format.MESSAGE_FORMAT)
+   IllegalArgumentException invalidQueueEngineType(String val);
 }
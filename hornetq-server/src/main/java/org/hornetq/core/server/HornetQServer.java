@@ -33,6 +33,7 @@ import org.hornetq.core.remoting.server.RemotingService;
 import org.hornetq.core.replication.ReplicationEndpoint;
 import org.hornetq.core.replication.ReplicationManager;
 import org.hornetq.core.security.Role;
+import org.hornetq.core.security.SecurityStore;
 import org.hornetq.core.server.cluster.ClusterConnection;
 import org.hornetq.core.server.cluster.ClusterManager;
 import org.hornetq.core.server.group.GroupingHandler;
@@ -120,6 +121,8 @@ public interface HornetQServer extends HornetQComponent
 
    HierarchicalRepository<Set<Role>> getSecurityRepository();
 
+   SecurityStore getSecurityStore();
+
    HierarchicalRepository<AddressSettings> getAddressSettingsRepository();
 
    int getConnectionCount();
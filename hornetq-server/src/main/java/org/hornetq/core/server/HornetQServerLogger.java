@@ -133,6 +133,14 @@ public interface HornetQServerLogger extends BasicLogger
    @Message(id = 221013, value = "Using NIO Journal", format = Message.Format.MESSAGE_FORMAT)
    void journalUseNIO();
 
+   @LogMessage(level = Logger.Level.INFO)
+   @Message(id = 221049, value = "Using io_uring Journal", format = Message.Format.MESSAGE_FORMAT)
+   void journalUseURing();
+
+   @LogMessage(level = Logger.Level.INFO)
+   @Message(id = 221051, value = "Using mapped Journal", format = Message.Format.MESSAGE_FORMAT)
+   void journalUseMapped();
+
    @LogMessage(level = Logger.Level.INFO)
    @Message(id = 221014, value = "{0}% loaded", format = Message.Format.MESSAGE_FORMAT)
    void percentLoaded(Long percent);
@@ -271,6 +279,10 @@ public interface HornetQServerLogger extends BasicLogger
    @Message(id = 221045, value = "libaio is not available, switching the configuration into NIO", format = Message.Format.MESSAGE_FORMAT)
    void switchingNIO();
 
+   @LogMessage(level = Logger.Level.INFO)
+   @Message(id = 221050, value = "io_uring is not available, switching the configuration into {0}", format = Message.Format.MESSAGE_FORMAT)
+   void switchingFromURing(JournalType journalType);
+
    @LogMessage(level = Logger.Level.INFO)
    @Message(id = 221046, value = "Unblocking message production on address ''{0}''; size is currently: {1} bytes; max-size-bytes: {2}", format = Message.Format.MESSAGE_FORMAT)
    void unblockingMessageProduction(SimpleString addressName, long currentSize, long maxSize);
@@ -279,6 +291,11 @@ public interface HornetQServerLogger extends BasicLogger
    @Message(id = 221047, value = "Backup Server has scaled down to live server", format = Message.Format.MESSAGE_FORMAT)
    void backupServerScaledDown();
 
+   @LogMessage(level = Logger.Level.INFO)
+   @Message(id = 221048, value = "Message journal with {0} records loaded in {1} ms: reading journal {2} ms, decoding records {3} ms, adding references {4} ms, transactions and paging {5} ms",
+            format = Message.Format.MESSAGE_FORMAT)
+   void messageJournalLoaded(Integer records, Long total, Long read, Long decode, Long references, Long rest);
+
    @LogMessage(level = Logger.Level.WARN)
    @Message(id = 222000, value = "HornetQServer is being finalized and has not been stopped. Please remember to stop the server before letting it go out of scope",
             format = Message.Format.MESSAGE_FORMAT)
@@ -362,6 +379,13 @@ public interface HornetQServerLogger extends BasicLogger
       format = Message.Format.MESSAGE_FORMAT)
    void AIONotFound();
 
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(
+      id = 222189,
+      value = "io_uring was not located on this platform, it will fall back to the {0} journal. io_uring needs Linux 5.6 or later and a native library built with it",
+      format = Message.Format.MESSAGE_FORMAT)
+   void URingNotFound(JournalType journalType);
+
    @LogMessage(level = Logger.Level.WARN)
    @Message(id = 222019, value = "There is already a discovery group with name {0} deployed. This one will not be deployed.", format = Message.Format.MESSAGE_FORMAT)
    void discoveryGroupAlreadyDeployed(String name);
@@ -21,5 +21,5 @@ package org.hornetq.core.server;
  */
 public enum JournalType
 {
-   NIO, ASYNCIO;
+   NIO, ASYNCIO, IOURING, MAPPED;
 }
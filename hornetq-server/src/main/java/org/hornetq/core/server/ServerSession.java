@@ -109,6 +109,11 @@ public interface ServerSession
 
    void send(ServerMessage message, boolean direct) throws Exception;
 
+   /**
+    * Sends messages sent together as with {@link #send(ServerMessage, boolean)}, routing them as a batch.
+    */
+   void sendBatch(List<ServerMessage> messages, boolean direct) throws Exception;
+
    void sendLarge(MessageInternal msg) throws Exception;
 
    void forceConsumerDelivery(long consumerID, long sequence) throws Exception;
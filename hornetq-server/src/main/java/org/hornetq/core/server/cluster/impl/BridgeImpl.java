@@ -50,6 +50,7 @@ import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.cluster.Bridge;
 import org.hornetq.core.server.cluster.Transformer;
 import org.hornetq.core.server.impl.QueueImpl;
+import org.hornetq.core.server.impl.ShardedQueue;
 import org.hornetq.core.server.management.Notification;
 import org.hornetq.core.server.management.NotificationService;
 import org.hornetq.spi.core.protocol.RemotingConnection;
@@ -661,7 +662,14 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
             try
             {
                HornetQServerLogger.LOGGER.debug("Moving " + queue.getMessageCount() + " messages from " + queue.getName() + " to " + scaleDownTargetNodeID);
-               ((QueueImpl)queue).moveReferencesBetweenSnFQueues(SimpleString.toSimpleString(scaleDownTargetNodeID));
+               if (queue instanceof ShardedQueue)
+               {
+                  ((ShardedQueue)queue).moveReferencesBetweenSnFQueues(SimpleString.toSimpleString(scaleDownTargetNodeID));
+               }
+               else
+               {
+                  ((QueueImpl)queue).moveReferencesBetweenSnFQueues(SimpleString.toSimpleString(scaleDownTargetNodeID));
+               }
 
                // stop the bridge from trying to reconnect and clean up all the bindings
                fail(true);
@@ -78,6 +78,7 @@ import org.hornetq.core.journal.JournalLoadInformation;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.journal.impl.AIOSequentialFileFactory;
 import org.hornetq.core.journal.impl.SyncSpeedTest;
+import org.hornetq.core.journal.impl.URingSequentialFileFactory;
 import org.hornetq.core.management.impl.HornetQServerControlImpl;
 import org.hornetq.core.paging.PagingManager;
 import org.hornetq.core.paging.cursor.PageSubscription;
@@ -404,7 +405,8 @@ public class HornetQServerImpl implements HornetQServer
       {
          manager = new InVMNodeManager(replicatingBackup);
       }
-      else if (configuration.getJournalType() == JournalType.ASYNCIO && AsynchronousFileImpl.isLoaded())
+      else if ((configuration.getJournalType() == JournalType.ASYNCIO ||
+         configuration.getJournalType() == JournalType.IOURING) && AsynchronousFileImpl.isLoaded())
       {
          manager = new AIOFileLockNodeManager(directory, replicatingBackup, configuration.getJournalLockAcquisitionTimeout());
       }
@@ -1174,7 +1176,7 @@ public class HornetQServerImpl implements HornetQServer
                                    context);
    }
 
-   protected SecurityStore getSecurityStore()
+   public SecurityStore getSecurityStore()
    {
       return securityStore;
    }
@@ -1579,7 +1581,8 @@ public class HornetQServerImpl implements HornetQServer
                                                              scheduledPool,
                                                              executorFactory,
                                                              configuration.isJournalSyncNonTransactional(),
-                                                             shutdownOnCriticalIO),
+                                                             shutdownOnCriticalIO,
+                                                             configuration.getGlobalPageCacheMaxSize()),
                                    addressSettingsRepository);
    }
 
@@ -1647,6 +1650,13 @@ public class HornetQServerImpl implements HornetQServer
                                                         getThisClassLoader());
 
 
+      if (configuration.getJournalType() == JournalType.IOURING && !URingSequentialFileFactory.isSupported())
+      {
+         JournalType fallback = AIOSequentialFileFactory.isSupported() ? JournalType.ASYNCIO : JournalType.NIO;
+         HornetQServerLogger.LOGGER.switchingFromURing(fallback);
+         configuration.setJournalType(fallback);
+      }
+
       if (configuration.getJournalType() == JournalType.ASYNCIO && !AIOSequentialFileFactory.isSupported())
       {
          HornetQServerLogger.LOGGER.switchingNIO();
@@ -1699,6 +1709,8 @@ public class HornetQServerImpl implements HornetQServer
       securityStore = new SecurityStoreImpl(securityRepository,
                                             securityManager,
                                             configuration.getSecurityInvalidationInterval(),
+                                            configuration.getSecurityNegativeInvalidationInterval(),
+                                            configuration.getSecurityCacheSize(),
                                             configuration.isSecurityEnabled(),
                                             configuration.getClusterUser(),
                                             configuration.getClusterPassword(),
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.server.impl;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.paging.cursor.PageSubscription;
+import org.hornetq.core.persistence.StorageManager;
+import org.hornetq.core.postoffice.PostOffice;
+import org.hornetq.core.settings.HierarchicalRepository;
+import org.hornetq.core.settings.impl.AddressSettings;
+
+/**
+ * A queue optimized for many concurrent producers.
+ * <p>
+ * {@link #addTail(org.hornetq.core.server.MessageReference, boolean)} never delivers on the producer's thread and never
+ * synchronizes on the queue: references are appended to a multi-producer / single-consumer intake and only the first
+ * producer finding the intake idle schedules the delivery loop. The delivery loop is the single consumer of the intake,
+ * so producers don't contend with it, nor with management operations holding the queue's lock.
+ * <p>
+ * The price is latency on an empty queue, as there is always a hop through the queue's executor.
+ *
+ * @see org.hornetq.core.settings.impl.QueueEngine#LOCK_FREE
+ */
+public class LockFreeQueue extends QueueImpl
+{
+   public LockFreeQueue(final long persistenceID,
+                        final SimpleString address,
+                        final SimpleString name,
+                        final Filter filter,
+                        final PageSubscription pageSubscription,
+                        final boolean durable,
+                        final boolean temporary,
+                        final ScheduledExecutorService scheduledExecutor,
+                        final PostOffice postOffice,
+                        final StorageManager storageManager,
+                        final HierarchicalRepository<AddressSettings> addressSettingsRepository,
+                        final Executor executor)
+   {
+      super(persistenceID,
+            address,
+            name,
+            filter,
+            pageSubscription,
+            durable,
+            temporary,
+            scheduledExecutor,
+            postOffice,
+            storageManager,
+            addressSettingsRepository,
+            executor,
+            true);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "LockFreeQueue[name=" + getName() + "]@" + Integer.toHexString(System.identityHashCode(this));
+   }
+}
@@ -23,6 +23,7 @@ import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.QueueFactory;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.impl.AddressSettings;
+import org.hornetq.core.settings.impl.QueueEngine;
 import org.hornetq.utils.ExecutorFactory;
 
 /**
@@ -73,10 +74,53 @@ public class QueueFactoryImpl implements QueueFactory
                             final boolean durable,
                             final boolean temporary)
    {
-      AddressSettings addressSettings = addressSettingsRepository.getMatch(address.toString());
+      AddressSettings addressSettings = addressSettingsRepository.getMatch(address);
 
       Queue queue;
-      if (addressSettings.isLastValueQueue())
+      if (addressSettings.getQueueEngine() == QueueEngine.SHARDED)
+      {
+         QueueImpl[] shards = new QueueImpl[addressSettings.getQueueShards()];
+
+         for (int i = 0; i < shards.length; i++)
+         {
+            // only the first shard subscribes to the paging store, and depages
+            PageSubscription shardSubscription = i == 0 ? pageSubscription : null;
+
+            if (addressSettings.isLastValueQueue())
+            {
+               shards[i] = new LastValueQueue(persistenceID,
+                                              address,
+                                              name,
+                                              filter,
+                                              shardSubscription,
+                                              durable,
+                                              temporary,
+                                              scheduledExecutor,
+                                              postOffice,
+                                              storageManager,
+                                              addressSettingsRepository,
+                                              executorFactory.getExecutor());
+            }
+            else
+            {
+               shards[i] = new QueueImpl(persistenceID,
+                                         address,
+                                         name,
+                                         filter,
+                                         shardSubscription,
+                                         durable,
+                                         temporary,
+                                         scheduledExecutor,
+                                         postOffice,
+                                         storageManager,
+                                         addressSettingsRepository,
+                                         executorFactory.getExecutor());
+            }
+         }
+
+         queue = new ShardedQueue(persistenceID, address, name, filter, durable, temporary, shards);
+      }
+      else if (addressSettings.isLastValueQueue())
       {
          queue = new LastValueQueue(persistenceID,
                                     address,
@@ -91,6 +135,21 @@ public class QueueFactoryImpl implements QueueFactory
                                     addressSettingsRepository,
                                     executorFactory.getExecutor());
       }
+      else if (addressSettings.getQueueEngine() == QueueEngine.LOCK_FREE)
+      {
+         queue = new LockFreeQueue(persistenceID,
+                                   address,
+                                   name,
+                                   filter,
+                                   pageSubscription,
+                                   durable,
+                                   temporary,
+                                   scheduledExecutor,
+                                   postOffice,
+                                   storageManager,
+                                   addressSettingsRepository,
+                                   executorFactory.getExecutor());
+      }
       else
       {
          queue = new QueueImpl(persistenceID,
@@ -32,7 +32,9 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.Pair;
@@ -69,6 +71,7 @@ import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.utils.ConcurrentHashSet;
 import org.hornetq.utils.FutureLatch;
 import org.hornetq.utils.LinkedListIterator;
+import org.hornetq.utils.MPSCLinkedQueue;
 import org.hornetq.utils.PriorityLinkedList;
 import org.hornetq.utils.PriorityLinkedListImpl;
 import org.hornetq.utils.ReferenceCounter;
@@ -129,7 +132,16 @@ public class QueueImpl implements Queue
    // Messages will first enter intermediateMessageReferences
    // Before they are added to messageReferences
    // This is to avoid locking the queue on the producer
-   private final ConcurrentLinkedQueue<MessageReference> intermediateMessageReferences = new ConcurrentLinkedQueue<MessageReference>();
+   private final java.util.Queue<MessageReference> intermediateMessageReferences;
+
+   // When true producers never deliver directly, intermediateMessageReferences is only polled by the delivery loop
+   private final boolean lockFreeIntake;
+
+   // Set by the first producer adding to an idle intake, cleared by the delivery loop before draining it
+   private final AtomicBoolean intakePending = new AtomicBoolean(false);
+
+   // The position of this queue within a ShardedQueue, shards share the name of the queue they belong to
+   private int shard = -1;
 
    // This is where messages are stored
    private final PriorityLinkedList<MessageReference> messageReferences = new PriorityLinkedListImpl<MessageReference>(QueueImpl.NUM_PRIORITIES);
@@ -147,7 +159,7 @@ public class QueueImpl implements Queue
 
    private final ScheduledDeliveryHandler scheduledDeliveryHandler;
 
-   private long messagesAdded;
+   private final AtomicLong messagesAdded = new AtomicLong(0);
 
    protected final AtomicInteger deliveringCount = new AtomicInteger(0);
 
@@ -322,6 +334,39 @@ public class QueueImpl implements Queue
                     final StorageManager storageManager,
                     final HierarchicalRepository<AddressSettings> addressSettingsRepository,
                     final Executor executor)
+   {
+      this(id,
+           address,
+           name,
+           filter,
+           pageSubscription,
+           durable,
+           temporary,
+           scheduledExecutor,
+           postOffice,
+           storageManager,
+           addressSettingsRepository,
+           executor,
+           false);
+   }
+
+   /**
+    * @param lockFreeIntake if true producers will never deliver on their own thread nor lock the queue, see
+    *                       {@link LockFreeQueue}
+    */
+   protected QueueImpl(final long id,
+                       final SimpleString address,
+                       final SimpleString name,
+                       final Filter filter,
+                       final PageSubscription pageSubscription,
+                       final boolean durable,
+                       final boolean temporary,
+                       final ScheduledExecutorService scheduledExecutor,
+                       final PostOffice postOffice,
+                       final StorageManager storageManager,
+                       final HierarchicalRepository<AddressSettings> addressSettingsRepository,
+                       final Executor executor,
+                       final boolean lockFreeIntake)
    {
       this.id = id;
 
@@ -369,6 +414,17 @@ public class QueueImpl implements Queue
 
       this.executor = executor;
 
+      this.lockFreeIntake = lockFreeIntake;
+
+      if (lockFreeIntake)
+      {
+         intermediateMessageReferences = new MPSCLinkedQueue<MessageReference>();
+         directDeliver = false;
+      }
+      else
+      {
+         intermediateMessageReferences = new ConcurrentLinkedQueue<MessageReference>();
+      }
    }
 
    // Bindable implementation -------------------------------------------------------------------------------------
@@ -518,7 +574,7 @@ public class QueueImpl implements Queue
 
       directDeliver = false;
 
-      messagesAdded++;
+      messagesAdded.incrementAndGet();
    }
 
    public void addTail(final MessageReference ref)
@@ -530,9 +586,21 @@ public class QueueImpl implements Queue
    {
       if (scheduledDeliveryHandler.checkAndSchedule(ref, true))
       {
-         synchronized (this)
+         messagesAdded.incrementAndGet();
+
+         return;
+      }
+
+      if (lockFreeIntake)
+      {
+         queueMemorySize.addAndGet(ref.getMessageMemoryEstimate());
+
+         intermediateMessageReferences.add(ref);
+
+         // Only the producer finding the intake idle needs to wake up the delivery loop
+         if (intakePending.compareAndSet(false, true))
          {
-            messagesAdded++;
+            deliverAsync();
          }
 
          return;
@@ -551,8 +619,8 @@ public class QueueImpl implements Queue
 
             if (intermediateMessageReferences.isEmpty() &&
                messageReferences.isEmpty() &&
-               !pageIterator.hasNext() &&
-               !pageSubscription.isPaging())
+               (pageIterator == null || !pageIterator.hasNext()) &&
+               (pageSubscription == null || !pageSubscription.isPaging()))
             {
                // We must block on the executor to ensure any async deliveries have completed or we might get out of order
                // deliveries
@@ -638,6 +706,7 @@ public class QueueImpl implements Queue
          {
             // no-op
             scheduledRunners.decrementAndGet();
+            intakePending.set(false);
          }
       }
 
@@ -1198,7 +1267,7 @@ public class QueueImpl implements Queue
 
    public void incrementMesssagesAdded()
    {
-      messagesAdded++;
+      messagesAdded.incrementAndGet();
    }
 
    @Override
@@ -1222,11 +1291,11 @@ public class QueueImpl implements Queue
    {
       if (pageSubscription != null)
       {
-         return messagesAdded + pageSubscription.getCounter().getValue() - pagedReferences.get();
+         return messagesAdded.get() + pageSubscription.getCounter().getValue() - pagedReferences.get();
       }
       else
       {
-         return messagesAdded;
+         return messagesAdded.get();
       }
    }
 
@@ -1466,6 +1535,20 @@ public class QueueImpl implements Queue
 
    }
 
+   /**
+    * Deletes a shard of a {@link ShardedQueue} other than the first one, which deletes the binding, the page
+    * subscription and the record they share.
+    */
+   void deleteShard() throws Exception
+   {
+      synchronized (this)
+      {
+         this.queueDestroyed = true;
+      }
+
+      deleteAllReferences();
+   }
+
    public synchronized boolean expireReference(final long messageID) throws Exception
    {
       if (expiryAddress != null && expiryAddress.equals(this.address))
@@ -1882,6 +1965,19 @@ public class QueueImpl implements Queue
       this.internalQueue = internalQueue;
    }
 
+   /**
+    * @return the position of this queue within its {@link ShardedQueue}, or -1 if it isn't a shard
+    */
+   public int getShard()
+   {
+      return shard;
+   }
+
+   void setShard(final int shard)
+   {
+      this.shard = shard;
+   }
+
    // Public
    // -----------------------------------------------------------------------------
 
@@ -1896,7 +1992,7 @@ public class QueueImpl implements Queue
 
       QueueImpl qother = (QueueImpl) other;
 
-      return name.equals(qother.name);
+      return name.equals(qother.name) && shard == qother.shard;
    }
 
    @Override
@@ -1908,7 +2004,7 @@ public class QueueImpl implements Queue
    @Override
    public String toString()
    {
-      return "QueueImpl[name=" + name.toString() + ", postOffice=" + this.postOffice + "]@" + Integer.toHexString(System.identityHashCode(this));
+      return "QueueImpl[name=" + name.toString() + (shard >= 0 ? ", shard=" + shard : "") + ", postOffice=" + this.postOffice + "]@" + Integer.toHexString(System.identityHashCode(this));
    }
 
    private synchronized void internalAddTail(final MessageReference ref)
@@ -1941,7 +2037,7 @@ public class QueueImpl implements Queue
       {
          internalAddTail(ref);
 
-         messagesAdded++;
+         messagesAdded.incrementAndGet();
          if (added++ > MAX_DELIVERIES_IN_LOOP)
          {
             // if we just keep polling from the intermediate we could starve in case there's a sustained load
@@ -2331,7 +2427,7 @@ public class QueueImpl implements Queue
          storageManager.updateDeliveryCount(reference);
       }
 
-      AddressSettings addressSettings = addressSettingsRepository.getMatch(address.toString());
+      AddressSettings addressSettings = addressSettingsRepository.getMatch(address);
 
       int maxDeliveries = addressSettings.getMaxDeliveryAttempts();
       long redeliveryDelay = addressSettings.getRedeliveryDelay();
@@ -2554,7 +2650,7 @@ public class QueueImpl implements Queue
 
    private void expire(final Transaction tx, final MessageReference ref) throws Exception
    {
-      SimpleString expiryAddress = addressSettingsRepository.getMatch(address.toString()).getExpiryAddress();
+      SimpleString expiryAddress = addressSettingsRepository.getMatch(address).getExpiryAddress();
 
       if (expiryAddress != null)
       {
@@ -2580,7 +2676,7 @@ public class QueueImpl implements Queue
 
    private void sendToDeadLetterAddress(final MessageReference ref) throws Exception
    {
-      sendToDeadLetterAddress(ref, addressSettingsRepository.getMatch(address.toString()).getDeadLetterAddress());
+      sendToDeadLetterAddress(ref, addressSettingsRepository.getMatch(address).getDeadLetterAddress());
    }
 
    private void sendToDeadLetterAddress(final MessageReference ref, final SimpleString deadLetterAddress) throws Exception
@@ -2686,7 +2782,7 @@ public class QueueImpl implements Queue
                   groups.put(groupID, consumer);
                }
 
-               messagesAdded++;
+               messagesAdded.incrementAndGet();
 
                deliveriesInTransit.countUp();
                proceedDeliver(consumer, ref);
@@ -2886,7 +2982,7 @@ public class QueueImpl implements Queue
 
    public synchronized void resetMessagesAdded()
    {
-      messagesAdded = 0;
+      messagesAdded.set(0);
    }
 
 
@@ -3127,6 +3223,12 @@ public class QueueImpl implements Queue
             // an asynchronous delivery
             synchronized (QueueImpl.this.deliverRunner)
             {
+               // Anything added to the intake after this point will schedule another runner
+               if (lockFreeIntake)
+               {
+                  intakePending.set(false);
+               }
+
                deliver();
             }
          }
@@ -3137,6 +3239,13 @@ public class QueueImpl implements Queue
          finally
          {
             scheduledRunners.decrementAndGet();
+
+            // A producer may have found the intake idle while every runner had already drained it but not left yet,
+            // its deliverAsync was then discarded as too many runners were scheduled
+            if (lockFreeIntake && intakePending.get())
+            {
+               deliverAsync();
+            }
          }
       }
    }
@@ -3325,7 +3434,7 @@ public class QueueImpl implements Queue
       @Override
       public void onChange()
       {
-         AddressSettings settings = addressSettingsRepository.getMatch(address.toString());
+         AddressSettings settings = addressSettingsRepository.getMatch(address);
          if (settings == null)
          {
             configureExpiry(null);
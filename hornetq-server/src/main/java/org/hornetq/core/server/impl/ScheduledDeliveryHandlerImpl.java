@@ -13,14 +13,12 @@
 package org.hornetq.core.server.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -29,9 +27,19 @@ import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.ScheduledDeliveryHandler;
+import org.hornetq.utils.ConcurrentLongHashMap;
 
 /**
  * Handles scheduling deliveries to a queue at the correct time.
+ * <p/>
+ * Scheduled references are kept on a hierarchical timing wheel with a resolution of one millisecond. Each level has
+ * 64 slots, a slot at level n covering 64^n milliseconds, and a reference is placed at the level of the highest
+ * 6 bits group where its delivery time differs from the wheel time. When the wheel time reaches a slot its references
+ * are either due or moved down to a finer level, so adding or removing a reference is O(1) whatever the number of
+ * scheduled references, and the next slot to process is found through a bitmap per level.
+ * <p/>
+ * There is at most one delivery task waiting on the executor, set for the next slot to process, and each run hands
+ * every due reference to its queue in one batch.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  * @author <a href="ataylor@redhat.com">Andy Taylor</a>
@@ -43,18 +51,43 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
 {
    private static final boolean trace = HornetQServerLogger.LOGGER.isTraceEnabled();
 
+   private static final int SLOT_BITS = 6;
+
+   private static final int SLOTS = 1 << SLOT_BITS;
+
+   private static final long SLOT_MASK = SLOTS - 1;
+
+   // enough levels to cover any positive long
+   private static final int LEVELS = (63 + SLOT_BITS - 1) / SLOT_BITS;
+
+   private static final int DUE = -1;
+
+   private static final long NO_WAKEUP = Long.MAX_VALUE;
+
    private final ScheduledExecutorService scheduledExecutor;
 
+   // slots[level][slot] is the first node of a doubly linked list, levels are created on demand
+   private final ScheduledNode[][] slots = new ScheduledNode[LEVELS][];
 
-   private final Map<Long, Runnable> runnables = new ConcurrentHashMap<>();
+   private final long[] occupied = new long[LEVELS];
 
-   // This contains RefSchedules which are delegates to the real references
-   // just adding some information to keep it in order accordingly to the initial operations
-   private final TreeSet<RefScheduled> scheduledReferences = new TreeSet<>(new MessageReferenceComparator());
+   // references whose time has been reached, waiting for the delivery task
+   private ScheduledNode due;
+
+   private ConcurrentLongHashMap<ScheduledNode> nodesByID;
+
+   private long wheelTime;
+
+   private long nextWakeup = NO_WAKEUP;
+
+   private long sequence;
+
+   private int size;
 
    public ScheduledDeliveryHandlerImpl(final ScheduledExecutorService scheduledExecutor)
    {
       this.scheduledExecutor = scheduledExecutor;
+      this.wheelTime = System.currentTimeMillis();
    }
 
    public boolean checkAndSchedule(final MessageReference ref, final boolean tail)
@@ -68,9 +101,12 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
             HornetQServerLogger.LOGGER.trace("Scheduling delivery for " + ref + " to occur at " + deliveryTime);
          }
 
-         addInPlace(deliveryTime, ref, tail);
+         synchronized (this)
+         {
+            addInPlace(deliveryTime, ref, tail);
 
-         scheduleDelivery(deliveryTime);
+            scheduleDelivery(deliveryTime);
+         }
 
          return true;
       }
@@ -78,116 +114,288 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
    }
 
 
-   public void addInPlace(final long deliveryTime, final MessageReference ref, final boolean tail)
+   public synchronized void addInPlace(final long deliveryTime, final MessageReference ref, final boolean tail)
    {
-      synchronized (scheduledReferences)
+      ScheduledNode node = new ScheduledNode(ref, tail, deliveryTime, sequence++);
+
+      if (nodesByID == null)
       {
-         scheduledReferences.add(new RefScheduled(ref, tail));
+         nodesByID = new ConcurrentLongHashMap<ScheduledNode>(SLOTS, 1);
       }
+      nodesByID.put(ref.getMessage().getMessageID(), node);
+
+      place(node);
+
+      size++;
    }
 
-   public int getScheduledCount()
+   public synchronized int getScheduledCount()
    {
-      synchronized (scheduledReferences)
+      return size;
+   }
+
+   public List<MessageReference> getScheduledReferences()
+   {
+      List<ScheduledNode> nodes = new ArrayList<ScheduledNode>();
+
+      synchronized (this)
       {
-         return scheduledReferences.size();
+         collect(null, nodes);
       }
+
+      return sortedReferences(nodes);
    }
 
-   public List<MessageReference> getScheduledReferences()
+   public List<MessageReference> cancel(final Filter filter)
    {
-      List<MessageReference> refs = new LinkedList<MessageReference>();
+      List<ScheduledNode> nodes = new ArrayList<ScheduledNode>();
 
-      synchronized (scheduledReferences)
+      synchronized (this)
       {
-         for (RefScheduled ref : scheduledReferences)
+         collect(filter, nodes);
+
+         for (ScheduledNode node : nodes)
          {
-            refs.add(ref.getRef());
+            remove(node);
          }
       }
-      return refs;
+
+      return sortedReferences(nodes);
    }
 
-   public List<MessageReference> cancel(final Filter filter)
+   public synchronized MessageReference removeReferenceWithID(final long id)
    {
-      List<MessageReference> refs = new ArrayList<MessageReference>();
+      ScheduledNode node = nodesByID == null ? null : nodesByID.get(id);
 
-      synchronized (scheduledReferences)
+      if (node == null)
       {
-         Iterator<RefScheduled> iter = scheduledReferences.iterator();
+         return null;
+      }
+
+      remove(node);
+
+      return node.ref;
+   }
 
-         while (iter.hasNext())
+   private void place(final ScheduledNode node)
+   {
+      if (node.deliveryTime <= wheelTime)
+      {
+         link(node, DUE, 0);
+         return;
+      }
+
+      // the highest group of bits where the delivery time differs from the wheel time gives the level
+      int level = (63 - Long.numberOfLeadingZeros(node.deliveryTime ^ wheelTime)) / SLOT_BITS;
+
+      int slot = (int) ((node.deliveryTime >>> (level * SLOT_BITS)) & SLOT_MASK);
+
+      link(node, level, slot);
+   }
+
+   private void link(final ScheduledNode node, final int level, final int slot)
+   {
+      node.level = level;
+      node.slot = slot;
+      node.prev = null;
+
+      if (level == DUE)
+      {
+         node.next = due;
+         due = node;
+      }
+      else
+      {
+         if (slots[level] == null)
          {
-            MessageReference ref = iter.next().getRef();
-            if (filter == null || filter.match(ref.getMessage()))
-            {
-               iter.remove();
-               refs.add(ref);
-            }
+            slots[level] = new ScheduledNode[SLOTS];
          }
+         node.next = slots[level][slot];
+         slots[level][slot] = node;
+         occupied[level] |= 1L << slot;
+      }
+
+      if (node.next != null)
+      {
+         node.next.prev = node;
       }
-      return refs;
    }
 
-   public MessageReference removeReferenceWithID(final long id)
+   private void unlink(final ScheduledNode node)
    {
-      synchronized (scheduledReferences)
+      if (node.next != null)
+      {
+         node.next.prev = node.prev;
+      }
+
+      if (node.prev != null)
+      {
+         node.prev.next = node.next;
+      }
+      else if (node.level == DUE)
       {
-         Iterator<RefScheduled> iter = scheduledReferences.iterator();
-         while (iter.hasNext())
+         due = node.next;
+      }
+      else
+      {
+         slots[node.level][node.slot] = node.next;
+         if (node.next == null)
          {
-            MessageReference ref = iter.next().getRef();
-            if (ref.getMessage().getMessageID() == id)
-            {
-               iter.remove();
-               return ref;
-            }
+            occupied[node.level] &= ~(1L << node.slot);
          }
       }
 
-      return null;
+      node.prev = null;
+      node.next = null;
    }
 
-   private void scheduleDelivery(final long deliveryTime)
+   private void remove(final ScheduledNode node)
    {
-      final long now = System.currentTimeMillis();
+      unlink(node);
 
-      final long delay = deliveryTime - now;
+      long id = node.ref.getMessage().getMessageID();
+      if (nodesByID.get(id) == node)
+      {
+         nodesByID.remove(id);
+      }
+
+      size--;
+   }
 
-      if (delay < 0)
+   private int lowestLevel()
+   {
+      for (int level = 0; level < LEVELS; level++)
       {
-         if (ScheduledDeliveryHandlerImpl.trace)
+         if (occupied[level] != 0)
          {
-            HornetQServerLogger.LOGGER.trace("calling another scheduler now as deliverTime " + deliveryTime + " < now=" + now);
+            return level;
          }
-         // if delay == 0 we will avoid races between adding the scheduler and finishing it
-         ScheduledDeliveryRunnable runnable = new ScheduledDeliveryRunnable(deliveryTime);
-         scheduledExecutor.schedule(runnable, 0, TimeUnit.MILLISECONDS);
       }
-      else if (!runnables.containsKey(deliveryTime))
+      return -1;
+   }
+
+   private long slotTime(final int level, final int slot)
+   {
+      int shift = (level + 1) * SLOT_BITS;
+      long base = shift >= 64 ? 0 : (wheelTime >>> shift) << shift;
+      return base | ((long) slot << (level * SLOT_BITS));
+   }
+
+   /**
+    * @return the wheel time of the next slot holding references, or {@link #NO_WAKEUP}
+    */
+   private long nextSlotTime()
+   {
+      int level = lowestLevel();
+      return level < 0 ? NO_WAKEUP : slotTime(level, Long.numberOfTrailingZeros(occupied[level]));
+   }
+
+   /**
+    * Moves the wheel up to the given time, every reference due by then ending up on the due list.
+    */
+   private void advance(final long now)
+   {
+      int level;
+
+      while ((level = lowestLevel()) >= 0)
       {
-         ScheduledDeliveryRunnable runnable = new ScheduledDeliveryRunnable(deliveryTime);
+         int slot = Long.numberOfTrailingZeros(occupied[level]);
 
-         if (ScheduledDeliveryHandlerImpl.trace)
+         long time = slotTime(level, slot);
+
+         if (time > now)
          {
-            HornetQServerLogger.LOGGER.trace("Setting up scheduler for " + deliveryTime + " with a delay of " + delay + " as now=" + now);
+            break;
          }
 
-         runnables.put(deliveryTime, runnable);
-         scheduledExecutor.schedule(runnable, delay, TimeUnit.MILLISECONDS);
+         wheelTime = time;
+
+         ScheduledNode node = slots[level][slot];
+         slots[level][slot] = null;
+         occupied[level] &= ~(1L << slot);
+
+         while (node != null)
+         {
+            ScheduledNode next = node.next;
+            // either due or moved down to a finer level
+            place(node);
+            node = next;
+         }
       }
-      else
+
+      if (now > wheelTime)
+      {
+         wheelTime = now;
+      }
+   }
+
+   private void scheduleDelivery(final long deliveryTime)
+   {
+      if (deliveryTime >= nextWakeup)
       {
          if (ScheduledDeliveryHandlerImpl.trace)
          {
-            HornetQServerLogger.LOGGER.trace("Couldn't make another scheduler as " + deliveryTime + " is already set, now is " + now);
+            HornetQServerLogger.LOGGER.trace("Couldn't make another scheduler as " + nextWakeup + " is already set for " + deliveryTime);
+         }
+         return;
+      }
+
+      final long now = System.currentTimeMillis();
+
+      // if delay == 0 we will avoid races between adding the scheduler and finishing it
+      final long delay = Math.max(0, deliveryTime - now);
+
+      if (ScheduledDeliveryHandlerImpl.trace)
+      {
+         HornetQServerLogger.LOGGER.trace("Setting up scheduler for " + deliveryTime + " with a delay of " + delay + " as now=" + now);
+      }
+
+      nextWakeup = deliveryTime;
+      scheduledExecutor.schedule(new ScheduledDeliveryRunnable(deliveryTime), delay, TimeUnit.MILLISECONDS);
+   }
+
+   private List<MessageReference> sortedReferences(final List<ScheduledNode> nodes)
+   {
+      Collections.sort(nodes, ScheduledNodeComparator.INSTANCE);
+
+      List<MessageReference> refs = new LinkedList<MessageReference>();
+      for (ScheduledNode node : nodes)
+      {
+         refs.add(node.ref);
+      }
+      return refs;
+   }
+
+   private void collect(final Filter filter, final List<ScheduledNode> nodes)
+   {
+      collect(filter, due, nodes);
+
+      for (int level = 0; level < LEVELS; level++)
+      {
+         long bits = occupied[level];
+         while (bits != 0)
+         {
+            int slot = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            collect(filter, slots[level][slot], nodes);
+         }
+      }
+   }
+
+   private static void collect(final Filter filter, ScheduledNode node, final List<ScheduledNode> nodes)
+   {
+      for (; node != null; node = node.next)
+      {
+         if (filter == null || filter.match(node.ref.getMessage()))
+         {
+            nodes.add(node);
          }
       }
    }
 
    private class ScheduledDeliveryRunnable implements Runnable
    {
-      long deliveryTime;
+      final long deliveryTime;
 
       public ScheduledDeliveryRunnable(final long deliveryTime)
       {
@@ -196,70 +404,73 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
 
       public void run()
       {
-         HashMap<Queue, LinkedList<MessageReference>> refs = new HashMap<Queue, LinkedList<MessageReference>>();
+         List<ScheduledNode> delivering = new ArrayList<ScheduledNode>();
 
-         runnables.remove(deliveryTime);
+         synchronized (ScheduledDeliveryHandlerImpl.this)
+         {
+            if (nextWakeup == deliveryTime)
+            {
+               nextWakeup = NO_WAKEUP;
+            }
 
-         final long now = System.currentTimeMillis();
+            final long now = System.currentTimeMillis();
+
+            if (ScheduledDeliveryHandlerImpl.trace)
+            {
+               HornetQServerLogger.LOGGER.trace("Is it " + now + " now and we are running deliveryTime = " + deliveryTime);
+            }
+
+            advance(now);
+
+            for (ScheduledNode node = due; node != null; node = node.next)
+            {
+               delivering.add(node);
+            }
+
+            for (ScheduledNode node : delivering)
+            {
+               remove(node);
+            }
 
-         if (now < deliveryTime)
-         {
-            // Ohhhh... blame it on the OS
             // on some OSes (so far Windows only) the precision of the scheduled executor could eventually give
-            // an executor call earlier than it was supposed...
-            // for that reason we will schedule it again so no messages are lost!
-            // we can't just assume deliveryTime here as we could deliver earlier than what we are supposed to
-            // this is basically a hack to work around an OS or JDK bug!
-            if (trace)
+            // an executor call earlier than it was supposed, in which case nothing is due and this just
+            // schedules the same time again
+            long next = nextSlotTime();
+            if (next != NO_WAKEUP)
             {
-               HornetQServerLogger.LOGGER.trace("Scheduler is working around OS imprecisions on " +
-                                                 "timing and re-scheduling an executor. now=" + now +
-                                                 " and deliveryTime=" + deliveryTime);
+               scheduleDelivery(next);
             }
-            ScheduledDeliveryHandlerImpl.this.scheduleDelivery(deliveryTime);
          }
 
-         if (ScheduledDeliveryHandlerImpl.trace)
+         if (delivering.isEmpty())
          {
-            HornetQServerLogger.LOGGER.trace("Is it " + System.currentTimeMillis() + " now and we are running deliveryTime = " + deliveryTime);
+            return;
          }
 
-         synchronized (scheduledReferences)
-         {
-
-            Iterator<RefScheduled> iter = scheduledReferences.iterator();
-            while (iter.hasNext())
-            {
-               MessageReference reference = iter.next().getRef();
-               if (reference.getScheduledDeliveryTime() > now)
-               {
-                  // We will delivery as long as there are messages to be delivered
-                  break;
-               }
-
-               iter.remove();
+         Collections.sort(delivering, ScheduledNodeComparator.INSTANCE);
 
-               reference.setScheduledDeliveryTime(0);
+         HashMap<Queue, LinkedList<MessageReference>> refs = new HashMap<Queue, LinkedList<MessageReference>>();
 
-               LinkedList<MessageReference> references = refs.get(reference.getQueue());
+         for (ScheduledNode node : delivering)
+         {
+            MessageReference reference = node.ref;
 
-               if (references == null)
-               {
-                  references = new LinkedList<MessageReference>();
-                  refs.put(reference.getQueue(), references);
-               }
+            reference.setScheduledDeliveryTime(0);
 
-               if (ScheduledDeliveryHandlerImpl.trace)
-               {
-                  HornetQServerLogger.LOGGER.trace("sending message " + reference + " to delivery, deliveryTime =  " + deliveryTime);
-               }
+            LinkedList<MessageReference> references = refs.get(reference.getQueue());
 
-               references.addFirst(reference);
+            if (references == null)
+            {
+               references = new LinkedList<MessageReference>();
+               refs.put(reference.getQueue(), references);
             }
+
             if (ScheduledDeliveryHandlerImpl.trace)
             {
-               HornetQServerLogger.LOGGER.trace("Finished loop on deliveryTime = " + deliveryTime);
+               HornetQServerLogger.LOGGER.trace("sending message " + reference + " to delivery, deliveryTime =  " + deliveryTime);
             }
+
+            references.addFirst(reference);
          }
 
          for (Map.Entry<Queue, LinkedList<MessageReference>> entry : refs.entrySet())
@@ -273,78 +484,67 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
             }
             queue.addHead(list);
          }
-
-         // Just to speed up GC
-         refs.clear();
       }
    }
 
 
-   // We need a treeset ordered, but we need to order tail operations as well.
-   // So, this will serve as a delegate to the object
-   class RefScheduled
+   // A reference on the wheel, keeping what is needed to order it accordingly to the initial operations
+   static final class ScheduledNode
    {
-      private final MessageReference ref;
-      private final boolean tail;
+      final MessageReference ref;
 
-      RefScheduled(MessageReference ref, boolean tail)
-      {
-         this.ref = ref;
-         this.tail = tail;
-      }
+      final boolean tail;
 
-      public MessageReference getRef()
-      {
-         return ref;
-      }
+      final long deliveryTime;
+
+      final long sequence;
+
+      int level;
 
-      public boolean isTail()
+      int slot;
+
+      ScheduledNode prev;
+
+      ScheduledNode next;
+
+      ScheduledNode(final MessageReference ref, final boolean tail, final long deliveryTime, final long sequence)
       {
-         return tail;
+         this.ref = ref;
+         this.tail = tail;
+         this.deliveryTime = deliveryTime;
+         this.sequence = sequence;
       }
-
    }
 
-   static class MessageReferenceComparator implements Comparator<RefScheduled>
+   // Same delivery time: head operations go first, the latest one first, followed by tail operations in order
+   static final class ScheduledNodeComparator implements Comparator<ScheduledNode>
    {
-      public int compare(RefScheduled ref1, RefScheduled ref2)
-      {
-         long diff = ref1.getRef().getScheduledDeliveryTime() - ref2.getRef().getScheduledDeliveryTime();
+      static final ScheduledNodeComparator INSTANCE = new ScheduledNodeComparator();
 
-         if (diff < 0L)
+      public int compare(final ScheduledNode node1, final ScheduledNode node2)
+      {
+         if (node1.deliveryTime != node2.deliveryTime)
          {
-            return -1;
+            return node1.deliveryTime < node2.deliveryTime ? -1 : 1;
          }
-         if (diff > 0L)
+
+         if (node1.tail != node2.tail)
          {
-            return 1;
+            return node1.tail ? 1 : -1;
          }
 
-
-         // Even if ref1 and ref2 have the same delivery time, we only want to return 0 if they are identical
-         if (ref1 == ref2)
+         if (node1.sequence == node2.sequence)
          {
             return 0;
          }
+
+         if (node1.tail)
+         {
+            return node1.sequence < node2.sequence ? -1 : 1;
+         }
          else
          {
-
-            if (ref1.isTail() && !ref2.isTail())
-            {
-               return 1;
-            }
-            else if (!ref1.isTail() && ref2.isTail())
-            {
-               return -1;
-            }
-            if (!ref1.isTail() && !ref2.isTail())
-            {
-               return -1;
-            }
-            else
-            {
-               return 1;
-            }
+            return node1.sequence > node2.sequence ? -1 : 1;
          }
       }
    }
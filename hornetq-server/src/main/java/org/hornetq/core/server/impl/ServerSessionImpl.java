@@ -1330,6 +1330,48 @@ public class ServerSessionImpl implements ServerSession, FailureListener
    }
 
    public void send(final ServerMessage message, final boolean direct) throws Exception
+   {
+      prepareSend(message, direct);
+
+      if (message.getAddress().equals(managementAddress))
+      {
+         // It's a management message
+
+         handleManagementMessage(message, direct);
+      }
+      else
+      {
+         doSend(message, direct);
+      }
+   }
+
+   public void sendBatch(final List<ServerMessage> messages, final boolean direct) throws Exception
+   {
+      List<ServerMessage> batch = new ArrayList<ServerMessage>(messages.size());
+
+      for (ServerMessage message : messages)
+      {
+         prepareSend(message, direct);
+
+         if (message.getAddress().equals(managementAddress))
+         {
+            // the messages before it go first
+            doSendBatch(batch, direct);
+
+            batch.clear();
+
+            handleManagementMessage(message, direct);
+         }
+         else
+         {
+            batch.add(message);
+         }
+      }
+
+      doSendBatch(batch, direct);
+   }
+
+   private void prepareSend(final ServerMessage message, final boolean direct) throws Exception
    {
       //large message may come from StompSession directly, in which
       //case the id header already generated.
@@ -1373,17 +1415,6 @@ public class ServerSessionImpl implements ServerSession, FailureListener
          // This could happen with some tests that are ignoring messages
          throw HornetQMessageBundle.BUNDLE.noAddress();
       }
-
-      if (message.getAddress().equals(managementAddress))
-      {
-         // It's a management message
-
-         handleManagementMessage(message, direct);
-      }
-      else
-      {
-         doSend(message, direct);
-      }
    }
 
    public void sendContinuations(final int packetSize,
@@ -1685,19 +1716,7 @@ public class ServerSessionImpl implements ServerSession, FailureListener
 
    private void doSend(final ServerMessage msg, final boolean direct) throws Exception
    {
-      // check the user has write access to this address.
-      try
-      {
-         securityStore.check(msg.getAddress(), CheckType.SEND, this);
-      }
-      catch (HornetQException e)
-      {
-         if (!autoCommitSends)
-         {
-            tx.markAsRollbackOnly(e);
-         }
-         throw e;
-      }
+      checkSend(msg.getAddress());
 
       if (tx == null || autoCommitSends)
       {
@@ -1711,16 +1730,46 @@ public class ServerSessionImpl implements ServerSession, FailureListener
       {
          postOffice.route(msg, routingContext, direct);
 
-         Pair<UUID, AtomicLong> value = targetAddressInfos.get(msg.getAddress());
+         updateTargetAddressInfo(msg);
+      }
+      finally
+      {
+         routingContext.clear();
+      }
+   }
+
+   private void doSendBatch(final List<ServerMessage> msgs, final boolean direct) throws Exception
+   {
+      if (msgs.isEmpty())
+      {
+         return;
+      }
 
-         if (value == null)
+      // the whole batch is checked before any of it is routed
+      SimpleString checkedAddress = null;
+
+      for (ServerMessage msg : msgs)
+      {
+         if (!msg.getAddress().equals(checkedAddress))
          {
-            targetAddressInfos.put(msg.getAddress(), new Pair<UUID, AtomicLong>(msg.getUserID(), new AtomicLong(1)));
+            checkedAddress = msg.getAddress();
+
+            checkSend(checkedAddress);
          }
-         else
+      }
+
+      if (tx != null && !autoCommitSends)
+      {
+         routingContext.setTransaction(tx);
+      }
+
+      try
+      {
+         postOffice.route(msgs, routingContext, direct);
+
+         for (ServerMessage msg : msgs)
          {
-            value.setA(msg.getUserID());
-            value.getB().incrementAndGet();
+            updateTargetAddressInfo(msg);
          }
       }
       finally
@@ -1729,6 +1778,38 @@ public class ServerSessionImpl implements ServerSession, FailureListener
       }
    }
 
+   private void checkSend(final SimpleString address) throws Exception
+   {
+      // check the user has write access to this address.
+      try
+      {
+         securityStore.check(address, CheckType.SEND, this);
+      }
+      catch (HornetQException e)
+      {
+         if (!autoCommitSends)
+         {
+            tx.markAsRollbackOnly(e);
+         }
+         throw e;
+      }
+   }
+
+   private void updateTargetAddressInfo(final ServerMessage msg)
+   {
+      Pair<UUID, AtomicLong> value = targetAddressInfos.get(msg.getAddress());
+
+      if (value == null)
+      {
+         targetAddressInfos.put(msg.getAddress(), new Pair<UUID, AtomicLong>(msg.getUserID(), new AtomicLong(1)));
+      }
+      else
+      {
+         value.setA(msg.getUserID());
+         value.getB().incrementAndGet();
+      }
+   }
+
 
    @Override
    public List<MessageReference> getInTXMessagesForConsumer(long consumerId)
@@ -0,0 +1,1275 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.server.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.paging.cursor.PageSubscription;
+import org.hornetq.core.server.Consumer;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.RoutingContext;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.transaction.Transaction;
+import org.hornetq.utils.LinkedListIterator;
+import org.hornetq.utils.ReferenceCounter;
+
+/**
+ * A Queue which fans out its messages to a number of independent {@link QueueImpl} shards, each one with its own
+ * message list, consumers and delivery executor, so a single hot queue can be delivered by several threads.
+ * <p>
+ * Only this queue is bound on the post office and registered on management. At routing time it adds one of its shards
+ * to the {@link RoutingContext} instead of itself, so every {@link MessageReference} belongs to a shard and all
+ * acknowledgements, cancellations and redeliveries go straight to that shard. Messages with a group ID (or a last value
+ * property, when the shards are {@link LastValueQueue}s) are always routed to the same shard, any other message is
+ * routed round robin.
+ * <p>
+ * Consumers are spread across the shards so that every shard is served by at least one consumer: when there are fewer
+ * consumers than shards a consumer will serve several shards. Consumers with a filter are added to every shard.
+ * <p>
+ * Only the first shard owns the page subscription: depaged messages (and messages routed while paging) are delivered
+ * by that shard. Ordering is only kept between messages routed to the same shard, i.e. within a message group.
+ */
+public class ShardedQueue implements Queue
+{
+   private final long id;
+
+   private final SimpleString address;
+
+   private final SimpleString name;
+
+   private final Filter filter;
+
+   private final boolean durable;
+
+   private final boolean temporary;
+
+   private final boolean lastValue;
+
+   private final Queue[] shards;
+
+   private final AtomicInteger nextShard = new AtomicInteger(0);
+
+   // Consumers without a filter and the shards each one is serving, @protected by this
+   private final Map<Consumer, List<Integer>> assignments = new LinkedHashMap<Consumer, List<Integer>>();
+
+   // Number of consumers without a filter serving each shard, @protected by this
+   private final int[] assigned;
+
+   // Consumers with a filter are added to every shard, @protected by this
+   private final Set<Consumer> filteredConsumers = new LinkedHashSet<Consumer>();
+
+   private final Executor executor = new ShardsExecutor();
+
+   private ReferenceCounter refCountForConsumers;
+
+   private volatile boolean internalQueue;
+
+   public ShardedQueue(final long id,
+                       final SimpleString address,
+                       final SimpleString name,
+                       final Filter filter,
+                       final boolean durable,
+                       final boolean temporary,
+                       final QueueImpl[] shards)
+   {
+      this.id = id;
+
+      this.address = address;
+
+      this.name = name;
+
+      this.filter = filter;
+
+      this.durable = durable;
+
+      this.temporary = temporary;
+
+      this.shards = shards;
+
+      this.lastValue = shards[0] instanceof LastValueQueue;
+
+      this.assigned = new int[shards.length];
+
+      for (int i = 0; i < shards.length; i++)
+      {
+         shards[i].setShard(i);
+      }
+   }
+
+   /**
+    * @return the shard a message sent to this queue should be added to
+    */
+   public Queue selectShard(final ServerMessage message)
+   {
+      PageSubscription pageSubscription = shards[0].getPageSubscription();
+
+      if (pageSubscription != null && pageSubscription.isPaging())
+      {
+         // the first shard is the one depaging, that's where the deliveries need to be prompted
+         return shards[0];
+      }
+
+      return shardOf(message);
+   }
+
+   /**
+    * @return the shard a message reloaded from the journal should be added to, picked as {@link #selectShard} does
+    * when not paging. Only messages depaged later on belong to the first shard.
+    */
+   public Queue selectReloadShard(final ServerMessage message)
+   {
+      return shardOf(message);
+   }
+
+   private Queue shardOf(final ServerMessage message)
+   {
+      SimpleString key = null;
+
+      if (lastValue)
+      {
+         key = message.getSimpleStringProperty(Message.HDR_LAST_VALUE_NAME);
+      }
+
+      if (key == null && !internalQueue)
+      {
+         key = message.getSimpleStringProperty(Message.HDR_GROUP_ID);
+      }
+
+      int shard;
+
+      if (key != null)
+      {
+         shard = key.hashCode() & Integer.MAX_VALUE;
+      }
+      else
+      {
+         shard = nextShard.getAndIncrement() & Integer.MAX_VALUE;
+      }
+
+      return shards[shard % shards.length];
+   }
+
+   public int getNumberOfShards()
+   {
+      return shards.length;
+   }
+
+   public Queue getShard(final int shard)
+   {
+      return shards[shard];
+   }
+
+   // Bindable implementation -------------------------------------------------------------------------------------
+
+   public void route(final ServerMessage message, final RoutingContext context) throws Exception
+   {
+      context.addQueue(address, selectShard(message));
+   }
+
+   public void routeWithAck(final ServerMessage message, final RoutingContext context) throws Exception
+   {
+      context.addQueueWithAck(address, selectShard(message));
+   }
+
+   // Queue implementation ----------------------------------------------------------------------------------------
+
+   public SimpleString getName()
+   {
+      return name;
+   }
+
+   public SimpleString getAddress()
+   {
+      return address;
+   }
+
+   public long getID()
+   {
+      return id;
+   }
+
+   public Filter getFilter()
+   {
+      return filter;
+   }
+
+   public PageSubscription getPageSubscription()
+   {
+      return shards[0].getPageSubscription();
+   }
+
+   public boolean isDurable()
+   {
+      return durable;
+   }
+
+   public boolean isTemporary()
+   {
+      return temporary;
+   }
+
+   public synchronized void addConsumer(final Consumer consumer) throws Exception
+   {
+      if (consumer.getFilter() != null)
+      {
+         for (Queue shard : shards)
+         {
+            shard.addConsumer(consumer);
+         }
+
+         filteredConsumers.add(consumer);
+      }
+      else if (assignments.isEmpty())
+      {
+         List<Integer> consumerShards = new ArrayList<Integer>(shards.length);
+
+         for (int i = 0; i < shards.length; i++)
+         {
+            shards[i].addConsumer(consumer);
+
+            assigned[i]++;
+
+            consumerShards.add(i);
+         }
+
+         assignments.put(consumer, consumerShards);
+      }
+      else
+      {
+         Consumer busiest = null;
+
+         List<Integer> busiestShards = null;
+
+         for (Map.Entry<Consumer, List<Integer>> entry : assignments.entrySet())
+         {
+            if (busiestShards == null || entry.getValue().size() > busiestShards.size())
+            {
+               busiest = entry.getKey();
+
+               busiestShards = entry.getValue();
+            }
+         }
+
+         List<Integer> consumerShards = new ArrayList<Integer>();
+
+         if (busiestShards.size() > 1)
+         {
+            // fewer consumers than shards: take over half of the shards served by the busiest consumer
+            for (int i = busiestShards.size() / 2; i > 0; i--)
+            {
+               Integer shard = busiestShards.remove(busiestShards.size() - 1);
+
+               // the new consumer is added before the old one is removed so the shard always has a consumer
+               shards[shard].addConsumer(consumer);
+
+               shards[shard].removeConsumer(busiest);
+
+               consumerShards.add(shard);
+            }
+         }
+         else
+         {
+            int leastServed = 0;
+
+            for (int i = 1; i < shards.length; i++)
+            {
+               if (assigned[i] < assigned[leastServed])
+               {
+                  leastServed = i;
+               }
+            }
+
+            shards[leastServed].addConsumer(consumer);
+
+            assigned[leastServed]++;
+
+            consumerShards.add(leastServed);
+         }
+
+         assignments.put(consumer, consumerShards);
+      }
+
+      if (refCountForConsumers != null)
+      {
+         refCountForConsumers.increment();
+      }
+   }
+
+   public synchronized void removeConsumer(final Consumer consumer)
+   {
+      if (filteredConsumers.remove(consumer))
+      {
+         for (Queue shard : shards)
+         {
+            shard.removeConsumer(consumer);
+         }
+      }
+      else
+      {
+         List<Integer> consumerShards = assignments.remove(consumer);
+
+         if (consumerShards == null)
+         {
+            return;
+         }
+
+         for (Integer shard : consumerShards)
+         {
+            shards[shard].removeConsumer(consumer);
+
+            assigned[shard]--;
+
+            if (assigned[shard] == 0 && !assignments.isEmpty())
+            {
+               reassign(shard);
+            }
+         }
+      }
+
+      if (refCountForConsumers != null)
+      {
+         refCountForConsumers.decrement();
+      }
+   }
+
+   public synchronized int getConsumerCount()
+   {
+      return assignments.size() + filteredConsumers.size();
+   }
+
+   public synchronized Collection<Consumer> getConsumers()
+   {
+      Set<Consumer> consumers = new LinkedHashSet<Consumer>(assignments.keySet());
+
+      consumers.addAll(filteredConsumers);
+
+      return consumers;
+   }
+
+   public synchronized void setConsumersRefCount(final HornetQServer server)
+   {
+      if (refCountForConsumers == null)
+      {
+         refCountForConsumers = new TransientQueueManagerImpl(server, name);
+      }
+   }
+
+   public ReferenceCounter getConsumersRefCount()
+   {
+      return refCountForConsumers;
+   }
+
+   public void reload(final MessageReference ref)
+   {
+      MessageReference shardRef = toShard(ref);
+
+      shardRef.getQueue().reload(shardRef);
+   }
+
+   public void addTail(final MessageReference ref)
+   {
+      MessageReference shardRef = toShard(ref);
+
+      shardRef.getQueue().addTail(shardRef);
+   }
+
+   public void addTail(final MessageReference ref, final boolean direct)
+   {
+      MessageReference shardRef = toShard(ref);
+
+      shardRef.getQueue().addTail(shardRef, direct);
+   }
+
+   public void addHead(final MessageReference ref)
+   {
+      MessageReference shardRef = toShard(ref);
+
+      shardRef.getQueue().addHead(shardRef);
+   }
+
+   public void addHead(final List<MessageReference> refs)
+   {
+      Map<Queue, List<MessageReference>> perShard = new HashMap<Queue, List<MessageReference>>();
+
+      for (MessageReference ref : refs)
+      {
+         ref = toShard(ref);
+
+         Queue shard = ref.getQueue();
+
+         List<MessageReference> shardRefs = perShard.get(shard);
+
+         if (shardRefs == null)
+         {
+            shardRefs = new ArrayList<MessageReference>();
+
+            perShard.put(shard, shardRefs);
+         }
+
+         shardRefs.add(ref);
+      }
+
+      for (Map.Entry<Queue, List<MessageReference>> entry : perShard.entrySet())
+      {
+         entry.getKey().addHead(entry.getValue());
+      }
+   }
+
+   public void acknowledge(final MessageReference ref) throws Exception
+   {
+      queueOf(ref).acknowledge(ref);
+   }
+
+   public void acknowledge(final Transaction tx, final MessageReference ref) throws Exception
+   {
+      queueOf(ref).acknowledge(tx, ref);
+   }
+
+   public void reacknowledge(final Transaction tx, final MessageReference ref) throws Exception
+   {
+      queueOf(ref).reacknowledge(tx, ref);
+   }
+
+   public void cancel(final Transaction tx, final MessageReference ref)
+   {
+      queueOf(ref).cancel(tx, ref);
+   }
+
+   public void cancel(final Transaction tx, final MessageReference ref, final boolean ignoreRedeliveryCheck)
+   {
+      queueOf(ref).cancel(tx, ref, ignoreRedeliveryCheck);
+   }
+
+   public void cancel(final MessageReference reference, final long timeBase) throws Exception
+   {
+      queueOf(reference).cancel(reference, timeBase);
+   }
+
+   public boolean checkRedelivery(final MessageReference ref,
+                                  final long timeBase,
+                                  final boolean ignoreRedeliveryDelay) throws Exception
+   {
+      return queueOf(ref).checkRedelivery(ref, timeBase, ignoreRedeliveryDelay);
+   }
+
+   public void expire(final MessageReference ref) throws Exception
+   {
+      queueOf(ref).expire(ref);
+   }
+
+   public void deliverAsync()
+   {
+      for (Queue shard : shards)
+      {
+         shard.deliverAsync();
+      }
+   }
+
+   public void forceDelivery()
+   {
+      for (Queue shard : shards)
+      {
+         shard.forceDelivery();
+      }
+   }
+
+   public void unproposed(final SimpleString groupID)
+   {
+      for (Queue shard : shards)
+      {
+         shard.unproposed(groupID);
+      }
+   }
+
+   public void deleteQueue() throws Exception
+   {
+      deleteQueue(false);
+   }
+
+   public void deleteQueue(final boolean removeConsumers) throws Exception
+   {
+      // once per consumer, even if it serves several shards
+      if (removeConsumers)
+      {
+         for (Consumer consumer : getConsumers())
+         {
+            consumer.disconnect();
+         }
+      }
+
+      for (int i = 1; i < shards.length; i++)
+      {
+         ((QueueImpl)shards[i]).deleteShard();
+      }
+
+      // The first shard removes the binding, the paging subscription and the persistent record,
+      // they all share this queue's name and ID
+      shards[0].deleteQueue(false);
+
+      // messages routed to the other shards before the binding was removed may have been added since
+      for (int i = 1; i < shards.length; i++)
+      {
+         shards[i].deleteAllReferences();
+      }
+   }
+
+   public void destroyPaging() throws Exception
+   {
+      shards[0].destroyPaging();
+   }
+
+   public long getMessageCount()
+   {
+      long count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.getMessageCount();
+      }
+
+      return count;
+   }
+
+   public long getMessageCount(final long timeout)
+   {
+      long count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.getMessageCount(timeout);
+      }
+
+      return count;
+   }
+
+   public long getInstantMessageCount()
+   {
+      long count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.getInstantMessageCount();
+      }
+
+      return count;
+   }
+
+   public int getDeliveringCount()
+   {
+      int count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.getDeliveringCount();
+      }
+
+      return count;
+   }
+
+   public void referenceHandled()
+   {
+      shards[0].referenceHandled();
+   }
+
+   public int getScheduledCount()
+   {
+      int count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.getScheduledCount();
+      }
+
+      return count;
+   }
+
+   public List<MessageReference> getScheduledMessages()
+   {
+      List<MessageReference> scheduled = new ArrayList<MessageReference>();
+
+      for (Queue shard : shards)
+      {
+         scheduled.addAll(shard.getScheduledMessages());
+      }
+
+      return scheduled;
+   }
+
+   public List<MessageReference> cancelScheduledMessages()
+   {
+      List<MessageReference> cancelled = new ArrayList<MessageReference>();
+
+      for (Queue shard : shards)
+      {
+         cancelled.addAll(shard.cancelScheduledMessages());
+      }
+
+      return cancelled;
+   }
+
+   public Map<String, List<MessageReference>> getDeliveringMessages()
+   {
+      // A consumer serving several shards would be reported by each one of them with the same messages
+      Map<String, List<MessageReference>> delivering = new HashMap<String, List<MessageReference>>();
+
+      for (Queue shard : shards)
+      {
+         delivering.putAll(shard.getDeliveringMessages());
+      }
+
+      return delivering;
+   }
+
+   public long getMessagesAdded()
+   {
+      long added = 0;
+
+      for (Queue shard : shards)
+      {
+         added += shard.getMessagesAdded();
+      }
+
+      return added;
+   }
+
+   public long getMessagesAdded(final long timeout)
+   {
+      long added = 0;
+
+      for (Queue shard : shards)
+      {
+         added += shard.getMessagesAdded(timeout);
+      }
+
+      return added;
+   }
+
+   public long getInstantMessagesAdded()
+   {
+      long added = 0;
+
+      for (Queue shard : shards)
+      {
+         added += shard.getInstantMessagesAdded();
+      }
+
+      return added;
+   }
+
+   public void resetMessagesAdded()
+   {
+      for (Queue shard : shards)
+      {
+         shard.resetMessagesAdded();
+      }
+   }
+
+   public void incrementMesssagesAdded()
+   {
+      shards[0].incrementMesssagesAdded();
+   }
+
+   public MessageReference removeReferenceWithID(final long messageID) throws Exception
+   {
+      for (Queue shard : shards)
+      {
+         MessageReference removed = shard.removeReferenceWithID(messageID);
+
+         if (removed != null)
+         {
+            return removed;
+         }
+      }
+
+      return null;
+   }
+
+   public MessageReference getReference(final long messageID)
+   {
+      for (Queue shard : shards)
+      {
+         MessageReference ref = shard.getReference(messageID);
+
+         if (ref != null)
+         {
+            return ref;
+         }
+      }
+
+      return null;
+   }
+
+   public int deleteAllReferences() throws Exception
+   {
+      return deleteAllReferences(QueueImpl.DEFAULT_FLUSH_LIMIT);
+   }
+
+   public int deleteAllReferences(final int flushLimit) throws Exception
+   {
+      int count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.deleteAllReferences(flushLimit);
+      }
+
+      return count;
+   }
+
+   public boolean deleteReference(final long messageID) throws Exception
+   {
+      for (Queue shard : shards)
+      {
+         if (shard.deleteReference(messageID))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public int deleteMatchingReferences(final Filter filter1) throws Exception
+   {
+      return deleteMatchingReferences(QueueImpl.DEFAULT_FLUSH_LIMIT, filter1);
+   }
+
+   public int deleteMatchingReferences(final int flushLimit, final Filter filter1) throws Exception
+   {
+      int count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.deleteMatchingReferences(flushLimit, filter1);
+      }
+
+      return count;
+   }
+
+   public boolean expireReference(final long messageID) throws Exception
+   {
+      for (Queue shard : shards)
+      {
+         if (shard.expireReference(messageID))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public int expireReferences(final Filter filter1) throws Exception
+   {
+      int count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.expireReferences(filter1);
+      }
+
+      return count;
+   }
+
+   public void expireReferences() throws Exception
+   {
+      for (Queue shard : shards)
+      {
+         shard.expireReferences();
+      }
+   }
+
+   public boolean sendMessageToDeadLetterAddress(final long messageID) throws Exception
+   {
+      for (Queue shard : shards)
+      {
+         if (shard.sendMessageToDeadLetterAddress(messageID))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public int sendMessagesToDeadLetterAddress(final Filter filter1) throws Exception
+   {
+      int count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.sendMessagesToDeadLetterAddress(filter1);
+      }
+
+      return count;
+   }
+
+   public boolean changeReferencePriority(final long messageID, final byte newPriority) throws Exception
+   {
+      for (Queue shard : shards)
+      {
+         if (shard.changeReferencePriority(messageID, newPriority))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public int changeReferencesPriority(final Filter filter1, final byte newPriority) throws Exception
+   {
+      int count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.changeReferencesPriority(filter1, newPriority);
+      }
+
+      return count;
+   }
+
+   public boolean moveReference(final long messageID, final SimpleString toAddress) throws Exception
+   {
+      return moveReference(messageID, toAddress, false);
+   }
+
+   public boolean moveReference(final long messageID,
+                                final SimpleString toAddress,
+                                final boolean rejectDuplicates) throws Exception
+   {
+      for (Queue shard : shards)
+      {
+         if (shard.moveReference(messageID, toAddress, rejectDuplicates))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public int moveReferences(final Filter filter1, final SimpleString toAddress) throws Exception
+   {
+      return moveReferences(QueueImpl.DEFAULT_FLUSH_LIMIT, filter1, toAddress, false);
+   }
+
+   public int moveReferences(final int flushLimit,
+                             final Filter filter1,
+                             final SimpleString toAddress,
+                             final boolean rejectDuplicates) throws Exception
+   {
+      int count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += shard.moveReferences(flushLimit, filter1, toAddress, rejectDuplicates);
+      }
+
+      return count;
+   }
+
+   public int moveReferencesBetweenSnFQueues(final SimpleString queueSuffix) throws Exception
+   {
+      int count = 0;
+
+      for (Queue shard : shards)
+      {
+         count += ((QueueImpl) shard).moveReferencesBetweenSnFQueues(queueSuffix);
+      }
+
+      return count;
+   }
+
+   public void addRedistributor(final long delay)
+   {
+      for (Queue shard : shards)
+      {
+         shard.addRedistributor(delay);
+      }
+   }
+
+   public void cancelRedistributor() throws Exception
+   {
+      for (Queue shard : shards)
+      {
+         shard.cancelRedistributor();
+      }
+   }
+
+   public boolean hasMatchingConsumer(final ServerMessage message)
+   {
+      for (Queue shard : shards)
+      {
+         if (shard.hasMatchingConsumer(message))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public LinkedListIterator<MessageReference> iterator()
+   {
+      List<LinkedListIterator<MessageReference>> iterators = new ArrayList<LinkedListIterator<MessageReference>>(shards.length);
+
+      for (Queue shard : shards)
+      {
+         iterators.add(shard.iterator());
+      }
+
+      return new ShardsIterator(iterators);
+   }
+
+   public LinkedListIterator<MessageReference> totalIterator()
+   {
+      List<LinkedListIterator<MessageReference>> iterators = new ArrayList<LinkedListIterator<MessageReference>>(shards.length);
+
+      for (Queue shard : shards)
+      {
+         iterators.add(shard.totalIterator());
+      }
+
+      return new ShardsIterator(iterators);
+   }
+
+   public SimpleString getExpiryAddress()
+   {
+      return shards[0].getExpiryAddress();
+   }
+
+   public void pause()
+   {
+      for (Queue shard : shards)
+      {
+         shard.pause();
+      }
+   }
+
+   public void resume()
+   {
+      for (Queue shard : shards)
+      {
+         shard.resume();
+      }
+   }
+
+   public boolean isPaused()
+   {
+      return shards[0].isPaused();
+   }
+
+   /**
+    * Tasks given to this executor will run after whatever was already scheduled on every shard's executor.
+    */
+   public Executor getExecutor()
+   {
+      return executor;
+   }
+
+   public void resetAllIterators()
+   {
+      for (Queue shard : shards)
+      {
+         shard.resetAllIterators();
+      }
+   }
+
+   public boolean flushExecutor()
+   {
+      boolean ok = true;
+
+      for (Queue shard : shards)
+      {
+         ok &= shard.flushExecutor();
+      }
+
+      return ok;
+   }
+
+   public void close() throws Exception
+   {
+      for (Queue shard : shards)
+      {
+         shard.close();
+      }
+   }
+
+   public boolean isDirectDeliver()
+   {
+      for (Queue shard : shards)
+      {
+         if (shard.isDirectDeliver())
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   public boolean isInternalQueue()
+   {
+      return internalQueue;
+   }
+
+   public void setInternalQueue(final boolean internalQueue)
+   {
+      this.internalQueue = internalQueue;
+
+      for (Queue shard : shards)
+      {
+         shard.setInternalQueue(internalQueue);
+      }
+   }
+
+   @Override
+   public boolean equals(final Object other)
+   {
+      if (this == other)
+      {
+         return true;
+      }
+
+      if (!(other instanceof ShardedQueue))
+      {
+         return false;
+      }
+
+      return name.equals(((ShardedQueue) other).name);
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return name.hashCode();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ShardedQueue[name=" + name + ", shards=" + shards.length + "]@" + Integer.toHexString(System.identityHashCode(this));
+   }
+
+   // Private -----------------------------------------------------------------------------------------------------
+
+   /**
+    * @return the reference itself if it belongs to a shard, otherwise a copy of it for the shard its message belongs to
+    */
+   private MessageReference toShard(final MessageReference ref)
+   {
+      Queue queue = ref.getQueue();
+
+      if (queue == null || queue == this)
+      {
+         return ref.copy(shardOf(ref.getMessage()));
+      }
+
+      return ref;
+   }
+
+   /**
+    * References are created for the shard they were routed to, this is only falling back to the first shard
+    * in case a reference was created for this queue directly.
+    */
+   private Queue queueOf(final MessageReference ref)
+   {
+      Queue queue = ref.getQueue();
+
+      if (queue == null || queue == this)
+      {
+         return shards[0];
+      }
+
+      return queue;
+   }
+
+   /**
+    * Called when a shard has no consumers left, while there are still consumers on other shards.
+    */
+   private void reassign(final int shard)
+   {
+      int mostServed = 0;
+
+      for (int i = 1; i < shards.length; i++)
+      {
+         if (assigned[i] > assigned[mostServed])
+         {
+            mostServed = i;
+         }
+      }
+
+      Consumer moving = null;
+
+      if (assigned[mostServed] > 1)
+      {
+         // move a consumer serving only that shard over from the shard with the most consumers
+         for (Map.Entry<Consumer, List<Integer>> entry : assignments.entrySet())
+         {
+            if (entry.getValue().size() == 1 && entry.getValue().get(0) == mostServed)
+            {
+               moving = entry.getKey();
+               break;
+            }
+         }
+      }
+
+      if (moving == null)
+      {
+         // the consumer serving the fewest shards takes this one too
+         for (Map.Entry<Consumer, List<Integer>> entry : assignments.entrySet())
+         {
+            if (moving == null || entry.getValue().size() < assignments.get(moving).size())
+            {
+               moving = entry.getKey();
+            }
+         }
+
+         mostServed = -1;
+      }
+
+      try
+      {
+         shards[shard].addConsumer(moving);
+      }
+      catch (Exception e)
+      {
+         throw new IllegalStateException(e.getMessage(), e);
+      }
+
+      assigned[shard]++;
+
+      List<Integer> movingShards = assignments.get(moving);
+
+      movingShards.add(shard);
+
+      if (mostServed >= 0)
+      {
+         shards[mostServed].removeConsumer(moving);
+
+         assigned[mostServed]--;
+
+         movingShards.remove(Integer.valueOf(mostServed));
+      }
+   }
+
+   private final class ShardsExecutor implements Executor
+   {
+      public void execute(final Runnable command)
+      {
+         schedule(0, command);
+      }
+
+      private void schedule(final int shard, final Runnable command)
+      {
+         if (shard == shards.length - 1)
+         {
+            shards[shard].getExecutor().execute(command);
+         }
+         else
+         {
+            shards[shard].getExecutor().execute(new Runnable()
+            {
+               public void run()
+               {
+                  schedule(shard + 1, command);
+               }
+            });
+         }
+      }
+   }
+
+   private static final class ShardsIterator implements LinkedListIterator<MessageReference>
+   {
+      private final List<LinkedListIterator<MessageReference>> iterators;
+
+      private int current;
+
+      private LinkedListIterator<MessageReference> last;
+
+      ShardsIterator(final List<LinkedListIterator<MessageReference>> iterators)
+      {
+         this.iterators = iterators;
+      }
+
+      public boolean hasNext()
+      {
+         while (current < iterators.size())
+         {
+            if (iterators.get(current).hasNext())
+            {
+               return true;
+            }
+            current++;
+         }
+
+         return false;
+      }
+
+      public MessageReference next()
+      {
+         if (!hasNext())
+         {
+            throw new NoSuchElementException();
+         }
+
+         last = iterators.get(current);
+
+         return last.next();
+      }
+
+      public void remove()
+      {
+         if (last == null)
+         {
+            throw new IllegalStateException();
+         }
+
+         last.remove();
+      }
+
+      public void repeat()
+      {
+         if (last != null)
+         {
+            last.repeat();
+
+            current = iterators.indexOf(last);
+         }
+      }
+
+      public void close()
+      {
+         for (LinkedListIterator<MessageReference> iterator : iterators)
+         {
+            iterator.close();
+         }
+      }
+   }
+}
@@ -14,6 +14,8 @@ package org.hornetq.core.settings;
 
 import java.util.List;
 
+import org.hornetq.api.core.SimpleString;
+
 /**
  * allows objects to be mapped against a regex pattern and held in order in a list
  *
@@ -41,6 +43,11 @@ public interface HierarchicalRepository<T>
     */
    T getMatch(String match);
 
+   /**
+    * @see #getMatch(String)
+    */
+   T getMatch(SimpleString match);
+
    /**
     * Return a list of Values being added
     * @return
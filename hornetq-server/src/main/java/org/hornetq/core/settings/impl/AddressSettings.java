@@ -44,6 +44,10 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    public static final int DEFAULT_PAGE_MAX_CACHE = 5;
 
+   public static final long DEFAULT_PAGE_MAX_CACHE_SIZE_BYTES = -1;
+
+   public static final int DEFAULT_PAGE_READ_AHEAD = 2;
+
    public static final int DEFAULT_MESSAGE_COUNTER_HISTORY_DAY_LIMIT = 0;
 
    public static final long DEFAULT_REDELIVER_DELAY = 0L;
@@ -58,6 +62,12 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    public static final boolean DEFAULT_SEND_TO_DLA_ON_NO_ROUTE = false;
 
+   public static final QueueEngine DEFAULT_QUEUE_ENGINE = QueueEngine.DEFAULT;
+
+   public static final int DEFAULT_QUEUE_SHARDS = 4;
+
+   public static final boolean DEFAULT_PAGE_INDEX = false;
+
    private AddressFullMessagePolicy addressFullMessagePolicy = null;
 
    private Long maxSizeBytes = null;
@@ -66,6 +76,10 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    private Integer pageMaxCache = null;
 
+   private Long pageMaxCacheBytes = null;
+
+   private Integer pageReadAhead = null;
+
    private Boolean dropMessagesWhenFull = null;
 
    private Integer maxDeliveryAttempts = null;
@@ -90,12 +104,20 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
 
    private Boolean sendToDLAOnNoRoute = null;
 
+   private QueueEngine queueEngine = null;
+
+   private Integer queueShards = null;
+
+   private Boolean pageIndex = null;
+
    public AddressSettings(AddressSettings other)
    {
       this.addressFullMessagePolicy = other.addressFullMessagePolicy;
       this.maxSizeBytes = other.maxSizeBytes;
       this.pageSizeBytes = other.pageSizeBytes;
       this.pageMaxCache = other.pageMaxCache;
+      this.pageMaxCacheBytes = other.pageMaxCacheBytes;
+      this.pageReadAhead = other.pageReadAhead;
       this.dropMessagesWhenFull = other.dropMessagesWhenFull;
       this.maxDeliveryAttempts = other.maxDeliveryAttempts;
       this.messageCounterHistoryDayLimit = other.messageCounterHistoryDayLimit;
@@ -108,6 +130,9 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       this.lastValueQueue = other.lastValueQueue;
       this.redistributionDelay = other.redistributionDelay;
       this.sendToDLAOnNoRoute = other.sendToDLAOnNoRoute;
+      this.queueEngine = other.queueEngine;
+      this.queueShards = other.queueShards;
+      this.pageIndex = other.pageIndex;
    }
 
    public AddressSettings()
@@ -156,6 +181,26 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       this.pageMaxCache = pageMaxCache;
    }
 
+   public long getPageCacheMaxSizeBytes()
+   {
+      return pageMaxCacheBytes != null ? pageMaxCacheBytes : AddressSettings.DEFAULT_PAGE_MAX_CACHE_SIZE_BYTES;
+   }
+
+   public void setPageCacheMaxSizeBytes(final long pageMaxCacheBytes)
+   {
+      this.pageMaxCacheBytes = pageMaxCacheBytes;
+   }
+
+   public int getPageReadAhead()
+   {
+      return pageReadAhead != null ? pageReadAhead : AddressSettings.DEFAULT_PAGE_READ_AHEAD;
+   }
+
+   public void setPageReadAhead(final int pageReadAhead)
+   {
+      this.pageReadAhead = pageReadAhead;
+   }
+
    public long getMaxSizeBytes()
    {
       return maxSizeBytes != null ? maxSizeBytes : AddressSettings.DEFAULT_MAX_SIZE_BYTES;
@@ -259,6 +304,36 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       sendToDLAOnNoRoute = value;
    }
 
+   public QueueEngine getQueueEngine()
+   {
+      return queueEngine != null ? queueEngine : AddressSettings.DEFAULT_QUEUE_ENGINE;
+   }
+
+   public void setQueueEngine(final QueueEngine queueEngine)
+   {
+      this.queueEngine = queueEngine;
+   }
+
+   public int getQueueShards()
+   {
+      return queueShards != null ? queueShards : AddressSettings.DEFAULT_QUEUE_SHARDS;
+   }
+
+   public void setQueueShards(final int queueShards)
+   {
+      this.queueShards = queueShards;
+   }
+
+   public boolean isPageIndex()
+   {
+      return pageIndex != null ? pageIndex : AddressSettings.DEFAULT_PAGE_INDEX;
+   }
+
+   public void setPageIndex(final boolean pageIndex)
+   {
+      this.pageIndex = pageIndex;
+   }
+
    public long getRedistributionDelay()
    {
       return redistributionDelay != null ? redistributionDelay : AddressSettings.DEFAULT_REDISTRIBUTION_DELAY;
@@ -336,6 +411,26 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       {
          addressFullMessagePolicy = merged.addressFullMessagePolicy;
       }
+      if (queueEngine == null)
+      {
+         queueEngine = merged.queueEngine;
+      }
+      if (queueShards == null)
+      {
+         queueShards = merged.queueShards;
+      }
+      if (pageIndex == null)
+      {
+         pageIndex = merged.pageIndex;
+      }
+      if (pageMaxCacheBytes == null)
+      {
+         pageMaxCacheBytes = merged.pageMaxCacheBytes;
+      }
+      if (pageReadAhead == null)
+      {
+         pageReadAhead = merged.pageReadAhead;
+      }
    }
 
    @Override
@@ -381,6 +476,31 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       redistributionDelay = BufferHelper.readNullableLong(buffer);
 
       sendToDLAOnNoRoute = BufferHelper.readNullableBoolean(buffer);
+
+      // settings persisted by older versions end here
+      if (buffer.readable())
+      {
+         SimpleString engineStr = buffer.readNullableSimpleString();
+
+         queueEngine = engineStr != null ? QueueEngine.valueOf(engineStr.toString()) : null;
+
+         queueShards = BufferHelper.readNullableInteger(buffer);
+      }
+
+      if (buffer.readable())
+      {
+         pageIndex = BufferHelper.readNullableBoolean(buffer);
+      }
+
+      if (buffer.readable())
+      {
+         pageMaxCacheBytes = BufferHelper.readNullableLong(buffer);
+      }
+
+      if (buffer.readable())
+      {
+         pageReadAhead = BufferHelper.readNullableInteger(buffer);
+      }
    }
 
    @Override
@@ -402,7 +522,12 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
          BufferHelper.sizeOfNullableLong(expiryDelay) +
          BufferHelper.sizeOfNullableBoolean(lastValueQueue) +
          BufferHelper.sizeOfNullableLong(redistributionDelay) +
-         BufferHelper.sizeOfNullableBoolean(sendToDLAOnNoRoute);
+         BufferHelper.sizeOfNullableBoolean(sendToDLAOnNoRoute) +
+         BufferHelper.sizeOfNullableSimpleString(queueEngine != null ? queueEngine.toString() : null) +
+         BufferHelper.sizeOfNullableInteger(queueShards) +
+         BufferHelper.sizeOfNullableBoolean(pageIndex) +
+         BufferHelper.sizeOfNullableLong(pageMaxCacheBytes) +
+         BufferHelper.sizeOfNullableInteger(pageReadAhead);
    }
 
    @Override
@@ -440,6 +565,16 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       BufferHelper.writeNullableLong(buffer, redistributionDelay);
 
       BufferHelper.writeNullableBoolean(buffer, sendToDLAOnNoRoute);
+
+      buffer.writeNullableSimpleString(queueEngine != null ? new SimpleString(queueEngine.toString()) : null);
+
+      BufferHelper.writeNullableInteger(buffer, queueShards);
+
+      BufferHelper.writeNullableBoolean(buffer, pageIndex);
+
+      BufferHelper.writeNullableLong(buffer, pageMaxCacheBytes);
+
+      BufferHelper.writeNullableInteger(buffer, pageReadAhead);
    }
 
    /* (non-Javadoc)
@@ -467,6 +602,11 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       result = prime * result + ((maxRedeliveryDelay == null) ? 0 : maxRedeliveryDelay.hashCode());
       result = prime * result + ((redistributionDelay == null) ? 0 : redistributionDelay.hashCode());
       result = prime * result + ((sendToDLAOnNoRoute == null) ? 0 : sendToDLAOnNoRoute.hashCode());
+      result = prime * result + ((queueEngine == null) ? 0 : queueEngine.hashCode());
+      result = prime * result + ((queueShards == null) ? 0 : queueShards.hashCode());
+      result = prime * result + ((pageIndex == null) ? 0 : pageIndex.hashCode());
+      result = prime * result + ((pageMaxCacheBytes == null) ? 0 : pageMaxCacheBytes.hashCode());
+      result = prime * result + ((pageReadAhead == null) ? 0 : pageReadAhead.hashCode());
       return result;
    }
 
@@ -595,6 +735,41 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
       }
       else if (!sendToDLAOnNoRoute.equals(other.sendToDLAOnNoRoute))
          return false;
+      if (queueEngine == null)
+      {
+         if (other.queueEngine != null)
+            return false;
+      }
+      else if (!queueEngine.equals(other.queueEngine))
+         return false;
+      if (queueShards == null)
+      {
+         if (other.queueShards != null)
+            return false;
+      }
+      else if (!queueShards.equals(other.queueShards))
+         return false;
+      if (pageIndex == null)
+      {
+         if (other.pageIndex != null)
+            return false;
+      }
+      else if (!pageIndex.equals(other.pageIndex))
+         return false;
+      if (pageMaxCacheBytes == null)
+      {
+         if (other.pageMaxCacheBytes != null)
+            return false;
+      }
+      else if (!pageMaxCacheBytes.equals(other.pageMaxCacheBytes))
+         return false;
+      if (pageReadAhead == null)
+      {
+         if (other.pageReadAhead != null)
+            return false;
+      }
+      else if (!pageReadAhead.equals(other.pageReadAhead))
+         return false;
       return true;
    }
 
@@ -635,6 +810,16 @@ public class AddressSettings implements Mergeable<AddressSettings>, Serializable
          redistributionDelay +
          ", sendToDLAOnNoRoute=" +
          sendToDLAOnNoRoute +
+         ", queueEngine=" +
+         queueEngine +
+         ", queueShards=" +
+         queueShards +
+         ", pageIndex=" +
+         pageIndex +
+         ", pageMaxCacheBytes=" +
+         pageMaxCacheBytes +
+         ", pageReadAhead=" +
+         pageReadAhead +
          "]";
    }
 }
@@ -19,13 +19,14 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.HierarchicalRepositoryChangeListener;
@@ -44,13 +45,18 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
    /**
     * The default Match to fall back to
     */
-   private T defaultmatch;
+   private volatile T defaultmatch;
 
    /**
     * all the matches
     */
    private final Map<String, Match<T>> matches = new HashMap<String, Match<T>>();
 
+   /**
+    * the matches as used by {@link #getMatch(SimpleString)}, replaced on every change
+    */
+   private volatile MatchIndex<T> index = new MatchIndex<T>(Collections.<Match<T>>emptyList());
+
    /**
     * Certain values cannot be removed after installed.
     * This is because we read a few records from the main config.
@@ -68,21 +74,14 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
    /**
     * a cache
     */
-   private final Map<String, T> cache = new ConcurrentHashMap<String, T>();
+   private final Map<SimpleString, T> cache = new ConcurrentHashMap<SimpleString, T>();
 
    /**
-    * Need a lock instead of using multiple {@link ConcurrentHashMap}s.
-    * <p>
-    * We could have a race between the state of {@link #matches} and {@link #cache}:
-    * <p>
-    * Thread1: calls {@link #addMatch(String , T)}: i. cleans cache; ii. adds match to Map.<br/>
-    * Thread2: could add an (out-dated) entry to the cache between 'i. clean cache' and 'ii. add
-    * match to Map'.
-    * <p>
-    * The lock is OK with regards to performance because we can search the cache before entering the
-    * lock.
+    * Serializes the changes, and guards {@link #matches} and the listeners.
     * <p>
-    * The lock is required for the 'add match to cache' part.
+    * Lookups don't take it: they use {@link #index}, which is replaced before the cached values of the addresses
+    * matching the changed match are removed. A lookup that computed its value from a previous index removes it
+    * from the cache, as the change may have missed it.
     */
    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(false);
 
@@ -158,8 +157,6 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
       lock.writeLock().lock();
       try
       {
-         clearCache();
-
          if (immutableMatch)
          {
             immutables.add(match);
@@ -168,6 +165,8 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
          Match<T> match1 = new Match<T>(match);
          match1.setValue(value);
          matches.put(match, match1);
+         index = new MatchIndex<T>(matches.values());
+         invalidate(match1);
       }
       finally
       {
@@ -190,30 +189,32 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
     * @return the value
     */
    public T getMatch(final String match)
+   {
+      return getMatch(SimpleString.toSimpleString(match));
+   }
+
+   public T getMatch(final SimpleString match)
    {
       T cacheResult = cache.get(match);
       if (cacheResult != null)
       {
          return cacheResult;
       }
-      lock.readLock().lock();
-      try
+      MatchIndex<T> currentIndex = index;
+      T actualMatch;
+      Map<String, Match<T>> possibleMatches = getPossibleMatches(match.toString());
+      Collection<Match<T>> orderedMatches = sort(possibleMatches);
+      actualMatch = merge(orderedMatches);
+      T value = actualMatch != null ? actualMatch : defaultmatch;
+      if (value != null)
       {
-         T actualMatch;
-         Map<String, Match<T>> possibleMatches = getPossibleMatches(match);
-         Collection<Match<T>> orderedMatches = sort(possibleMatches);
-         actualMatch = merge(orderedMatches);
-         T value = actualMatch != null ? actualMatch : defaultmatch;
-         if (value != null)
+         cache.put(match, value);
+         if (index != currentIndex)
          {
-            cache.put(match, value);
+            cache.remove(match);
          }
-         return value;
-      }
-      finally
-      {
-         lock.readLock().unlock();
       }
+      return value;
    }
 
    /**
@@ -277,12 +278,12 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
          }
          else
          {
-            /**
-             * clear the cache before removing the match. This will force any thread at
-             * {@link #getMatch(String)} to get the lock to recompute.
-             */
-            clearCache();
-            matches.remove(match);
+            Match<T> removed = matches.remove(match);
+            if (removed != null)
+            {
+               index = new MatchIndex<T>(matches.values());
+               invalidate(removed);
+            }
             onChange();
          }
       }
@@ -329,8 +330,17 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
     */
    public void setDefault(final T defaultValue)
    {
-      clearCache();
-      defaultmatch = defaultValue;
+      lock.writeLock().lock();
+      try
+      {
+         defaultmatch = defaultValue;
+         index = new MatchIndex<T>(matches.values());
+         clearCache();
+      }
+      finally
+      {
+         lock.writeLock().unlock();
+      }
    }
 
    public void clear()
@@ -338,9 +348,10 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
       lock.writeLock().lock();
       try
       {
-         clearCache();
          listeners.clear();
          matches.clear();
+         index = new MatchIndex<T>(matches.values());
+         clearCache();
       }
       finally
       {
@@ -358,6 +369,21 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
       cache.clear();
    }
 
+   /**
+    * Removes the cached values of the addresses matching a match that was added, replaced or removed.
+    */
+   private void invalidate(final Match<T> match)
+   {
+      Iterator<SimpleString> addresses = cache.keySet().iterator();
+      while (addresses.hasNext())
+      {
+         if (match.getPattern().matcher(addresses.next().toString()).matches())
+         {
+            addresses.remove();
+         }
+      }
+   }
+
    private void onChange()
    {
       lock.readLock().lock();
@@ -391,15 +417,14 @@ public class HierarchicalObjectRepository<T> implements HierarchicalRepository<T
     */
    private Map<String, Match<T>> getPossibleMatches(final String match)
    {
+      List<Match<T>> indexedMatches = new ArrayList<Match<T>>();
+      index.collect(match, indexedMatches);
+
       HashMap<String, Match<T>> possibleMatches = new HashMap<String, Match<T>>();
 
-      for (Entry<String, Match<T>> entry : matches.entrySet())
+      for (Match<T> entryMatch : indexedMatches)
       {
-         Match<T> entryMatch = entry.getValue();
-         if (entryMatch.getPattern().matcher(match).matches())
-         {
-            possibleMatches.put(entry.getKey(), entryMatch);
-         }
+         possibleMatches.put(entryMatch.getMatch(), entryMatch);
       }
       return possibleMatches;
    }
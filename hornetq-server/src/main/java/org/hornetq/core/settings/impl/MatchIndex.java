@@ -0,0 +1,231 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.settings.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index of the matches of a {@link HierarchicalObjectRepository}, to find the matches of an address
+ * without trying every pattern.
+ * <p/>
+ * Matches made of whole words ({@code *} as a word, {@code #} as the last word) are kept on a tree of words. The
+ * others, such as {@code queue.a*}, are kept on a list and tried with their regular expressions.
+ */
+final class MatchIndex<T>
+{
+   /**
+    * characters with a meaning on the regular expression of a match
+    */
+   private static final String REGEX_CHARACTERS = "\\^$|?+()[]{}";
+
+   private final Node<T> root = new Node<T>();
+
+   private final List<Match<T>> others = new ArrayList<Match<T>>();
+
+   private static final class Node<T>
+   {
+      private Map<String, Node<T>> children;
+
+      /**
+       * the node for a *
+       */
+      private Node<T> anyWord;
+
+      /**
+       * the match ending at this node
+       */
+      private Match<T> match;
+
+      /**
+       * the match ending with a # after this node
+       */
+      private Match<T> anyWordsMatch;
+   }
+
+   MatchIndex(final Collection<Match<T>> matches)
+   {
+      for (Match<T> match : matches)
+      {
+         String[] words = MatchIndex.split(match.getMatch());
+
+         if (MatchIndex.isIndexable(match.getMatch(), words))
+         {
+            index(match, words);
+         }
+         else
+         {
+            others.add(match);
+         }
+      }
+   }
+
+   /**
+    * Adds the matches of an address to the list.
+    */
+   void collect(final String address, final List<Match<T>> result)
+   {
+      collect(root, MatchIndex.split(address), 0, result);
+
+      for (Match<T> match : others)
+      {
+         if (match.getPattern().matcher(address).matches())
+         {
+            result.add(match);
+         }
+      }
+   }
+
+   private void index(final Match<T> match, final String[] words)
+   {
+      Node<T> node = root;
+
+      for (int i = 0; i < words.length; i++)
+      {
+         String word = words[i];
+
+         if (word.equals(Match.WILDCARD))
+         {
+            node.anyWordsMatch = match;
+            return;
+         }
+         else if (word.equals(Match.WORD_WILDCARD))
+         {
+            if (node.anyWord == null)
+            {
+               node.anyWord = new Node<T>();
+            }
+            node = node.anyWord;
+         }
+         else
+         {
+            if (node.children == null)
+            {
+               node.children = new HashMap<String, Node<T>>(4);
+            }
+            Node<T> child = node.children.get(word);
+            if (child == null)
+            {
+               child = new Node<T>();
+               node.children.put(word, child);
+            }
+            node = child;
+         }
+      }
+
+      node.match = match;
+   }
+
+   private static <T> void collect(final Node<T> node, final String[] words, final int index, final List<Match<T>> result)
+   {
+      // a # stands for at least one character after the dot, or for the whole non empty address
+      if (node.anyWordsMatch != null && index < words.length && !(index == words.length - 1 && words[index].isEmpty()))
+      {
+         result.add(node.anyWordsMatch);
+      }
+
+      if (index == words.length)
+      {
+         if (node.match != null)
+         {
+            result.add(node.match);
+         }
+         return;
+      }
+
+      if (node.children != null)
+      {
+         Node<T> child = node.children.get(words[index]);
+
+         if (child != null)
+         {
+            collect(child, words, index + 1, result);
+         }
+      }
+
+      // a * stands for a non empty word
+      if (node.anyWord != null && !words[index].isEmpty())
+      {
+         collect(node.anyWord, words, index + 1, result);
+      }
+   }
+
+   private static boolean isIndexable(final String match, final String[] words)
+   {
+      for (int i = 0; i < match.length(); i++)
+      {
+         if (MatchIndex.REGEX_CHARACTERS.indexOf(match.charAt(i)) >= 0)
+         {
+            return false;
+         }
+      }
+
+      for (int i = 0; i < words.length; i++)
+      {
+         String word = words[i];
+
+         if (word.equals(Match.WILDCARD))
+         {
+            if (i != words.length - 1)
+            {
+               return false;
+            }
+         }
+         else if (!word.equals(Match.WORD_WILDCARD) &&
+            (word.contains(Match.WILDCARD) || word.contains(Match.WORD_WILDCARD)))
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Splits on dots, keeping empty words.
+    */
+   private static String[] split(final String address)
+   {
+      int count = 1;
+
+      for (int i = 0; i < address.length(); i++)
+      {
+         if (address.charAt(i) == '.')
+         {
+            count++;
+         }
+      }
+
+      String[] words = new String[count];
+
+      int start = 0;
+
+      int word = 0;
+
+      for (int i = 0; i < address.length(); i++)
+      {
+         if (address.charAt(i) == '.')
+         {
+            words[word++] = address.substring(start, i);
+            start = i + 1;
+         }
+      }
+
+      words[word] = address.substring(start);
+
+      return words;
+   }
+}
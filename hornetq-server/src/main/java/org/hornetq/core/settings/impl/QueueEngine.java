@@ -0,0 +1,29 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.settings.impl;
+
+/**
+ * The implementation used by {@link org.hornetq.core.server.QueueFactory} for queues created on a matching address.
+ * <p>
+ * DEFAULT: {@link org.hornetq.core.server.impl.QueueImpl}, with direct delivery on the producer's thread when the queue is empty.
+ * <p>
+ * LOCK_FREE: {@link org.hornetq.core.server.impl.LockFreeQueue}, producers only append to a lock free intake and
+ * all deliveries happen on the queue's delivery loop.
+ * <p>
+ * SHARDED: {@link org.hornetq.core.server.impl.ShardedQueue}, messages are spread over a number of independent queues
+ * (see {@link AddressSettings#getQueueShards()}) each one delivered by its own thread.
+ */
+public enum QueueEngine
+{
+   DEFAULT, LOCK_FREE, SHARDED;
+}
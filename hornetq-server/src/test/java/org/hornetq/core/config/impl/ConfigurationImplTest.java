@@ -50,6 +50,9 @@ public class ConfigurationImplTest extends UnitTestCase
                           conf.getScheduledThreadPoolMaxSize());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultSecurityInvalidationInterval(),
                           conf.getSecurityInvalidationInterval());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultSecurityNegativeInvalidationInterval(),
+                          conf.getSecurityNegativeInvalidationInterval());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultSecurityCacheSize(), conf.getSecurityCacheSize());
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultSecurityEnabled(), conf.isSecurityEnabled());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultBindingsDirectory(), conf.getBindingsDirectory());
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultCreateBindingsDir(), conf.isCreateBindingsDir());
@@ -86,10 +89,17 @@ public class ConfigurationImplTest extends UnitTestCase
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultAsyncConnectionExecutionEnabled(),
                           conf.isAsyncConnectionExecutionEnabled());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultPagingDir(), conf.getPagingDirectory());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultGlobalPageCacheMaxSize(),
+                          conf.getGlobalPageCacheMaxSize());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultLargeMessagesDir(), conf.getLargeMessagesDirectory());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactPercentage(), conf.getJournalCompactPercentage());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalLoadParallelism(), conf.getJournalLoadParallelism());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactBatchFiles(), conf.getJournalCompactBatchFiles());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactIoBudget(), conf.getJournalCompactIOBudget());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactPauseBudget(), conf.getJournalCompactPauseBudget());
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_AIO, conf.getJournalBufferTimeout_AIO());
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_NIO, conf.getJournalBufferTimeout_NIO());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalBufferLatencyTarget(), conf.getJournalBufferLatencyTarget());
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_AIO, conf.getJournalBufferSize_AIO());
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_NIO, conf.getJournalBufferSize_NIO());
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultJournalLogWriteRate(), conf.isLogJournalWriteRate());
@@ -122,6 +132,14 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setSecurityInvalidationInterval(l);
          Assert.assertEquals(l, conf.getSecurityInvalidationInterval());
 
+         l = RandomUtil.randomLong();
+         conf.setSecurityNegativeInvalidationInterval(l);
+         Assert.assertEquals(l, conf.getSecurityNegativeInvalidationInterval());
+
+         i = RandomUtil.randomInt();
+         conf.setSecurityCacheSize(i);
+         Assert.assertEquals(i, conf.getSecurityCacheSize());
+
          boolean b = RandomUtil.randomBoolean();
          conf.setSecurityEnabled(b);
          Assert.assertEquals(b, conf.isSecurityEnabled());
@@ -239,6 +257,22 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setJournalCompactPercentage(i);
          Assert.assertEquals(i, conf.getJournalCompactPercentage());
 
+         i = RandomUtil.randomInt();
+         conf.setJournalLoadParallelism(i);
+         Assert.assertEquals(i, conf.getJournalLoadParallelism());
+
+         i = RandomUtil.randomInt();
+         conf.setJournalCompactBatchFiles(i);
+         Assert.assertEquals(i, conf.getJournalCompactBatchFiles());
+
+         i = RandomUtil.randomInt();
+         conf.setJournalCompactIOBudget(i);
+         Assert.assertEquals(i, conf.getJournalCompactIOBudget());
+
+         i = RandomUtil.randomInt();
+         conf.setJournalCompactPauseBudget(i);
+         Assert.assertEquals(i, conf.getJournalCompactPauseBudget());
+
          i = RandomUtil.randomInt();
          conf.setJournalBufferSize_AIO(i);
          Assert.assertEquals(i, conf.getJournalBufferSize_AIO());
@@ -255,6 +289,10 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setJournalBufferTimeout_NIO(i);
          Assert.assertEquals(i, conf.getJournalBufferTimeout_NIO());
 
+         i = RandomUtil.randomInt();
+         conf.setJournalBufferLatencyTarget(i);
+         Assert.assertEquals(i, conf.getJournalBufferLatencyTarget());
+
          b = RandomUtil.randomBoolean();
          conf.setLogJournalWriteRate(b);
          Assert.assertEquals(b, conf.isLogJournalWriteRate());
@@ -271,6 +309,10 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setPagingDirectory(s);
          Assert.assertEquals(s, conf.getPagingDirectory());
 
+         l = RandomUtil.randomLong();
+         conf.setGlobalPageCacheMaxSize(l);
+         Assert.assertEquals(l, conf.getGlobalPageCacheMaxSize());
+
          s = RandomUtil.randomString();
          conf.setLargeMessagesDirectory(s);
          Assert.assertEquals(s, conf.getLargeMessagesDirectory());
@@ -334,6 +376,14 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setSecurityInvalidationInterval(l);
       Assert.assertEquals(l, conf.getSecurityInvalidationInterval());
 
+      l = RandomUtil.randomLong();
+      conf.setSecurityNegativeInvalidationInterval(l);
+      Assert.assertEquals(l, conf.getSecurityNegativeInvalidationInterval());
+
+      i = RandomUtil.randomInt();
+      conf.setSecurityCacheSize(i);
+      Assert.assertEquals(i, conf.getSecurityCacheSize());
+
       b = RandomUtil.randomBoolean();
       conf.setSecurityEnabled(b);
       Assert.assertEquals(b, conf.isSecurityEnabled());
@@ -452,6 +502,22 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setJournalCompactPercentage(i);
       Assert.assertEquals(i, conf.getJournalCompactPercentage());
 
+      i = RandomUtil.randomInt();
+      conf.setJournalLoadParallelism(i);
+      Assert.assertEquals(i, conf.getJournalLoadParallelism());
+
+      i = RandomUtil.randomInt();
+      conf.setJournalCompactBatchFiles(i);
+      Assert.assertEquals(i, conf.getJournalCompactBatchFiles());
+
+      i = RandomUtil.randomInt();
+      conf.setJournalCompactIOBudget(i);
+      Assert.assertEquals(i, conf.getJournalCompactIOBudget());
+
+      i = RandomUtil.randomInt();
+      conf.setJournalCompactPauseBudget(i);
+      Assert.assertEquals(i, conf.getJournalCompactPauseBudget());
+
       i = RandomUtil.randomInt();
       conf.setJournalBufferSize_AIO(i);
       Assert.assertEquals(i, conf.getJournalBufferSize_AIO());
@@ -468,6 +534,10 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setJournalBufferTimeout_NIO(i);
       Assert.assertEquals(i, conf.getJournalBufferTimeout_NIO());
 
+      i = RandomUtil.randomInt();
+      conf.setJournalBufferLatencyTarget(i);
+      Assert.assertEquals(i, conf.getJournalBufferLatencyTarget());
+
       b = RandomUtil.randomBoolean();
       conf.setLogJournalWriteRate(b);
       Assert.assertEquals(b, conf.isLogJournalWriteRate());
@@ -484,6 +554,10 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setPagingDirectory(s);
       Assert.assertEquals(s, conf.getPagingDirectory());
 
+      l = RandomUtil.randomLong();
+      conf.setGlobalPageCacheMaxSize(l);
+      Assert.assertEquals(l, conf.getGlobalPageCacheMaxSize());
+
       s = RandomUtil.randomString();
       conf.setLargeMessagesDirectory(s);
       Assert.assertEquals(s, conf.getLargeMessagesDirectory());
@@ -50,6 +50,9 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultSecurityInvalidationInterval(),
                           conf.getSecurityInvalidationInterval());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultSecurityNegativeInvalidationInterval(),
+                          conf.getSecurityNegativeInvalidationInterval());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultSecurityCacheSize(), conf.getSecurityCacheSize());
 
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultSecurityEnabled(), conf.isSecurityEnabled());
 
@@ -107,6 +110,14 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactPercentage(), conf.getJournalCompactPercentage());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalLoadParallelism(), conf.getJournalLoadParallelism());
+
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactBatchFiles(), conf.getJournalCompactBatchFiles());
+
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactIoBudget(), conf.getJournalCompactIOBudget());
+
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactPauseBudget(), conf.getJournalCompactPauseBudget());
+
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalMinFiles(), conf.getJournalMinFiles());
 
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalMaxIoAio(), conf.getJournalMaxIO_AIO());
@@ -121,12 +132,17 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_NIO, conf.getJournalBufferSize_NIO());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalBufferLatencyTarget(), conf.getJournalBufferLatencyTarget());
+
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultCreateBindingsDir(), conf.isCreateBindingsDir());
 
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultCreateJournalDir(), conf.isCreateJournalDir());
 
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultPagingDir(), conf.getPagingDirectory());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultGlobalPageCacheMaxSize(),
+                          conf.getGlobalPageCacheMaxSize());
+
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultLargeMessagesDir(), conf.getLargeMessagesDirectory());
 
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultWildcardRoutingEnabled(), conf.isWildcardRoutingEnabled());
@@ -28,6 +28,8 @@ import org.hornetq.core.config.DivertConfiguration;
 import org.hornetq.core.security.Role;
 import org.hornetq.core.server.JournalType;
 import org.hornetq.core.server.cluster.ha.HAPolicy;
+import org.hornetq.core.settings.impl.AddressSettings;
+import org.hornetq.core.settings.impl.QueueEngine;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -51,6 +53,8 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(54321, conf.getThreadPoolMaxSize());
       Assert.assertEquals(false, conf.isSecurityEnabled());
       Assert.assertEquals(5423, conf.getSecurityInvalidationInterval());
+      Assert.assertEquals(3412, conf.getSecurityNegativeInvalidationInterval());
+      Assert.assertEquals(2345, conf.getSecurityCacheSize());
       Assert.assertEquals(true, conf.isWildcardRoutingEnabled());
       Assert.assertEquals(new SimpleString("Giraffe"), conf.getManagementAddress());
       Assert.assertEquals(new SimpleString("Whatever"), conf.getManagementNotificationAddress());
@@ -72,6 +76,7 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(false, conf.getHAPolicy().isSharedStore());
       Assert.assertEquals(true, conf.isPersistDeliveryCountBeforeDelivery());
       Assert.assertEquals("pagingdir", conf.getPagingDirectory());
+      Assert.assertEquals(33554432, conf.getGlobalPageCacheMaxSize());
       Assert.assertEquals("somedir", conf.getBindingsDirectory());
       Assert.assertEquals(false, conf.isCreateBindingsDir());
 
@@ -81,6 +86,7 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(JournalType.NIO, conf.getJournalType());
       Assert.assertEquals(10000, conf.getJournalBufferSize_NIO());
       Assert.assertEquals(1000, conf.getJournalBufferTimeout_NIO());
+      Assert.assertEquals(2000000, conf.getJournalBufferLatencyTarget());
       Assert.assertEquals(56546, conf.getJournalMaxIO_NIO());
 
       Assert.assertEquals(false, conf.isJournalSyncTransactional());
@@ -89,6 +95,10 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(100, conf.getJournalMinFiles());
       Assert.assertEquals(123, conf.getJournalCompactMinFiles());
       Assert.assertEquals(33, conf.getJournalCompactPercentage());
+      Assert.assertEquals(3, conf.getJournalLoadParallelism());
+      Assert.assertEquals(5, conf.getJournalCompactBatchFiles());
+      Assert.assertEquals(40, conf.getJournalCompactIOBudget());
+      Assert.assertEquals(20, conf.getJournalCompactPauseBudget());
 
       Assert.assertEquals("largemessagesdir", conf.getLargeMessagesDirectory());
       Assert.assertEquals(95, conf.getMemoryWarningThreshold());
@@ -319,6 +329,17 @@ public class FileConfigurationTest extends ConfigurationImplTest
       assertEquals(7126716262626L, conf.getAddressesSettings().get("a2").getPageSizeBytes());
       assertEquals(20, conf.getAddressesSettings().get("a2").getPageCacheMaxSize());
       assertEquals(8, conf.getAddressesSettings().get("a2").getMessageCounterHistoryDayLimit());
+      assertEquals(QueueEngine.LOCK_FREE, conf.getAddressesSettings().get("a2").getQueueEngine());
+      assertEquals(QueueEngine.DEFAULT, conf.getAddressesSettings().get("a1").getQueueEngine());
+      assertEquals(8, conf.getAddressesSettings().get("a2").getQueueShards());
+      assertEquals(AddressSettings.DEFAULT_QUEUE_SHARDS, conf.getAddressesSettings().get("a1").getQueueShards());
+      assertTrue(conf.getAddressesSettings().get("a2").isPageIndex());
+      assertFalse(conf.getAddressesSettings().get("a1").isPageIndex());
+      assertEquals(1048576, conf.getAddressesSettings().get("a2").getPageCacheMaxSizeBytes());
+      assertEquals(AddressSettings.DEFAULT_PAGE_MAX_CACHE_SIZE_BYTES,
+                   conf.getAddressesSettings().get("a1").getPageCacheMaxSizeBytes());
+      assertEquals(4, conf.getAddressesSettings().get("a2").getPageReadAhead());
+      assertEquals(AddressSettings.DEFAULT_PAGE_READ_AHEAD, conf.getAddressesSettings().get("a1").getPageReadAhead());
 
 
       assertEquals(2, conf.getQueueConfigurations().size());
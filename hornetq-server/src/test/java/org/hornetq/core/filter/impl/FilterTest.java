@@ -65,6 +65,42 @@ public class FilterTest extends SilentTestCase
       Assert.assertFalse(filter.match(message));
    }
 
+   @Test
+   public void testCompiledMatchesInterpreter() throws Exception
+   {
+      String[] selectors = {"x = 5", "x > 4", "x >= 5.0", "x < 5.5", "x <= 6", "x = 5000000000", "x > 4.5",
+         "x = 'abc'", "x = TRUE", "x IS NULL", "x IS NOT NULL", "x <> 5", "x <> 'abc'",
+         "x IN ('abc', '5')", "x NOT IN ('abc')", "x LIKE 'a%'", "x NOT LIKE 'a_c'",
+         "x BETWEEN 4 AND 6", "x NOT BETWEEN 4 AND 6", "NOT (x > 4) OR x = 'abc'", "x > 4 AND y = 1",
+         "y = 1 AND x > 4", "y = 1 OR x > 4", "x + 1 > 5", "HQPriority > 3", "HQDurable = 'DURABLE'",
+         "convert_string_expressions:x = 5"};
+
+      Object[] values = {null, 5, 5L, (short) 5, (byte) 4, 5.0f, 5.5d, true, "5", "abc", "ABC", new byte[]{1}};
+
+      for (String selector : selectors)
+      {
+         filter = FilterImpl.createFilter(selector);
+
+         for (Object value : values)
+         {
+            message = new ServerMessageImpl(1, 1000);
+            message.putObjectProperty(new SimpleString("x"), value instanceof String ? new SimpleString((String) value) : value);
+
+            boolean expected;
+            try
+            {
+               expected = org.hornetq.selector.SelectorParser.parse(selector).matches(new FilterImpl.FilterableServerMessage(message));
+            }
+            catch (Exception e)
+            {
+               expected = false;
+            }
+
+            Assert.assertEquals(selector + " on " + value, expected, filter.match(message));
+         }
+      }
+   }
+
    @Test
    public void testInvalidString() throws Exception
    {
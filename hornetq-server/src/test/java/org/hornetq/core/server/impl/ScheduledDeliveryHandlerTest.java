@@ -14,10 +14,13 @@ package org.hornetq.core.server.impl;
 
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -208,6 +211,94 @@ public class ScheduledDeliveryHandlerTest extends Assert
       }
    }
 
+   @Test
+   public void testRemoveAndCancel() throws Exception
+   {
+      ScheduledDeliveryHandlerImpl handler = new ScheduledDeliveryHandlerImpl(null);
+
+      long now = System.currentTimeMillis();
+
+      // spread over several levels of the wheel
+      long[] delays = {10L, 1000L, 100000L, 10000000L, 1000000000L, 100000000000L};
+
+      for (int i = 0; i < delays.length; i++)
+      {
+         addMessage(handler, i, now + delays[i], true);
+      }
+
+      assertEquals(delays.length, handler.getScheduledCount());
+
+      assertEquals(3, handler.removeReferenceWithID(3).getMessage().getMessageID());
+      assertNull(handler.removeReferenceWithID(3));
+      assertEquals(delays.length - 1, handler.getScheduledCount());
+
+      List<MessageReference> cancelled = handler.cancel(null);
+      assertEquals(delays.length - 1, cancelled.size());
+      assertEquals(0, handler.getScheduledCount());
+      assertTrue(handler.getScheduledReferences().isEmpty());
+
+      long lastTime = -1;
+      for (MessageReference ref : cancelled)
+      {
+         assertTrue(ref.getScheduledDeliveryTime() > lastTime);
+         lastTime = ref.getScheduledDeliveryTime();
+      }
+   }
+
+   @Test
+   public void testDeliverInOrderAcrossLevels() throws Exception
+   {
+      ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+      try
+      {
+         ScheduledDeliveryHandlerImpl handler = new ScheduledDeliveryHandlerImpl(scheduler);
+
+         final int NUMBER_OF_MESSAGES = 300;
+
+         FakeQueueForScheduleUnitTest fakeQueue = new FakeQueueForScheduleUnitTest(NUMBER_OF_MESSAGES);
+
+         long now = System.currentTimeMillis();
+
+         Map<Long, Long> scheduledTimes = new HashMap<Long, Long>();
+
+         // added from the latest to the earliest, so each add will need an earlier delivery task, two messages at
+         // each time, over more than 4096 ms so the times sit on the first three levels of the wheel
+         for (int i = NUMBER_OF_MESSAGES - 1; i >= 0; i--)
+         {
+            long time = now + 50 + (i / 2) * 30;
+            scheduledTimes.put((long) i, time);
+            checkAndSchedule(handler, i, time, true, fakeQueue);
+         }
+
+         assertTrue(scheduledTimes.get(0L) >> 12 != scheduledTimes.get((long) NUMBER_OF_MESSAGES - 1) >> 12);
+
+         assertTrue(fakeQueue.waitCompletion(20, TimeUnit.SECONDS));
+         assertEquals(0, handler.getScheduledCount());
+         assertEquals(NUMBER_OF_MESSAGES, fakeQueue.deliveryOrder.size());
+
+         Set<Long> delivered = new HashSet<Long>();
+         long lastTime = -1;
+         for (int i = 0; i < fakeQueue.deliveryOrder.size(); i++)
+         {
+            MessageReference ref = fakeQueue.deliveryOrder.get(i);
+            assertEquals(0, ref.getScheduledDeliveryTime());
+            assertTrue(delivered.add(ref.getMessage().getMessageID()));
+
+            long time = scheduledTimes.get(ref.getMessage().getMessageID());
+            assertTrue("message " + ref.getMessage().getMessageID() + " scheduled at " + time + " delivered after " +
+                          lastTime, time >= lastTime);
+            assertTrue("message " + ref.getMessage().getMessageID() + " delivered early",
+                       fakeQueue.deliveryTimes.get(i) >= time);
+            lastTime = time;
+         }
+         assertEquals(NUMBER_OF_MESSAGES, delivered.size());
+      }
+      finally
+      {
+         scheduler.shutdownNow();
+      }
+   }
+
    private void internalSchedule(ExecutorService executor, ScheduledThreadPoolExecutor scheduler) throws Exception
    {
       final int NUMBER_OF_MESSAGES = 200;
@@ -519,6 +610,12 @@ public class ScheduledDeliveryHandlerTest extends Assert
          return null;
       }
 
+      @Override
+      public HornetQBuffer getEncodedBufferSlice()
+      {
+         return null;
+      }
+
       @Override
       public int getHeadersAndPropertiesEncodeSize()
       {
@@ -1000,6 +1097,11 @@ public class ScheduledDeliveryHandlerTest extends Assert
       final CountDownLatch expectedElements;
       LinkedList<MessageReference> messages = new LinkedList<>();
 
+      // the references in the order the handler delivered them, and when
+      final List<MessageReference> deliveryOrder = new ArrayList<MessageReference>();
+
+      final List<Long> deliveryTimes = new ArrayList<Long>();
+
       @Override
       public SimpleString getName()
       {
@@ -1093,6 +1195,15 @@ public class ScheduledDeliveryHandlerTest extends Assert
       @Override
       public void addHead(List<MessageReference> refs)
       {
+         long now = System.currentTimeMillis();
+
+         // the last reference of the list ends up at the head of the queue
+         for (ListIterator<MessageReference> iterator = refs.listIterator(refs.size()); iterator.hasPrevious(); )
+         {
+            deliveryOrder.add(iterator.previous());
+            deliveryTimes.add(now);
+         }
+
          for (MessageReference ref : refs)
          {
             addFirst(ref);
@@ -1101,8 +1212,8 @@ public class ScheduledDeliveryHandlerTest extends Assert
 
       private void addFirst(MessageReference ref)
       {
-         expectedElements.countDown();
          this.messages.addFirst(ref);
+         expectedElements.countDown();
       }
 
       @Override
@@ -0,0 +1,444 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.core.server.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.persistence.StorageManager;
+import org.hornetq.core.persistence.impl.nullpm.NullStorageManager;
+import org.hornetq.core.postoffice.PostOffice;
+import org.hornetq.core.server.Consumer;
+import org.hornetq.core.server.HandleStatus;
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.Queue;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.utils.LinkedListIterator;
+import org.hornetq.utils.OrderedExecutorFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardedQueueTest extends Assert
+{
+   private static final int SHARDS = 4;
+
+   private static final SimpleString NAME = new SimpleString("sharded");
+
+   private static final Filter MATCH_ALL = new Filter()
+   {
+      public boolean match(final ServerMessage message)
+      {
+         return true;
+      }
+
+      public SimpleString getFilterString()
+      {
+         return new SimpleString("true");
+      }
+   };
+
+   private ExecutorService executor;
+
+   private ShardedQueue queue;
+
+   // how many consumers were disconnected when the binding was removed, -1 until then
+   private final AtomicInteger disconnectedOnUnbind = new AtomicInteger(-1);
+
+   private final AtomicInteger disconnected = new AtomicInteger(0);
+
+   @Before
+   public void setUp() throws Exception
+   {
+      executor = Executors.newCachedThreadPool();
+
+      InvocationHandler postOfficeHandler = new InvocationHandler()
+      {
+         public Object invoke(final Object proxy, final Method method, final Object[] args)
+         {
+            if (method.getName().equals("removeBinding"))
+            {
+               assertTrue(disconnectedOnUnbind.compareAndSet(-1, disconnected.get()));
+            }
+            return null;
+         }
+      };
+
+      PostOffice postOffice = (PostOffice)Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                                 new Class[]{PostOffice.class},
+                                                                 postOfficeHandler);
+
+      StorageManager storageManager = new NullStorageManager();
+
+      // every shard delivers on an ordered executor of its own, as it does on the server
+      OrderedExecutorFactory executorFactory = new OrderedExecutorFactory(executor);
+
+      QueueImpl[] shards = new QueueImpl[SHARDS];
+
+      for (int i = 0; i < SHARDS; i++)
+      {
+         shards[i] = new QueueImpl(1, NAME, NAME, null, null, false, false, null, postOffice, storageManager, null,
+                                   executorFactory.getExecutor());
+      }
+
+      queue = new ShardedQueue(1, NAME, NAME, null, false, false, shards);
+   }
+
+   @After
+   public void tearDown() throws Exception
+   {
+      executor.shutdown();
+   }
+
+   @Test
+   public void testEveryShardHasConsumers() throws Exception
+   {
+      List<Consumer> consumers = new ArrayList<Consumer>();
+
+      for (int i = 0; i < SHARDS * 2 + 1; i++)
+      {
+         Consumer consumer = new FakeConsumer(null);
+
+         queue.addConsumer(consumer);
+
+         consumers.add(consumer);
+
+         assertEquals(i + 1, queue.getConsumerCount());
+
+         assertEveryShardServed(consumers);
+      }
+
+      Collections.shuffle(consumers);
+
+      while (consumers.size() > 1)
+      {
+         queue.removeConsumer(consumers.remove(0));
+
+         assertEquals(consumers.size(), queue.getConsumerCount());
+
+         assertEveryShardServed(consumers);
+      }
+   }
+
+   @Test
+   public void testFilteredConsumerOnEveryShard() throws Exception
+   {
+      Consumer consumer = new FakeConsumer(MATCH_ALL);
+
+      queue.addConsumer(consumer);
+
+      queue.addConsumer(new FakeConsumer(null));
+
+      for (int i = 0; i < SHARDS; i++)
+      {
+         assertTrue(queue.getShard(i).getConsumers().contains(consumer));
+      }
+
+      assertEquals(2, queue.getConsumerCount());
+
+      queue.removeConsumer(consumer);
+
+      for (int i = 0; i < SHARDS; i++)
+      {
+         assertFalse(queue.getShard(i).getConsumers().contains(consumer));
+      }
+   }
+
+   @Test
+   public void testGroupsStickToOneShard() throws Exception
+   {
+      Set<Queue> used = new HashSet<Queue>();
+
+      for (int i = 0; i < 100; i++)
+      {
+         ServerMessage message = new ServerMessageImpl(i, 100);
+
+         message.putStringProperty(Message.HDR_GROUP_ID, new SimpleString("group"));
+
+         used.add(queue.selectShard(message));
+      }
+
+      assertEquals(1, used.size());
+
+      used.clear();
+
+      for (int i = 0; i < SHARDS; i++)
+      {
+         used.add(queue.selectShard(new ServerMessageImpl(i, 100)));
+      }
+
+      assertEquals(SHARDS, used.size());
+   }
+
+   @Test
+   public void testReloadSpreadsOverShards() throws Exception
+   {
+      final int perShard = 10;
+
+      for (int i = 0; i < SHARDS * perShard; i++)
+      {
+         // references reloaded from the journal may be created for the sharded queue itself
+         MessageReference ref = new ServerMessageImpl(i, 100).createReference(queue);
+
+         queue.reload(ref);
+      }
+
+      for (int i = 0; i < SHARDS; i++)
+      {
+         assertEquals(perShard, queue.getShard(i).getMessageCount());
+
+         LinkedListIterator<MessageReference> iterator = queue.getShard(i).iterator();
+         try
+         {
+            while (iterator.hasNext())
+            {
+               // so that acks and cancellations reach the shard holding the reference
+               assertSame(queue.getShard(i), iterator.next().getQueue());
+            }
+         }
+         finally
+         {
+            iterator.close();
+         }
+      }
+
+      assertEquals(SHARDS * perShard, queue.getMessageCount());
+   }
+
+   @Test
+   public void testReloadedGroupsStickToOneShard() throws Exception
+   {
+      for (int i = 0; i < 10; i++)
+      {
+         ServerMessage message = new ServerMessageImpl(i, 100);
+
+         message.putStringProperty(Message.HDR_GROUP_ID, new SimpleString("group"));
+
+         queue.reload(message.createReference(queue));
+      }
+
+      int shardsUsed = 0;
+
+      for (int i = 0; i < SHARDS; i++)
+      {
+         if (queue.getShard(i).getMessageCount() > 0)
+         {
+            assertEquals(10, queue.getShard(i).getMessageCount());
+
+            shardsUsed++;
+         }
+      }
+
+      assertEquals(1, shardsUsed);
+   }
+
+   @Test
+   public void testDeleteQueueDeletesEveryShard() throws Exception
+   {
+      List<Consumer> consumers = new ArrayList<Consumer>();
+
+      for (int i = 0; i < 2; i++)
+      {
+         Consumer consumer = new FakeConsumer(null);
+
+         queue.addConsumer(consumer);
+
+         consumers.add(consumer);
+      }
+
+      for (int i = 0; i < SHARDS * 10; i++)
+      {
+         ServerMessage message = new ServerMessageImpl(i, 100);
+
+         queue.addTail(message.createReference(queue.selectShard(message)));
+      }
+
+      assertEquals(SHARDS * 10, queue.getMessageCount());
+
+      queue.deleteQueue(true);
+
+      // every consumer was disconnected once, before the first shard removed the binding
+      assertEquals(consumers.size(), disconnected.get());
+      assertEquals(consumers.size(), disconnectedOnUnbind.get());
+
+      for (int i = 0; i < SHARDS; i++)
+      {
+         assertEquals(0, queue.getShard(i).getMessageCount());
+      }
+   }
+
+   @Test
+   public void testMessagesOfLeavingConsumerDelivered() throws Exception
+   {
+      final int numMessages = SHARDS * 10;
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         ServerMessage message = new ServerMessageImpl(i, 100);
+
+         queue.addTail(message.createReference(queue.selectShard(message)));
+      }
+
+      DeliveringConsumer staying = new DeliveringConsumer();
+
+      // never takes a message, the shards it serves only get delivered once they are reassigned
+      Consumer leaving = new FakeConsumer(null);
+
+      queue.addConsumer(staying);
+
+      queue.addConsumer(leaving);
+
+      queue.deliverAsync();
+
+      assertFalse(staying.await(numMessages, 500));
+
+      queue.removeConsumer(leaving);
+
+      for (int i = 0; i < SHARDS; i++)
+      {
+         assertEquals(1, queue.getShard(i).getConsumerCount());
+         assertTrue(queue.getShard(i).getConsumers().contains(staying));
+      }
+
+      queue.deliverAsync();
+
+      assertTrue(staying.await(numMessages, 10000));
+   }
+
+   private void assertEveryShardServed(final List<Consumer> consumers)
+   {
+      Set<Consumer> serving = new HashSet<Consumer>();
+
+      for (int i = 0; i < SHARDS; i++)
+      {
+         assertTrue("shard " + i + " has no consumers", queue.getShard(i).getConsumerCount() > 0);
+
+         serving.addAll(queue.getShard(i).getConsumers());
+      }
+
+      assertEquals("every consumer must be serving a shard", new HashSet<Consumer>(consumers), serving);
+   }
+
+   private final class FakeConsumer implements Consumer
+   {
+      private final Filter filter;
+
+      FakeConsumer(final Filter filter)
+      {
+         this.filter = filter;
+      }
+
+      public HandleStatus handle(final MessageReference reference) throws Exception
+      {
+         return HandleStatus.BUSY;
+      }
+
+      public void proceedDeliver(final MessageReference reference) throws Exception
+      {
+      }
+
+      public Filter getFilter()
+      {
+         return filter;
+      }
+
+      public List<MessageReference> getDeliveringMessages()
+      {
+         return Collections.emptyList();
+      }
+
+      public String debug()
+      {
+         return toString();
+      }
+
+      public String toManagementString()
+      {
+         return toString();
+      }
+
+      public void disconnect()
+      {
+         disconnected.incrementAndGet();
+      }
+   }
+
+   private static final class DeliveringConsumer implements Consumer
+   {
+      private final List<MessageReference> received = new ArrayList<MessageReference>();
+
+      public synchronized HandleStatus handle(final MessageReference reference) throws Exception
+      {
+         received.add(reference);
+
+         reference.getQueue().referenceHandled();
+
+         notifyAll();
+
+         return HandleStatus.HANDLED;
+      }
+
+      public synchronized boolean await(final int count, final long timeout) throws InterruptedException
+      {
+         long deadline = System.currentTimeMillis() + timeout;
+
+         while (received.size() < count && System.currentTimeMillis() < deadline)
+         {
+            wait(deadline - System.currentTimeMillis());
+         }
+
+         return received.size() == count;
+      }
+
+      public void proceedDeliver(final MessageReference reference) throws Exception
+      {
+      }
+
+      public Filter getFilter()
+      {
+         return null;
+      }
+
+      public List<MessageReference> getDeliveringMessages()
+      {
+         return Collections.emptyList();
+      }
+
+      public String debug()
+      {
+         return toString();
+      }
+
+      public String toManagementString()
+      {
+         return toString();
+      }
+
+      public void disconnect()
+      {
+      }
+   }
+}
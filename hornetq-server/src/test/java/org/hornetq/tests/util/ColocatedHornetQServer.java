@@ -63,7 +63,8 @@ public class ColocatedHornetQServer extends HornetQServerImpl
       if (replicatingBackup)
       {
          NodeManager manager;
-         if (getConfiguration().getJournalType() == JournalType.ASYNCIO && AsynchronousFileImpl.isLoaded())
+         if ((getConfiguration().getJournalType() == JournalType.ASYNCIO ||
+            getConfiguration().getJournalType() == JournalType.IOURING) && AsynchronousFileImpl.isLoaded())
          {
             return new AIOFileLockNodeManager(directory, replicatingBackup, getConfiguration().getJournalLockAcquisitionTimeout());
          }
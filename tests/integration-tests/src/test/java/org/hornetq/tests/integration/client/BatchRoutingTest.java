@@ -0,0 +1,204 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.RoutingContextImpl;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.core.transaction.Transaction;
+import org.hornetq.core.transaction.impl.TransactionImpl;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * tests routing messages as a batch through the PostOffice
+ */
+public class BatchRoutingTest extends ServiceTestBase
+{
+   private final SimpleString addressA = new SimpleString("addressA");
+   private final SimpleString addressB = new SimpleString("addressB");
+   private final SimpleString addressC = new SimpleString("addressC");
+   private final SimpleString queueA = new SimpleString("queueA");
+   private final SimpleString queueB = new SimpleString("queueB");
+
+   private ServerLocator locator;
+   private HornetQServer server;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      locator = createInVMNonHALocator();
+      server = createServer(true);
+      server.start();
+   }
+
+   @Test
+   public void testRouteBatchInOrder() throws Exception
+   {
+      ClientSessionFactory cf = createSessionFactory(locator);
+      ClientSession session = addClientSession(cf.createSession(false, true, true));
+      session.createQueue(addressA, queueA, true);
+      session.createQueue(addressB, queueB, false);
+
+      List<ServerMessage> messages = new ArrayList<ServerMessage>();
+      for (int i = 0; i < 100; i++)
+      {
+         ServerMessage message = createMessage(i % 2 == 0 ? addressA : addressB, i);
+         if (i % 10 == 0)
+         {
+            message.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, new SimpleString("dup" + i));
+         }
+         messages.add(message);
+      }
+      // nothing bound to it
+      messages.add(createMessage(addressC, 100));
+      // a duplicate of the first message on the same batch
+      ServerMessage duplicate = createMessage(addressA, 101);
+      duplicate.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, new SimpleString("dup0"));
+      messages.add(duplicate);
+
+      server.getPostOffice().route(messages, new RoutingContextImpl(null), false);
+
+      server.getStorageManager().waitOnOperations();
+
+      // a duplicate on a later batch
+      duplicate = createMessage(addressA, 102);
+      duplicate.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, new SimpleString("dup10"));
+      messages.clear();
+      messages.add(duplicate);
+
+      server.getPostOffice().route(messages, new RoutingContextImpl(null), false);
+
+      session.start();
+      assertReceived(session.createConsumer(queueA), 0, 100, 2);
+      assertReceived(session.createConsumer(queueB), 1, 100, 2);
+   }
+
+   @Test
+   public void testRouteBatchPersistent() throws Exception
+   {
+      ClientSessionFactory cf = createSessionFactory(locator);
+      ClientSession session = cf.createSession(false, true, true);
+      session.createQueue(addressA, queueA, true);
+      session.close();
+
+      List<ServerMessage> messages = new ArrayList<ServerMessage>();
+      for (int i = 0; i < 50; i++)
+      {
+         messages.add(createMessage(addressA, i));
+      }
+
+      server.getPostOffice().route(messages, new RoutingContextImpl(null), false);
+
+      server.getStorageManager().waitOnOperations();
+      server.stop();
+      server.start();
+
+      cf = createSessionFactory(locator);
+      session = addClientSession(cf.createSession(false, true, true));
+      session.start();
+      assertReceived(session.createConsumer(queueA), 0, 50, 1);
+   }
+
+   @Test
+   public void testRouteBatchTransacted() throws Exception
+   {
+      ClientSessionFactory cf = createSessionFactory(locator);
+      ClientSession session = addClientSession(cf.createSession(false, true, true));
+      session.createQueue(addressA, queueA, true);
+
+      List<ServerMessage> messages = new ArrayList<ServerMessage>();
+      for (int i = 0; i < 20; i++)
+      {
+         messages.add(createMessage(addressA, i));
+      }
+
+      Transaction tx = new TransactionImpl(server.getStorageManager());
+
+      server.getPostOffice().route(messages, new RoutingContextImpl(tx), false);
+
+      ClientConsumer consumer = session.createConsumer(queueA);
+      session.start();
+      Assert.assertNull(consumer.receiveImmediate());
+
+      tx.commit();
+
+      assertReceived(consumer, 0, 20, 1);
+   }
+
+   @Test
+   public void testRouteBatchTransactedDuplicate() throws Exception
+   {
+      ClientSessionFactory cf = createSessionFactory(locator);
+      ClientSession session = addClientSession(cf.createSession(false, true, true));
+      session.createQueue(addressA, queueA, true);
+
+      List<ServerMessage> messages = new ArrayList<ServerMessage>();
+      for (int i = 0; i < 20; i++)
+      {
+         ServerMessage message = createMessage(addressA, i);
+         // the second half repeats the ids of the first one
+         message.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, new SimpleString("dup" + i % 10));
+         messages.add(message);
+      }
+
+      Transaction tx = new TransactionImpl(server.getStorageManager());
+
+      server.getPostOffice().route(messages, new RoutingContextImpl(tx), false);
+
+      // the ids are only cached once the transaction commits, the batch has to find its own duplicates
+      Assert.assertEquals(Transaction.State.ROLLBACK_ONLY, tx.getState());
+
+      tx.rollback();
+
+      ClientConsumer consumer = session.createConsumer(queueA);
+      session.start();
+      Assert.assertNull(consumer.receiveImmediate());
+   }
+
+   private ServerMessage createMessage(final SimpleString address, final int i)
+   {
+      ServerMessage message = new ServerMessageImpl(server.getStorageManager().generateUniqueID(), 50);
+      message.setAddress(address);
+      message.setDurable(true);
+      message.putIntProperty("i", i);
+      return message;
+   }
+
+   private void assertReceived(final ClientConsumer consumer, final int first, final int last, final int step) throws Exception
+   {
+      for (int i = first; i < last; i += step)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         Assert.assertEquals(i, message.getIntProperty("i").intValue());
+         message.acknowledge();
+      }
+      Assert.assertNull(consumer.receiveImmediate());
+   }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.Interceptor;
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * tests producers sending their messages in batches
+ */
+public class ProducerBatchTest extends ServiceTestBase
+{
+   private final SimpleString addressA = new SimpleString("addressA");
+   private final SimpleString addressB = new SimpleString("addressB");
+   private final SimpleString queueA = new SimpleString("queueA");
+   private final SimpleString queueB = new SimpleString("queueB");
+
+   private HornetQServer server;
+
+   private ServerLocator locator;
+
+   private final AtomicInteger sends = new AtomicInteger();
+
+   private final AtomicInteger batches = new AtomicInteger();
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      server = createServer(false);
+      server.start();
+      server.getRemotingService().addIncomingInterceptor(new Interceptor()
+      {
+         public boolean intercept(Packet packet, RemotingConnection connection) throws HornetQException
+         {
+            if (packet.getType() == PacketImpl.SESS_SEND)
+            {
+               sends.incrementAndGet();
+            }
+            else if (packet.getType() == PacketImpl.SESS_SEND_BATCH)
+            {
+               batches.incrementAndGet();
+            }
+            return true;
+         }
+      });
+      locator = createInVMNonHALocator();
+      locator.setBlockOnDurableSend(false);
+      locator.setProducerBatchSize(10);
+      locator.setProducerBatchLingerTime(10000);
+   }
+
+   @Test
+   public void testBatchSize() throws Exception
+   {
+      ClientSession session = createSession();
+      session.createQueue(addressA, queueA, false);
+      ClientProducer producer = session.createProducer(addressA);
+
+      for (int i = 0; i < 100; i++)
+      {
+         producer.send(createMessage(session, i));
+      }
+
+      session.start();
+      assertReceived(session.createConsumer(queueA), 0, 100);
+      Assert.assertEquals(10, batches.get());
+      Assert.assertEquals(0, sends.get());
+   }
+
+   @Test
+   public void testBatchMaxBytes() throws Exception
+   {
+      locator.setProducerBatchSize(1000);
+      locator.setProducerBatchMaxBytes(1024);
+      ClientSession session = createSession();
+      session.createQueue(addressA, queueA, false);
+      ClientProducer producer = session.createProducer(addressA);
+
+      for (int i = 0; i < 100; i++)
+      {
+         ClientMessage message = createMessage(session, i);
+         message.getBodyBuffer().writeBytes(new byte[200]);
+         producer.send(message);
+      }
+      // sends the last batch
+      producer.close();
+
+      session.start();
+      assertReceived(session.createConsumer(queueA), 0, 100);
+      Assert.assertTrue("batches=" + batches.get(), batches.get() >= 20);
+   }
+
+   @Test
+   public void testLingerTime() throws Exception
+   {
+      locator.setProducerBatchLingerTime(10);
+      ClientSession session = createSession();
+      session.createQueue(addressA, queueA, false);
+      ClientProducer producer = session.createProducer(addressA);
+
+      for (int i = 0; i < 3; i++)
+      {
+         producer.send(createMessage(session, i));
+      }
+
+      session.start();
+      assertReceived(session.createConsumer(queueA), 0, 3);
+      Assert.assertEquals(1, batches.get());
+   }
+
+   @Test
+   public void testBlockingSendFlushesTheBatch() throws Exception
+   {
+      locator.setBlockOnDurableSend(true);
+      ClientSession session = createSession();
+      session.createQueue(addressA, queueA, false);
+      ClientProducer producer = session.createProducer(addressA);
+
+      for (int i = 0; i < 5; i++)
+      {
+         producer.send(createMessage(session, i));
+      }
+      ClientMessage durable = createMessage(session, 5);
+      durable.setDurable(true);
+      producer.send(durable);
+
+      session.start();
+      assertReceived(session.createConsumer(queueA), 0, 6);
+      Assert.assertEquals(1, batches.get());
+      Assert.assertEquals(1, sends.get());
+   }
+
+   @Test
+   public void testTransactedSend() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory(locator);
+      ClientSession session = addClientSession(sf.createSession(false, false, false));
+      session.createQueue(addressA, queueA, false);
+      ClientProducer producer = session.createProducer(addressA);
+
+      for (int i = 0; i < 5; i++)
+      {
+         producer.send(createMessage(session, i));
+      }
+      session.rollback();
+
+      for (int i = 0; i < 5; i++)
+      {
+         producer.send(createMessage(session, i));
+      }
+      session.commit();
+
+      session.start();
+      ClientConsumer consumer = session.createConsumer(queueA);
+      assertReceived(consumer, 0, 5);
+      session.commit();
+      Assert.assertEquals(2, batches.get());
+   }
+
+   @Test
+   public void testMessageChangedAfterSend() throws Exception
+   {
+      ClientSession session = createSession();
+      session.createQueue(addressA, queueA, false);
+      ClientProducer producer = session.createProducer(addressA);
+
+      ClientMessage message = session.createMessage(false);
+      for (int i = 0; i < 10; i++)
+      {
+         message.putIntProperty("i", i);
+         producer.send(message);
+      }
+
+      session.start();
+      assertReceived(session.createConsumer(queueA), 0, 10);
+   }
+
+   @Test
+   public void testAnonymousProducer() throws Exception
+   {
+      locator.setProducerWindowSize(10 * 1024);
+      ClientSession session = createSession();
+      session.createQueue(addressA, queueA, false);
+      session.createQueue(addressB, queueB, false);
+      ClientProducer producer = session.createProducer();
+
+      for (int i = 0; i < 100; i++)
+      {
+         producer.send(i % 2 == 0 ? addressA : addressB, createMessage(session, i));
+      }
+      producer.close();
+
+      session.start();
+      ClientConsumer consumerA = session.createConsumer(queueA);
+      ClientConsumer consumerB = session.createConsumer(queueB);
+      for (int i = 0; i < 100; i++)
+      {
+         ClientMessage message = (i % 2 == 0 ? consumerA : consumerB).receive(5000);
+         Assert.assertNotNull(message);
+         Assert.assertEquals(i, message.getIntProperty("i").intValue());
+         message.acknowledge();
+      }
+   }
+
+   @Test
+   public void testSendAcknowledgementHandler() throws Exception
+   {
+      locator.setConfirmationWindowSize(1024);
+      ClientSession session = createSession();
+      session.createQueue(addressA, queueA, false);
+      ClientProducer producer = session.createProducer(addressA);
+
+      final CountDownLatch latch = new CountDownLatch(25);
+      final AtomicInteger next = new AtomicInteger();
+      for (int i = 0; i < 25; i++)
+      {
+         producer.send(createMessage(session, i), new SendAcknowledgementHandler()
+         {
+            public void sendAcknowledged(Message message)
+            {
+               if (message.getIntProperty("i") == next.get())
+               {
+                  next.incrementAndGet();
+               }
+               latch.countDown();
+            }
+         });
+      }
+      producer.close();
+
+      Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+      Assert.assertEquals(25, next.get());
+   }
+
+   private ClientSession createSession() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory(locator);
+      return addClientSession(sf.createSession(false, true, true));
+   }
+
+   private ClientMessage createMessage(final ClientSession session, final int i)
+   {
+      ClientMessage message = session.createMessage(false);
+      message.putIntProperty("i", i);
+      return message;
+   }
+
+   private void assertReceived(final ClientConsumer consumer, final int first, final int last) throws Exception
+   {
+      for (int i = first; i < last; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         Assert.assertEquals(i, message.getIntProperty("i").intValue());
+         message.acknowledge();
+      }
+      Assert.assertNull(consumer.receiveImmediate());
+   }
+}
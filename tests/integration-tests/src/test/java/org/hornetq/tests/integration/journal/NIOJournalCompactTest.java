@@ -1765,6 +1765,159 @@ public class NIOJournalCompactTest extends JournalImplTestBase
 
    }
 
+   @Test
+   public void testIncrementalCompactCommitOutsideBatch() throws Exception
+   {
+      internalTestIncrementalCompactTXOutsideBatch(true, false);
+   }
+
+   @Test
+   public void testIncrementalCompactRollbackOutsideBatch() throws Exception
+   {
+      internalTestIncrementalCompactTXOutsideBatch(false, true);
+   }
+
+   @Test
+   public void testIncrementalCompactCommitAndRollbackOutsideBatch() throws Exception
+   {
+      internalTestIncrementalCompactTXOutsideBatch(true, true);
+   }
+
+   /**
+    * Compacts a batch of the two oldest files, the first one all garbage. The transactions have records on the second
+    * file, so they are compacted, and on the third one, outside the batch, where they are completed as well.
+    */
+   private void internalTestIncrementalCompactTXOutsideBatch(final boolean commit, final boolean rollback) throws Exception
+   {
+      setup(2, 60 * 1024, true);
+
+      createJournal();
+      ((JournalImpl) journal).setCompactBatchFiles(2);
+      startJournal();
+      loadAndCheck();
+
+      ArrayList<Long> listToDelete = new ArrayList<Long>();
+      for (int i = 0; i < 10; i++)
+      {
+         long id = idGenerator.generateID();
+         listToDelete.add(id);
+         add(id);
+      }
+
+      journal.forceMoveNextFile();
+
+      ArrayList<Long> liveIDs = new ArrayList<Long>();
+      for (int i = 0; i < 5; i++)
+      {
+         long id = idGenerator.generateID();
+         liveIDs.add(id);
+         add(id);
+      }
+
+      long commitTX = idGenerator.generateID();
+      long rollbackTX = idGenerator.generateID();
+
+      for (int i = 0; i < 5; i++)
+      {
+         if (commit)
+         {
+            addTx(commitTX, idGenerator.generateID());
+         }
+         if (rollback)
+         {
+            addTx(rollbackTX, idGenerator.generateID());
+         }
+      }
+
+      if (commit)
+      {
+         updateTx(commitTX, liveIDs.get(0));
+      }
+
+      if (rollback)
+      {
+         updateTx(rollbackTX, liveIDs.get(1));
+      }
+
+      journal.forceMoveNextFile();
+
+      for (int i = 0; i < 5; i++)
+      {
+         if (commit)
+         {
+            addTx(commitTX, idGenerator.generateID());
+         }
+         if (rollback)
+         {
+            addTx(rollbackTX, idGenerator.generateID());
+         }
+      }
+
+      journal.forceMoveNextFile();
+
+      if (commit)
+      {
+         commit(commitTX);
+      }
+
+      if (rollback)
+      {
+         rollback(rollbackTX);
+      }
+
+      journal.forceMoveNextFile();
+
+      for (Long id : listToDelete)
+      {
+         delete(id);
+      }
+
+      journal.forceMoveNextFile();
+
+      int dataFiles = journal.getDataFilesCount();
+
+      int idMapSize = journal.getIDMapSize();
+
+      Assert.assertEquals(liveIDs.size() + (commit ? 10 : 0), idMapSize);
+
+      journal.testCompact();
+
+      // the garbage file is gone, the second file was compacted into a single file
+      Assert.assertEquals(dataFiles - 1, journal.getDataFilesCount());
+
+      // no record of the rolled back transaction came back
+      Assert.assertEquals(idMapSize, journal.getIDMapSize());
+
+      journal.checkReclaimStatus();
+
+      stopJournal();
+      createJournal();
+      ((JournalImpl) journal).setCompactBatchFiles(2);
+      startJournal();
+      loadAndCheck();
+
+      Assert.assertEquals(idMapSize, journal.getIDMapSize());
+
+      // the compacted records can still be deleted, and the journal reloaded afterwards
+      for (Long id : liveIDs)
+      {
+         delete(id);
+      }
+
+      journal.forceMoveNextFile();
+
+      journal.testCompact();
+
+      journal.checkReclaimStatus();
+
+      stopJournal();
+      createJournal();
+      startJournal();
+      loadAndCheck();
+
+      Assert.assertEquals(commit ? 10 : 0, journal.getIDMapSize());
+   }
+
    @Test
    public void testStressDeletesNoSync() throws Exception
    {
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.integration.journal;
+import java.nio.ByteBuffer;
+
+import org.hornetq.core.journal.SequentialFile;
+import org.hornetq.core.journal.SequentialFileFactory;
+import org.hornetq.core.journal.impl.SimpleWaitIOCallback;
+import org.hornetq.core.journal.impl.URingSequentialFileFactory;
+import org.hornetq.tests.unit.core.journal.impl.SequentialFileFactoryTestBase;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class URingSequentialFileFactoryTest extends SequentialFileFactoryTestBase
+{
+
+   @BeforeClass
+   public static void hasURing()
+   {
+      org.junit.Assume.assumeTrue("Test case needs io_uring to run", URingSequentialFileFactory.isSupported());
+   }
+
+   @Override
+   protected SequentialFileFactory createFactory()
+   {
+      return new URingSequentialFileFactory(getTestDir());
+   }
+
+   @Test
+   public void testBuffer() throws Exception
+   {
+      SequentialFile file = factory.createSequentialFile("filtetmp.log", 10);
+      file.open();
+      ByteBuffer buff = factory.newBuffer(10);
+      Assert.assertEquals(512, buff.limit());
+      file.close();
+      factory.releaseBuffer(buff);
+   }
+
+   @Test
+   public void testManyQueuedWrites() throws Exception
+   {
+      SequentialFile file = factory.createSequentialFile("queued.log", 10);
+      file.open();
+
+      // more writes than maxIO, so the ring has to be drained and submitted a few times
+      final int writes = 100;
+
+      ByteBuffer[] buffers = new ByteBuffer[writes];
+      SimpleWaitIOCallback[] callbacks = new SimpleWaitIOCallback[writes];
+      for (int i = 0; i < writes; i++)
+      {
+         buffers[i] = factory.newBuffer(512);
+         buffers[i].put(0, (byte) i);
+         callbacks[i] = new SimpleWaitIOCallback();
+         file.writeDirect(buffers[i], false, callbacks[i]);
+      }
+
+      for (SimpleWaitIOCallback callback : callbacks)
+      {
+         callback.waitCompletion();
+      }
+
+      file.position(0);
+      ByteBuffer read = factory.newBuffer(writes * 512);
+      file.read(read);
+
+      for (int i = 0; i < writes; i++)
+      {
+         Assert.assertEquals((byte) i, read.get(i * 512));
+      }
+
+      file.close();
+      factory.releaseBuffer(read);
+   }
+
+}
@@ -299,6 +299,21 @@ public class HornetQServerControlUsingCoreTest extends HornetQServerControlTest
             return (Long) proxy.retrieveAttributeValue("securityInvalidationInterval", Long.class);
          }
 
+         public long getSecurityCacheHitCount()
+         {
+            return (Long) proxy.retrieveAttributeValue("securityCacheHitCount", Long.class);
+         }
+
+         public long getSecurityCacheMissCount()
+         {
+            return (Long) proxy.retrieveAttributeValue("securityCacheMissCount", Long.class);
+         }
+
+         public int getSecurityCacheSize()
+         {
+            return (Integer) proxy.retrieveAttributeValue("securityCacheSize", Integer.class);
+         }
+
          public long getTransactionTimeout()
          {
             return (Long) proxy.retrieveAttributeValue("transactionTimeout", Long.class);
@@ -484,6 +499,21 @@ public class HornetQServerControlUsingCoreTest extends HornetQServerControlTest
             return (Integer) proxy.retrieveAttributeValue("JournalBufferTimeout");
          }
 
+         public int getJournalBufferCurrentTimeout()
+         {
+            return (Integer) proxy.retrieveAttributeValue("journalBufferCurrentTimeout", Integer.class);
+         }
+
+         public double getJournalBufferAverageBatchSize()
+         {
+            return ((Number) proxy.retrieveAttributeValue("journalBufferAverageBatchSize")).doubleValue();
+         }
+
+         public long getJournalSyncLatency()
+         {
+            return (Long) proxy.retrieveAttributeValue("journalSyncLatency", Long.class);
+         }
+
          public int getJournalCompactMinFiles()
          {
             return (Integer) proxy.retrieveAttributeValue("JournalCompactMinFiles");
@@ -494,6 +524,16 @@ public class HornetQServerControlUsingCoreTest extends HornetQServerControlTest
             return (Integer) proxy.retrieveAttributeValue("JournalCompactPercentage");
          }
 
+         public long getJournalLiveSize()
+         {
+            return (Long) proxy.retrieveAttributeValue("journalLiveSize", Long.class);
+         }
+
+         public long getJournalGarbageSize()
+         {
+            return (Long) proxy.retrieveAttributeValue("journalGarbageSize", Long.class);
+         }
+
          public boolean isPersistenceEnabled()
          {
             return (Boolean) proxy.retrieveAttributeValue("PersistenceEnabled");
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.persistence.impl.nullpm.NullStorageManager;
+import org.hornetq.core.postoffice.DuplicateIDCache;
+import org.hornetq.core.postoffice.impl.DuplicateIDCacheImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups and insertions on a full duplicate ID cache, as done for every message carrying a duplicate ID.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DuplicateIDCacheBenchmark
+{
+   private static final int ID_SIZE = 16;
+
+   @Param({"2000", "20000"})
+   public int cacheSize;
+
+   private DuplicateIDCache cache;
+
+   private byte[][] present;
+
+   private byte[][] absent;
+
+   private int index;
+
+   private long next;
+
+   @Setup
+   public void setup() throws Exception
+   {
+      cache = new DuplicateIDCacheImpl(new SimpleString("jms.queue.benchmark"), cacheSize, new NullStorageManager(), false);
+
+      present = new byte[cacheSize][];
+      absent = new byte[cacheSize][];
+
+      for (int i = 0; i < cacheSize; i++)
+      {
+         present[i] = id(next++);
+         cache.addToCache(present[i], null);
+      }
+
+      for (int i = 0; i < cacheSize; i++)
+      {
+         absent[i] = id(-1 - i);
+      }
+   }
+
+   private static byte[] id(final long value)
+   {
+      byte[] id = new byte[ID_SIZE];
+
+      for (int i = 0; i < 8; i++)
+      {
+         id[i] = (byte) (value >>> (i * 8));
+         id[ID_SIZE - 1 - i] = (byte) (value >>> (i * 8));
+      }
+
+      return id;
+   }
+
+   private int nextIndex()
+   {
+      if (++index == cacheSize)
+      {
+         index = 0;
+      }
+      return index;
+   }
+
+   @Benchmark
+   public boolean containsHit()
+   {
+      return cache.contains(present[nextIndex()]);
+   }
+
+   @Benchmark
+   public boolean containsMiss()
+   {
+      return cache.contains(absent[nextIndex()]);
+   }
+
+   /**
+    * Every insertion evicts the oldest ID, as on a cache that has been running for a while
+    */
+   @Benchmark
+   public void add() throws Exception
+   {
+      cache.addToCache(id(next++), null);
+   }
+}
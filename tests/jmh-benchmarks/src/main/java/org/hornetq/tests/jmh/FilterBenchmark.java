@@ -0,0 +1,147 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.FilterConstants;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterImpl;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.selector.SelectorParser;
+import org.hornetq.selector.filter.BooleanExpression;
+import org.hornetq.selector.filter.Filterable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Selector evaluation against a message, for a few representative selectors.
+ * <p/>
+ * {@link #interpret()} runs the hornetq-selector interpreter as FilterImpl used to, for comparison with the
+ * compiled selectors of {@link #match()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark
+{
+   @Param({"color = 'red'",
+      "color = 'red' AND weight > 10 AND HQPriority >= 4",
+      "region IN ('emea', 'apac', 'latam') OR symbol LIKE 'RH%'",
+      "(price * quantity) BETWEEN 1000 AND 5000 AND NOT discontinued"})
+   public String selector;
+
+   private Filter filter;
+
+   private BooleanExpression expression;
+
+   private ServerMessage message;
+
+   @Setup
+   public void setup() throws Exception
+   {
+      filter = FilterImpl.createFilter(selector);
+
+      expression = SelectorParser.parse(selector);
+
+      message = new ServerMessageImpl(1, 100);
+      message.setAddress(new SimpleString("jms.topic.orders"));
+      message.setPriority((byte) 5);
+      message.putStringProperty(new SimpleString("color"), new SimpleString("red"));
+      message.putIntProperty(new SimpleString("weight"), 20);
+      message.putStringProperty(new SimpleString("region"), new SimpleString("latam"));
+      message.putStringProperty(new SimpleString("symbol"), new SimpleString("RHT"));
+      message.putDoubleProperty(new SimpleString("price"), 50.5);
+      message.putIntProperty(new SimpleString("quantity"), 40);
+      message.putBooleanProperty(new SimpleString("discontinued"), false);
+   }
+
+   @Benchmark
+   public boolean match()
+   {
+      return filter.match(message);
+   }
+
+   @Benchmark
+   public boolean interpret() throws Exception
+   {
+      synchronized (this)
+      {
+         return expression.matches(new InterpretedMessage(message));
+      }
+   }
+
+   @Benchmark
+   public Filter create() throws Exception
+   {
+      return FilterImpl.createFilter(selector);
+   }
+
+   /**
+    * The message as the interpreter used to see it, only knowing about the HQPriority header.
+    */
+   private static final class InterpretedMessage implements Filterable
+   {
+      private final ServerMessage message;
+
+      InterpretedMessage(final ServerMessage message)
+      {
+         this.message = message;
+      }
+
+      @Override
+      public Object getProperty(final String id)
+      {
+         Object result = null;
+         if (id.startsWith(FilterConstants.HORNETQ_PREFIX.toString()) && FilterConstants.HORNETQ_PRIORITY.equals(new SimpleString(id)))
+         {
+            result = Integer.valueOf(message.getPriority());
+         }
+         if (result == null)
+         {
+            result = message.getObjectProperty(new SimpleString(id));
+         }
+         if (result != null && result.getClass() == SimpleString.class)
+         {
+            result = result.toString();
+         }
+         return result;
+      }
+
+      @Override
+      public <T> T getBodyAs(final Class<T> type)
+      {
+         return null;
+      }
+
+      @Override
+      public Object getLocalConnectionId()
+      {
+         return null;
+      }
+   }
+}
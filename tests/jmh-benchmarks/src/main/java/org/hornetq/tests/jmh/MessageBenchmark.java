@@ -0,0 +1,100 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding a message to the journal and copying it (as done for expiry, DLA and diverts).
+ * <p/>
+ * A message only re-encodes when it was changed, so the encode benchmark touches one property before encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark
+{
+   private static final SimpleString COUNTER = new SimpleString("counter");
+
+   @Param({"100", "10240"})
+   public int bodySize;
+
+   private ServerMessage message;
+
+   private HornetQBuffer encoded;
+
+   private HornetQBuffer buffer;
+
+   private long counter;
+
+   @Setup
+   public void setup()
+   {
+      message = new ServerMessageImpl(1, bodySize + 100);
+      message.setAddress(new SimpleString("jms.queue.benchmark"));
+      message.setDurable(true);
+      message.putStringProperty(new SimpleString("JMSType"), new SimpleString("order"));
+      message.putIntProperty(new SimpleString("priorityClass"), 3);
+      message.putLongProperty(COUNTER, 0);
+      message.getBodyBuffer().writeBytes(new byte[bodySize]);
+
+      encoded = HornetQBuffers.fixedBuffer(message.getEncodeSize());
+      message.encode(encoded);
+
+      buffer = HornetQBuffers.fixedBuffer(message.getEncodeSize());
+   }
+
+   @Benchmark
+   public HornetQBuffer encode()
+   {
+      message.putLongProperty(COUNTER, counter++);
+      buffer.clear();
+      message.encode(buffer);
+      return buffer;
+   }
+
+   @Benchmark
+   public ServerMessage decode()
+   {
+      encoded.readerIndex(0);
+      ServerMessage decoded = new ServerMessageImpl(1, 50);
+      decoded.decode(encoded);
+      return decoded;
+   }
+
+   @Benchmark
+   public ServerMessage copy()
+   {
+      return message.copy(2);
+   }
+}
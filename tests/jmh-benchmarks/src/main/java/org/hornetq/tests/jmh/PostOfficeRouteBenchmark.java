@@ -0,0 +1,252 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.jmh;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.config.impl.ConfigurationImpl;
+import org.hornetq.core.journal.SequentialFileFactory;
+import org.hornetq.core.paging.PagingManager;
+import org.hornetq.core.paging.PagingStore;
+import org.hornetq.core.paging.PagingStoreFactory;
+import org.hornetq.core.paging.impl.PagingManagerImpl;
+import org.hornetq.core.paging.impl.PagingStoreImpl;
+import org.hornetq.core.persistence.StorageManager;
+import org.hornetq.core.persistence.impl.nullpm.NullStorageManager;
+import org.hornetq.core.postoffice.Bindings;
+import org.hornetq.core.postoffice.impl.BindingsImpl;
+import org.hornetq.core.postoffice.impl.LocalQueueBinding;
+import org.hornetq.core.postoffice.impl.PostOfficeImpl;
+import org.hornetq.core.server.RoutingContext;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.core.server.management.impl.ManagementServiceImpl;
+import org.hornetq.core.settings.HierarchicalRepository;
+import org.hornetq.core.settings.impl.AddressSettings;
+import org.hornetq.core.settings.impl.HierarchicalObjectRepository;
+import org.hornetq.tests.unit.core.postoffice.impl.FakeQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PostOfficeImpl.route over a wildcard enabled address manager.
+ * <p/>
+ * Every address stocks.N.quotes has its own queues, and a few subscriptions use wildcards matching all of them
+ * (stocks.#, stocks.*.quotes and #). The queues only collect the routing, so this measures the address lookup, the
+ * bindings and the creation of the references; storage is a null implementation and paging never kicks in.
+ * <p/>
+ * A message can only be routed once, so each invocation also creates the (small) message being routed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostOfficeRouteBenchmark
+{
+   private static final String[] WILDCARDS = {"stocks.#", "stocks.*.quotes", "#"};
+
+   @Param({"10", "1000"})
+   public int addresses;
+
+   @Param({"1", "10"})
+   public int queuesPerAddress;
+
+   private PostOfficeImpl postOffice;
+
+   private ExecutorService executor;
+
+   private SimpleString[] addressNames;
+
+   private int index;
+
+   private long messageID;
+
+   private static final class RoutingQueue extends FakeQueue
+   {
+      private final SimpleString address;
+
+      RoutingQueue(final SimpleString address, final SimpleString name, final long id)
+      {
+         super(name, id);
+         this.address = address;
+      }
+
+      @Override
+      public SimpleString getAddress()
+      {
+         return address;
+      }
+
+      @Override
+      public void route(final ServerMessage message, final RoutingContext context) throws Exception
+      {
+         context.addQueue(address, this);
+      }
+   }
+
+   /**
+    * Page stores without files, which is all that routing needs while the addresses are not full
+    */
+   private static final class NullPagingStoreFactory implements PagingStoreFactory
+   {
+      private final StorageManager storageManager;
+
+      private final Executor executor;
+
+      private PagingManager pagingManager;
+
+      NullPagingStoreFactory(final StorageManager storageManager, final Executor executor)
+      {
+         this.storageManager = storageManager;
+         this.executor = executor;
+      }
+
+      public PagingStore newStore(final SimpleString address, final AddressSettings addressSettings)
+      {
+         return new PagingStoreImpl(address,
+                                    null,
+                                    0,
+                                    pagingManager,
+                                    storageManager,
+                                    null,
+                                    this,
+                                    address,
+                                    addressSettings,
+                                    executor,
+                                    false);
+      }
+
+      public void stop()
+      {
+      }
+
+      public void setPagingManager(final PagingManager manager)
+      {
+         pagingManager = manager;
+      }
+
+      public List<PagingStore> reloadStores(final HierarchicalRepository<AddressSettings> addressSettingsRepository)
+      {
+         return Collections.emptyList();
+      }
+
+      public SequentialFileFactory newFileFactory(final SimpleString address)
+      {
+         return null;
+      }
+   }
+
+   @Setup
+   public void setup() throws Exception
+   {
+      HierarchicalObjectRepository<AddressSettings> addressSettings = new HierarchicalObjectRepository<AddressSettings>();
+      addressSettings.setDefault(new AddressSettings());
+
+      StorageManager storageManager = new NullStorageManager();
+
+      executor = Executors.newSingleThreadExecutor();
+
+      NullPagingStoreFactory storeFactory = new NullPagingStoreFactory(storageManager, executor);
+
+      PagingManager pagingManager = new PagingManagerImpl(storeFactory, addressSettings);
+
+      storeFactory.setPagingManager(pagingManager);
+
+      postOffice = new PostOfficeImpl(null,
+                                      storageManager,
+                                      pagingManager,
+                                      null,
+                                      new ManagementServiceImpl(null, new ConfigurationImpl()),
+                                      -1,
+                                      Thread.NORM_PRIORITY,
+                                      true,
+                                      0,
+                                      false,
+                                      addressSettings)
+      {
+         // there is no server, and so no grouping handler
+         @Override
+         public Bindings createBindings(final SimpleString address) throws Exception
+         {
+            return new BindingsImpl(address, null, null);
+         }
+      };
+
+      SimpleString nodeID = new SimpleString("node");
+
+      long queueID = 0;
+
+      addressNames = new SimpleString[addresses];
+
+      for (int i = 0; i < addresses; i++)
+      {
+         SimpleString address = new SimpleString("stocks." + i + ".quotes");
+
+         for (int j = 0; j < queuesPerAddress; j++)
+         {
+            SimpleString name = new SimpleString("queue." + i + "." + j);
+            postOffice.addBinding(new LocalQueueBinding(address, new RoutingQueue(address, name, queueID++), nodeID));
+         }
+
+         addressNames[i] = address;
+      }
+
+      for (String wildcard : WILDCARDS)
+      {
+         SimpleString address = new SimpleString(wildcard);
+         SimpleString name = new SimpleString("subscription." + wildcard);
+         postOffice.addBinding(new LocalQueueBinding(address, new RoutingQueue(address, name, queueID++), nodeID));
+      }
+   }
+
+   @TearDown
+   public void tearDown() throws Exception
+   {
+      executor.shutdown();
+   }
+
+   @Benchmark
+   public ServerMessage route() throws Exception
+   {
+      if (++index == addresses)
+      {
+         index = 0;
+      }
+
+      ServerMessage message = new ServerMessageImpl(++messageID, 100);
+
+      message.setAddress(addressNames[index]);
+
+      postOffice.route(message, false);
+
+      return message;
+   }
+}
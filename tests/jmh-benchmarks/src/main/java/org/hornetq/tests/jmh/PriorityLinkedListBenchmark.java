@@ -0,0 +1,164 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.utils.LinkedListIterator;
+import org.hornetq.utils.PriorityLinkedListImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The queue's message list: adding, polling, iterating and removing through iterators references spread across
+ * priorities, on shallow and deep queues.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriorityLinkedListBenchmark
+{
+   private static final int PRIORITIES = 10;
+
+   @Param({"1000", "1000000"})
+   public int size;
+
+   /**
+    * How many distinct priorities the elements are spread over
+    */
+   @Param({"1", "4"})
+   public int usedPriorities;
+
+   private Integer[] elements;
+
+   private PriorityLinkedListImpl<Integer> full;
+
+   @Setup
+   public void setup()
+   {
+      elements = new Integer[size];
+
+      for (int i = 0; i < size; i++)
+      {
+         elements[i] = i;
+      }
+
+      full = new PriorityLinkedListImpl<Integer>(PRIORITIES);
+
+      fill(full);
+   }
+
+   private void fill(final PriorityLinkedListImpl<Integer> list)
+   {
+      for (int i = 0; i < size; i++)
+      {
+         list.addTail(elements[i], 4 + i % usedPriorities);
+      }
+   }
+
+   @Benchmark
+   public void addAndPoll(final Blackhole blackhole)
+   {
+      PriorityLinkedListImpl<Integer> list = new PriorityLinkedListImpl<Integer>(PRIORITIES);
+
+      fill(list);
+
+      Integer element;
+
+      while ((element = list.poll()) != null)
+      {
+         blackhole.consume(element);
+      }
+   }
+
+   @Benchmark
+   public void iterate(final Blackhole blackhole)
+   {
+      LinkedListIterator<Integer> iterator = full.iterator();
+
+      try
+      {
+         while (iterator.hasNext())
+         {
+            blackhole.consume(iterator.next());
+         }
+      }
+      finally
+      {
+         iterator.close();
+      }
+   }
+
+   /**
+    * Removes every other reference through an iterator, as delivering to a consumer with a filter does, while the
+    * iterator of another consumer stays on the head.
+    */
+   @Benchmark
+   public void addRemoveAndPoll(final Blackhole blackhole)
+   {
+      PriorityLinkedListImpl<Integer> list = new PriorityLinkedListImpl<Integer>(PRIORITIES);
+
+      fill(list);
+
+      LinkedListIterator<Integer> parked = list.iterator();
+
+      LinkedListIterator<Integer> iterator = list.iterator();
+
+      try
+      {
+         parked.next();
+
+         boolean remove = false;
+
+         while (iterator.hasNext())
+         {
+            Integer element = iterator.next();
+
+            if (remove)
+            {
+               blackhole.consume(element);
+
+               iterator.remove();
+            }
+
+            remove = !remove;
+         }
+      }
+      finally
+      {
+         iterator.close();
+
+         parked.close();
+      }
+
+      Integer element;
+
+      while ((element = list.poll()) != null)
+      {
+         blackhole.consume(element);
+      }
+   }
+}
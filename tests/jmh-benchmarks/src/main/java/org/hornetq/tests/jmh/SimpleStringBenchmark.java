@@ -0,0 +1,99 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SimpleString hashing and equality, as done by every address, queue and property name lookup.
+ * <p/>
+ * SimpleString caches its hash, so the hashing benchmark measures a fresh instance over the same bytes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleStringBenchmark
+{
+   @Param({"jms.queue.orders", "jms.topic.market.data.europe.equities.level2.quotes"})
+   public String address;
+
+   private byte[] data;
+
+   private SimpleString string;
+
+   private SimpleString sameString;
+
+   private SimpleString otherString;
+
+   @Setup
+   public void setup()
+   {
+      string = new SimpleString(address);
+      data = string.getData();
+      sameString = new SimpleString(address);
+      // same length, different last character: the worst case for equals
+      otherString = new SimpleString(address.substring(0, address.length() - 1) + "#");
+   }
+
+   @Benchmark
+   public int hash()
+   {
+      return new SimpleString(data).hashCode();
+   }
+
+   @Benchmark
+   public int cachedHash()
+   {
+      return string.hashCode();
+   }
+
+   @Benchmark
+   public boolean equalsSame()
+   {
+      return string.equals(sameString);
+   }
+
+   @Benchmark
+   public boolean equalsDifferent()
+   {
+      return string.equals(otherString);
+   }
+
+   @Benchmark
+   public SimpleString fromString()
+   {
+      return new SimpleString(address);
+   }
+
+   @Benchmark
+   public String toStringValue()
+   {
+      return new SimpleString(data).toString();
+   }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.hornetq.core.journal.IOAsyncTask;
+import org.hornetq.core.journal.impl.TimedBuffer;
+import org.hornetq.core.journal.impl.TimedBufferObserver;
+import org.hornetq.core.journal.impl.JournalConstants;
+import org.hornetq.core.journal.impl.dataformat.ByteArrayEncoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Records being batched on the TimedBuffer by concurrent writers.
+ * <p/>
+ * The observer completes the callbacks straight away, as if the disk had no latency, so this measures the batching
+ * itself: the buffer lock, the copies and the flushes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimedBufferBenchmark
+{
+   @Param({"64", "1024"})
+   public int recordSize;
+
+   @Param({"false", "true"})
+   public boolean sync;
+
+   private TimedBuffer timedBuffer;
+
+   private ByteArrayEncoding record;
+
+   /**
+    * The journal checks the size and appends under its own lock, so the writers do the same here
+    */
+   private final ReentrantLock appendLock = new ReentrantLock();
+
+   private static final IOAsyncTask CALLBACK = new IOAsyncTask()
+   {
+      public void done()
+      {
+      }
+
+      public void onError(final int errorCode, final String errorMessage)
+      {
+      }
+   };
+
+   private static final class CompletingObserver implements TimedBufferObserver
+   {
+      public void flushBuffer(final ByteBuffer buffer, final boolean syncRequested, final List<IOAsyncTask> callbacks)
+      {
+         for (IOAsyncTask callback : callbacks)
+         {
+            callback.done();
+         }
+      }
+
+      public ByteBuffer newBuffer(final int size, final int limit)
+      {
+         return ByteBuffer.allocate(size);
+      }
+
+      public int getRemainingBytes()
+      {
+         return Integer.MAX_VALUE;
+      }
+   }
+
+   @Setup
+   public void setup()
+   {
+      record = new ByteArrayEncoding(new byte[recordSize]);
+
+      timedBuffer = new TimedBuffer(JournalConstants.DEFAULT_JOURNAL_BUFFER_SIZE_NIO,
+                                    JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_NIO,
+                                    false);
+      timedBuffer.start();
+      timedBuffer.setObserver(new CompletingObserver());
+   }
+
+   @TearDown
+   public void tearDown()
+   {
+      timedBuffer.stop();
+   }
+
+   private void append()
+   {
+      appendLock.lock();
+      try
+      {
+         timedBuffer.checkSize(recordSize);
+         timedBuffer.addBytes(record, sync, CALLBACK);
+      }
+      finally
+      {
+         appendLock.unlock();
+      }
+   }
+
+   @Benchmark
+   @Threads(1)
+   public void singleWriter()
+   {
+      append();
+   }
+
+   @Benchmark
+   @Threads(8)
+   public void eightWriters()
+   {
+      append();
+   }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.utils.TypedProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding of the message properties.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypedPropertiesBenchmark
+{
+   @Param({"4", "32"})
+   public int properties;
+
+   private TypedProperties typedProperties;
+
+   private HornetQBuffer encoded;
+
+   private HornetQBuffer buffer;
+
+   private SimpleString lookupKey;
+
+   @Setup
+   public void setup()
+   {
+      typedProperties = new TypedProperties();
+
+      for (int i = 0; i < properties; i++)
+      {
+         switch (i % 4)
+         {
+            case 0:
+               typedProperties.putSimpleStringProperty(new SimpleString("string" + i), new SimpleString("value" + i));
+               break;
+            case 1:
+               typedProperties.putLongProperty(new SimpleString("long" + i), i);
+               break;
+            case 2:
+               typedProperties.putIntProperty(new SimpleString("int" + i), i);
+               break;
+            default:
+               typedProperties.putBooleanProperty(new SimpleString("boolean" + i), true);
+         }
+      }
+
+      lookupKey = new SimpleString("long" + (properties - 3));
+
+      encoded = HornetQBuffers.fixedBuffer(typedProperties.getEncodeSize());
+      typedProperties.encode(encoded);
+
+      buffer = HornetQBuffers.fixedBuffer(typedProperties.getEncodeSize());
+   }
+
+   @Benchmark
+   public HornetQBuffer encode()
+   {
+      buffer.clear();
+      typedProperties.encode(buffer);
+      return buffer;
+   }
+
+   @Benchmark
+   public TypedProperties decode()
+   {
+      encoded.readerIndex(0);
+      TypedProperties decoded = new TypedProperties();
+      decoded.decode(encoded);
+      return decoded;
+   }
+
+   @Benchmark
+   public Object decodeAndGet()
+   {
+      encoded.readerIndex(0);
+      TypedProperties decoded = new TypedProperties();
+      decoded.decode(encoded);
+      return decoded.getProperty(lookupKey);
+   }
+}
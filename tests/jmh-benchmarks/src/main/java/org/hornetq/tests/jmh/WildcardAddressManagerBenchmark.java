@@ -0,0 +1,143 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.postoffice.Bindings;
+import org.hornetq.core.postoffice.BindingsFactory;
+import org.hornetq.core.postoffice.impl.BindingsImpl;
+import org.hornetq.core.postoffice.impl.LocalQueueBinding;
+import org.hornetq.core.postoffice.impl.WildcardAddressManager;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.RoutingContextImpl;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.tests.unit.core.postoffice.impl.FakeQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Binding changes and routing on a WildcardAddressManager holding many addresses stocks.N.quotes, each with a queue,
+ * and many wildcard subscriptions stocks.N.# plus stocks.*.quotes and #.
+ * <p/>
+ * Creating a temporary queue or a subscription links its address to the addresses or wildcards it matches, and
+ * removing it unlinks them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WildcardAddressManagerBenchmark
+{
+   @Param({"1000", "100000"})
+   public int addresses;
+
+   @Param({"10", "1000"})
+   public int wildcards;
+
+   private final SimpleString nodeID = new SimpleString("node");
+
+   private WildcardAddressManager addressManager;
+
+   private SimpleString[] addressNames;
+
+   private int index;
+
+   private long queueID;
+
+   @Setup
+   public void setup() throws Exception
+   {
+      addressManager = new WildcardAddressManager(new BindingsFactory()
+      {
+         public Bindings createBindings(final SimpleString address) throws Exception
+         {
+            return new BindingsImpl(address, null, null);
+         }
+      });
+
+      addressNames = new SimpleString[addresses];
+
+      for (int i = 0; i < addresses; i++)
+      {
+         addressNames[i] = new SimpleString("stocks." + i + ".quotes");
+         bind(addressNames[i], new SimpleString("queue." + i));
+      }
+
+      bind(new SimpleString("#"), new SimpleString("subscription.all"));
+      bind(new SimpleString("stocks.*.quotes"), new SimpleString("subscription.quotes"));
+
+      for (int i = 0; i < wildcards; i++)
+      {
+         bind(new SimpleString("stocks." + i + ".#"), new SimpleString("subscription." + i));
+      }
+   }
+
+   /**
+    * A temporary queue on a new address, matched by some of the wildcards
+    */
+   @Benchmark
+   public void createRemoveAddress() throws Exception
+   {
+      SimpleString name = new SimpleString("temp." + queueID);
+
+      bind(new SimpleString("stocks." + (queueID % wildcards) + ".temp." + queueID), name);
+
+      addressManager.removeBinding(name, null);
+   }
+
+   /**
+    * A subscription on a new wildcard, matching one address
+    */
+   @Benchmark
+   public void createRemoveWildcard() throws Exception
+   {
+      SimpleString name = new SimpleString("subscription.temp." + queueID);
+
+      bind(new SimpleString("stocks." + (queueID % addresses) + ".#"), name);
+
+      addressManager.removeBinding(name, null);
+   }
+
+   @Benchmark
+   public ServerMessage route() throws Exception
+   {
+      if (++index == addresses)
+      {
+         index = 0;
+      }
+
+      ServerMessage message = new ServerMessageImpl(index, 100);
+
+      addressManager.getBindingsForRoutingAddress(addressNames[index]).route(message, new RoutingContextImpl(null));
+
+      return message;
+   }
+
+   private void bind(final SimpleString address, final SimpleString name) throws Exception
+   {
+      addressManager.addBinding(new LocalQueueBinding(address, new FakeQueue(name, queueID++), nodeID));
+   }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.performance.journal;
+import java.io.File;
+
+import org.hornetq.core.journal.SequentialFileFactory;
+import org.hornetq.core.journal.impl.URingSequentialFileFactory;
+import org.hornetq.tests.unit.UnitTestLogger;
+import org.junit.BeforeClass;
+
+/**
+ * The journal performance tests on io_uring, to compare against {@link RealJournalImplAIOTest} on the same disk.
+ */
+public class RealJournalImplURingTest extends JournalImplTestUnit
+{
+   private static final UnitTestLogger log = UnitTestLogger.LOGGER;
+
+   @BeforeClass
+   public static void hasURing()
+   {
+      org.junit.Assume.assumeTrue("Test case needs io_uring to run", URingSequentialFileFactory.isSupported());
+   }
+
+   @Override
+   protected SequentialFileFactory getFileFactory() throws Exception
+   {
+      File file = new File(getTestDir());
+
+      RealJournalImplURingTest.log.debug("deleting directory " + file);
+
+      deleteDirectory(file);
+
+      file.mkdir();
+
+      return new URingSequentialFileFactory(getTestDir());
+   }
+
+}
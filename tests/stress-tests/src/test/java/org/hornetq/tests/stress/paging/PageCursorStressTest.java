@@ -13,9 +13,12 @@
 package org.hornetq.tests.stress.paging;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
@@ -24,11 +27,14 @@ import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.config.Configuration;
 import org.hornetq.core.filter.Filter;
+import org.hornetq.core.paging.PagedMessage;
 import org.hornetq.core.paging.cursor.PageCache;
 import org.hornetq.core.paging.cursor.PageCursorProvider;
 import org.hornetq.core.paging.cursor.PageSubscription;
 import org.hornetq.core.paging.cursor.PagedReference;
+import org.hornetq.core.paging.cursor.impl.PageCacheBudget;
 import org.hornetq.core.paging.cursor.impl.PageCursorProviderImpl;
+import org.hornetq.core.paging.cursor.impl.PagePositionImpl;
 import org.hornetq.core.paging.impl.PagingStoreImpl;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.persistence.impl.journal.OperationContextImpl;
@@ -76,7 +82,7 @@ public class PageCursorStressTest extends ServiceTestBase
 
    private static final int PAGE_SIZE = 10 * 1024 * 1024;
 
-   // Read more cache than what would fit on the memory, and validate if the memory would be cleared through soft-caches
+   // Read more pages than what the cache may keep, and validate the least recently used ones are evicted
    @Test
    public void testReadCache() throws Exception
    {
@@ -99,13 +105,381 @@ public class PageCursorStressTest extends ServiceTestBase
 
       }
 
-      forceGC();
+      assertTrue(cursorProvider.getCacheSize() <= 5);
+      assertEquals(numberOfPages - cursorProvider.getCacheSize(), cursorProvider.getCacheEvictions());
+      assertEquals(numberOfPages, cursorProvider.getCacheMisses());
 
-      assertTrue(cursorProvider.getCacheSize() < numberOfPages);
+      // the last pages read are still there
+      cursorProvider.getPageCache(numberOfPages);
+      assertEquals(1, cursorProvider.getCacheHits());
+
+      // while the first one was evicted
+      cursorProvider.getPageCache(1);
+      assertEquals(numberOfPages + 1, cursorProvider.getCacheMisses());
 
       System.out.println("Cache size = " + cursorProvider.getCacheSize());
    }
 
+   @Test
+   public void testReadCacheWithMaxSizeBytes() throws Exception
+   {
+      final int NUM_MESSAGES = 100;
+
+      int numberOfPages = addMessages(NUM_MESSAGES, 1024 * 1024);
+
+      final long maxSizeBytes = 2 * PAGE_SIZE;
+
+      PageCursorProviderImpl cursorProvider = new PageCursorProviderImpl(lookupPageStore(ADDRESS),
+                                                                         server.getStorageManager(),
+                                                                         server.getExecutorFactory().getExecutor(),
+                                                                         numberOfPages,
+                                                                         maxSizeBytes,
+                                                                         new PageCacheBudget(-1),
+                                                                         server.getExecutorFactory().getExecutor());
+
+      for (int i = 1; i <= numberOfPages; i++)
+      {
+         assertNotNull(cursorProvider.getPageCache(i));
+         assertTrue(cursorProvider.getCacheSizeBytes() <= maxSizeBytes);
+      }
+
+      assertTrue(cursorProvider.getCacheEvictions() > 0);
+      assertTrue(cursorProvider.getCacheSize() < numberOfPages);
+   }
+
+   @Test
+   public void testPageCacheBudget() throws Exception
+   {
+      final int NUM_MESSAGES = 100;
+
+      int numberOfPages = addMessages(NUM_MESSAGES, 1024 * 1024);
+
+      final long maxSize = 3 * PAGE_SIZE;
+
+      PageCacheBudget budget = new PageCacheBudget(maxSize);
+
+      PageCursorProviderImpl[] cursorProviders = new PageCursorProviderImpl[2];
+
+      for (int i = 0; i < cursorProviders.length; i++)
+      {
+         cursorProviders[i] = new PageCursorProviderImpl(lookupPageStore(ADDRESS),
+                                                         server.getStorageManager(),
+                                                         server.getExecutorFactory().getExecutor(),
+                                                         numberOfPages,
+                                                         -1,
+                                                         budget,
+                                                         server.getExecutorFactory().getExecutor());
+      }
+
+      for (int i = 1; i <= numberOfPages; i++)
+      {
+         for (PageCursorProviderImpl cursorProvider : cursorProviders)
+         {
+            assertNotNull(cursorProvider.getPageCache(i));
+            assertTrue(budget.getSize() <= maxSize);
+         }
+      }
+
+      // no address keeps the whole budget to itself
+      for (PageCursorProviderImpl cursorProvider : cursorProviders)
+      {
+         assertTrue(cursorProvider.getCacheEvictions() > 0);
+         assertTrue(cursorProvider.getCacheSize() > 0);
+      }
+
+      cursorProviders[0].stop();
+
+      assertEquals(cursorProviders[1].getCacheSizeBytes(), budget.getSize());
+   }
+
+   @Test
+   public void testLivePageIsNotEvicted() throws Exception
+   {
+      final int NUM_MESSAGES = 100;
+
+      int numberOfPages = addMessages(NUM_MESSAGES, 1024 * 1024);
+
+      PagingStoreImpl pageStore = lookupPageStore(ADDRESS);
+
+      PageCursorProvider cursorProvider = pageStore.getCursorProvider();
+
+      cursorProvider.setCacheMaxSize(1);
+      cursorProvider.setCacheMaxSizeBytes(0);
+
+      for (int i = 1; i < numberOfPages; i++)
+      {
+         assertNotNull(cursorProvider.getPageCache(i));
+      }
+
+      assertEquals(1, cursorProvider.getCacheSize());
+      assertTrue(cursorProvider.getPageCache(pageStore.getCurrentWritingPage()).isLive());
+   }
+
+   @Test
+   public void testReadIndexedMessage() throws Exception
+   {
+      AddressSettings settings = server.getAddressSettingsRepository().getMatch(ADDRESS.toString());
+      settings.setPageIndex(true);
+      lookupPageStore(ADDRESS).applySetting(settings);
+
+      final int NUM_MESSAGES = 100;
+
+      int numberOfPages = addMessages(NUM_MESSAGES, 1024 * 1024);
+
+      PageCursorProviderImpl cachedProvider = new PageCursorProviderImpl(lookupPageStore(ADDRESS),
+                                                                         server.getStorageManager(),
+                                                                         server.getExecutorFactory().getExecutor(),
+                                                                         numberOfPages);
+
+      PageCursorProviderImpl cursorProvider = new PageCursorProviderImpl(lookupPageStore(ADDRESS),
+                                                                         server.getStorageManager(),
+                                                                         server.getExecutorFactory().getExecutor(),
+                                                                         numberOfPages);
+      cursorProvider.setPageIndex(true);
+
+      int key = 0;
+
+      // the last page is still being written
+      for (int i = 1; i < numberOfPages; i++)
+      {
+         PageCache cache = cachedProvider.getPageCache(i);
+
+         for (int j = 0; j < cache.getNumberOfMessages(); j++)
+         {
+            PagedMessage msg = cursorProvider.getMessage(new PagePositionImpl(i, j));
+            assertEquals(key++, msg.getMessage().getIntProperty("key").intValue());
+            assertEquals(cache.getMessage(j).getMessage().getMessageID(), msg.getMessage().getMessageID());
+         }
+      }
+
+      assertTrue(key > 0);
+
+      // single messages were read without loading their pages into the cache
+      assertEquals(0, cursorProvider.getCacheSize());
+
+      // the index is left alone when the address doesn't enable it
+      cursorProvider.setPageIndex(false);
+      assertEquals(0, cursorProvider.getMessage(new PagePositionImpl(1, 0)).getMessage().getIntProperty("key").intValue());
+      assertEquals(1, cursorProvider.getCacheSize());
+   }
+
+   @Test
+   public void testReadAhead() throws Exception
+   {
+      AddressSettings settings = server.getAddressSettingsRepository().getMatch(ADDRESS.toString());
+      settings.setPageReadAhead(1);
+      lookupPageStore(ADDRESS).applySetting(settings);
+
+      final int NUM_MESSAGES = 100;
+
+      int numberOfPages = addMessages(NUM_MESSAGES, 1024 * 1024);
+
+      PageCursorProvider cursorProvider = lookupCursorProvider();
+
+      LinkedListIterator<PagedReference> iterator = cursorProvider.getSubscription(queue.getID()).iterator();
+
+      long readingPage = -1;
+      int readAheads = 0;
+      int key = 0;
+      PagedReference msg;
+      while ((msg = iterator.next()) != null)
+      {
+         assertEquals(key++, msg.getMessage().getIntProperty("key").intValue());
+
+         if (msg.getPosition().getPageNr() != readingPage)
+         {
+            readingPage = msg.getPosition().getPageNr();
+
+            // the next page is read while this one is consumed, the page being written is cached already
+            if (readingPage + 1 < lookupPageStore(ADDRESS).getCurrentWritingPage())
+            {
+               readAheads++;
+            }
+
+            long timeout = System.currentTimeMillis() + 5000;
+            while (cursorProvider.getReadAheads() < readAheads && System.currentTimeMillis() < timeout)
+            {
+               Thread.sleep(10);
+            }
+            assertEquals(readAheads, cursorProvider.getReadAheads());
+         }
+      }
+      assertEquals(NUM_MESSAGES, key);
+
+      // every page but the first one and the one being written was read ahead, and only the first one was missed
+      assertEquals(numberOfPages - 2, cursorProvider.getReadAheads());
+      assertEquals(1, cursorProvider.getCacheMisses());
+   }
+
+   @Test
+   public void testIteratorWaitsOnReadAhead() throws Exception
+   {
+      final int NUM_MESSAGES = 100;
+
+      int numberOfPages = addMessages(NUM_MESSAGES, 1024 * 1024);
+      assertTrue(numberOfPages > 2);
+
+      CountDownLatch reading = new CountDownLatch(1);
+
+      CountDownLatch release = new CountDownLatch(1);
+
+      AtomicInteger secondPageReads = new AtomicInteger(0);
+
+      PageCursorProviderImpl cursorProvider = createHoldingProvider(numberOfPages,
+                                                                    new PageCacheBudget(-1),
+                                                                    reading,
+                                                                    release,
+                                                                    secondPageReads);
+
+      cursorProvider.setMaxReadAhead(1);
+
+      // the messages were routed to the queue, this provider keeps a subscription of its own for it
+      final LinkedListIterator<PagedReference> iterator = cursorProvider.createSubscription(queue.getID(), null, false)
+                                                                        .iterator();
+
+      // reading the first page schedules the read ahead of the second one
+      PagedReference first = iterator.next();
+      assertEquals(0, first.getMessage().getIntProperty("key").intValue());
+      assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+      final List<PagedReference> consumed = Collections.synchronizedList(new ArrayList<PagedReference>());
+      final CountDownLatch done = new CountDownLatch(1);
+
+      Thread consumer = new Thread()
+      {
+         @Override
+         public void run()
+         {
+            PagedReference msg;
+            while ((msg = iterator.next()) != null)
+            {
+               consumed.add(msg);
+            }
+            done.countDown();
+         }
+      };
+
+      try
+      {
+         consumer.start();
+
+         // the iterator went through the first page and is waiting on the second one
+         assertFalse(done.await(500, TimeUnit.MILLISECONDS));
+         synchronized (consumed)
+         {
+            for (PagedReference msg : consumed)
+            {
+               assertEquals(1, msg.getPosition().getPageNr());
+            }
+         }
+      }
+      finally
+      {
+         release.countDown();
+      }
+
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+
+      assertEquals(NUM_MESSAGES - 1, consumed.size());
+      for (int i = 0; i < consumed.size(); i++)
+      {
+         assertEquals(i + 1, consumed.get(i).getMessage().getIntProperty("key").intValue());
+      }
+
+      // the page was read once, by the read ahead
+      assertEquals(1, secondPageReads.get());
+      assertTrue(cursorProvider.getReadAheads() >= 1);
+   }
+
+   @Test
+   public void testStopWhileReadingAhead() throws Exception
+   {
+      final int NUM_MESSAGES = 100;
+
+      int numberOfPages = addMessages(NUM_MESSAGES, 1024 * 1024);
+      assertTrue(numberOfPages > 2);
+
+      PageCacheBudget budget = new PageCacheBudget(numberOfPages * PAGE_SIZE);
+
+      CountDownLatch reading = new CountDownLatch(1);
+
+      CountDownLatch release = new CountDownLatch(1);
+
+      final PageCursorProviderImpl cursorProvider = createHoldingProvider(numberOfPages,
+                                                                          budget,
+                                                                          reading,
+                                                                          release,
+                                                                          new AtomicInteger(0));
+
+      cursorProvider.setMaxReadAhead(1);
+
+      assertNotNull(cursorProvider.getPageCache(1));
+      cursorProvider.scheduleReadAhead(1, 0);
+      assertTrue(reading.await(5, TimeUnit.SECONDS));
+      assertTrue(budget.getSize() > 0);
+
+      final CountDownLatch stopped = new CountDownLatch(1);
+
+      Thread stopper = new Thread()
+      {
+         @Override
+         public void run()
+         {
+            cursorProvider.stop();
+            stopped.countDown();
+         }
+      };
+
+      try
+      {
+         stopper.start();
+
+         // stopping waits for the page being read ahead
+         assertFalse(stopped.await(500, TimeUnit.MILLISECONDS));
+      }
+      finally
+      {
+         release.countDown();
+      }
+
+      assertTrue(stopped.await(10, TimeUnit.SECONDS));
+
+      // nothing is read ahead into the stopped provider
+      cursorProvider.scheduleReadAhead(2, 0);
+      cursorProvider.flushExecutors();
+
+      assertEquals(0, cursorProvider.getCacheSize());
+      assertEquals(0, budget.getSize());
+   }
+
+   @Test
+   public void testNoReadAhead() throws Exception
+   {
+      AddressSettings settings = server.getAddressSettingsRepository().getMatch(ADDRESS.toString());
+      settings.setPageReadAhead(0);
+      lookupPageStore(ADDRESS).applySetting(settings);
+
+      final int NUM_MESSAGES = 100;
+
+      addMessages(NUM_MESSAGES, 1024 * 1024);
+
+      PageCursorProvider cursorProvider = lookupCursorProvider();
+
+      LinkedListIterator<PagedReference> iterator = cursorProvider.getSubscription(queue.getID()).iterator();
+
+      int key = 0;
+      PagedReference msg;
+      while ((msg = iterator.next()) != null)
+      {
+         assertEquals(key++, msg.getMessage().getIntProperty("key").intValue());
+      }
+      assertEquals(NUM_MESSAGES, key);
+
+      server.getStorageManager().waitOnOperations();
+
+      assertEquals(0, cursorProvider.getReadAheads());
+   }
+
    @Test
    public void testSimpleCursor() throws Exception
    {
@@ -853,6 +1227,118 @@ public class PageCursorStressTest extends ServiceTestBase
       return (PagingStoreImpl) server.getPagingManager().getPageStore(address);
    }
 
+   /**
+    * @return a provider whose read of the second page is held until release is counted down
+    */
+   private PageCursorProviderImpl createHoldingProvider(final int numberOfPages,
+                                                        final PageCacheBudget budget,
+                                                        final CountDownLatch reading,
+                                                        final CountDownLatch release,
+                                                        final AtomicInteger secondPageReads) throws Exception
+   {
+      return new PageCursorProviderImpl(lookupPageStore(ADDRESS),
+                                        server.getStorageManager(),
+                                        server.getExecutorFactory().getExecutor(),
+                                        numberOfPages,
+                                        -1,
+                                        budget,
+                                        server.getExecutorFactory().getExecutor())
+      {
+         @Override
+         protected PageCache createPageCache(final long pageId) throws Exception
+         {
+            PageCache pageCache = super.createPageCache(pageId);
+
+            if (pageId != 2)
+            {
+               return pageCache;
+            }
+
+            secondPageReads.incrementAndGet();
+
+            return new HeldPageCache(pageCache, reading, release);
+         }
+      };
+   }
+
+   /**
+    * A page cache whose read is held until it's released.
+    */
+   private static final class HeldPageCache implements PageCache
+   {
+      private final PageCache delegate;
+
+      private final CountDownLatch reading;
+
+      private final CountDownLatch release;
+
+      HeldPageCache(final PageCache delegate, final CountDownLatch reading, final CountDownLatch release)
+      {
+         this.delegate = delegate;
+         this.reading = reading;
+         this.release = release;
+      }
+
+      public long getPageId()
+      {
+         return delegate.getPageId();
+      }
+
+      public int getNumberOfMessages()
+      {
+         return delegate.getNumberOfMessages();
+      }
+
+      public void setMessages(final PagedMessage[] messages)
+      {
+         reading.countDown();
+         try
+         {
+            release.await(10, TimeUnit.SECONDS);
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+         delegate.setMessages(messages);
+      }
+
+      public PagedMessage[] getMessages()
+      {
+         return delegate.getMessages();
+      }
+
+      public long getSizeBytes()
+      {
+         return delegate.getSizeBytes();
+      }
+
+      public boolean isLive()
+      {
+         return delegate.isLive();
+      }
+
+      public PagedMessage getMessage(final int messageNumber)
+      {
+         return delegate.getMessage(messageNumber);
+      }
+
+      public void lock()
+      {
+         delegate.lock();
+      }
+
+      public void unlock()
+      {
+         delegate.unlock();
+      }
+
+      public void close()
+      {
+         delegate.close();
+      }
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
@@ -13,11 +13,14 @@
 package org.hornetq.tests.unit.core.journal.impl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQIOErrorException;
 import org.hornetq.core.journal.EncodingSupport;
+import org.hornetq.core.journal.JournalLoadInformation;
+import org.hornetq.core.journal.PreparedTransactionInfo;
 import org.hornetq.core.journal.RecordInfo;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.journal.impl.JournalImpl;
@@ -3224,6 +3227,116 @@ public abstract class JournalImplTestUnit extends JournalImplTestBase
 
    }
 
+   @Test
+   public void testParallelLoad2() throws Exception
+   {
+      parallelLoad(2);
+   }
+
+   @Test
+   public void testParallelLoad4() throws Exception
+   {
+      parallelLoad(4);
+   }
+
+   /**
+    * Loads a journal spread over many files with the given parallelism and compares it with a sequential load of the
+    * same files.
+    */
+   private void parallelLoad(final int parallelism) throws Exception
+   {
+      setup(10, 10 * 1024, true);
+
+      createJournal();
+      startJournal();
+      load();
+
+      long txID = 1;
+
+      for (long i = 0; i < 300; i++)
+      {
+         add(i);
+
+         if (i % 3 == 0)
+         {
+            update(i);
+         }
+
+         if (i % 7 == 0 && i > 0)
+         {
+            // deletes a record added a few files back
+            delete(i - 7);
+         }
+
+         if (i % 20 == 0)
+         {
+            addTx(txID, 1000 + i, 1001 + i);
+            updateTx(txID, i);
+            journal.forceMoveNextFile();
+            if (i > 0 && (i - 1) % 7 != 0)
+            {
+               deleteTx(txID, i - 1);
+            }
+            if (i % 40 == 0)
+            {
+               commit(txID);
+            }
+            else
+            {
+               rollback(txID);
+            }
+            txID++;
+         }
+      }
+
+      // a prepared transaction spanning files has to be rebuilt the same way too
+      addTx(txID, 2000, 2001);
+      journal.forceMoveNextFile();
+      updateTx(txID, 2);
+      prepare(txID, new SimpleEncoding(10, (byte) 'p'));
+
+      stopJournal(false);
+
+      createJournal();
+      startJournal();
+
+      List<RecordInfo> sequentialRecords = new ArrayList<RecordInfo>();
+      List<PreparedTransactionInfo> sequentialPrepared = new ArrayList<PreparedTransactionInfo>();
+      JournalLoadInformation sequentialInfo = journal.load(sequentialRecords, sequentialPrepared, null);
+      int dataFiles = journal.getDataFilesCount();
+      int idMapSize = journal.getIDMapSize();
+
+      Assert.assertTrue("only " + dataFiles + " data files", dataFiles > parallelism * 4);
+
+      stopJournal(false);
+
+      createJournal();
+      ((JournalImpl) journal).setLoadParallelism(parallelism);
+      startJournal();
+
+      List<RecordInfo> parallelRecords = new ArrayList<RecordInfo>();
+      List<PreparedTransactionInfo> parallelPrepared = new ArrayList<PreparedTransactionInfo>();
+      JournalLoadInformation parallelInfo = journal.load(parallelRecords, parallelPrepared, null);
+
+      checkRecordsEquivalent(sequentialRecords, parallelRecords);
+      checkTransactionsEquivalent(sequentialPrepared, parallelPrepared);
+      Assert.assertEquals(sequentialInfo.getNumberOfRecords(), parallelInfo.getNumberOfRecords());
+      Assert.assertEquals(sequentialInfo.getMaxID(), parallelInfo.getMaxID());
+      Assert.assertEquals(dataFiles, journal.getDataFilesCount());
+      Assert.assertEquals(idMapSize, journal.getIDMapSize());
+
+      // the journal keeps working where the parallel load left it
+      add(5000);
+      delete(1);
+      commit(txID);
+
+      stopJournal();
+      createJournal();
+      ((JournalImpl) journal).setLoadParallelism(parallelism);
+      startJournal();
+      loadAndCheck();
+   }
+
    protected abstract int getAlignment();
 
 }
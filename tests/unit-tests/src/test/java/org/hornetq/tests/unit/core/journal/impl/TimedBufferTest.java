@@ -18,6 +18,8 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -27,6 +29,7 @@ import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.core.journal.IOAsyncTask;
 import org.hornetq.core.journal.impl.TimedBuffer;
+import org.hornetq.core.journal.impl.SimpleWaitIOCallback;
 import org.hornetq.core.journal.impl.TimedBufferObserver;
 import org.hornetq.tests.util.UnitTestCase;
 
@@ -402,4 +405,132 @@ public class TimedBufferTest extends UnitTestCase
          timedBuffer.stop();
       }
    }
+
+   /**
+    * A writer waiting for each sync can't share it with another record, so the buffer shouldn't wait
+    */
+   @Test
+   public void testAdaptiveTimeoutSingleWriter() throws Exception
+   {
+      ScheduledExecutorService disk = Executors.newSingleThreadScheduledExecutor();
+
+      TimedBuffer timedBuffer = new TimedBuffer(1024 * 1024, TimedBufferTest.ONE_SECOND_IN_NANOS / 1000,
+                                                TimedBufferTest.ONE_SECOND_IN_NANOS / 10, false);
+
+      timedBuffer.start();
+
+      try
+      {
+         timedBuffer.setObserver(new DelayedSyncObserver(disk, 2));
+
+         for (int i = 0; i < 100; i++)
+         {
+            SimpleWaitIOCallback callback = new SimpleWaitIOCallback();
+            timedBuffer.checkSize(10);
+            timedBuffer.addBytes(HornetQBuffers.wrappedBuffer(new byte[10]), true, callback);
+            callback.waitCompletion();
+         }
+
+         Assert.assertEquals(TimedBuffer.MIN_ADAPTIVE_TIMEOUT, timedBuffer.getTimeout());
+         Assert.assertEquals(1, timedBuffer.getAverageBatchSize(), 0.5);
+         Assert.assertTrue(timedBuffer.getAverageSyncLatency() >= TimeUnit.MILLISECONDS.toNanos(2));
+
+         timedBuffer.setLatencyTarget(-1);
+
+         Assert.assertEquals(TimedBufferTest.ONE_SECOND_IN_NANOS / 1000, timedBuffer.getTimeout());
+      }
+      finally
+      {
+         timedBuffer.stop();
+         disk.shutdown();
+      }
+   }
+
+   /**
+    * Records arriving faster than the syncs complete are batched, without going over the latency target
+    */
+   @Test
+   public void testAdaptiveTimeoutManyWriters() throws Exception
+   {
+      ScheduledExecutorService disk = Executors.newSingleThreadScheduledExecutor();
+
+      final int latencyTarget = TimedBufferTest.ONE_SECOND_IN_NANOS / 100;
+
+      TimedBuffer timedBuffer = new TimedBuffer(1024 * 1024, TimedBufferTest.ONE_SECOND_IN_NANOS / 1000,
+                                                latencyTarget, false);
+
+      timedBuffer.start();
+
+      try
+      {
+         timedBuffer.setObserver(new DelayedSyncObserver(disk, 2));
+
+         long timeout = System.currentTimeMillis() + 1000;
+
+         SimpleWaitIOCallback callback = null;
+
+         while (System.currentTimeMillis() < timeout)
+         {
+            // as if 10 writers were sending a record every millisecond
+            for (int i = 0; i < 10; i++)
+            {
+               callback = new SimpleWaitIOCallback();
+               timedBuffer.checkSize(10);
+               timedBuffer.addBytes(HornetQBuffers.wrappedBuffer(new byte[10]), true, callback);
+            }
+            Thread.sleep(1);
+         }
+
+         callback.waitCompletion();
+
+         Assert.assertTrue(timedBuffer.getTimeout() > TimedBuffer.MIN_ADAPTIVE_TIMEOUT);
+         Assert.assertTrue(timedBuffer.getTimeout() < latencyTarget);
+         Assert.assertTrue(timedBuffer.getAverageBatchSize() > 1);
+      }
+      finally
+      {
+         timedBuffer.stop();
+         disk.shutdown();
+      }
+   }
+
+   /**
+    * Completes the callbacks as if every sync took the given time
+    */
+   private static final class DelayedSyncObserver implements TimedBufferObserver
+   {
+      private final ScheduledExecutorService disk;
+
+      private final long syncMillis;
+
+      private DelayedSyncObserver(final ScheduledExecutorService disk, final long syncMillis)
+      {
+         this.disk = disk;
+         this.syncMillis = syncMillis;
+      }
+
+      public void flushBuffer(final ByteBuffer buffer, final boolean sync, final List<IOAsyncTask> callbacks)
+      {
+         disk.schedule(new Runnable()
+         {
+            public void run()
+            {
+               for (IOAsyncTask callback : callbacks)
+               {
+                  callback.done();
+               }
+            }
+         }, sync ? syncMillis : 0, TimeUnit.MILLISECONDS);
+      }
+
+      public ByteBuffer newBuffer(final int minSize, final int maxSize)
+      {
+         return ByteBuffer.allocate(maxSize);
+      }
+
+      public int getRemainingBytes()
+      {
+         return 1024 * 1024;
+      }
+   }
 }
@@ -713,6 +713,12 @@ public class FakeSequentialFileFactory implements SequentialFileFactory
    {
    }
 
+   @Override
+   public TimedBuffer getTimedBuffer()
+   {
+      return null;
+   }
+
    @Override
    public void onIOError(Exception exception, String message, SequentialFile file)
    {
@@ -13,16 +13,29 @@
 package org.hornetq.tests.unit.core.message.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
 import org.hornetq.core.client.impl.ClientMessageImpl;
+import org.hornetq.core.message.impl.MessageInternal;
+import org.hornetq.core.protocol.ClientPacketDecoder;
+import org.hornetq.core.protocol.ServerPacketDecoder;
+import org.hornetq.core.protocol.core.impl.RemotingConnectionImpl;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
+import org.hornetq.core.remoting.impl.invm.InVMConnection;
 import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.tests.util.RandomUtil;
+import org.hornetq.utils.DataConstants;
 import org.hornetq.tests.util.UnitTestCase;
 import org.junit.Assert;
 import org.junit.Test;
@@ -236,6 +249,156 @@ public class MessageImplTest extends UnitTestCase
       }
    }
 
+   @Test
+   public void testCopySharesBufferUntilChanged() throws Exception
+   {
+      final SimpleString key = new SimpleString("key");
+
+      ServerMessageImpl msg = new ServerMessageImpl(1, 100);
+      msg.setAddress(new SimpleString("address"));
+      msg.putStringProperty(key, new SimpleString("original"));
+      msg.getBodyBuffer().writeString("body");
+
+      ServerMessageImpl copy = (ServerMessageImpl) msg.copy(2);
+
+      Assert.assertSame(msg.getWholeBuffer().byteBuf().array(), copy.getWholeBuffer().byteBuf().array());
+
+      copy.putStringProperty(key, new SimpleString("copy"));
+      copy.getBodyBuffer().writeString("more body");
+
+      ServerMessageImpl decodedOriginal = encodeAndDecode(msg);
+      ServerMessageImpl decodedCopy = encodeAndDecode(copy);
+
+      Assert.assertEquals(new SimpleString("original"), decodedOriginal.getSimpleStringProperty(key));
+      Assert.assertEquals("body", decodedOriginal.getBodyBuffer().readString());
+
+      Assert.assertEquals(new SimpleString("copy"), decodedCopy.getSimpleStringProperty(key));
+      Assert.assertEquals("body", decodedCopy.getBodyBuffer().readString());
+      Assert.assertEquals("more body", decodedCopy.getBodyBuffer().readString());
+   }
+
+   @Test
+   public void testReceiveMessageSharesEncodedMessage() throws Exception
+   {
+      final SimpleString key = new SimpleString("key");
+
+      ServerMessageImpl msg = new ServerMessageImpl(1, 100);
+      msg.setAddress(new SimpleString("address"));
+      msg.putStringProperty(key, new SimpleString("value"));
+      msg.getBodyBuffer().writeString("body");
+
+      // the same message delivered to two consumers
+      SessionReceiveMessage first = receive(new SessionReceiveMessage(10, msg, 1).encode(null));
+      SessionReceiveMessage second = receive(new SessionReceiveMessage(20, msg, 2).encode(null));
+
+      // changing the message after the deliveries is done on a copy
+      msg.putStringProperty(key, new SimpleString("changed"));
+      msg.getEncodedBufferSlice();
+
+      Assert.assertEquals(10, first.getConsumerID());
+      Assert.assertEquals(1, first.getDeliveryCount());
+      Assert.assertEquals(20, second.getConsumerID());
+      Assert.assertEquals(2, second.getDeliveryCount());
+
+      for (SessionReceiveMessage received : new SessionReceiveMessage[]{first, second})
+      {
+         Assert.assertEquals(new SimpleString("value"), received.getMessage().getSimpleStringProperty(key));
+         Assert.assertEquals("body", received.getMessage().getBodyBuffer().readString());
+      }
+   }
+
+   @Test
+   public void testToStringPrintsBodySize() throws Exception
+   {
+      ServerMessageImpl msg = new ServerMessageImpl(1, 100);
+      msg.setAddress(new SimpleString("address"));
+      msg.getBodyBuffer().writeBytes(new byte[123]);
+
+      // the buffer grew past the body, the body size is what is printed
+      Assert.assertTrue(msg.getWholeBuffer().capacity() != msg.getEndOfBodyPosition());
+      Assert.assertTrue(msg.toString(), msg.toString().contains("bodySize=123,"));
+
+      ServerMessageImpl copy = (ServerMessageImpl) msg.copy(2);
+      Assert.assertTrue(copy.toString(), copy.toString().contains("bodySize=123,"));
+   }
+
+   @Test
+   public void testSendBatchMessageRoundTrip() throws Exception
+   {
+      final SimpleString key = new SimpleString("key");
+
+      List<MessageInternal> messages = new ArrayList<MessageInternal>();
+      List<HornetQBuffer> encodedMessages = new ArrayList<HornetQBuffer>();
+
+      for (int i = 0; i < 10; i++)
+      {
+         ClientMessageImpl msg = new ClientMessageImpl(Message.BYTES_TYPE, i % 2 == 0, 0, System.currentTimeMillis(), (byte) 4, 100);
+         msg.setAddress(new SimpleString("address" + i));
+         msg.putIntProperty(key, i);
+         msg.getBodyBuffer().writeString("body" + i);
+
+         messages.add(msg);
+         encodedMessages.add(msg.getEncodedBufferSlice());
+      }
+
+      List<SendAcknowledgementHandler> handlers = Collections.emptyList();
+
+      SessionSendBatchMessage packet = new SessionSendBatchMessage(messages, encodedMessages, true, handlers);
+
+      RemotingConnection connection = new RemotingConnectionImpl(ServerPacketDecoder.INSTANCE,
+                                                                 new InVMConnection(0, null, null, null),
+                                                                 0,
+                                                                 0,
+                                                                 null,
+                                                                 null);
+
+      HornetQBuffer encoded = packet.encode(connection);
+
+      // as it would arrive from the wire
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(encoded.readableBytes());
+      buffer.writeBytes(encoded, encoded.readerIndex(), encoded.readableBytes());
+
+      Assert.assertEquals(buffer.writerIndex() - DataConstants.SIZE_INT, buffer.readInt());
+
+      SessionSendBatchMessage decoded = (SessionSendBatchMessage) ServerPacketDecoder.INSTANCE.decode(buffer);
+
+      Assert.assertTrue(decoded.isRequiresResponse());
+      Assert.assertNull(decoded.getHandler(0));
+      Assert.assertEquals(messages.size(), decoded.getMessages().size());
+
+      for (int i = 0; i < messages.size(); i++)
+      {
+         MessageInternal received = decoded.getMessages().get(i);
+
+         Assert.assertTrue(received instanceof ServerMessageImpl);
+         Assert.assertEquals(new SimpleString("address" + i), received.getAddress());
+         Assert.assertEquals(i % 2 == 0, received.isDurable());
+         Assert.assertEquals(i, received.getIntProperty(key).intValue());
+         Assert.assertEquals("body" + i, received.getBodyBuffer().readString());
+      }
+   }
+
+   private ServerMessageImpl encodeAndDecode(final ServerMessageImpl msg)
+   {
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(msg.getEncodeSize());
+      msg.encode(buffer);
+
+      ServerMessageImpl decoded = new ServerMessageImpl(msg.getMessageID(), 100);
+      decoded.decode(buffer);
+      return decoded;
+   }
+
+   private SessionReceiveMessage receive(final HornetQBuffer encoded)
+   {
+      // as it would arrive from the wire
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(encoded.readableBytes());
+      buffer.writeBytes(encoded, encoded.readerIndex(), encoded.readableBytes());
+
+      Assert.assertEquals(buffer.writerIndex() - DataConstants.SIZE_INT, buffer.readInt());
+
+      return (SessionReceiveMessage) ClientPacketDecoder.INSTANCE.decode(buffer);
+   }
+
    private void internalMessageCopy() throws Exception
    {
       final long RUNS = 2;
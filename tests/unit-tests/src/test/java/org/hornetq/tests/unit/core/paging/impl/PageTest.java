@@ -76,6 +76,142 @@ public class PageTest extends UnitTestCase
       testDamagedPage(new FakeSequentialFileFactory(1, false), 100);
    }
 
+   @Test
+   public void testIndexedReadWithNIO() throws Exception
+   {
+      recreateDirectory(getTestDir());
+      SequentialFileFactory factory = new NIOSequentialFileFactory(getTestDir());
+
+      SequentialFile file = factory.createSequentialFile("00010.page", 1);
+      Page impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+      impl.setIndexed(true);
+      impl.open();
+
+      SimpleString simpleDestination = new SimpleString("Test");
+
+      // more than one buffer of index entries
+      ArrayList<HornetQBuffer> buffers = addPageElements(simpleDestination, impl, 1000);
+
+      impl.close();
+
+      Assert.assertEquals(1, factory.listFiles("index").size());
+
+      impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+      impl.open();
+
+      for (int i : new int[]{0, 1, 511, 512, 513, 999})
+      {
+         List<PagedMessage> msgs = impl.read(new NullStorageManager(), i, 1);
+         Assert.assertEquals(1, msgs.size());
+         assertMessage(simpleDestination, buffers.get(i), msgs.get(0));
+      }
+
+      List<PagedMessage> msgs = impl.read(new NullStorageManager(), 300, 400);
+      Assert.assertEquals(400, msgs.size());
+      for (int i = 0; i < msgs.size(); i++)
+      {
+         assertMessage(simpleDestination, buffers.get(300 + i), msgs.get(i));
+      }
+
+      // not covered by the index
+      Assert.assertNull(impl.read(new NullStorageManager(), 999, 2));
+      Assert.assertNull(impl.read(new NullStorageManager(), 1000, 1));
+
+      Assert.assertEquals(1000, impl.read(new NullStorageManager()).size());
+
+      impl.close();
+
+      impl.delete(null);
+
+      Assert.assertEquals(0, factory.listFiles("page").size());
+      Assert.assertEquals(0, factory.listFiles("index").size());
+   }
+
+   @Test
+   public void testIndexedPageReopenedWithNIO() throws Exception
+   {
+      recreateDirectory(getTestDir());
+      SequentialFileFactory factory = new NIOSequentialFileFactory(getTestDir());
+      SimpleString simpleDestination = new SimpleString("Test");
+
+      SequentialFile file = factory.createSequentialFile("00010.page", 1);
+      Page impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+      impl.setIndexed(true);
+      impl.open();
+      ArrayList<HornetQBuffer> buffers = addPageElements(simpleDestination, impl, 10);
+      impl.close();
+
+      // reopened for writing as the live page is on a restart, the index keeps up with the page
+      impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+      impl.setIndexed(true);
+      impl.open();
+      impl.read(new NullStorageManager());
+      buffers.addAll(addPageElements(simpleDestination, impl, 10));
+      impl.close();
+
+      impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+      impl.open();
+      List<PagedMessage> msgs = impl.read(new NullStorageManager(), 0, 20);
+      Assert.assertEquals(20, msgs.size());
+      for (int i = 0; i < msgs.size(); i++)
+      {
+         assertMessage(simpleDestination, buffers.get(i), msgs.get(i));
+      }
+      impl.close();
+
+      // an index that doesn't match the page is dropped instead of being appended to
+      SequentialFile indexFile = factory.createSequentialFile("00010.page" + Page.INDEX_EXTENSION, 1);
+      indexFile.delete();
+
+      impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+      impl.setIndexed(true);
+      impl.open();
+      impl.read(new NullStorageManager());
+      addPageElements(simpleDestination, impl, 1);
+      impl.close();
+
+      Assert.assertEquals(0, factory.listFiles("index").size());
+
+      impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+      impl.open();
+      Assert.assertNull(impl.read(new NullStorageManager(), 20, 1));
+      Assert.assertEquals(21, impl.read(new NullStorageManager()).size());
+      impl.close();
+   }
+
+   @Test
+   public void testIndexedReadOfDamagedPageWithNIO() throws Exception
+   {
+      recreateDirectory(getTestDir());
+      SequentialFileFactory factory = new NIOSequentialFileFactory(getTestDir());
+      SimpleString simpleDestination = new SimpleString("Test");
+
+      SequentialFile file = factory.createSequentialFile("00010.page", 1);
+      Page impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+      impl.setIndexed(true);
+      impl.open();
+      addPageElements(simpleDestination, impl, 10);
+      impl.close();
+
+      file.open();
+      long positionA = file.size() / 2;
+      file.position(positionA);
+      ByteBuffer buffer = ByteBuffer.allocate(10);
+      for (int i = 0; i < buffer.capacity(); i++)
+      {
+         buffer.put((byte) 'Z');
+      }
+      buffer.rewind();
+      file.writeDirect(buffer, true);
+      file.close();
+
+      impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+      impl.open();
+      Assert.assertNotNull(impl.read(new NullStorageManager(), 0, 1));
+      Assert.assertNull(impl.read(new NullStorageManager(), 0, 10));
+      impl.close();
+   }
+
    /**
     * Validate if everything we add is recovered
     */
@@ -200,6 +336,16 @@ public class PageTest extends UnitTestCase
 
    }
 
+   private void assertMessage(final SimpleString simpleDestination, final HornetQBuffer buffer, final PagedMessage msg)
+   {
+      Assert.assertEquals(simpleDestination, msg.getMessage().getAddress());
+
+      UnitTestCase.assertEqualsByteArrays(buffer.toByteBuffer().array(), msg.getMessage()
+         .getBodyBuffer()
+         .toByteBuffer()
+         .array());
+   }
+
    /**
     * @param simpleDestination
     * @param page
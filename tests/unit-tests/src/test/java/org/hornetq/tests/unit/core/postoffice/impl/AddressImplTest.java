@@ -298,4 +298,30 @@ public class AddressImplTest extends UnitTestCase
       Assert.assertFalse(a1.matches(w));
    }
 
+   @Test
+   public void testV()
+   {
+      SimpleString s1 = new SimpleString("a.b");
+      SimpleString s2 = new SimpleString("a.x.y.b");
+      SimpleString s3 = new SimpleString("a.#.b");
+      Address a1 = new AddressImpl(s1);
+      Address a2 = new AddressImpl(s2);
+      Address w = new AddressImpl(s3);
+      Assert.assertTrue(a1.matches(w));
+      Assert.assertTrue(a2.matches(w));
+   }
+
+   @Test
+   public void testW()
+   {
+      SimpleString s1 = new SimpleString("a.a.c");
+      SimpleString s2 = new SimpleString("a.c.b");
+      SimpleString s3 = new SimpleString("#.c.*.#");
+      Address a1 = new AddressImpl(s1);
+      Address a2 = new AddressImpl(s2);
+      Address w = new AddressImpl(s3);
+      Assert.assertFalse(a1.matches(w));
+      Assert.assertTrue(a2.matches(w));
+   }
+
 }
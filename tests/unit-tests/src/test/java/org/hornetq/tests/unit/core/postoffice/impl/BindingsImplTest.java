@@ -23,6 +23,7 @@ import javax.transaction.xa.Xid;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterImpl;
 import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.BindingType;
 import org.hornetq.core.postoffice.Bindings;
@@ -78,6 +79,80 @@ public class BindingsImplTest extends UnitTestCase
       }
    }
 
+   @Test
+   public void testRouteOnIndexedFilters() throws Exception
+   {
+      FakeBinding red = new FakeBinding(new SimpleString("red"), FilterImpl.createFilter("color = 'red'"));
+      FakeBinding blue = new FakeBinding(new SimpleString("blue"), FilterImpl.createFilter("color IN ('blue', 'navy')"));
+      FakeBinding heavyRed = new FakeBinding(new SimpleString("heavyRed"),
+                                             FilterImpl.createFilter("weight > 10 AND color = 'red'"));
+      FakeBinding notRed = new FakeBinding(new SimpleString("notRed"), FilterImpl.createFilter("color <> 'red'"));
+      FakeBinding all = new FakeBinding(new SimpleString("all"), null);
+
+      Bindings bind = new BindingsImpl(null, null, null);
+      bind.addBinding(red);
+      bind.addBinding(blue);
+      bind.addBinding(heavyRed);
+      bind.addBinding(notRed);
+      bind.addBinding(all);
+
+      bind.route(createMessage("red", 5), new RoutingContextImpl(new FakeTransaction()));
+      bind.route(createMessage("red", 20), new RoutingContextImpl(new FakeTransaction()));
+      bind.route(createMessage("navy", 20), new RoutingContextImpl(new FakeTransaction()));
+      bind.route(createMessage(null, 20), new RoutingContextImpl(new FakeTransaction()));
+
+      assertEquals(2, red.routed);
+      assertEquals(1, blue.routed);
+      assertEquals(1, heavyRed.routed);
+      // a message without color is not red either
+      assertEquals(2, notRed.routed);
+      assertEquals(4, all.routed);
+   }
+
+   @Test
+   public void testRouteAfterIndexedBindingsChange() throws Exception
+   {
+      FakeBinding red = new FakeBinding(new SimpleString("red"), FilterImpl.createFilter("color = 'red'"));
+
+      Bindings bind = new BindingsImpl(null, null, null);
+      bind.addBinding(red);
+
+      bind.route(createMessage("red", 0), new RoutingContextImpl(new FakeTransaction()));
+      assertEquals(1, red.routed);
+
+      // a second binding on the same routing name, they are load balanced now
+      FakeBinding otherRed = new FakeBinding(new SimpleString("red"), FilterImpl.createFilter("color = 'red'"));
+      bind.addBinding(otherRed);
+
+      bind.route(createMessage("red", 0), new RoutingContextImpl(new FakeTransaction()));
+      bind.route(createMessage("red", 0), new RoutingContextImpl(new FakeTransaction()));
+      assertEquals(3, red.routed + otherRed.routed);
+      assertTrue(otherRed.routed > 0);
+
+      bind.removeBinding(otherRed);
+      bind.removeBinding(red);
+
+      bind.route(createMessage("red", 0), new RoutingContextImpl(new FakeTransaction()));
+      assertEquals(3, red.routed + otherRed.routed);
+
+      FakeBinding blue = new FakeBinding(new SimpleString("blue"), FilterImpl.createFilter("color = 'blue'"));
+      bind.addBinding(blue);
+
+      bind.route(createMessage("blue", 0), new RoutingContextImpl(new FakeTransaction()));
+      assertEquals(1, blue.routed);
+   }
+
+   private ServerMessage createMessage(final String color, final int weight)
+   {
+      ServerMessage message = new ServerMessageImpl(1, 100);
+      if (color != null)
+      {
+         message.putStringProperty(new SimpleString("color"), new SimpleString(color));
+      }
+      message.putIntProperty(new SimpleString("weight"), weight);
+      return message;
+   }
+
    private void internalTest(final boolean route) throws Exception
    {
       final FakeBinding fake = new FakeBinding(new SimpleString("a"));
@@ -293,9 +368,19 @@ public class BindingsImplTest extends UnitTestCase
 
       final SimpleString name;
 
+      final Filter filter;
+
+      int routed;
+
       FakeBinding(final SimpleString name)
+      {
+         this(name, new FakeFilter());
+      }
+
+      FakeBinding(final SimpleString name, final Filter filter)
       {
          this.name = name;
+         this.filter = filter;
       }
 
       public SimpleString getAddress()
@@ -334,7 +419,7 @@ public class BindingsImplTest extends UnitTestCase
        */
       public Filter getFilter()
       {
-         return new FakeFilter();
+         return filter;
       }
 
       public long getID()
@@ -379,7 +464,7 @@ public class BindingsImplTest extends UnitTestCase
 
       public void route(final ServerMessage message, final RoutingContext context) throws Exception
       {
-
+         routed++;
       }
 
       /* (non-Javadoc)
@@ -26,6 +26,7 @@ import org.hornetq.core.config.Configuration;
 import org.hornetq.core.persistence.GroupingInfo;
 import org.hornetq.core.persistence.QueueBindingInfo;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager;
+import org.hornetq.core.persistence.impl.nullpm.NullStorageManager;
 import org.hornetq.core.postoffice.PostOffice;
 import org.hornetq.core.postoffice.impl.DuplicateIDCacheImpl;
 import org.hornetq.core.server.impl.PostOfficeJournalLoader;
@@ -190,4 +191,133 @@ public class DuplicateDetectionUnitTest extends ServiceTestBase
       }
 
    }
+
+   @Test
+   public void testEvictOldestID() throws Exception
+   {
+      DuplicateIDCacheImpl cacheID = new DuplicateIDCacheImpl(new SimpleString("address"), 10, new NullStorageManager(), false);
+
+      List<byte[]> ids = new ArrayList<byte[]>();
+
+      for (int i = 0; i < 15; i++)
+      {
+         byte[] id = RandomUtil.randomBytes();
+         ids.add(id);
+         cacheID.addToCache(id, null);
+      }
+
+      for (int i = 0; i < 15; i++)
+      {
+         Assert.assertEquals(i >= 5, cacheID.contains(ids.get(i)));
+      }
+
+      cacheID.deleteFromCache(ids.get(10));
+      Assert.assertFalse(cacheID.contains(ids.get(10)));
+      Assert.assertEquals(9, cacheID.getMap().size());
+
+      // the deleted id is not brought back when its entry is overwritten
+      for (int i = 0; i < 6; i++)
+      {
+         cacheID.addToCache(RandomUtil.randomBytes(), null);
+      }
+      Assert.assertFalse(cacheID.contains(ids.get(10)));
+      Assert.assertTrue(cacheID.contains(ids.get(11)));
+   }
+
+   @Test
+   public void testLargeCacheKeepsLastIDs() throws Exception
+   {
+      final int cacheSize = 20000;
+
+      DuplicateIDCacheImpl cacheID = new DuplicateIDCacheImpl(new SimpleString("address"), cacheSize, new NullStorageManager(), false);
+
+      List<byte[]> ids = new ArrayList<byte[]>();
+
+      for (int i = 0; i < cacheSize * 3; i++)
+      {
+         // some ids don't fit on an entry of the ring
+         byte[] id = i % 10 == 0 ? new SimpleString(RandomUtil.randomString() + RandomUtil.randomString()).getData() : RandomUtil.randomBytes();
+         ids.add(id);
+         cacheID.addToCache(id, null);
+      }
+
+      for (int i = ids.size() - cacheSize; i < ids.size(); i++)
+      {
+         Assert.assertTrue(cacheID.contains(ids.get(i)));
+      }
+
+      Assert.assertFalse(cacheID.contains(ids.get(0)));
+      Assert.assertFalse(cacheID.contains(RandomUtil.randomBytes()));
+
+      for (int i = ids.size() - cacheSize; i < ids.size(); i += 2)
+      {
+         cacheID.deleteFromCache(ids.get(i));
+      }
+
+      for (int i = ids.size() - cacheSize; i < ids.size(); i++)
+      {
+         Assert.assertEquals(i % 2 != 0, cacheID.contains(ids.get(i)));
+      }
+   }
+
+   @Test
+   public void testSkewedIDsKeepLastIDs() throws Exception
+   {
+      final int cacheSize = 20000;
+
+      DuplicateIDCacheImpl cacheID = new DuplicateIDCacheImpl(new SimpleString("address"), cacheSize, new NullStorageManager(), false);
+
+      List<byte[]> ids = new ArrayList<byte[]>();
+
+      // evenly spread first, then every id on the same section of the cache, then spread again
+      for (int i = 0; i < cacheSize * 3; i++)
+      {
+         byte[] id;
+         do
+         {
+            id = RandomUtil.randomBytes();
+         }
+         while (i >= cacheSize / 2 && i < cacheSize * 2 && sectionOf(id) != 0);
+
+         ids.add(id);
+         cacheID.addToCache(id, null);
+
+         if (i % 997 == 0 || i == cacheSize * 2 - 1)
+         {
+            for (int j = Math.max(0, ids.size() - cacheSize); j < ids.size(); j++)
+            {
+               Assert.assertTrue("id " + j + " missing after adding " + i, cacheID.contains(ids.get(j)));
+            }
+
+            if (ids.size() > cacheSize)
+            {
+               Assert.assertFalse(cacheID.contains(ids.get(ids.size() - cacheSize - 1)));
+            }
+         }
+      }
+
+      List<Pair<byte[], Long>> map = cacheID.getMap();
+      Assert.assertEquals(cacheSize, map.size());
+      for (int i = 0; i < cacheSize; i++)
+      {
+         Assert.assertArrayEquals(ids.get(ids.size() - cacheSize + i), map.get(i).getA());
+      }
+   }
+
+   // the section of a large cache an id falls on, as DuplicateIDCacheImpl hashes it
+   private static int sectionOf(final byte[] id)
+   {
+      int h = 0;
+      for (byte b : id)
+      {
+         h = 31 * h + b;
+      }
+
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      h *= 0xc2b2ae35;
+      h ^= h >>> 16;
+      return (h >>> 24) & 15;
+   }
 }
@@ -14,6 +14,9 @@ package org.hornetq.tests.unit.core.postoffice.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
@@ -21,6 +24,7 @@ import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.BindingType;
 import org.hornetq.core.postoffice.Bindings;
 import org.hornetq.core.postoffice.BindingsFactory;
+import org.hornetq.core.postoffice.impl.AddressImpl;
 import org.hornetq.core.postoffice.impl.WildcardAddressManager;
 import org.hornetq.core.server.Bindable;
 import org.hornetq.core.server.Queue;
@@ -74,6 +78,74 @@ public class WildcardAddressManagerUnitTest extends UnitTestCase
       assertEquals("Exception happened during the process", 0, errors);
    }
 
+   @Test
+   public void testLinkedBindingsFollowAddressMatching() throws Exception
+   {
+      String[] addresses = {"a.b.c", "a", "b.b.c", "a.b", "a.x.c", "a.b.c.d", "c"};
+      String[] wildcards = {"#", "a.#", "a.*", "a.*.c", "*.b.c", "a.#.c", "#.c", "*", "a.b.#"};
+
+      WildcardAddressManager ad = new WildcardAddressManager(new BindingFactoryFake());
+
+      // addresses bound both before and after the wildcards
+      for (int i = 0; i < addresses.length; i += 2)
+      {
+         ad.addBinding(new BindingFake(addresses[i], "q." + addresses[i]));
+      }
+      for (String wildcard : wildcards)
+      {
+         ad.addBinding(new BindingFake(wildcard, "w." + wildcard));
+      }
+      for (int i = 1; i < addresses.length; i += 2)
+      {
+         ad.addBinding(new BindingFake(addresses[i], "q." + addresses[i]));
+      }
+
+      for (String address : addresses)
+      {
+         Set<SimpleString> expected = getMatchingWildcards(address, wildcards);
+         expected.add(SimpleString.toSimpleString("q." + address));
+         assertEquals(address, expected, getUniqueNames(ad, address));
+      }
+
+      // an address without bindings of its own only gets the wildcards
+      Set<SimpleString> unbound = getUniqueNames(ad, "a.y.c");
+      assertEquals(5, unbound.size());
+      assertEquals(getMatchingWildcards("a.y.c", wildcards), unbound);
+
+      for (String wildcard : wildcards)
+      {
+         ad.removeBinding(SimpleString.toSimpleString("w." + wildcard), null);
+      }
+
+      for (String address : addresses)
+      {
+         assertEquals(Collections.singleton(SimpleString.toSimpleString("q." + address)), getUniqueNames(ad, address));
+      }
+   }
+
+   private Set<SimpleString> getMatchingWildcards(final String address, final String[] wildcards)
+   {
+      Set<SimpleString> names = new HashSet<SimpleString>();
+      for (String wildcard : wildcards)
+      {
+         if (new AddressImpl(SimpleString.toSimpleString(address)).matches(new AddressImpl(SimpleString.toSimpleString(wildcard))))
+         {
+            names.add(SimpleString.toSimpleString("w." + wildcard));
+         }
+      }
+      return names;
+   }
+
+   private Set<SimpleString> getUniqueNames(final WildcardAddressManager ad, final String address) throws Exception
+   {
+      Set<SimpleString> names = new HashSet<SimpleString>();
+      for (Binding binding : ad.getBindingsForRoutingAddress(SimpleString.toSimpleString(address)).getBindings())
+      {
+         names.add(binding.getUniqueName());
+      }
+      return names;
+   }
+
    class BindingFactoryFake implements BindingsFactory
    {
       public Bindings createBindings(SimpleString address) throws Exception
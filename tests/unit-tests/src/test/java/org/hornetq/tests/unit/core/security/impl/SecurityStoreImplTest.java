@@ -0,0 +1,273 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.unit.core.security.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.api.core.HornetQSecurityException;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.security.CheckType;
+import org.hornetq.core.security.Role;
+import org.hornetq.core.security.impl.SecurityStoreImpl;
+import org.hornetq.core.server.ServerSession;
+import org.hornetq.core.settings.impl.HierarchicalObjectRepository;
+import org.hornetq.spi.core.security.HornetQSecurityManagerImpl;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * tests the caching of SecurityStoreImpl
+ */
+public class SecurityStoreImplTest extends UnitTestCase
+{
+   private CountingSecurityManager securityManager;
+
+   private HierarchicalObjectRepository<Set<Role>> securityRepository;
+
+   private ServerSession session;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      securityManager = new CountingSecurityManager();
+      securityManager.addUser("auser", "pass");
+      securityManager.addRole("auser", "arole");
+
+      securityRepository = new HierarchicalObjectRepository<Set<Role>>();
+      securityRepository.addMatch("#", roles("arole"));
+
+      session = createSession("auser", "pass");
+   }
+
+   @Test
+   public void testAuthenticationCached() throws Exception
+   {
+      SecurityStoreImpl store = createStore(10000, 0, 100);
+
+      store.authenticate("auser", "pass");
+      store.authenticate("auser", "pass");
+
+      Assert.assertEquals(1, securityManager.authentications.get());
+      Assert.assertEquals(1, store.getCacheHitCount());
+      Assert.assertEquals(1, store.getCacheMissCount());
+
+      // a different password is a different entry
+      assertAuthenticationFails(store, "auser", "wrong");
+      assertAuthenticationFails(store, "auser", "wrong");
+
+      Assert.assertEquals(3, securityManager.authentications.get());
+   }
+
+   @Test
+   public void testFailedAuthenticationCached() throws Exception
+   {
+      SecurityStoreImpl store = createStore(10000, 10000, 100);
+
+      assertAuthenticationFails(store, "auser", "wrong");
+      assertAuthenticationFails(store, "auser", "wrong");
+
+      Assert.assertEquals(1, securityManager.authentications.get());
+   }
+
+   @Test
+   public void testAuthorizationCached() throws Exception
+   {
+      SecurityStoreImpl store = createStore(10000, 0, 100);
+
+      store.check(new SimpleString("a"), CheckType.SEND, session);
+      store.check(new SimpleString("a"), CheckType.SEND, session);
+      store.check(new SimpleString("a"), CheckType.CONSUME, session);
+      store.check(new SimpleString("b"), CheckType.SEND, session);
+
+      Assert.assertEquals(3, securityManager.authorizations.get());
+      Assert.assertEquals(1, store.getCacheHitCount());
+      Assert.assertEquals(3, store.getCacheSize());
+   }
+
+   @Test
+   public void testFailedAuthorizationCached() throws Exception
+   {
+      securityRepository.addMatch("denied", roles("other"));
+
+      SecurityStoreImpl store = createStore(10000, 0, 100);
+
+      assertCheckFails(store, "denied");
+      assertCheckFails(store, "denied");
+
+      Assert.assertEquals(2, securityManager.authorizations.get());
+
+      store = createStore(10000, 10000, 100);
+
+      assertCheckFails(store, "denied");
+      assertCheckFails(store, "denied");
+
+      Assert.assertEquals(3, securityManager.authorizations.get());
+
+      // the decision goes once the settings change
+      securityRepository.addMatch("denied", roles("arole"));
+
+      store.check(new SimpleString("denied"), CheckType.SEND, session);
+
+      Assert.assertEquals(4, securityManager.authorizations.get());
+   }
+
+   @Test
+   public void testAuthorizationCacheBounded() throws Exception
+   {
+      SecurityStoreImpl store = createStore(10000, 0, 2);
+
+      store.check(new SimpleString("a"), CheckType.SEND, session);
+      store.check(new SimpleString("b"), CheckType.SEND, session);
+      store.check(new SimpleString("a"), CheckType.SEND, session);
+      store.check(new SimpleString("c"), CheckType.SEND, session);
+
+      Assert.assertEquals(3, securityManager.authorizations.get());
+      Assert.assertEquals(2, store.getCacheSize());
+
+      // b was the least recently used
+      store.check(new SimpleString("a"), CheckType.SEND, session);
+      store.check(new SimpleString("b"), CheckType.SEND, session);
+
+      Assert.assertEquals(4, securityManager.authorizations.get());
+   }
+
+   @Test
+   public void testAuthorizationExpires() throws Exception
+   {
+      SecurityStoreImpl store = createStore(100, 0, 100);
+
+      store.check(new SimpleString("a"), CheckType.SEND, session);
+
+      Thread.sleep(200);
+
+      store.check(new SimpleString("a"), CheckType.SEND, session);
+
+      Assert.assertEquals(2, securityManager.authorizations.get());
+   }
+
+   @Test
+   public void testCacheDisabled() throws Exception
+   {
+      SecurityStoreImpl store = createStore(10000, 10000, 0);
+
+      store.authenticate("auser", "pass");
+      store.authenticate("auser", "pass");
+      store.check(new SimpleString("a"), CheckType.SEND, session);
+      store.check(new SimpleString("a"), CheckType.SEND, session);
+
+      Assert.assertEquals(2, securityManager.authorizations.get());
+      Assert.assertEquals(0, store.getCacheSize());
+   }
+
+   private SecurityStoreImpl createStore(final long invalidationInterval,
+                                         final long negativeInvalidationInterval,
+                                         final int cacheSize)
+   {
+      return new SecurityStoreImpl(securityRepository,
+                                   securityManager,
+                                   invalidationInterval,
+                                   negativeInvalidationInterval,
+                                   cacheSize,
+                                   true,
+                                   "cluster",
+                                   "cluster-password",
+                                   null);
+   }
+
+   private void assertAuthenticationFails(final SecurityStoreImpl store, final String user, final String password) throws Exception
+   {
+      try
+      {
+         store.authenticate(user, password);
+         Assert.fail("authentication should fail");
+      }
+      catch (HornetQSecurityException e)
+      {
+         // ok
+      }
+   }
+
+   private void assertCheckFails(final SecurityStoreImpl store, final String address) throws Exception
+   {
+      try
+      {
+         store.check(new SimpleString(address), CheckType.SEND, session);
+         Assert.fail("check should fail");
+      }
+      catch (HornetQSecurityException e)
+      {
+         // ok
+      }
+   }
+
+   private static Set<Role> roles(final String name)
+   {
+      return new HashSet<Role>(Collections.singleton(new Role(name, true, true, true, true, true, true, true)));
+   }
+
+   private static ServerSession createSession(final String user, final String password)
+   {
+      return (ServerSession) Proxy.newProxyInstance(ServerSession.class.getClassLoader(),
+                                                    new Class[]{ServerSession.class},
+                                                    new InvocationHandler()
+                                                    {
+                                                       public Object invoke(Object proxy, Method method, Object[] args)
+                                                       {
+                                                          if (method.getName().equals("getUsername"))
+                                                          {
+                                                             return user;
+                                                          }
+                                                          if (method.getName().equals("getPassword"))
+                                                          {
+                                                             return password;
+                                                          }
+                                                          throw new UnsupportedOperationException(method.getName());
+                                                       }
+                                                    });
+   }
+
+   private static final class CountingSecurityManager extends HornetQSecurityManagerImpl
+   {
+      final AtomicInteger authentications = new AtomicInteger();
+
+      final AtomicInteger authorizations = new AtomicInteger();
+
+      @Override
+      public boolean validateUser(final String user, final String password)
+      {
+         authentications.incrementAndGet();
+         return super.validateUser(user, password);
+      }
+
+      @Override
+      public boolean validateUserAndRole(final String user,
+                                         final String password,
+                                         final Set<Role> roles,
+                                         final CheckType checkType)
+      {
+         authorizations.incrementAndGet();
+         return super.validateUserAndRole(user, password, roles, checkType);
+      }
+   }
+}
@@ -13,9 +13,11 @@
 package org.hornetq.tests.unit.core.server.impl;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -37,6 +39,7 @@ import org.hornetq.core.server.HornetQServers;
 import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.LockFreeQueue;
 import org.hornetq.core.server.impl.QueueImpl;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.tests.unit.core.server.impl.fakes.FakeConsumer;
@@ -1283,6 +1286,90 @@ public class QueueImplTest extends UnitTestCase
       Assert.assertEquals(4, queue.getDeliveringCount());
    }
 
+   @Test
+   public void testLockFreeIntakeConcurrentProducers() throws Exception
+   {
+      // more than one thread, so runners may overlap as they do while the queue switches executors
+      ExecutorService deliveryExecutor = Executors.newFixedThreadPool(3);
+
+      try
+      {
+         final LockFreeQueue queue = new LockFreeQueue(1,
+                                                       QueueImplTest.address1,
+                                                       QueueImplTest.queue1,
+                                                       null,
+                                                       null,
+                                                       false,
+                                                       true,
+                                                       scheduledExecutor,
+                                                       null,
+                                                       null,
+                                                       null,
+                                                       deliveryExecutor);
+
+         FakeConsumer consumer = new FakeConsumer();
+
+         queue.addConsumer(consumer);
+
+         final int numProducers = 10;
+
+         final int numMessages = 2000;
+
+         final CountDownLatch start = new CountDownLatch(1);
+
+         Thread[] producers = new Thread[numProducers];
+
+         for (int i = 0; i < numProducers; i++)
+         {
+            final int producer = i;
+
+            producers[i] = new Thread()
+            {
+               @Override
+               public void run()
+               {
+                  try
+                  {
+                     start.await();
+                  }
+                  catch (InterruptedException e)
+                  {
+                     return;
+                  }
+
+                  for (int j = 0; j < numMessages; j++)
+                  {
+                     queue.addTail(generateReference(queue, producer * numMessages + j));
+                  }
+               }
+            };
+
+            producers[i].start();
+         }
+
+         start.countDown();
+
+         for (Thread producer : producers)
+         {
+            producer.join();
+         }
+
+         Set<Long> delivered = new HashSet<Long>();
+
+         for (int i = 0; i < numProducers * numMessages; i++)
+         {
+            Assert.assertTrue(delivered.add(consumer.waitForNextReference(10000).getMessage().getMessageID()));
+         }
+
+         Assert.assertEquals(numProducers * numMessages, queue.getMessagesAdded());
+         Assert.assertEquals(numProducers * numMessages, queue.getDeliveringCount());
+      }
+      finally
+      {
+         deliveryExecutor.shutdownNow();
+      }
+   }
+
    @Test
    public void testMessageOrder() throws Exception
    {
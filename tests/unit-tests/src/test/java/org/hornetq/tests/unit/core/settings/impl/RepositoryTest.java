@@ -22,6 +22,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 
+import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.security.Role;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.Mergeable;
@@ -136,6 +137,49 @@ public class RepositoryTest extends UnitTestCase
       Assert.assertEquals("#", val);
    }
 
+   @Test
+   public void testMatchesWithinWords()
+   {
+      HierarchicalRepository<String> repository = new HierarchicalObjectRepository<String>();
+      repository.addMatch("#", "#");
+      repository.addMatch("a.#", "a.#");
+      repository.addMatch("a.b*", "a.b*");
+      repository.addMatch("a.b#", "a.b#");
+      repository.addMatch("a.*.c", "a.*.c");
+      Assert.assertEquals("a.b*", repository.getMatch("a.bb"));
+      Assert.assertEquals("a.b#", repository.getMatch("a.bb.c.d"));
+      Assert.assertEquals("a.*.c", repository.getMatch("a.x.c"));
+      Assert.assertEquals("a.#", repository.getMatch("a.x"));
+      Assert.assertEquals("#", repository.getMatch("a"));
+      Assert.assertEquals("#", repository.getMatch("a."));
+      Assert.assertEquals("a.#", repository.getMatch(new SimpleString("a..c")));
+   }
+
+   @Test
+   public void testChangesOnlyInvalidateMatchingAddresses()
+   {
+      HierarchicalRepository<String> repository = new HierarchicalObjectRepository<String>();
+      repository.setDefault("default");
+      repository.addMatch("a.#", "a.#");
+      Assert.assertEquals("a.#", repository.getMatch("a.b"));
+      Assert.assertEquals("default", repository.getMatch("x.y"));
+      Assert.assertEquals(2, repository.getCacheSize());
+
+      repository.addMatch("b.#", "b.#");
+      Assert.assertEquals(2, repository.getCacheSize());
+
+      repository.addMatch("a.b", "a.b");
+      Assert.assertEquals(1, repository.getCacheSize());
+      Assert.assertEquals("a.b", repository.getMatch("a.b"));
+
+      repository.addMatch("*.y", "*.y");
+      Assert.assertEquals("*.y", repository.getMatch(new SimpleString("x.y")));
+
+      repository.removeMatch("a.b");
+      Assert.assertEquals("a.#", repository.getMatch("a.b"));
+      Assert.assertEquals("*.y", repository.getMatch("x.y"));
+   }
+
    @Test
    public void testRepositoryMerge()
    {
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2005-2014 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.unit.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.hornetq.utils.ChunkedLinkedListImpl;
+import org.hornetq.utils.LinkedList;
+import org.hornetq.utils.LinkedListImpl;
+import org.hornetq.utils.LinkedListIterator;
+import org.junit.Test;
+
+/**
+ * Runs the LinkedListTest on ChunkedLinkedListImpl, plus the lists spanning many chunks and the compaction.
+ */
+public class ChunkedLinkedListTest extends LinkedListTest
+{
+   @Override
+   protected <E> LinkedList<E> createList()
+   {
+      return new ChunkedLinkedListImpl<E>();
+   }
+
+   @Override
+   protected int numIters(final LinkedList<?> list)
+   {
+      return ((ChunkedLinkedListImpl<?>) list).numIters();
+   }
+
+   @Test
+   public void testManyChunks()
+   {
+      ChunkedLinkedListImpl<Integer> list = new ChunkedLinkedListImpl<Integer>();
+
+      int num = 10000;
+
+      for (int i = 0; i < num; i++)
+      {
+         list.addTail(i);
+         list.addHead(-i - 1);
+      }
+
+      assertEquals(num * 2, list.size());
+
+      LinkedListIterator<Integer> iter = list.iterator();
+
+      for (int i = -num; i < num; i++)
+      {
+         assertTrue(iter.hasNext());
+         assertEquals(i, iter.next().intValue());
+      }
+
+      assertFalse(iter.hasNext());
+
+      iter.close();
+
+      for (int i = -num; i < num; i++)
+      {
+         assertEquals(i, list.poll().intValue());
+      }
+
+      assertNull(list.poll());
+      assertEquals(0, list.size());
+   }
+
+   @Test
+   public void testCompactMovesIterators()
+   {
+      ChunkedLinkedListImpl<Integer> list = new ChunkedLinkedListImpl<Integer>();
+
+      int num = 10000;
+
+      for (int i = 0; i < num; i++)
+      {
+         list.addTail(i);
+      }
+
+      LinkedListIterator<Integer> parked = list.iterator();
+
+      for (int i = 0; i <= num / 2; i++)
+      {
+         parked.next();
+      }
+
+      LinkedListIterator<Integer> fresh = list.iterator();
+
+      // remove all the odd elements, compacting on the way
+      LinkedListIterator<Integer> remover = list.iterator();
+
+      while (remover.hasNext())
+      {
+         int i = remover.next();
+
+         if (i % 2 == 1)
+         {
+            remover.remove();
+         }
+      }
+
+      assertEquals(num / 2, list.size());
+
+      // the parked iterator was on an odd element, it moves to the next one
+      for (int i = num / 2 + 2; i < num; i += 2)
+      {
+         assertEquals(i, parked.next().intValue());
+      }
+
+      assertFalse(parked.hasNext());
+
+      for (int i = 0; i < num; i += 2)
+      {
+         assertEquals(i, fresh.next().intValue());
+      }
+
+      assertFalse(fresh.hasNext());
+
+      list.addTail(num);
+
+      assertEquals(num, parked.next().intValue());
+      assertEquals(num, fresh.next().intValue());
+      assertEquals(num, remover.next().intValue());
+   }
+
+   @Test
+   public void testSameAsLinkedListImpl()
+   {
+      Random random = new Random(1234);
+
+      for (int run = 0; run < 50; run++)
+      {
+         LinkedListImpl<Integer> expected = new LinkedListImpl<Integer>();
+
+         ChunkedLinkedListImpl<Integer> list = new ChunkedLinkedListImpl<Integer>();
+
+         List<LinkedListIterator<Integer>> expectedIters = new ArrayList<LinkedListIterator<Integer>>();
+
+         List<LinkedListIterator<Integer>> iters = new ArrayList<LinkedListIterator<Integer>>();
+
+         for (int i = 0; i < 4; i++)
+         {
+            expectedIters.add(expected.iterator());
+
+            iters.add(list.iterator());
+         }
+
+         for (int op = 0; op < 20000; op++)
+         {
+            int which = random.nextInt(iters.size());
+
+            LinkedListIterator<Integer> expectedIter = expectedIters.get(which);
+
+            LinkedListIterator<Integer> iter = iters.get(which);
+
+            switch (random.nextInt(11))
+            {
+               case 0:
+               case 1:
+                  expected.addTail(op);
+                  list.addTail(op);
+                  break;
+               case 10:
+                  expected.addHead(op);
+                  list.addHead(op);
+                  break;
+               case 2:
+                  assertEquals(expected.poll(), list.poll());
+                  break;
+               case 3:
+                  expectedIter.repeat();
+                  iter.repeat();
+                  break;
+               case 4:
+                  if (expectedIter.hasNext())
+                  {
+                     assertEquals(expectedIter.next(), iter.next());
+                     assertEquals(remove(expectedIter), remove(iter));
+                  }
+                  break;
+               default:
+                  boolean hasNext = expectedIter.hasNext();
+
+                  assertEquals(hasNext, iter.hasNext());
+
+                  if (hasNext)
+                  {
+                     assertEquals(expectedIter.next(), iter.next());
+                  }
+            }
+
+            assertEquals(expected.size(), list.size());
+         }
+
+         Integer e;
+
+         while ((e = expected.poll()) != null)
+         {
+            assertEquals(e, list.poll());
+         }
+
+         assertNull(list.poll());
+      }
+   }
+
+   private static boolean remove(final LinkedListIterator<Integer> iter)
+   {
+      try
+      {
+         iter.remove();
+
+         return true;
+      }
+      catch (NoSuchElementException e)
+      {
+         // after a repeat
+         return false;
+      }
+   }
+}